@@ -34,6 +34,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -58,6 +59,7 @@ import cz.cuni.mff.spl.deploy.store.IStore.IStoreDirectory;
 import cz.cuni.mff.spl.deploy.store.IStore.IStoreDirectory.IStoreFile;
 import cz.cuni.mff.spl.deploy.store.LocalStore;
 import cz.cuni.mff.spl.deploy.store.exception.StoreException;
+import cz.cuni.mff.spl.evaluator.EarlyEvaluator;
 import cz.cuni.mff.spl.evaluator.Evaluator;
 import cz.cuni.mff.spl.evaluator.input.CachingMeasurementSampleProvider;
 import cz.cuni.mff.spl.evaluator.input.MeasurementSampleProvider;
@@ -368,16 +370,25 @@ public class Run {
                      */
                     SshReconnectingSession sshSession = initializeSshSession(machine, config, interactive)) {
 
-                Pair<List<Sampler>, Info> buildResult = build(localStore, machine, xml, interactive, config);
-                Info info = buildResult.getRight();
-                List<Sampler> samplers = buildResult.getLeft();
+                // samples loaded by early evaluation are reused by the
+                // complete one
+                MeasurementSampleProvider sampleProvider = new CachingMeasurementSampleProvider(new StoreMeasurementDataProvider(localStore));
 
-                execute(localStore, info, samplers, sshSession, machine, interactive, config);
+                Info info;
+                if (config.getDeploymentConfig().getPipelineBuild()) {
+                    info = buildAndExecute(localStore, machine, xml, sshSession, interactive, config, sampleProvider);
+                } else {
+                    Pair<List<Sampler>, Info> buildResult = build(localStore, machine, xml, interactive, config);
+                    info = buildResult.getRight();
+                    List<Sampler> samplers = buildResult.getLeft();
+
+                    execute(localStore, info, samplers, sshSession, machine, interactive, config, sampleProvider);
+                }
 
                 IStoreDirectory evaluationResult;
                 try {
                     ConfigurationBundle evalutorConfiguration = new ConfigurationBundle(null, config.getEvaluatorConfig(), config.getDeploymentConfig());
-                    evaluationResult = evaluate(localStore, info, evalutorConfiguration, localStore.createTemporaryDirectory("evaluator"));
+                    evaluationResult = evaluate(localStore, info, evalutorConfiguration, localStore.createTemporaryDirectory("evaluator"), sampleProvider);
                 } catch (StoreException e) {
                     logger.error(e, "Unable to create temporary directory.");
                     throw new SplRunError(e);
@@ -488,6 +499,57 @@ public class Run {
         }
     }
 
+    /**
+     * Loads SPL XML information and scans annotations. Builds all sampling code
+     * needed and submits each sampler for measuring as soon as it is built so
+     * that building and measuring overlap. Results are stored the same way as
+     * by {@link #execute}.
+     * 
+     * @param localStore
+     *            The local store.
+     * @param machine
+     *            The machine where to measure.
+     * @param xml
+     *            The xml.
+     * @param session
+     *            Already opened session to the machine.
+     * @param interactive
+     *            The interactive.
+     * @param config
+     *            The config.
+     * @param sampleProvider
+     *            The sample provider shared with evaluation, used by early
+     *            evaluation when enabled.
+     * @return The info.
+     * @throws SplRunError
+     *             The spl run error.
+     * @throws InterruptedException
+     *             The interrupted exception.
+     */
+    public static Info buildAndExecute(LocalStore localStore, String machine, File xml, SshReconnectingSession session,
+            InteractiveInterface interactive, ConfigurationBundle config, MeasurementSampleProvider sampleProvider)
+            throws SplRunError, InterruptedException {
+        try (PipelinedExecution pipeline = new PipelinedExecution(localStore, session, machine, interactive, config, sampleProvider)) {
+            Info info;
+            try {
+                logger.info("Scanning project, building and measuring code ... ");
+                Builder builder = new Builder(localStore, getMachine(machine, config.getAccessConfig()), xml, interactive, config);
+                builder.setSamplerListener(pipeline);
+                builder.call();
+                logger.info("Scanned project and builded code.");
+                info = builder.getInfo();
+
+            } catch (BuildException | StoreException e) {
+                throw new SplRunError(String.format(
+                        "Failed to scan the project and build any sampling code (%s).",
+                        e.getMessage()), e);
+            }
+
+            pipeline.finish();
+            return info;
+        }
+    }
+
     /**
      * Based on values loaded from INI file and machine name specified
      * instantiates {@link IExecution} object.
@@ -607,7 +669,8 @@ public class Run {
 
     /**
      * Executes all samplers via execution object and stores result in the
-     * store.
+     * store. Partial results of samplers which have not finished successfully
+     * are stored as partial when accepted by configuration.
      * 
      * @param localStore
      *            The local store.
@@ -623,12 +686,15 @@ public class Run {
      *            The interactive.
      * @param config
      *            The config.
+     * @param sampleProvider
+     *            The sample provider shared with evaluation, used by early
+     *            evaluation when enabled.
      * @throws InterruptedException
      *             The interrupted exception.
      */
     public static void execute(LocalStore localStore, Info info, List<Sampler> samplers, SshReconnectingSession session, String machine,
             InteractiveInterface interactive,
-            ConfigurationBundle config)
+            ConfigurationBundle config, MeasurementSampleProvider sampleProvider)
             throws InterruptedException {
         InvokedExecutionConfiguration.checkIfExecutionAborted();
 
@@ -642,40 +708,267 @@ public class Run {
             execution.start();
             logger.info("Measuring in progress.");
 
-            logger.info("Waiting for measurements to finish ... ");
-            execution.waitForFinished();
+            EarlyEvaluator earlyEvaluator = createEarlyEvaluator(localStore, info, config, sampleProvider);
+            if (earlyEvaluator != null) {
+                for (Sampler sampler : samplers) {
+                    earlyEvaluator.measuring(sampler.getIdentification());
+                }
+            }
 
-            if (execution.isSuccessful()) {
-                logger.info("Measurements finished successfully.");
-            } else {
-                logger.error("Some measurements failed.");
+            execution.setCompletionListener(createCompletionListener(execution, localStore, samplers, config, earlyEvaluator));
+            finishExecution(execution);
+
+        } catch (DeployException e) {
+            logger.error(e, "Failed to measure all samples successfully.");
+        }
+    }
+
+    /**
+     * Creates evaluator of formulas whose measurements are already stored
+     * when enabled by configuration.
+     * 
+     * @param localStore
+     *            The local store.
+     * @param info
+     *            The info with formulas.
+     * @param config
+     *            The config.
+     * @param sampleProvider
+     *            The sample provider shared with evaluation.
+     * @return
+     *         The early evaluator or null when not enabled.
+     */
+    private static EarlyEvaluator createEarlyEvaluator(LocalStore localStore, Info info, ConfigurationBundle config,
+            MeasurementSampleProvider sampleProvider) {
+        if (!config.getDeploymentConfig().getEarlyEvaluation() || sampleProvider == null) {
+            return null;
+        }
+        return new EarlyEvaluator(config, info, new StoreMeasurementDataProvider(localStore), sampleProvider);
+    }
+
+    /**
+     * Creates listener which stores result of each sampler in the store as
+     * soon as the sampler finishes so that transfers overlap with remaining
+     * measurements and finished results are kept even when execution fails
+     * later.
+     * 
+     * @param execution
+     *            The execution.
+     * @param localStore
+     *            The local store.
+     * @param samplers
+     *            Samplers executed, may grow while measuring.
+     * @param config
+     *            The config.
+     * @param earlyEvaluator
+     *            Evaluator of formulas whose measurements are stored or null.
+     * @return
+     *         The listener.
+     */
+    private static IExecution.CompletionListener createCompletionListener(final IExecution execution, final LocalStore localStore,
+            final List<Sampler> samplers, final ConfigurationBundle config, final EarlyEvaluator earlyEvaluator) {
+        final int[] transferred = { 0 };
+
+        return new IExecution.CompletionListener() {
+            @Override
+            public void samplerFinished(Sampler sampler)
+                    throws DeployException {
+                if (transferResult(execution, localStore, sampler, config)) {
+                    ++transferred[0];
+                    logger.info("Transferred [%" + Utils.magnitude(samplers.size()) + "d/%d].", transferred[0], samplers.size());
+                }
+                if (earlyEvaluator != null) {
+                    earlyEvaluator.measured(sampler.getIdentification());
+                }
             }
+        };
+    }
 
-            logger.info("Transfering measured data ... ");
-            int samplerId = 1;
-            for (Sampler sp : samplers) {
-                if (execution.getTrace(sp.getIdentification()).getStatus() != Trace.Status.Successful) {
-                    logger.error("Not transferring [%s]: measuring has failed.", sp.getIdentification());
+    /**
+     * Waits for all samplers to be measured. Results are stored by the
+     * completion listener of the execution.
+     * 
+     * @param execution
+     *            The started execution.
+     * @throws DeployException
+     */
+    private static void finishExecution(IExecution execution)
+            throws DeployException {
+        logger.info("Waiting for measurements to finish and transferring measured data ... ");
+        execution.waitForFinished();
 
-                } else {
-                    try (InputStream stream = execution.getResult(sp.getIdentification())) {
-                        localStore.saveMeasurement(stream, sp.getIdentification());
-                        logger.debug("Transferred measured data for [%s].", sp.getIdentification());
-                        logger.info("[%" + Utils.magnitude(samplers.size()) + "d/%d].", samplerId, samplers.size());
-                    } catch (IOException | StoreException e) {
-                        logger.error("Failed to transfer measured data for [%s] due to [%s].", sp.getIdentification(), e.getMessage());
-                    } catch (DeployException e) {
-                        logger.error("Failed to transfer measured data for [%s] due to [%s].", sp.getIdentification(), e.getMessage());
-                        throw e;
-                    }
+        if (execution.isSuccessful()) {
+            logger.info("Measurements finished successfully.");
+        } else {
+            logger.error("Some measurements failed.");
+        }
+        logger.info("Measured data transferred.");
+    }
+
+    /**
+     * Stores result of the finished sampler in the store. Partial results are
+     * stored only when accepted by configuration.
+     * 
+     * @param execution
+     *            The execution.
+     * @param localStore
+     *            The local store.
+     * @param sampler
+     *            The finished sampler.
+     * @param config
+     *            The config.
+     * @return
+     *         True if result has been stored.
+     * @throws DeployException
+     *             When transfer fails due to execution.
+     */
+    private static boolean transferResult(IExecution execution, LocalStore localStore, Sampler sampler, ConfigurationBundle config)
+            throws DeployException {
+        Trace trace = execution.getTrace(sampler.getIdentification());
+        boolean partial = trace.getStatus() != Trace.Status.Successful;
+
+        if (partial && !(trace.isPartial() && config.getDeploymentConfig().getAcceptPartialResults())) {
+            logger.error("Not transferring [%s]: measuring has failed.", sampler.getIdentification());
+            return false;
+        }
+
+        if (partial) {
+            logger.warn("Transferring partial measured data for [%s]: measuring ended with [%s].", sampler.getIdentification(),
+                    trace.getStatus());
+        }
+        try (InputStream stream = execution.getResult(sampler.getIdentification())) {
+            localStore.saveMeasurement(stream, sampler.getIdentification(), partial);
+            logger.debug("Transferred measured data for [%s].", sampler.getIdentification());
+            return true;
+        } catch (IOException | StoreException e) {
+            logger.error("Failed to transfer measured data for [%s] due to [%s].", sampler.getIdentification(), e.getMessage());
+            return false;
+        } catch (DeployException e) {
+            logger.error("Failed to transfer measured data for [%s] due to [%s].", sampler.getIdentification(), e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Submits samplers for measuring as they are built. Execution is started
+     * with the first sampler. Failure to submit a sampler is logged and stops
+     * further submission, samplers submitted so far are still measured.
+     * Results of samplers finished while building are stored right away. When
+     * closed before submission has been finished (build failed or was
+     * aborted) the server is told to end and stop and results of samplers
+     * finished so far are stored.
+     */
+    private static class PipelinedExecution implements Builder.SamplerListener, AutoCloseable {
+
+        private final LocalStore                localStore;
+        private final SshReconnectingSession    session;
+        private final String                    machine;
+        private final InteractiveInterface      interactive;
+        private final ConfigurationBundle       config;
+        private final MeasurementSampleProvider sampleProvider;
+
+        /** Execution started with the first sampler. */
+        private IExecution                      execution      = null;
+        /** Early evaluator created with the execution or null. */
+        private EarlyEvaluator                  earlyEvaluator = null;
+        /** Samplers submitted so far. */
+        private final List<Sampler>             samplers       = new ArrayList<>();
+        /** Whether submission has failed. */
+        private boolean                         failed         = false;
+        /** Whether server has been told no more samplers will come. */
+        private boolean                         submitted      = false;
+
+        public PipelinedExecution(LocalStore localStore, SshReconnectingSession session, String machine, InteractiveInterface interactive,
+                ConfigurationBundle config, MeasurementSampleProvider sampleProvider) {
+            this.localStore = localStore;
+            this.session = session;
+            this.machine = machine;
+            this.interactive = interactive;
+            this.config = config;
+            this.sampleProvider = sampleProvider;
+        }
+
+        @Override
+        public void samplerBuilt(Info info, Sampler sampler) {
+            if (failed) {
+                return;
+            }
+
+            try {
+                if (execution == null) {
+                    execution = initializeExecution(localStore, info, new ArrayList<Sampler>(), session, machine, interactive, config);
+                    logger.info("Starting measuring ... ");
+                    execution.open();
+                    logger.info("Measuring in progress.");
+                    earlyEvaluator = createEarlyEvaluator(localStore, info, config, sampleProvider);
+                    execution.setCompletionListener(createCompletionListener(execution, localStore, samplers, config, earlyEvaluator));
+                }
+                execution.submit(sampler);
+                samplers.add(sampler);
+                if (earlyEvaluator != null) {
+                    earlyEvaluator.measuring(sampler.getIdentification());
                 }
 
-                samplerId++;
+            } catch (DeployException e) {
+                failed = true;
+                logger.error(e, "Failed to submit sampler [%s] for measuring.", sampler.getIdentification());
+                return;
             }
-            logger.info("Measured data transferred.");
 
-        } catch (DeployException e) {
-            logger.error(e, "Failed to measure all samples successfully.");
+            transferFinished();
+        }
+
+        /**
+         * Stores results of samplers finished so far.
+         */
+        private void transferFinished() {
+            try {
+                execution.checkFinished();
+            } catch (DeployException e) {
+                logger.error(e, "Failed to transfer measured data of finished samplers.");
+            }
+        }
+
+        /**
+         * Waits for submitted samplers to be measured and stores results in
+         * the store.
+         */
+        public void finish() {
+            InvokedExecutionConfiguration.checkIfExecutionAborted();
+
+            if (execution == null) {
+                if (!failed) {
+                    logger.info("Nothing to measure, skipping measurement.");
+                }
+                return;
+            }
+
+            try {
+                execution.finishSubmission();
+                submitted = true;
+                finishExecution(execution);
+            } catch (DeployException e) {
+                logger.error(e, "Failed to measure all samples successfully.");
+            }
+        }
+
+        @Override
+        public void close() {
+            if (execution == null) {
+                return;
+            }
+
+            try {
+                if (!submitted) {
+                    execution.finishSubmission();
+                    execution.stop();
+                    transferFinished();
+                }
+            } catch (DeployException e) {
+                logger.error(e, "Failed to end measuring of submitted samplers.");
+            } finally {
+                execution.close();
+            }
         }
     }
 
@@ -696,6 +989,29 @@ public class Run {
      *             Throws when evaluation is not performed correctly.
      */
     public static IStoreDirectory evaluate(IStore store, Info info, ConfigurationBundle configuration, File temporaryDirectory) throws SplRunError {
+        return evaluate(store, info, configuration, temporaryDirectory, new CachingMeasurementSampleProvider(new StoreMeasurementDataProvider(store)));
+    }
+
+    /**
+     * Runs evaluation on provided context information with samples from the
+     * provider. Samples already loaded by the provider are not loaded again.
+     * 
+     * @param store
+     *            The store to save evaluation result to.
+     * @param info
+     *            The info.
+     * @param configuration
+     *            The configuration.
+     * @param temporaryDirectory
+     *            The temporary directory.
+     * @param sampleProvider
+     *            The sample provider reading samples from the store.
+     * @return The store directory with evaluation result.
+     * @throws SplRunError
+     *             Throws when evaluation is not performed correctly.
+     */
+    public static IStoreDirectory evaluate(IStore store, Info info, ConfigurationBundle configuration, File temporaryDirectory,
+            MeasurementSampleProvider sampleProvider) throws SplRunError {
         InvokedExecutionConfiguration.checkIfExecutionAborted();
 
         checkEvaluationPreconditions(store, info, configuration.getEvaluatorConfig());
@@ -704,9 +1020,6 @@ public class Run {
 
         long nanos = System.nanoTime();
 
-        StoreMeasurementDataProvider measurementDataProvider = new StoreMeasurementDataProvider(store);
-        MeasurementSampleProvider sampleProvider = new CachingMeasurementSampleProvider(measurementDataProvider);
-
         IStoreDirectory outputStoreDirectory;
         try {
             outputStoreDirectory = store.createEvaluationDirectory("run-evaluate");
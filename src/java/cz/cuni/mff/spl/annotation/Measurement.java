@@ -31,6 +31,7 @@ import java.util.Map;
 
 import cz.cuni.mff.spl.conversion.AbstractXmlTransformationReference;
 import cz.cuni.mff.spl.formula.context.ParserContext;
+import cz.cuni.mff.spl.formula.context.ParserContext.Problem;
 import cz.cuni.mff.spl.utils.EqualsUtils;
 
 /**
@@ -43,6 +44,34 @@ import cz.cuni.mff.spl.utils.EqualsUtils;
  */
 public class Measurement extends AbstractXmlTransformationReference implements AnnotationToString {
 
+    /** The metric of measured time, used when no metric is specified. */
+    public static final String     METRIC_TIME       = "time";
+
+    /** The metric of bytes allocated by measured code. */
+    public static final String     METRIC_ALLOCATION = "alloc";
+
+    /** The metric of elapsed wall clock time. */
+    public static final String     METRIC_WALL_TIME  = "walltime";
+
+    /** The metric of CPU time consumed by measuring thread. */
+    public static final String     METRIC_CPU_TIME   = "cputime";
+
+    /** The metric of time spent in garbage collection. */
+    public static final String     METRIC_GC_TIME    = "gctime";
+
+    /**
+     * The metric of calls of measured method per second by all threads of
+     * concurrent measurement.
+     */
+    public static final String     METRIC_THROUGHPUT = "throughput";
+
+    /**
+     * Supported metrics. Names of metrics match names of columns stored by
+     * samplers. {@link #METRIC_TIME} is measured by configured time source.
+     */
+    public static final String[]   METRICS           = { METRIC_TIME, METRIC_ALLOCATION, METRIC_WALL_TIME, METRIC_CPU_TIME,
+            METRIC_GC_TIME, METRIC_THROUGHPUT };
+
     /** The method. */
     private Method                 method;
 
@@ -55,6 +84,24 @@ public class Measurement extends AbstractXmlTransformationReference implements A
     /** The variables for generator. */
     private Variable               variable;
 
+    /**
+     * The metric of measurement, {@code null} for {@link #METRIC_TIME}.
+     * Measurements differing only in metric share the same sampler.
+     */
+    private String                 metric;
+
+    /**
+     * The count of threads measuring concurrently, {@code null} when not
+     * specified in formula.
+     */
+    private Integer                threads;
+
+    /**
+     * The count of threads as declared in formula, variable name or number.
+     * Used only before expanding into final structure.
+     */
+    private String                 threadsDeclaration;
+
     /** The measurement state. Has no effect on hashcode and equals. */
     private final MeasurementState measurementState = new MeasurementState();
 
@@ -127,6 +174,103 @@ public class Measurement extends AbstractXmlTransformationReference implements A
         this.machine = machine;
     }
 
+    /**
+     * Gets the metric of measurement.
+     * 
+     * @return The metric, one of {@link #METRICS}.
+     */
+    public String getMetric() {
+        return metric != null ? metric : METRIC_TIME;
+    }
+
+    /**
+     * Gets the metric of measurement as stored, {@code null} for time metric.
+     * For purpose of serialization, time measurements are stored without
+     * metric.
+     * 
+     * @return The metric or {@code null}.
+     */
+    public String getStoredMetric() {
+        return metric;
+    }
+
+    /**
+     * Sets the metric of measurement.
+     * 
+     * @param metric
+     *            The metric, one of {@link #METRICS}. {@code null} stands
+     *            for {@link #METRIC_TIME}.
+     */
+    public void setMetric(String metric) {
+        this.metric = METRIC_TIME.equals(metric) ? null : metric;
+    }
+
+    /**
+     * Gets the count of threads measuring concurrently.
+     * 
+     * @return The count of threads or {@code null} when not specified.
+     */
+    public Integer getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the count of threads measuring concurrently.
+     * 
+     * @param threads
+     *            The count of threads or {@code null} when not specified.
+     */
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Sets the count of threads as declared in formula. Variable is resolved
+     * when measurement is expanded. This can be done only before transforming
+     * into final structure.
+     * 
+     * @param threadsDeclaration
+     *            Variable name or number.
+     */
+    public void setThreadsDeclaration(String threadsDeclaration) {
+        this.threadsDeclaration = threadsDeclaration;
+    }
+
+    /**
+     * Checks if metric is supported.
+     * 
+     * @param metric
+     *            The metric.
+     * @return True, if metric is one of {@link #METRICS}.
+     */
+    public static boolean isMetricSupported(String metric) {
+        for (String supported : METRICS) {
+            if (supported.equals(metric)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the measurement which is actually measured by sampler. Sampler
+     * records all metrics, so measurement of other metric than time is
+     * measured as its time measurement.
+     * 
+     * @return This measurement when its metric is time or new measurement
+     *         differing only in time metric.
+     */
+    public Measurement getSampledMeasurement() {
+        if (metric == null) {
+            return this;
+        }
+        Measurement sampled = new Measurement(method, generator, machine);
+        sampled.variable = variable;
+        sampled.threads = threads;
+        sampled.threadsDeclaration = threadsDeclaration;
+        return sampled;
+    }
+
     public MeasurementState getMeasurementState() {
         return measurementState;
     }
@@ -135,6 +279,7 @@ public class Measurement extends AbstractXmlTransformationReference implements A
         this.measurementState.setOk(measurementState.isOk());
         this.measurementState.setLastPhase(measurementState.getLastPhase());
         this.measurementState.setMessage(measurementState.getMessage());
+        this.measurementState.setBorrowedFrom(measurementState.getBorrowedFrom());
     }
 
     /** ID has no influence to hash code. */
@@ -149,6 +294,17 @@ public class Measurement extends AbstractXmlTransformationReference implements A
         // result = prime * result + ((machine == null) ? 0 :
         result = prime * result + ((method == null) ? 0 : method.hashCode());
         result = prime * result + ((variable == null) ? 0 : variable.hashCode());
+        // time measurements keep hash code, it identifies stored samples
+        if (metric != null) {
+            result = prime * result + metric.hashCode();
+        }
+        // so do single threaded ones
+        if (threads != null) {
+            result = prime * result + threads.hashCode();
+        }
+        if (threadsDeclaration != null) {
+            result = prime * result + threadsDeclaration.hashCode();
+        }
         return result;
     }
 
@@ -168,7 +324,10 @@ public class Measurement extends AbstractXmlTransformationReference implements A
         return EqualsUtils.safeEquals(this.machine, other.machine)
                 && EqualsUtils.safeEquals(this.generator, other.generator)
                 && EqualsUtils.safeEquals(this.method, other.method)
-                && EqualsUtils.safeEquals(this.variable, other.variable);
+                && EqualsUtils.safeEquals(this.variable, other.variable)
+                && EqualsUtils.safeEquals(this.metric, other.metric)
+                && EqualsUtils.safeEquals(this.threads, other.threads)
+                && EqualsUtils.safeEquals(this.threadsDeclaration, other.threadsDeclaration);
     }
 
     /**
@@ -192,9 +351,64 @@ public class Measurement extends AbstractXmlTransformationReference implements A
         Measurement measurement;
         measurement = new Measurement(context.addMethod(method), context.addGenerator(generator), machine);
         measurement.variable = new ExpandedVariable(context, valuesArr, position, (ParserVariable) variable);
+        measurement.metric = metric;
+        measurement.threads = threads != null ? threads : expandThreads(context, valuesArr, position);
         return context.addMeasurement(measurement);
     }
 
+    /**
+     * Resolves thread count declaration into concrete value.
+     * 
+     * @param context
+     *            Parser context for error handling.
+     * @param valuesArr
+     *            Array of concrete variable values
+     * @param position
+     *            Mapping variable name to index of variable value in
+     *            valuesArr
+     * @return The count of threads or {@code null} when not declared or
+     *         invalid.
+     */
+    private Integer expandThreads(ParserContext context, int[] valuesArr, Map<String, Integer> position) {
+        if (threadsDeclaration == null) {
+            return null;
+        }
+
+        Integer value = null;
+        Integer positionIdx = position.get(threadsDeclaration);
+        if (positionIdx != null) {
+            value = valuesArr[positionIdx];
+            context.addUsedVariable(threadsDeclaration);
+        } else {
+            try {
+                value = Integer.parseInt(threadsDeclaration);
+            } catch (NumberFormatException e) {
+                context.addError(new Problem("Variable " + threadsDeclaration + " was not declared"));
+                return null;
+            }
+        }
+
+        if (value < 1) {
+            context.addError(new Problem("Count of threads must be positive: " + value));
+            return null;
+        }
+        return value;
+    }
+
+    /**
+     * Appends thread count in braces to the buffer when specified.
+     * 
+     * @param buffer
+     *            The buffer.
+     */
+    private void appendThreads(StringBuilder buffer) {
+        if (threads != null) {
+            buffer.append("{").append(threads).append("}");
+        } else if (threadsDeclaration != null) {
+            buffer.append("{").append(threadsDeclaration).append("}");
+        }
+    }
+
     @Override
     public String toString() {
         return getDeclarationString();
@@ -208,6 +422,11 @@ public class Measurement extends AbstractXmlTransformationReference implements A
         buffer.append(generator.getDeclarationString());
         buffer.append("]");
         buffer.append(variable.getDeclarationString());
+        appendThreads(buffer);
+        if (metric != null) {
+            buffer.append("@");
+            buffer.append(metric);
+        }
         return buffer.toString();
     }
 
@@ -226,6 +445,11 @@ public class Measurement extends AbstractXmlTransformationReference implements A
         buffer.append(generator.getIdentificationString());
         buffer.append("]");
         buffer.append(variable.getIdentificationString());
+        appendThreads(buffer);
+        if (metric != null) {
+            buffer.append("@");
+            buffer.append(metric);
+        }
         return buffer.toString();
     }
 }
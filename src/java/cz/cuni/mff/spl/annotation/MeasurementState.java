@@ -44,6 +44,12 @@ public class MeasurementState {
     /** The message. */
     private String    message;
 
+    /**
+     * Identification of measurement whose data were reused or {@code null}
+     * when data were measured.
+     */
+    private String    borrowedFrom;
+
     /**
      * The Enum LastPhase.
      */
@@ -86,10 +92,18 @@ public class MeasurementState {
         return message;
     }
 
+    public void setBorrowedFrom(String borrowedFrom) {
+        this.borrowedFrom = borrowedFrom;
+    }
+
+    public String getBorrowedFrom() {
+        return borrowedFrom;
+    }
+
     // generated by eclipse
     @Override
     public String toString() {
-        return "MeasurementState [ok=" + ok + ", lastPhase=" + lastPhase + ", message=" + message + "]";
+        return "MeasurementState [ok=" + ok + ", lastPhase=" + lastPhase + ", message=" + message + ", borrowedFrom=" + borrowedFrom + "]";
     }
 
     // generated by eclipse
@@ -97,6 +111,7 @@ public class MeasurementState {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
+        result = prime * result + ((borrowedFrom == null) ? 0 : borrowedFrom.hashCode());
         result = prime * result + ((lastPhase == null) ? 0 : lastPhase.hashCode());
         result = prime * result + ((message == null) ? 0 : message.hashCode());
         result = prime * result + (ok ? 1231 : 1237);
@@ -116,6 +131,13 @@ public class MeasurementState {
             return false;
         }
         MeasurementState other = (MeasurementState) obj;
+        if (borrowedFrom == null) {
+            if (other.borrowedFrom != null) {
+                return false;
+            }
+        } else if (!borrowedFrom.equals(other.borrowedFrom)) {
+            return false;
+        }
         if (lastPhase != other.lastPhase) {
             return false;
         }
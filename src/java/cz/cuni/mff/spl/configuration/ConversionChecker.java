@@ -85,4 +85,48 @@ public class ConversionChecker {
             errors.add(String.format("Configuration value [%s] is not supported for key [%s].", value, key));
         }
     }
+
+    /**
+     * <p>
+     * Tries to decode {@code value} to {@link Double} type. If conversion
+     * fails error is filled into {@code errors} list.
+     * </p>
+     * 
+     * @param errors
+     *            Where to add error if occurs.
+     * @param key
+     *            For debugging purpose into errors only.
+     * @param value
+     *            The value tried for decoding.
+     */
+    public static void tryDecodeDouble(List<String> errors, String key, String value) {
+        try {
+            IniValueConvertor.decodeDouble(value);
+        } catch (InvalidValueException e) {
+            errors.add(String.format("Configuration value [%s] is not supported for key [%s].", value, key));
+        }
+    }
+
+    /**
+     * <p>
+     * Checks that {@code value} is one of allowed {@code choices}. If it is
+     * not error is filled into {@code errors} list.
+     * </p>
+     * 
+     * @param errors
+     *            Where to add error if occurs.
+     * @param key
+     *            For debugging purpose into errors only.
+     * @param value
+     *            The value checked.
+     * @param choices
+     *            The allowed values.
+     */
+    public static void tryDecodeChoice(List<String> errors, String key, String value, String... choices) {
+        try {
+            IniValueConvertor.validateChoice(value, choices);
+        } catch (InvalidValueException e) {
+            errors.add(String.format("Configuration value [%s] is not supported for key [%s].", value, key));
+        }
+    }
 }
@@ -45,6 +45,18 @@ import cz.cuni.mff.spl.conversion.IniConversionSplDeploymentConfiguration;
  */
 public class SplDeploymentConfiguration {
 
+    /** Allowed values of {@link #getGcPolicy()}. */
+    public static final String[] GC_POLICIES  = { "keep", "drop", "subtract" };
+
+    /** Allowed values of {@link #getWarmupMode()}. */
+    public static final String[] WARMUP_MODES = { "fixed", "adaptive" };
+
+    /** Allowed values of {@link #getMeasurementMode()}. */
+    public static final String[] MEASUREMENT_MODES = { "fixed", "precision", "cold" };
+
+    /** Allowed values of {@link #getPairing()}. */
+    public static final String[] PAIRING_MODES = { "none", "alternate", "random" };
+
     /**
      * @return
      *         <p>
@@ -98,6 +110,84 @@ public class SplDeploymentConfiguration {
     /** What time source should be used */
     private String                  timeSource;
     private static final String     defaultTimeSource        = "threadtime";
+    /** How to treat samples during which garbage collection occurred. */
+    private String               gcPolicy                 = defaultGcPolicy;
+    private static final String  defaultGcPolicy          = "keep";
+    /** How warmup end is decided. */
+    private String               warmupMode               = defaultWarmupMode;
+    private static final String  defaultWarmupMode        = "fixed";
+    /** How many last warmup cycles are checked for steady state. */
+    private int                  warmupWindow             = defaultWarmupWindow;
+    private static final int     defaultWarmupWindow      = 50;
+    /** Maximal coefficient of variation and drift of steady state window. */
+    private double               warmupCvLimit            = defaultWarmupCvLimit;
+    private static final double  defaultWarmupCvLimit     = 0.05;
+    /** Maximal warmup time in seconds in adaptive warmup mode. */
+    private int                  warmupMaxTime            = defaultWarmupMaxTime;
+    private static final int     defaultWarmupMaxTime     = 60;
+    /** How measurement end is decided. */
+    private String               measurementMode          = defaultMeasurementMode;
+    private static final String  defaultMeasurementMode   = "fixed";
+    /** Target relative confidence interval half-width of sample mean. */
+    private double               measurementPrecision     = defaultMeasurementPrecision;
+    private static final double  defaultMeasurementPrecision = 0.01;
+    /** In how many separate JVM invocations each sampler is run. */
+    private int                  forks                    = defaultForks;
+    private static final int     defaultForks             = 1;
+    /** Whether and how compared measurements are measured in pairs. */
+    private String               pairing                  = defaultPairing;
+    private static final String  defaultPairing           = "none";
+    /** Whether bytes allocated by measured code are recorded too. */
+    private boolean              measureAllocation        = defaultMeasureAllocation;
+    private static final boolean defaultMeasureAllocation = false;
+    /** Whether both wall clock and thread CPU times are recorded. */
+    private boolean              measureAllTimeSources        = defaultMeasureAllTimeSources;
+    private static final boolean defaultMeasureAllTimeSources = false;
+    /** Longest interval in seconds between flushes of partial results. */
+    private int                  resultFlushInterval      = defaultResultFlushInterval;
+    private static final int     defaultResultFlushInterval = 1;
+    /** Whether partial results of not finished samplers are evaluated. */
+    private boolean              acceptPartialResults     = defaultAcceptPartialResults;
+    private static final boolean defaultAcceptPartialResults = false;
+    /** Count of threads measuring methods without own thread count concurrently. */
+    private int                  threads                  = defaultThreads;
+    private static final int     defaultThreads           = 1;
+    /** Shortest time in microseconds of single sample, cycles are batched. */
+    private int                  minimumSampleTime        = defaultMinimumSampleTime;
+    private static final int     defaultMinimumSampleTime = -1;
+    /** How many first invocations are timed in each launch in cold mode. */
+    private int                  coldInvocations          = defaultColdInvocations;
+    private static final int     defaultColdInvocations   = 1;
+    /** Whether sampler is run as JMH benchmark of the same method. */
+    private boolean              jmhBenchmark             = defaultJmhBenchmark;
+    private static final boolean defaultJmhBenchmark      = false;
+    /** How many jobs server executes concurrently. */
+    private int                  jobSlots                 = defaultJobSlots;
+    private static final int     defaultJobSlots          = 1;
+    /** CPU sets of job slots separated by semicolons, empty to derive them. */
+    private String               slotCpus                 = defaultSlotCpus;
+    private static final String  defaultSlotCpus          = "";
+    /** Whether slots leave out sibling hyper-threads of their CPUs. */
+    private boolean              excludeSiblingThreads    = defaultExcludeSiblingThreads;
+    private static final boolean defaultExcludeSiblingThreads = false;
+    /** Whether samplers are measured while the rest is still being built. */
+    private boolean              pipelineBuild            = defaultPipelineBuild;
+    private static final boolean defaultPipelineBuild     = false;
+    /** Whether formulas are evaluated as soon as their data are stored. */
+    private boolean              earlyEvaluation          = defaultEarlyEvaluation;
+    private static final boolean defaultEarlyEvaluation   = false;
+    /** How many samplers are assembled concurrently, 0 for CPU count. */
+    private int                  buildThreads             = defaultBuildThreads;
+    private static final int     defaultBuildThreads      = 0;
+    /** How many revisions are prepared concurrently, 0 for CPU count. */
+    private int                  revisionThreads          = defaultRevisionThreads;
+    private static final int     defaultRevisionThreads   = 0;
+    /** Size limit of cached revisions in megabytes, 0 disables the cache. */
+    private int                  revisionCacheSize        = defaultRevisionCacheSize;
+    private static final int     defaultRevisionCacheSize = 0;
+    /** Whether data of measurements with the same bytecode are reused. */
+    private boolean              fingerprintReuse         = defaultFingerprintReuse;
+    private static final boolean defaultFingerprintReuse  = false;
 
     /**
      * <p>
@@ -252,6 +342,102 @@ public class SplDeploymentConfiguration {
         this.timeSource = timeSource;
     }
 
+    /**
+     * @return
+     *         How to treat samples during which garbage collection occurred.
+     *         One of {@code keep}, {@code drop} or {@code subtract}.
+     */
+    public String getGcPolicy() {
+        return gcPolicy;
+    }
+
+    /**
+     * @param gcPolicy
+     *            How to treat samples during which garbage collection
+     *            occurred. One of {@code keep} (sample is kept and flagged),
+     *            {@code drop} (sample is discarded and cycle re-measured) or
+     *            {@code subtract} (collection time is subtracted from sample).
+     *            Collection time has only millisecond resolution and thread
+     *            time never contains it, so {@code subtract} is only valid
+     *            with wall clock time source.
+     */
+    public void setGcPolicy(String gcPolicy) {
+        this.gcPolicy = gcPolicy;
+    }
+
+    /**
+     * @return
+     *         How warmup end is decided. One of {@code fixed} or
+     *         {@code adaptive}.
+     */
+    public String getWarmupMode() {
+        return warmupMode;
+    }
+
+    /**
+     * @param warmupMode
+     *            How warmup end is decided. If {@code fixed} warmup runs for
+     *            warmup cycles or warmup time. If {@code adaptive} warmup ends
+     *            once cycle times are steady and JIT compilation stopped or
+     *            once warmup max time is spent, warmup cycles and time are not
+     *            used.
+     */
+    public void setWarmupMode(String warmupMode) {
+        this.warmupMode = warmupMode;
+    }
+
+    /**
+     * @return
+     *         How many last warmup cycles are checked for steady state.
+     */
+    public int getWarmupWindow() {
+        return warmupWindow;
+    }
+
+    /**
+     * @param warmupWindow
+     *            How many last warmup cycles are checked for steady state.
+     */
+    public void setWarmupWindow(int warmupWindow) {
+        this.warmupWindow = warmupWindow;
+    }
+
+    /**
+     * @return
+     *         Maximal coefficient of variation and relative drift of cycle
+     *         times in window to consider warmup steady.
+     */
+    public double getWarmupCvLimit() {
+        return warmupCvLimit;
+    }
+
+    /**
+     * @param warmupCvLimit
+     *            Maximal coefficient of variation and relative drift of cycle
+     *            times in window to consider warmup steady.
+     */
+    public void setWarmupCvLimit(double warmupCvLimit) {
+        this.warmupCvLimit = warmupCvLimit;
+    }
+
+    /**
+     * @return
+     *         Maximal warmup time in seconds in adaptive warmup mode.
+     */
+    public int getWarmupMaxTime() {
+        return warmupMaxTime;
+    }
+
+    /**
+     * @param warmupMaxTime
+     *            Maximal warmup time in seconds in adaptive warmup mode. Should
+     *            stay below timeout so that unsteady benchmark is still
+     *            measured.
+     */
+    public void setWarmupMaxTime(int warmupMaxTime) {
+        this.warmupMaxTime = warmupMaxTime;
+    }
+
     /**
      * @return
      *         How many warmup cycles should be maximally performed.
@@ -300,6 +486,406 @@ public class SplDeploymentConfiguration {
         this.measurementCycles = measurementCycles;
     }
 
+    /**
+     * @return
+     *         How measurement end is decided. One of {@code fixed},
+     *         {@code precision} or {@code cold}.
+     */
+    public String getMeasurementMode() {
+        return measurementMode;
+    }
+
+    /**
+     * @param measurementMode
+     *            How measurement end is decided. If {@code fixed} measurement
+     *            runs for measurement cycles or measurement time. If
+     *            {@code precision} measurement ends once the relative 95%
+     *            confidence interval half-width of sample mean drops below
+     *            measurement precision or measurement time is reached. If
+     *            {@code cold} each sampler launch skips warmup and times only
+     *            the first cold invocations including class loading, forks
+     *            set the count of launches.
+     */
+    public void setMeasurementMode(String measurementMode) {
+        this.measurementMode = measurementMode;
+    }
+
+    /**
+     * @return
+     *         Target relative confidence interval half-width of sample mean
+     *         in precision measurement mode.
+     */
+    public double getMeasurementPrecision() {
+        return measurementPrecision;
+    }
+
+    /**
+     * @param measurementPrecision
+     *            Target relative confidence interval half-width of sample
+     *            mean in precision measurement mode.
+     */
+    public void setMeasurementPrecision(double measurementPrecision) {
+        this.measurementPrecision = measurementPrecision;
+    }
+
+    /**
+     * @return
+     *         In how many separate JVM invocations (forks) each sampler is
+     *         run.
+     */
+    public int getForks() {
+        return forks;
+    }
+
+    /**
+     * @param forks
+     *            In how many separate JVM invocations (forks) each sampler is
+     *            run. Forks of all samplers are run interleaved in random
+     *            order and their samples are merged into one measurement.
+     */
+    public void setForks(int forks) {
+        this.forks = forks;
+    }
+
+    /**
+     * @return
+     *         Whether and how compared measurements are measured in pairs
+     *         by single sampler, one of {@link #PAIRING_MODES}.
+     */
+    public String getPairing() {
+        return pairing;
+    }
+
+    /**
+     * @param pairing
+     *            Whether and how compared measurements are measured in pairs
+     *            by single sampler, one of {@link #PAIRING_MODES}.
+     */
+    public void setPairing(String pairing) {
+        this.pairing = pairing;
+    }
+
+    /**
+     * @return
+     *         Whether bytes allocated by the measuring thread are recorded
+     *         for each sample too.
+     */
+    public boolean getMeasureAllocation() {
+        return measureAllocation;
+    }
+
+    /**
+     * @param measureAllocation
+     *            Whether bytes allocated by the measuring thread are recorded
+     *            for each sample too.
+     */
+    public void setMeasureAllocation(boolean measureAllocation) {
+        this.measureAllocation = measureAllocation;
+    }
+
+    /**
+     * @return
+     *         Whether wall clock and thread CPU times are both recorded for
+     *         each sample besides the time of configured time source.
+     */
+    public boolean getMeasureAllTimeSources() {
+        return measureAllTimeSources;
+    }
+
+    /**
+     * @param measureAllTimeSources
+     *            Whether wall clock and thread CPU times are both recorded
+     *            for each sample besides the time of configured time source.
+     */
+    public void setMeasureAllTimeSources(boolean measureAllTimeSources) {
+        this.measureAllTimeSources = measureAllTimeSources;
+    }
+
+    /**
+     * @return
+     *         Longest interval in seconds between flushes of samples measured
+     *         so far to partial results. Zero disables partial results.
+     */
+    public int getResultFlushInterval() {
+        return resultFlushInterval;
+    }
+
+    /**
+     * @param resultFlushInterval
+     *            Longest interval in seconds between flushes of samples
+     *            measured so far to partial results. Zero disables partial
+     *            results.
+     */
+    public void setResultFlushInterval(int resultFlushInterval) {
+        this.resultFlushInterval = resultFlushInterval;
+    }
+
+    /**
+     * @return
+     *         Whether partial results of samplers which timed out or failed
+     *         are stored and evaluated.
+     */
+    public boolean getAcceptPartialResults() {
+        return acceptPartialResults;
+    }
+
+    /**
+     * @param acceptPartialResults
+     *            Whether partial results of samplers which timed out or
+     *            failed are stored and evaluated.
+     */
+    public void setAcceptPartialResults(boolean acceptPartialResults) {
+        this.acceptPartialResults = acceptPartialResults;
+    }
+
+    /**
+     * @return
+     *         Count of threads which concurrently call measured methods when
+     *         the measurement doesn't declare its own count. One measures on a
+     *         single thread only.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param threads
+     *            Count of threads which concurrently call measured methods
+     *            when the measurement doesn't declare its own count. One
+     *            measures on a single thread only.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @return
+     *         Shortest time in microseconds of single sample. Cycles are
+     *         repeated in batches until a batch takes at least this time.
+     *         Zero derives the time from calibrated time source granularity
+     *         and overhead, -1 disables batching. Batching is disabled by
+     *         default, so that data of single cycles are not mixed with
+     *         normalized batches.
+     */
+    public int getMinimumSampleTime() {
+        return minimumSampleTime;
+    }
+
+    /**
+     * @param minimumSampleTime
+     *            Shortest time in microseconds of single sample. Cycles are
+     *            repeated in batches until a batch takes at least this time.
+     *            Zero derives the time from calibrated time source
+     *            granularity and overhead, -1 disables batching. Batching
+     *            is disabled by default, so that data of single cycles are
+     *            not mixed with normalized batches.
+     */
+    public void setMinimumSampleTime(int minimumSampleTime) {
+        this.minimumSampleTime = minimumSampleTime;
+    }
+
+    /**
+     * @return
+     *         How many first invocations of measured method are timed in each
+     *         sampler launch in cold measurement mode.
+     */
+    public int getColdInvocations() {
+        return coldInvocations;
+    }
+
+    /**
+     * @param coldInvocations
+     *            How many first invocations of measured method are timed in
+     *            each sampler launch in cold measurement mode.
+     */
+    public void setColdInvocations(int coldInvocations) {
+        this.coldInvocations = coldInvocations;
+    }
+
+    /**
+     * @return
+     *         Whether sampler archive also contains JMH benchmark
+     *         measuring the same generator and method which is run instead of
+     *         the sampler.
+     */
+    public boolean getJmhBenchmark() {
+        return jmhBenchmark;
+    }
+
+    /**
+     * @param jmhBenchmark
+     *            Whether sampler archive also contains JMH benchmark
+     *            measuring the same generator and method which is run instead
+     *            of the sampler.
+     */
+    public void setJmhBenchmark(boolean jmhBenchmark) {
+        this.jmhBenchmark = jmhBenchmark;
+    }
+
+    /**
+     * @return
+     *         How many jobs execution server runs concurrently, each in its own
+     *         slot.
+     */
+    public int getJobSlots() {
+        return jobSlots;
+    }
+
+    /**
+     * @param jobSlots
+     *            How many jobs execution server runs concurrently, each in its
+     *            own slot.
+     */
+    public void setJobSlots(int jobSlots) {
+        this.jobSlots = jobSlots;
+    }
+
+    /**
+     * @return
+     *         Disjoint CPU sets of job slots in {@code taskset} list format
+     *         separated by semicolons, one for each slot. Empty when CPU sets
+     *         are derived from online CPUs.
+     */
+    public String getSlotCpus() {
+        return slotCpus;
+    }
+
+    /**
+     * @param slotCpus
+     *            Disjoint CPU sets of job slots in {@code taskset} list format
+     *            separated by semicolons, one for each slot. Empty when CPU
+     *            sets are derived from online CPUs.
+     */
+    public void setSlotCpus(String slotCpus) {
+        this.slotCpus = slotCpus;
+    }
+
+    /**
+     * @return
+     *         Whether job slots use only the first hyper-thread of each core.
+     */
+    public boolean getExcludeSiblingThreads() {
+        return excludeSiblingThreads;
+    }
+
+    /**
+     * @param excludeSiblingThreads
+     *            Whether job slots use only the first hyper-thread of each
+     *            core.
+     */
+    public void setExcludeSiblingThreads(boolean excludeSiblingThreads) {
+        this.excludeSiblingThreads = excludeSiblingThreads;
+    }
+
+    /**
+     * @return
+     *         Whether each sampler is submitted for measuring as soon as it is
+     *         built so that building and measuring overlap.
+     */
+    public boolean getPipelineBuild() {
+        return pipelineBuild;
+    }
+
+    /**
+     * @param pipelineBuild
+     *            Whether each sampler is submitted for measuring as soon as it
+     *            is built so that building and measuring overlap.
+     */
+    public void setPipelineBuild(boolean pipelineBuild) {
+        this.pipelineBuild = pipelineBuild;
+    }
+
+    /**
+     * @return
+     *         Whether formulas are evaluated and their results logged as soon
+     *         as all their measurements are stored.
+     */
+    public boolean getEarlyEvaluation() {
+        return earlyEvaluation;
+    }
+
+    /**
+     * @param earlyEvaluation
+     *            Whether formulas are evaluated and their results logged as
+     *            soon as all their measurements are stored.
+     */
+    public void setEarlyEvaluation(boolean earlyEvaluation) {
+        this.earlyEvaluation = earlyEvaluation;
+    }
+
+    /**
+     * @return
+     *         How many samplers are assembled concurrently, zero or less to
+     *         use count of available processors.
+     */
+    public int getBuildThreads() {
+        return buildThreads;
+    }
+
+    /**
+     * @param buildThreads
+     *            How many samplers are assembled concurrently, zero or less to
+     *            use count of available processors.
+     */
+    public void setBuildThreads(int buildThreads) {
+        this.buildThreads = buildThreads;
+    }
+
+    /**
+     * @return
+     *         How many revisions are checked out and built concurrently, zero
+     *         or less to use count of available processors.
+     */
+    public int getRevisionThreads() {
+        return revisionThreads;
+    }
+
+    /**
+     * @param revisionThreads
+     *            How many revisions are checked out and built concurrently,
+     *            zero or less to use count of available processors.
+     */
+    public void setRevisionThreads(int revisionThreads) {
+        this.revisionThreads = revisionThreads;
+    }
+
+    /**
+     * @return
+     *         Size limit of checked out and built revisions kept in the store
+     *         between runs in megabytes, zero or less disables the cache.
+     */
+    public int getRevisionCacheSize() {
+        return revisionCacheSize;
+    }
+
+    /**
+     * @param revisionCacheSize
+     *            Size limit of checked out and built revisions kept in the
+     *            store between runs in megabytes, zero or less disables the
+     *            cache.
+     */
+    public void setRevisionCacheSize(int revisionCacheSize) {
+        this.revisionCacheSize = revisionCacheSize;
+    }
+
+    /**
+     * @return
+     *         Whether data of measurement with the same bytecode in other
+     *         revisions are reused instead of measuring it again.
+     */
+    public boolean getFingerprintReuse() {
+        return fingerprintReuse;
+    }
+
+    /**
+     * @param fingerprintReuse
+     *            Whether data of measurement with the same bytecode in other
+     *            revisions are reused instead of measuring it again.
+     */
+    public void setFingerprintReuse(boolean fingerprintReuse) {
+        this.fingerprintReuse = fingerprintReuse;
+    }
+
     /**
      * @return
      *         How much time at max should be spend measuring in seconds.
@@ -405,6 +991,208 @@ public class SplDeploymentConfiguration {
                     "timeSource",
                     String.valueOf(config.getTimeSource()),
                     "Time source to be used."));
+
+            descriptions.put("gcPolicy", new EntryInformation(
+                    "gcPolicy",
+                    defaultGcPolicy,
+                    "" +
+                            "How to treat samples during which garbage collection occurred. " +
+                            "If keep is set sample is stored and flagged. " +
+                            "If drop is set sample is discarded and measured again. " +
+                            "If subtract is set collection time is subtracted from the sample. " +
+                            "Collection time is reported in whole milliseconds summed over all collectors, " +
+                            "so subtract requires wall clock time source (nanotime), thread time never contains collection time."));
+
+            descriptions.put("warmupMode", new EntryInformation(
+                    "warmupMode",
+                    defaultWarmupMode,
+                    "" +
+                            "If fixed is set warmup runs for warmupCycles or warmupTime. " +
+                            "If adaptive is set warmup ends once cycle times in window are steady and JIT compilation stopped, " +
+                            "warmupCycles and warmupTime are not used, warmupMaxTime applies as a hard cap instead."));
+
+            descriptions.put("warmupWindow", new EntryInformation(
+                    "warmupWindow",
+                    String.valueOf(defaultWarmupWindow),
+                    "Number of last warmup cycles checked for steady state in adaptive warmup mode."));
+
+            descriptions.put("warmupCvLimit", new EntryInformation(
+                    "warmupCvLimit",
+                    String.valueOf(defaultWarmupCvLimit),
+                    "Maximal coefficient of variation and relative drift of cycle times in window in adaptive warmup mode."));
+
+            descriptions.put("warmupMaxTime", new EntryInformation(
+                    "warmupMaxTime",
+                    String.valueOf(defaultWarmupMaxTime),
+                    "Maximal warmup time in seconds in adaptive warmup mode when steady state is not reached."));
+
+            descriptions.put("measurementMode", new EntryInformation(
+                    "measurementMode",
+                    defaultMeasurementMode,
+                    "" +
+                            "If fixed is set measurement runs for measurementCycles or measurementTime. " +
+                            "If precision is set measurement ends once relative confidence interval half-width of mean " +
+                            "drops below measurementPrecision or once measurementTime is reached, " +
+                            "measurementCycles then applies only when measurementTime is not set. " +
+                            "If cold is set each sampler launch skips warmup and times loading of measured classes " +
+                            "and the first coldInvocations calls, forks set how many launches are merged into the measurement."));
+
+            descriptions.put("measurementPrecision", new EntryInformation(
+                    "measurementPrecision",
+                    String.valueOf(defaultMeasurementPrecision),
+                    "Target relative 95% confidence interval half-width of mean in precision measurement mode."));
+
+            descriptions.put("forks", new EntryInformation(
+                    "forks",
+                    String.valueOf(defaultForks),
+                    "" +
+                            "In how many separate JVM invocations each sampler is run. " +
+                            "Forks of all samplers are run interleaved in random order and merged into one measurement, " +
+                            "evaluator then uses variance between fork means when comparing."));
+
+            descriptions.put("pairing", new EntryInformation(
+                    "pairing",
+                    defaultPairing,
+                    "" +
+                            "If alternate or random is set each compared pair of measurements is additionally measured by single sampler " +
+                            "which runs both sides in every cycle, alternating their order or in random order. " +
+                            "Evaluator then also performs paired tests on matched samples."));
+
+            descriptions.put("measureAllocation", new EntryInformation(
+                    "measureAllocation",
+                    String.valueOf(defaultMeasureAllocation),
+                    "" +
+                            "If true samplers also record bytes allocated by the measuring thread in each sample. " +
+                            "Requires JVM supporting thread allocated memory measurement. " +
+                            "Formulas select allocated bytes instead of time with '@alloc' after measurement."));
+
+            descriptions.put("measureAllTimeSources", new EntryInformation(
+                    "measureAllTimeSources",
+                    String.valueOf(defaultMeasureAllTimeSources),
+                    "" +
+                            "If true samplers record both wall clock and thread CPU time of each sample in one run. " +
+                            "Plain measurements use time of timeSource, " +
+                            "formulas select the other times with '@walltime' or '@cputime' after measurement."));
+
+            descriptions.put("resultFlushInterval", new EntryInformation(
+                    "resultFlushInterval",
+                    String.valueOf(defaultResultFlushInterval),
+                    "" +
+                            "Longest interval in seconds between flushes of samples measured so far to partial results. " +
+                            "Samples are also flushed after every few thousands of them. " +
+                            "Partial results are left when sampler times out or fails. Zero disables partial results."));
+
+            descriptions.put("acceptPartialResults", new EntryInformation(
+                    "acceptPartialResults",
+                    String.valueOf(defaultAcceptPartialResults),
+                    "" +
+                            "If true partial results of samplers which timed out or failed are stored and evaluated. " +
+                            "Evaluation marks such measurements as suspicious."));
+
+            descriptions.put("threads", new EntryInformation(
+                    "threads",
+                    String.valueOf(defaultThreads),
+                    "" +
+                            "Count of threads which concurrently call measured method in measurements without own count of threads. " +
+                            "Formulas declare the count after measurement, e.g. 'method[generator]{8}', and use '@throughput' " +
+                            "to compare throughput of all threads. Concurrent measurements are never paired."));
+
+            descriptions.put("minimumSampleTime", new EntryInformation(
+                    "minimumSampleTime",
+                    String.valueOf(defaultMinimumSampleTime),
+                    "" +
+                            "Shortest time in microseconds of single sample. After warmup sampler repeats cycles in batches " +
+                            "until a batch takes at least this time, samples are then normalized to single cycle. " +
+                            "Zero derives the time from granularity and overhead of time source calibrated by sampler, " +
+                            "-1 disables batching, which is the default so that data of single cycles are not mixed with normalized batches."));
+
+            descriptions.put("coldInvocations", new EntryInformation(
+                    "coldInvocations",
+                    String.valueOf(defaultColdInvocations),
+                    "" +
+                            "How many first invocations of measured method are timed in each sampler launch in cold measurement mode. " +
+                            "Sample of the launch holds time of class loading and all these invocations together with time of each of them. " +
+                            "Cold measurements are never batched, paired nor measured concurrently."));
+
+            descriptions.put("jmhBenchmark", new EntryInformation(
+                    "jmhBenchmark",
+                    String.valueOf(defaultJmhBenchmark),
+                    "" +
+                            "If true sampler archive also contains JMH benchmark SMBenchmark measuring the same generator " +
+                            "and method with threads and iteration times derived from this configuration. " +
+                            "The benchmark is run with bundled JMH instead of the sampler, each fork runs single JMH fork, " +
+                            "and its JSON result is converted to measurement data by JmhResultImporter. " +
+                            "Paired and cold measurements are run by the sampler."));
+
+            descriptions.put("jobSlots", new EntryInformation(
+                    "jobSlots",
+                    String.valueOf(defaultJobSlots),
+                    "" +
+                            "How many jobs execution server runs concurrently. On Linux each slot is pinned with taskset " +
+                            "to its own CPU set so that concurrent jobs don't share CPUs. " +
+                            "Slot and CPU set of each job are recorded in its trace."));
+
+            descriptions.put("slotCpus", new EntryInformation(
+                    "slotCpus",
+                    defaultSlotCpus,
+                    "" +
+                            "CPU sets of job slots in taskset list format separated by semicolons, e.g. '0-1;2-3'. " +
+                            "There must be one set for each of jobSlots and the sets must be disjoint. " +
+                            "If empty online CPUs of execution machine are split evenly among jobSlots, " +
+                            "a single slot is then not pinned."));
+
+            descriptions.put("excludeSiblingThreads", new EntryInformation(
+                    "excludeSiblingThreads",
+                    String.valueOf(defaultExcludeSiblingThreads),
+                    "" +
+                            "If true job slots use only the first hyper-thread of each core so that " +
+                            "jobs don't share cores with sibling hyper-threads."));
+
+            descriptions.put("pipelineBuild", new EntryInformation(
+                    "pipelineBuild",
+                    String.valueOf(defaultPipelineBuild),
+                    "" +
+                            "If true each sampler is transferred to execution server and queued for measuring as soon as it is built " +
+                            "so that the machine measures while the rest is still being built. " +
+                            "Forks of each sampler are then shuffled only among themselves, not among forks of all samplers."));
+
+            descriptions.put("earlyEvaluation", new EntryInformation(
+                    "earlyEvaluation",
+                    String.valueOf(defaultEarlyEvaluation),
+                    "" +
+                            "If true each formula is evaluated as soon as all its measurements are transferred and its result is logged " +
+                            "while the remaining samplers are still measured. Complete evaluation output is still generated at the end."));
+
+            descriptions.put("buildThreads", new EntryInformation(
+                    "buildThreads",
+                    String.valueOf(defaultBuildThreads),
+                    "" +
+                            "How many samplers are assembled concurrently. If 0 count of available processors is used. " +
+                            "Samplers are still reported and measured in the order of measurements."));
+
+            descriptions.put("revisionThreads", new EntryInformation(
+                    "revisionThreads",
+                    String.valueOf(defaultRevisionThreads),
+                    "" +
+                            "How many revisions are checked out and built concurrently. If 0 count of available processors is used. " +
+                            "Revisions of the same repository are checked out one at a time, their build commands run concurrently."));
+
+            descriptions.put("revisionCacheSize", new EntryInformation(
+                    "revisionCacheSize",
+                    String.valueOf(defaultRevisionCacheSize),
+                    "" +
+                            "Size limit in megabytes of checked out and built revisions kept in the store between runs. " +
+                            "Revision resolved to the same commit and built by the same command is not checked out and built again. " +
+                            "Least recently used revisions not used by any running deployment are evicted. " +
+                            "If 0 revisions are not kept, which is the default. Only git revisions are kept."));
+
+            descriptions.put("fingerprintReuse", new EntryInformation(
+                    "fingerprintReuse",
+                    String.valueOf(defaultFingerprintReuse),
+                    "" +
+                            "If true measurement is not measured when data of a measurement with the same fingerprint are in the store, " +
+                            "the data are copied instead. Fingerprint covers bytecode of classes reachable from the generator and the method " +
+                            "in class directories and content of class path archives, but not revisions."));
         }
 
         /**
@@ -481,20 +1269,57 @@ public class SplDeploymentConfiguration {
                         case "useSystemShell":
                         case "clearTmpBefore":
                         case "clearTmpAfter":
+                        case "measureAllocation":
+                        case "measureAllTimeSources":
+                        case "acceptPartialResults":
+                        case "jmhBenchmark":
+                        case "excludeSiblingThreads":
+                        case "pipelineBuild":
+                        case "earlyEvaluation":
+                        case "fingerprintReuse":
                             ConversionChecker.tryDecodeBoolean(errors, entry.getKey(), entry.getValue());
                             break;
 
                         case "javaPath":
                         case "samplerArguments":
+                        case "timeSource":
+                        case "slotCpus":
                             // nothing to check for String
                             break;
 
+                        case "gcPolicy":
+                            ConversionChecker.tryDecodeChoice(errors, entry.getKey(), entry.getValue(), GC_POLICIES);
+                            break;
+
+                        case "warmupMode":
+                            ConversionChecker.tryDecodeChoice(errors, entry.getKey(), entry.getValue(), WARMUP_MODES);
+                            break;
+
+                        case "measurementMode":
+                            ConversionChecker.tryDecodeChoice(errors, entry.getKey(), entry.getValue(), MEASUREMENT_MODES);
+                            break;
+
+                        case "pairing":
+                            ConversionChecker.tryDecodeChoice(errors, entry.getKey(), entry.getValue(), PAIRING_MODES);
+                            break;
+
+                        case "warmupCvLimit":
+                        case "measurementPrecision":
+                            ConversionChecker.tryDecodeDouble(errors, entry.getKey(), entry.getValue());
+                            break;
+
                         default:
                             ConversionChecker.tryDecodeInteger(errors, entry.getKey(), entry.getValue());
                             break;
                     }
                 }
 
+                // thread time of measuring thread never contains collection
+                String timeSource = values.containsKey("timeSource") ? values.get("timeSource") : defaultTimeSource;
+                if ("subtract".equals(values.get("gcPolicy")) && "threadtime".equals(timeSource)) {
+                    errors.add("Configuration key [gcPolicy] value [subtract] requires wall clock time source, not [threadtime].");
+                }
+
                 return errors.isEmpty();
             }
 
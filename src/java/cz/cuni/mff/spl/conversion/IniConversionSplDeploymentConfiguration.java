@@ -60,6 +60,32 @@ public class IniConversionSplDeploymentConfiguration {
         IniManipulator.writeInteger(ini, DEPLOYMENT, "measurementTime", config.getMeasurementTime());
         IniManipulator.writeInteger(ini, DEPLOYMENT, "timeout", config.getTimeout());
         IniManipulator.writeTimeSource(ini, DEPLOYMENT, "timeSource", config.getTimeSource());
+        IniManipulator.writeString(ini, DEPLOYMENT, "gcPolicy", config.getGcPolicy());
+        IniManipulator.writeString(ini, DEPLOYMENT, "warmupMode", config.getWarmupMode());
+        IniManipulator.writeInteger(ini, DEPLOYMENT, "warmupWindow", config.getWarmupWindow());
+        IniManipulator.writeDouble(ini, DEPLOYMENT, "warmupCvLimit", config.getWarmupCvLimit());
+        IniManipulator.writeInteger(ini, DEPLOYMENT, "warmupMaxTime", config.getWarmupMaxTime());
+        IniManipulator.writeString(ini, DEPLOYMENT, "measurementMode", config.getMeasurementMode());
+        IniManipulator.writeDouble(ini, DEPLOYMENT, "measurementPrecision", config.getMeasurementPrecision());
+        IniManipulator.writeInteger(ini, DEPLOYMENT, "forks", config.getForks());
+        IniManipulator.writeString(ini, DEPLOYMENT, "pairing", config.getPairing());
+        IniManipulator.writeBoolean(ini, DEPLOYMENT, "measureAllocation", config.getMeasureAllocation());
+        IniManipulator.writeBoolean(ini, DEPLOYMENT, "measureAllTimeSources", config.getMeasureAllTimeSources());
+        IniManipulator.writeInteger(ini, DEPLOYMENT, "resultFlushInterval", config.getResultFlushInterval());
+        IniManipulator.writeBoolean(ini, DEPLOYMENT, "acceptPartialResults", config.getAcceptPartialResults());
+        IniManipulator.writeInteger(ini, DEPLOYMENT, "threads", config.getThreads());
+        IniManipulator.writeInteger(ini, DEPLOYMENT, "minimumSampleTime", config.getMinimumSampleTime());
+        IniManipulator.writeInteger(ini, DEPLOYMENT, "coldInvocations", config.getColdInvocations());
+        IniManipulator.writeBoolean(ini, DEPLOYMENT, "jmhBenchmark", config.getJmhBenchmark());
+        IniManipulator.writeInteger(ini, DEPLOYMENT, "jobSlots", config.getJobSlots());
+        IniManipulator.writeString(ini, DEPLOYMENT, "slotCpus", config.getSlotCpus());
+        IniManipulator.writeBoolean(ini, DEPLOYMENT, "excludeSiblingThreads", config.getExcludeSiblingThreads());
+        IniManipulator.writeBoolean(ini, DEPLOYMENT, "pipelineBuild", config.getPipelineBuild());
+        IniManipulator.writeBoolean(ini, DEPLOYMENT, "earlyEvaluation", config.getEarlyEvaluation());
+        IniManipulator.writeInteger(ini, DEPLOYMENT, "buildThreads", config.getBuildThreads());
+        IniManipulator.writeInteger(ini, DEPLOYMENT, "revisionThreads", config.getRevisionThreads());
+        IniManipulator.writeInteger(ini, DEPLOYMENT, "revisionCacheSize", config.getRevisionCacheSize());
+        IniManipulator.writeBoolean(ini, DEPLOYMENT, "fingerprintReuse", config.getFingerprintReuse());
 
         return ini;
     }
@@ -79,7 +105,7 @@ public class IniConversionSplDeploymentConfiguration {
     private static SplDeploymentConfiguration decodeSplMeasurementConfiguration(Ini ini) throws ConversionException {
         SplDeploymentConfiguration defaultConfig = SplDeploymentConfiguration.createDefaultConfiguration();
 
-        return new SplDeploymentConfiguration(
+        SplDeploymentConfiguration config = new SplDeploymentConfiguration(
                 IniManipulator.readBoolean(ini, DEPLOYMENT, "useSystemShell", defaultConfig.getUseSystemShell()),
                 IniManipulator.readBoolean(ini, DEPLOYMENT, "clearTmpBefore", defaultConfig.getClearTmpBefore()),
                 IniManipulator.readBoolean(ini, DEPLOYMENT, "clearTmpAfter", defaultConfig.getClearTmpAfter()),
@@ -91,6 +117,38 @@ public class IniConversionSplDeploymentConfiguration {
                 IniManipulator.readInteger(ini, DEPLOYMENT, "measurementTime", defaultConfig.getMeasurementTime()),
                 IniManipulator.readInteger(ini, DEPLOYMENT, "timeout", defaultConfig.getTimeout()),
                 IniManipulator.readTimeSource(ini, DEPLOYMENT, "timeSource", defaultConfig.getTimeSource()));
-        
+
+        config.setGcPolicy(IniManipulator.readChoice(ini, DEPLOYMENT, "gcPolicy", defaultConfig.getGcPolicy(), SplDeploymentConfiguration.GC_POLICIES));
+        config.setWarmupMode(IniManipulator.readChoice(ini, DEPLOYMENT, "warmupMode", defaultConfig.getWarmupMode(),
+                SplDeploymentConfiguration.WARMUP_MODES));
+        config.setWarmupWindow(IniManipulator.readInteger(ini, DEPLOYMENT, "warmupWindow", defaultConfig.getWarmupWindow()));
+        config.setWarmupCvLimit(IniManipulator.readDouble(ini, DEPLOYMENT, "warmupCvLimit", defaultConfig.getWarmupCvLimit()));
+        config.setWarmupMaxTime(IniManipulator.readInteger(ini, DEPLOYMENT, "warmupMaxTime", defaultConfig.getWarmupMaxTime()));
+        config.setMeasurementMode(IniManipulator.readChoice(ini, DEPLOYMENT, "measurementMode", defaultConfig.getMeasurementMode(),
+                SplDeploymentConfiguration.MEASUREMENT_MODES));
+        config.setMeasurementPrecision(IniManipulator.readDouble(ini, DEPLOYMENT, "measurementPrecision", defaultConfig.getMeasurementPrecision()));
+        config.setForks(IniManipulator.readInteger(ini, DEPLOYMENT, "forks", defaultConfig.getForks()));
+        config.setPairing(IniManipulator.readChoice(ini, DEPLOYMENT, "pairing", defaultConfig.getPairing(), SplDeploymentConfiguration.PAIRING_MODES));
+        config.setMeasureAllocation(IniManipulator.readBoolean(ini, DEPLOYMENT, "measureAllocation", defaultConfig.getMeasureAllocation()));
+        config.setMeasureAllTimeSources(IniManipulator.readBoolean(ini, DEPLOYMENT, "measureAllTimeSources",
+                defaultConfig.getMeasureAllTimeSources()));
+        config.setResultFlushInterval(IniManipulator.readInteger(ini, DEPLOYMENT, "resultFlushInterval", defaultConfig.getResultFlushInterval()));
+        config.setAcceptPartialResults(IniManipulator.readBoolean(ini, DEPLOYMENT, "acceptPartialResults", defaultConfig.getAcceptPartialResults()));
+        config.setThreads(IniManipulator.readInteger(ini, DEPLOYMENT, "threads", defaultConfig.getThreads()));
+        config.setMinimumSampleTime(IniManipulator.readInteger(ini, DEPLOYMENT, "minimumSampleTime", defaultConfig.getMinimumSampleTime()));
+        config.setColdInvocations(IniManipulator.readInteger(ini, DEPLOYMENT, "coldInvocations", defaultConfig.getColdInvocations()));
+        config.setJmhBenchmark(IniManipulator.readBoolean(ini, DEPLOYMENT, "jmhBenchmark", defaultConfig.getJmhBenchmark()));
+        config.setJobSlots(IniManipulator.readInteger(ini, DEPLOYMENT, "jobSlots", defaultConfig.getJobSlots()));
+        config.setSlotCpus(IniManipulator.readString(ini, DEPLOYMENT, "slotCpus", defaultConfig.getSlotCpus()));
+        config.setExcludeSiblingThreads(IniManipulator.readBoolean(ini, DEPLOYMENT, "excludeSiblingThreads",
+                defaultConfig.getExcludeSiblingThreads()));
+        config.setPipelineBuild(IniManipulator.readBoolean(ini, DEPLOYMENT, "pipelineBuild", defaultConfig.getPipelineBuild()));
+        config.setEarlyEvaluation(IniManipulator.readBoolean(ini, DEPLOYMENT, "earlyEvaluation", defaultConfig.getEarlyEvaluation()));
+        config.setBuildThreads(IniManipulator.readInteger(ini, DEPLOYMENT, "buildThreads", defaultConfig.getBuildThreads()));
+        config.setRevisionThreads(IniManipulator.readInteger(ini, DEPLOYMENT, "revisionThreads", defaultConfig.getRevisionThreads()));
+        config.setRevisionCacheSize(IniManipulator.readInteger(ini, DEPLOYMENT, "revisionCacheSize", defaultConfig.getRevisionCacheSize()));
+        config.setFingerprintReuse(IniManipulator.readBoolean(ini, DEPLOYMENT, "fingerprintReuse", defaultConfig.getFingerprintReuse()));
+
+        return config;
     }
 }
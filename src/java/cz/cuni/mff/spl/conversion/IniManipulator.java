@@ -565,4 +565,31 @@ class IniManipulator {
         logger.trace("timeSource value set: [%s] %s=%s", sectionName, optionName, stringValue);
     }
 
+    /**
+     * Reads value restricted to allowed choices from INI.
+     * 
+     * @param ini
+     *            The INI to read from.
+     * @param sectionName
+     *            The section name.
+     * @param optionName
+     *            The option name.
+     * @param defaultValue
+     *            The default value.
+     * @param choices
+     *            The allowed values.
+     * @return The value if option set and allowed, otherwise default value.
+     */
+    public static String readChoice(Ini ini, String sectionName, String optionName, String defaultValue, String... choices) {
+        String loaded = ini.fetch(sectionName, optionName);
+        if (loaded != null) {
+            try {
+                return IniValueConvertor.validateChoice(loaded, choices);
+            } catch (InvalidValueException e) {
+                logger.error(e, "Invalid configuration value: [%s] %s=%s", sectionName, optionName, loaded);
+            }
+        }
+        return defaultValue;
+    }
+
 }
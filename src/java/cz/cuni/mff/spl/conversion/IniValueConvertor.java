@@ -28,6 +28,7 @@
 package cz.cuni.mff.spl.conversion;
 
 import java.awt.Color;
+import java.util.Arrays;
 
 import cz.cuni.mff.spl.evaluator.graphs.GraphDefinition;
 import cz.cuni.mff.spl.utils.logging.SplLog;
@@ -393,6 +394,27 @@ public class IniValueConvertor {
         }
     }
 
+    /**
+     * Validates value is one of allowed choices.
+     * 
+     * @param value
+     *            The value.
+     * @param choices
+     *            The allowed values.
+     * @return The validated value.
+     * @throws InvalidValueException
+     *             The invalid value exception.
+     */
+    public static String validateChoice(String value, String... choices) throws InvalidValueException {
+        for (String choice : choices) {
+            if (choice.equals(value)) {
+                return value;
+            }
+        }
+        String message = String.format("Invalid value: [%s], expected one of %s", value, Arrays.toString(choices));
+        throw new InvalidValueException(message);
+    }
+
     /**
      * The exception to signal that value is not valid.
      */
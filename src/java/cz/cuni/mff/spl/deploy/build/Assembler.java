@@ -31,13 +31,11 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Modifier;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import cz.cuni.mff.spl.annotation.Generator;
@@ -116,10 +114,10 @@ public class Assembler {
     /** Paths to class paths measured method code needs. */
     private final File[]               methodPaths;
 
-    /** Class loader to obtain details about generator using reflection. */
-    private final URLClassLoader       generatorClassLoader;
-    /** Class loader to obtain details about measured method using reflection. */
-    private final URLClassLoader       methodClassLoader;
+    /** Generator revision's classes to obtain details using reflection. */
+    private final RevisionArtifacts    generatorArtifacts;
+    /** Measured method revision's classes to obtain details using reflection. */
+    private final RevisionArtifacts    methodArtifacts;
 
     /** Kind of generator. Whether the whole class is used or (static) method. */
     private GeneratorKind              generatorKind;
@@ -149,20 +147,44 @@ public class Assembler {
     /** Configuration of the framework. */
     private final ConfigurationBundle  config;
 
-    public Assembler(SampleIdentification sampleIdentification, Generator generator, File[] generatorPaths, Method method, File[] methodPaths,
-            List<Integer> generatorNumericalArguments, String outputPath, ConfigurationBundle config, File localStoreRootDirectory)
-            throws BuildException {
+    /**
+     * Assembler of the other side of paired sampler or {@code null} when
+     * sampler measures single generator and method.
+     */
+    private Assembler                  pairedAssembler;
+
+    /**
+     * Count of threads declared by measurement or {@code null} when
+     * configured count is used.
+     */
+    private Integer                    threads;
+
+    /**
+     * Cache of dependency archives or {@code null} when dependencies are
+     * copied into the sampler.
+     */
+    private DependencyCache            dependencyCache;
+
+    /**
+     * Cache of compiled modules or {@code null} when the sampler compiles all
+     * its modules.
+     */
+    private CompilationCache           compilationCache;
+
+    public Assembler(SampleIdentification sampleIdentification, Generator generator, RevisionArtifacts generatorArtifacts, Method method,
+            RevisionArtifacts methodArtifacts, List<Integer> generatorNumericalArguments, String outputPath, ConfigurationBundle config,
+            File localStoreRootDirectory) {
         this.sid = sampleIdentification;
         this.identification = sampleIdentification.getIdentification();
         this.outputPath = outputPath;
 
         this.generatorInfo = generator;
-        this.generatorPaths = generatorPaths;
-        this.generatorClassLoader = createUrlClassLoader(generatorPaths);
+        this.generatorPaths = generatorArtifacts.getClassPaths();
+        this.generatorArtifacts = generatorArtifacts;
 
         this.methodInfo = method;
-        this.methodPaths = methodPaths;
-        this.methodClassLoader = createUrlClassLoader(methodPaths);
+        this.methodPaths = methodArtifacts.getClassPaths();
+        this.methodArtifacts = methodArtifacts;
 
         this.generatorNumericalArguments = generatorNumericalArguments;
 
@@ -171,23 +193,52 @@ public class Assembler {
     }
 
     /**
-     * Creates URL class loader with paths specified.
+     * <p>
+     * Makes the sampler paired. Generator and method of the other assembler
+     * are measured in the same cycles as this assembler's and stored as
+     * paired columns.
      * 
-     * @param paths
-     * @return
-     * @throws BuildException
+     * @param pairedAssembler
+     *            The assembler with the other side's generator and method.
      */
-    private URLClassLoader createUrlClassLoader(File[] paths)
-            throws BuildException {
-        try {
-            LinkedList<URL> urls = new LinkedList<>();
-            for (File url : paths) {
-                urls.add(url.toURI().toURL());
-            }
-            return new URLClassLoader(urls.toArray(new URL[urls.size()]));
-        } catch (MalformedURLException e) {
-            throw new BuildException(String.format("Failed to create URL class loader due to [%s].", e.getMessage()), e);
-        }
+    public void setPairedAssembler(Assembler pairedAssembler) {
+        this.pairedAssembler = pairedAssembler;
+    }
+
+    /**
+     * <p>
+     * Sets count of threads which concurrently call measured method.
+     * 
+     * @param threads
+     *            Count of threads declared by measurement or {@code null} to
+     *            use count from deployment configuration.
+     */
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * <p>
+     * Sets cache of dependency archives shared by samplers. Sampler then only
+     * references its dependencies instead of containing them.
+     * 
+     * @param dependencyCache
+     *            The cache or {@code null} to copy dependencies into sampler.
+     */
+    public void setDependencyCache(DependencyCache dependencyCache) {
+        this.dependencyCache = dependencyCache;
+    }
+
+    /**
+     * <p>
+     * Sets cache of compiled modules shared by samplers so that modules with
+     * the same sources are compiled only once.
+     * 
+     * @param compilationCache
+     *            The cache or {@code null} to compile all modules.
+     */
+    public void setCompilationCache(CompilationCache compilationCache) {
+        this.compilationCache = compilationCache;
     }
 
     /**
@@ -198,20 +249,20 @@ public class Assembler {
     private void getClasses()
             throws BuildException {
         try {
-            generatorClass = generatorClassLoader.loadClass(generatorInfo.getPath());
+            generatorClass = generatorArtifacts.loadClass(generatorInfo.getPath());
         } catch (ClassNotFoundException e) {
             logger.error("Could not load generator class %s (using %s).",
                     generatorInfo.toString(),
-                    StringUtils.createOneString(generatorClassLoader.getURLs(), ", "));
+                    StringUtils.createOneString(generatorPaths, ", "));
             throw new BuildException("Could not load generator class with custom URLClassLoader: " + generatorInfo.toString(), e);
         }
 
         try {
-            methodClass = methodClassLoader.loadClass(methodInfo.getPath());
+            methodClass = methodArtifacts.loadClass(methodInfo.getPath());
         } catch (ClassNotFoundException e) {
             logger.error("Could not load method class.", generatorInfo.toString());
-            for (URL url : methodClassLoader.getURLs()) {
-                logger.error("Method class loader url: %s.", url.toString());
+            for (File path : methodPaths) {
+                logger.error("Method class loader path: %s.", path.getPath());
             }
             throw new BuildException("Could not load method class with custom URLClassLoader: " + methodInfo.toString(), e);
         }
@@ -224,8 +275,7 @@ public class Assembler {
      */
     private void getKinds()
             throws BuildException {
-        java.lang.reflect.Method[] generatorClassMethods = generatorClass.getMethods();
-        java.lang.reflect.Method[] methodClassMethods = methodClass.getMethods();
+        java.lang.reflect.Method[] generatorClassMethods = generatorArtifacts.getMethods(generatorClass);
 
         if (generatorInfo == null) {
             throw new BuildException("No measurement generator specified.");
@@ -269,7 +319,7 @@ public class Assembler {
 
         logger.trace("Selecting method for declaration: [%s]", methodInfo.getDeclarationString());
 
-        java.lang.reflect.Method[] methodClassMethods = methodClass.getMethods();
+        java.lang.reflect.Method[] methodClassMethods = methodArtifacts.getMethods(methodClass);
 
         boolean staticAllowed = methodInfo.getParameter() == null;
 
@@ -414,10 +464,30 @@ public class Assembler {
     /**
      * Creates sampling code and invokes compiler on it.
      * 
+     * @return The compiled code.
      * @throws BuildException
      */
-    private void createAndCompileCode()
+    private Code createAndCompileCode()
             throws BuildException {
+        Code code = createCode();
+
+        if (pairedAssembler != null) {
+            pairedAssembler.getClasses();
+            pairedAssembler.getKinds();
+            pairedAssembler.getTypes();
+            code.setPairedCode(pairedAssembler.createCode());
+        }
+
+        code.call(outputPath);
+        return code;
+    }
+
+    /**
+     * Creates sampling code with generator and method details resolved.
+     * 
+     * @return The sampling code ready to be compiled.
+     */
+    private Code createCode() {
         Code code = new Code(localStoreRootDirectory);
 
         code.setIdentification(identification);
@@ -439,14 +509,17 @@ public class Assembler {
                 methodPaths);
 
         code.setConfiguration(config);
+        code.setThreads(threads);
+        code.setDependencyCache(dependencyCache);
+        code.setCompilationCache(compilationCache);
 
-        code.call(outputPath);
+        return code;
     }
 
     /**
      * <p>
-     * Packs the whole generated code directory together with all dependencies
-     * into virtual zip archive.
+     * Packs the whole generated code directory into zip archive. Dependencies
+     * are packed too unless they are only referenced from dependency cache.
      * 
      * @return
      *         File pointing to the archive with the sampler.
@@ -481,9 +554,18 @@ public class Assembler {
         getClasses();
         getKinds();
         getTypes();
-        createAndCompileCode();
+        Code code = createAndCompileCode();
 
-        return new Sampler(sid, packCode(), Code.runCommand(
-                config.getDeploymentConfig().getJavaPath(), config.getDeploymentConfig().getSamplerArguments()), Code.RESULT_FILE_NAME);
+        Map<String, File> dependencies = new LinkedHashMap<>();
+        for (String hash : code.getDependencies()) {
+            dependencies.put(hash, dependencyCache.getArchive(hash));
+        }
+
+        String javaPath = config.getDeploymentConfig().getJavaPath();
+        String arguments = config.getDeploymentConfig().getSamplerArguments();
+        if (code.hasJmhBenchmark()) {
+            return new Sampler(sid, packCode(), Code.jmhRunCommand(javaPath, arguments), Code.JMH_RESULT_FILE_NAME, dependencies);
+        }
+        return new Sampler(sid, packCode(), Code.runCommand(javaPath, arguments), Code.RESULT_FILE_NAME, dependencies);
     }
 }
@@ -30,8 +30,18 @@ package cz.cuni.mff.spl.deploy.build;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import cz.cuni.mff.spl.InvokedExecutionConfiguration;
 import cz.cuni.mff.spl.annotation.Generator;
@@ -48,6 +58,7 @@ import cz.cuni.mff.spl.deploy.build.exception.BuildException;
 import cz.cuni.mff.spl.deploy.store.LocalStore;
 import cz.cuni.mff.spl.deploy.store.exception.StoreException;
 import cz.cuni.mff.spl.utils.FileUtils;
+import cz.cuni.mff.spl.utils.Pair;
 import cz.cuni.mff.spl.utils.Utils;
 import cz.cuni.mff.spl.utils.interactive.InteractiveInterface;
 import cz.cuni.mff.spl.utils.logging.SplLog;
@@ -59,16 +70,41 @@ import cz.cuni.mff.spl.utils.logging.SplLogger;
  * are not already present in the store and needs measuring. Checks out all
  * necessary code for building these samplers and generates them.
  * 
+ * Each sampler is passed to {@link SamplerListener} as soon as it is built so
+ * that it can be measured while the rest is still being built.
+ * 
+ * Samplers are assembled concurrently by a bounded pool of threads. Samplers
+ * are still added, reported and passed to the listener in the order of
+ * measurements. Class paths, class loaders and reflection results are shared
+ * by samplers of the same revision (see {@link RevisionArtifacts}).
+ * 
  * @author Frantisek Haas
  * 
  */
 public class Builder {
 
+    /**
+     * Listener notified about each sampler right after it has been built.
+     */
+    public interface SamplerListener {
+
+        /**
+         * Called for each built sampler in the order of building.
+         * 
+         * @param info
+         *            Info being built, the same object for all samplers.
+         * @param sampler
+         *            The built sampler.
+         */
+        public void samplerBuilt(Info info, Sampler sampler);
+    }
+
     public static final SplLog         logger                  = SplLogger.getLogger("Build");
 
     public static final String         OUTPUT_DIR_NAME         = "build";
     public static final String         SOURCE_CODE_DIR_NAME    = "sourceCode";
     public static final String         GENERATED_CODE_DIR_NAME = "generatedCode";
+    public static final String         DEPENDENCIES_DIR_NAME   = "dependencies";
 
     /**
      * Store to check for already measured data. Store used for temporary build
@@ -91,6 +127,14 @@ public class Builder {
     private File                       sourceCodeDirectory;
     /** Where to generate sampling code. */
     private File                       generatedCodeDirectory;
+    /** Archives of dependencies shared by samplers. */
+    private DependencyCache            dependencyCache;
+    /** Compiled modules shared by samplers. */
+    private CompilationCache           compilationCache;
+    /** Artifacts of revisions shared by samplers. */
+    private final Map<Revision, RevisionArtifacts> revisionArtifacts = new HashMap<>();
+    /** Assembles samplers concurrently. */
+    private ExecutorService            executor;
 
     /** Loaded Info from XML. */
     private Info                       info;
@@ -98,6 +142,9 @@ public class Builder {
     /** Generated samplers. */
     private final List<Sampler>        samplers;
 
+    /** Listener notified about built samplers, may be null. */
+    private SamplerListener            samplerListener;
+
     /**
      * Initializes builder object. To perform build call {@link #call()}.
      * 
@@ -129,6 +176,28 @@ public class Builder {
         this.samplers = new LinkedList<>();
     }
 
+    /**
+     * Sets listener notified about each sampler right after it has been built.
+     * 
+     * @param samplerListener
+     *            The listener or null.
+     */
+    public void setSamplerListener(SamplerListener samplerListener) {
+        this.samplerListener = samplerListener;
+    }
+
+    /**
+     * Adds built sampler and notifies the listener.
+     * 
+     * @param sampler
+     */
+    private void addSampler(Sampler sampler) {
+        samplers.add(sampler);
+        if (samplerListener != null) {
+            samplerListener.samplerBuilt(info, sampler);
+        }
+    }
+
     /**
      * Creates list of all paths combined from directory where revision was
      * checked out and relative class paths specified in the project info.
@@ -164,14 +233,136 @@ public class Builder {
     }
 
     /**
-     * Actually builds sampling code for every measurement specified with
+     * Gets artifacts of the revision, they are created when the revision is
+     * used for the first time.
+     * 
+     * @param context
+     * @param revision
+     * @return
+     * @throws BuildException
+     */
+    private RevisionArtifacts getRevisionArtifacts(BuilderContext context, Revision revision)
+            throws BuildException {
+        RevisionArtifacts artifacts = revisionArtifacts.get(revision);
+        if (artifacts == null) {
+            artifacts = new RevisionArtifacts(createAndExpandClassPaths(context, revision));
+            revisionArtifacts.put(revision, artifacts);
+        }
+        return artifacts;
+    }
+
+    /**
+     * Starts building sampling code of the measurement. The assembler is
+     * prepared by the calling thread, sampler is then assembled by
+     * {@link #executor}.
+     * 
+     * @param context
+     * @param measurement
+     * @return
+     *         The sampler being built.
+     */
+    private Future<Sampler> startBuildSampler(BuilderContext context, Measurement measurement) {
+        try {
+            return submit(createSamplerAssembler(context, measurement));
+        } catch (Throwable cause) {
+            return failed(cause);
+        }
+    }
+
+    /**
+     * Starts building paired sampling code of the pair. The assembler is
+     * prepared by the calling thread, sampler is then assembled by
+     * {@link #executor}.
+     * 
+     * @param context
+     * @param pair
+     * @return
+     *         The sampler being built.
+     */
+    private Future<Sampler> startBuildPairedSampler(BuilderContext context, Pair<Measurement, Measurement> pair) {
+        try {
+            return submit(createPairedSamplerAssembler(context, pair));
+        } catch (Throwable cause) {
+            return failed(cause);
+        }
+    }
+
+    /**
+     * Submits assembling of the sampler.
+     * 
+     * @param assembler
+     * @return
+     *         The sampler being built.
+     */
+    private Future<Sampler> submit(final Assembler assembler) {
+        return executor.submit(new Callable<Sampler>() {
+            @Override
+            public Sampler call()
+                    throws BuildException {
+                return assembler.call();
+            }
+        });
+    }
+
+    /**
+     * Creates already completed build which failed with the cause. Keeps the
+     * failure in order with the other builds so it is reported when its turn
+     * comes.
+     * 
+     * @param cause
+     *            The cause the assembler could not be prepared.
+     * @return
+     *         The failed build.
+     */
+    private static Future<Sampler> failed(final Throwable cause) {
+        FutureTask<Sampler> build = new FutureTask<>(new Callable<Sampler>() {
+            @Override
+            public Sampler call()
+                    throws Exception {
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                } else {
+                    throw (Error) cause;
+                }
+            }
+        });
+        build.run();
+        return build;
+    }
+
+    /**
+     * Waits for the sampler to be built.
+     * 
+     * @param build
+     *            The sampler being built.
+     * @return
+     *         The built sampler.
+     * @throws Throwable
+     *             The cause the sampler failed to build.
+     */
+    private static Sampler getSampler(Future<Sampler> build)
+            throws Throwable {
+        try {
+            return build.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            build.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new BuildException("Interrupted while waiting for sampler to build.", e);
+        }
+    }
+
+    /**
+     * Prepares assembler of sampling code for measurement specified with
      * annotations.
      * 
      * @param context
      * @param measurement
+     * @return
      * @throws BuildException
      */
-    private void buildSampler(BuilderContext context, Measurement measurement)
+    private Assembler createSamplerAssembler(BuilderContext context, Measurement measurement)
             throws BuildException {
         SampleIdentification sampleIdentification = new SampleIdentification(measurement);
         Generator generator = measurement.getGenerator();
@@ -193,8 +384,8 @@ public class Builder {
         String methodDirectory = methodRevisionDirectory.getPath();
         logger.trace("Generating sampler for generator from [%s] and method from [%s].", generatorDirectory, methodDirectory);
 
-        File[] generatorPaths = createAndExpandClassPaths(context, generator.getRevision());
-        File[] methodPaths = createAndExpandClassPaths(context, method.getRevision());
+        RevisionArtifacts generatorArtifacts = getRevisionArtifacts(context, generator.getRevision());
+        RevisionArtifacts methodArtifacts = getRevisionArtifacts(context, method.getRevision());
 
         try {
             File samplerDirectory = FileUtils.createUniqueDirectory(generatedCodeDirectory, "sampler", false);
@@ -202,22 +393,90 @@ public class Builder {
             Assembler assembler = new Assembler(
                     sampleIdentification,
                     generator,
-                    generatorPaths,
+                    generatorArtifacts,
                     method,
-                    methodPaths,
+                    methodArtifacts,
                     measurement.getVariable().getVariables(),
                     samplerDirectory.getPath(),
                     config,
                     localStore.getLocalStoreRootDirectory());
+            assembler.setThreads(measurement.getThreads());
+            assembler.setDependencyCache(dependencyCache);
+            assembler.setCompilationCache(compilationCache);
+            return assembler;
 
-            Sampler sampler = assembler.call();
-            samplers.add(sampler);
+        } catch (IOException e) {
+            throw new BuildException(e);
+        }
+    }
+
+    /**
+     * Prepares assembler of paired sampling code measuring both measurements
+     * of the pair in each cycle. The left measurement's samples are stored
+     * first.
+     * 
+     * @param context
+     * @param pair
+     * @return
+     * @throws BuildException
+     */
+    private Assembler createPairedSamplerAssembler(BuilderContext context, Pair<Measurement, Measurement> pair)
+            throws BuildException {
+        Measurement measurement = pair.getLeft();
+        Measurement pairedMeasurement = pair.getRight();
+        SampleIdentification sampleIdentification = new SampleIdentification(measurement, pairedMeasurement);
+
+        try {
+            File samplerDirectory = FileUtils.createUniqueDirectory(generatedCodeDirectory, "sampler", false);
+
+            Assembler assembler = createAssembler(context, sampleIdentification, measurement, samplerDirectory);
+            assembler.setDependencyCache(dependencyCache);
+            assembler.setCompilationCache(compilationCache);
+            assembler.setPairedAssembler(createAssembler(context, sampleIdentification, pairedMeasurement, samplerDirectory));
+            return assembler;
 
         } catch (IOException e) {
             throw new BuildException(e);
         }
     }
 
+    /**
+     * Creates assembler of measurement's generator and method with prepared
+     * revision code.
+     * 
+     * @param context
+     * @param sampleIdentification
+     * @param measurement
+     * @param samplerDirectory
+     * @return
+     * @throws BuildException
+     */
+    private Assembler createAssembler(BuilderContext context, SampleIdentification sampleIdentification, Measurement measurement,
+            File samplerDirectory)
+            throws BuildException {
+        Generator generator = measurement.getGenerator();
+        Method method = measurement.getMethod();
+
+        if (context.getRevisionMap().get(generator.getRevision()) == null) {
+            throw new BuildException("Failed to build sampler its generator code not prepared.");
+        }
+
+        if (context.getRevisionMap().get(method.getRevision()) == null) {
+            throw new BuildException("Failed to build sampler its method code not prepared.");
+        }
+
+        return new Assembler(
+                sampleIdentification,
+                generator,
+                getRevisionArtifacts(context, generator.getRevision()),
+                method,
+                getRevisionArtifacts(context, method.getRevision()),
+                measurement.getVariable().getVariables(),
+                samplerDirectory.getPath(),
+                config,
+                localStore.getLocalStoreRootDirectory());
+    }
+
     /**
      * Saves {@link Info} before building takes place.
      * 
@@ -278,6 +537,8 @@ public class Builder {
         if (!this.sourceCodeDirectory.mkdir() || !this.generatedCodeDirectory.mkdir()) {
             throw new BuildException("Failed to create source code and generated code directories.");
         }
+        dependencyCache = new DependencyCache(new File(outputDirectory, DEPENDENCIES_DIR_NAME), localStore.getLocalStoreRootDirectory());
+        compilationCache = new CompilationCache();
 
         // load info XML and obtain classes to scan, perform scan
         BuilderScanner scanner = new BuilderScanner(xml, targetMachine, outputDirectory, sourceCodeDirectory, interactive, config,
@@ -292,45 +553,133 @@ public class Builder {
         // check out all revisions needed
         BuilderContext context = new BuilderContext(info, localStore, xml, sourceCodeDirectory, scanner.getRepository(), scanner.getRevision(), interactive,
                 config, localStore.getLocalStoreRootDirectory());
-        context.call();
-        InvokedExecutionConfiguration.checkIfExecutionAborted();
+        RevisionCache revisionCache = null;
+        int revisionCacheSize = config.getDeploymentConfig().getRevisionCacheSize();
+        if (revisionCacheSize > 0 && localStore.getRevisionCacheDirectory() != null) {
+            revisionCache = new RevisionCache(localStore.getRevisionCacheDirectory(), revisionCacheSize * 1024L * 1024L);
+            context.setRevisionCache(revisionCache);
+        }
+        if (config.getDeploymentConfig().getFingerprintReuse() && localStore.getFingerprintDirectory() != null) {
+            context.setFingerprintIndex(new FingerprintIndex(localStore.getFingerprintDirectory()));
+        }
+        try {
+            context.call();
+            InvokedExecutionConfiguration.checkIfExecutionAborted();
+
+            // report already measured data in the store
+            logger.info("Data will be loaded for measurements [%s].", context.getAlreadyMeasured().size());
+            for (Measurement measurement : context.getAlreadyMeasured()) {
+                logger.debug("Skipped creating sampler, already measured [%s].", SampleIdentification.createIdentification(measurement));
+            }
 
-        // report already measured data in the store
-        logger.info("Data will be loaded for measurements [%s].", context.getAlreadyMeasured().size());
-        for (Measurement measurement : context.getAlreadyMeasured()) {
-            logger.debug("Skipped creating sampler, already measured [%s].", SampleIdentification.createIdentification(measurement));
+            // report measurements which can't be measured
+            logger.info("Skipping measurements due to missing code [%s].", context.getUnableToMeasure().size());
+            for (Measurement measurement : context.getUnableToMeasure()) {
+                logger.debug("Skipped creating sampler, missing code [%s].", SampleIdentification.createIdentification(measurement));
+            }
+
+            logger.info("Creating samplers for measurements [%s].", context.getNotMeasured().size());
+
+            int buildThreads = config.getDeploymentConfig().getBuildThreads();
+            if (buildThreads <= 0) {
+                buildThreads = Runtime.getRuntime().availableProcessors();
+            }
+            executor = Executors.newFixedThreadPool(buildThreads);
+            try {
+                buildSamplers(context);
+            } finally {
+                executor.shutdownNow();
+                logger.debug("Compiled generated modules [%d].", compilationCache.getCompilationCount());
+                compilationCache.close();
+                for (RevisionArtifacts artifacts : revisionArtifacts.values()) {
+                    artifacts.close();
+                }
+                revisionArtifacts.clear();
+            }
+        } finally {
+            if (revisionCache != null) {
+                // release leases of revisions used by the samplers
+                revisionCache.close();
+            }
         }
 
-        // report measurements which can't be measured
-        logger.info("Skipping measurements due to missing code [%s].", context.getUnableToMeasure().size());
-        for (Measurement measurement : context.getUnableToMeasure()) {
-            logger.debug("Skipped creating sampler, missing code [%s].", SampleIdentification.createIdentification(measurement));
+        savePostInfo(info);
+        InvokedExecutionConfiguration.checkIfExecutionAborted();
+
+    }
+
+    /**
+     * Builds samplers of all measurements not measured yet and then paired
+     * samplers. All samplers are submitted at once and collected in the order
+     * of submission so that reporting doesn't depend on which sampler is
+     * assembled first.
+     * 
+     * @param context
+     */
+    private void buildSamplers(BuilderContext context) {
+        // measurements differing only in metric share one sampler
+        Map<String, Measurement> samplerMeasurements = new HashMap<>();
+        List<Future<Sampler>> builds = new ArrayList<>();
+        for (Measurement measurement : context.getNotMeasured()) {
+            String identification = SampleIdentification.createIdentification(measurement);
+            Measurement samplerMeasurement = samplerMeasurements.get(identification);
+            if (samplerMeasurement != null) {
+                measurement.setMeasurementState(samplerMeasurement.getMeasurementState());
+                builds.add(null);
+            } else {
+                samplerMeasurements.put(identification, measurement);
+                builds.add(startBuildSampler(context, measurement));
+            }
         }
 
-        logger.info("Creating samplers for measurements [%s].", context.getNotMeasured().size());
+        List<Future<Sampler>> pairedBuilds = new ArrayList<>();
+        for (Pair<Measurement, Measurement> pair : context.getNotMeasuredPairs()) {
+            pairedBuilds.add(startBuildPairedSampler(context, pair));
+        }
 
         int measurementCount = 1;
-        // build all samplers needed
+        Iterator<Future<Sampler>> build = builds.iterator();
+        // collect all samplers needed
         for (Measurement measurement : context.getNotMeasured()) {
             InvokedExecutionConfiguration.checkIfExecutionAborted();
 
-            try {
-                buildSampler(context, measurement);
-                setMeasurementStatus(measurement, null);
-                logger.debug("Created sampler for measurement [%s].", SampleIdentification.createIdentification(measurement));
-
-            } catch (Throwable cause) {
-                setMeasurementStatus(measurement, cause);
-                logger.error(cause, "Failed to create runtime for measurement [%s].", SampleIdentification.createIdentification(measurement));
+            Future<Sampler> samplerBuild = build.next();
+            if (samplerBuild == null) {
+                logger.debug("Sampler already created for measurement [%s].", SampleIdentification.createIdentification(measurement));
+            } else {
+                try {
+                    addSampler(getSampler(samplerBuild));
+                    setMeasurementStatus(measurement, null);
+                    logger.debug("Created sampler for measurement [%s].", SampleIdentification.createIdentification(measurement));
+
+                } catch (Throwable cause) {
+                    setMeasurementStatus(measurement, cause);
+                    logger.error(cause, "Failed to create runtime for measurement [%s].", SampleIdentification.createIdentification(measurement));
+                }
             }
 
             logger.info("[%" + Utils.magnitude(context.getNotMeasured().size()) + "d/%d].", measurementCount, context.getNotMeasured().size());
             measurementCount++;
         }
 
-        savePostInfo(info);
-        InvokedExecutionConfiguration.checkIfExecutionAborted();
+        if (!context.getNotMeasuredPairs().isEmpty()) {
+            logger.info("Creating paired samplers for compared measurements [%s].", context.getNotMeasuredPairs().size());
+        }
+
+        // paired samplers are built in addition to the ones above, failure
+        // only means paired tests will not be available
+        Iterator<Future<Sampler>> pairedBuild = pairedBuilds.iterator();
+        for (Pair<Measurement, Measurement> pair : context.getNotMeasuredPairs()) {
+            InvokedExecutionConfiguration.checkIfExecutionAborted();
 
+            SampleIdentification sampleIdentification = new SampleIdentification(pair.getLeft(), pair.getRight());
+            try {
+                addSampler(getSampler(pairedBuild.next()));
+                logger.debug("Created paired sampler [%s].", sampleIdentification.getIdentification());
+            } catch (Throwable cause) {
+                logger.error(cause, "Failed to create paired sampler [%s].", sampleIdentification.getIdentification());
+            }
+        }
     }
 
     /**
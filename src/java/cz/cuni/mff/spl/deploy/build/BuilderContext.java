@@ -29,12 +29,31 @@ package cz.cuni.mff.spl.deploy.build;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import cz.cuni.mff.spl.InvokedExecutionConfiguration;
+import cz.cuni.mff.spl.annotation.AnnotationLocation;
+import cz.cuni.mff.spl.annotation.Comparison;
+import cz.cuni.mff.spl.annotation.Expression;
+import cz.cuni.mff.spl.annotation.Formula;
+import cz.cuni.mff.spl.annotation.FormulaDeclaration;
 import cz.cuni.mff.spl.annotation.Info;
 import cz.cuni.mff.spl.annotation.Measurement;
 import cz.cuni.mff.spl.annotation.MeasurementState.LastPhase;
@@ -63,6 +82,11 @@ import cz.cuni.mff.spl.utils.logging.SplLog;
  * {@link Measurement}s and marks those which are not yet measured and prepares
  * and builds revisions for code generation.
  * 
+ * Revisions needed are planned up front and prepared concurrently. Checkouts
+ * of the same repository are serialized as repository may use a single cache,
+ * build commands of all revisions run concurrently. Failure of a revision only
+ * makes measurements using that revision unable to measure.
+ * 
  * @author Frantisek Haas
  * @author Martin Lacina - repository checkout dependencies
  */
@@ -79,6 +103,11 @@ public class BuilderContext {
      * the source revisions.
      */
     private final List<Measurement>              unableToMeasure;
+    /**
+     * List of compared measurement pairs without paired data in the store
+     * that will be measured by paired samplers.
+     */
+    private final List<Pair<Measurement, Measurement>> notMeasuredPairs;
     /** Mapping of {@link Revision} to local directories. */
     private final StrictMap<Revision, File>      revisionMap;
     /** Mapping of source URLs to {@link Repository}ies. */
@@ -101,6 +130,14 @@ public class BuilderContext {
      * The {@link LocalStore} root directory or {@code null} when not available.
      */
     private final File                           localStoreRootDirectory;
+    /** Cache of built revisions or {@code null} when not used. */
+    private RevisionCache                        revisionCache;
+    /** Index of measurement fingerprints or {@code null} when not used. */
+    private FingerprintIndex                     fingerprintIndex;
+    /** Creates fingerprints of measurements. */
+    private final MeasurementFingerprint         fingerprint = new MeasurementFingerprint();
+    /** Identifications of measurements with reused data to the reused ones. */
+    private final Map<String, String>            borrowed = new HashMap<>();
 
     public BuilderContext(Info info, IStore store, File xml, File sourceCodeDirectory, Pair<Repository, IRepository> scannerRepositoryPair,
             Pair<Revision, File> scannerRevisionPair, InteractiveInterface interactive, ConfigurationBundle config, File localStoreRootDirectory) {
@@ -108,6 +145,7 @@ public class BuilderContext {
         this.notMeasured = new LinkedList<>();
         this.alreadyMeasured = new LinkedList<>();
         this.unableToMeasure = new LinkedList<>();
+        this.notMeasuredPairs = new LinkedList<>();
         this.revisionMap = new StrictHashMap<>();
         this.revisionMap.put(scannerRevisionPair.getLeft(), scannerRevisionPair.getRight());
 
@@ -124,6 +162,29 @@ public class BuilderContext {
         this.localStoreRootDirectory = localStoreRootDirectory;
     }
 
+    /**
+     * Sets cache of checked out and built revisions. Revisions resolved to
+     * cached entries are neither checked out nor built.
+     * 
+     * @param revisionCache
+     *            The cache or {@code null} to always check out and build.
+     */
+    public void setRevisionCache(RevisionCache revisionCache) {
+        this.revisionCache = revisionCache;
+    }
+
+    /**
+     * Sets index of measurement fingerprints. Measurements whose fingerprint
+     * is found in the index with data in the store are not measured, the data
+     * are copied instead.
+     * 
+     * @param fingerprintIndex
+     *            The index or {@code null} to always measure.
+     */
+    public void setFingerprintIndex(FingerprintIndex fingerprintIndex) {
+        this.fingerprintIndex = fingerprintIndex;
+    }
+
     /**
      * Returns not yet processed measurements without data in the store.
      * 
@@ -152,6 +213,16 @@ public class BuilderContext {
         return unableToMeasure;
     }
 
+    /**
+     * Returns compared measurement pairs to be measured by paired samplers.
+     * Empty unless pairing is enabled in deployment configuration.
+     * 
+     * @return The pairs of measurements to measure together.
+     */
+    public List<Pair<Measurement, Measurement>> getNotMeasuredPairs() {
+        return notMeasuredPairs;
+    }
+
     /**
      * Returns map of checked of revisions. In case revision was not
      * successfully checked out, {@link null} is present. In case revision was
@@ -170,8 +241,19 @@ public class BuilderContext {
      * @return
      */
     private boolean isMeasured(Measurement measurement) {
+        return isMeasured(new SampleIdentification(measurement));
+    }
+
+    /**
+     * Checks if measurement sample is already stored or not. Partial
+     * measurement is measured again.
+     * 
+     * @param identification
+     * @return
+     */
+    private boolean isMeasured(SampleIdentification identification) {
         try {
-            if (store.measurementExists(new SampleIdentification(measurement))) {
+            if (store.measurementExists(identification) && !store.isMeasurementPartial(identification)) {
                 return true;
             } else {
                 return false;
@@ -183,14 +265,13 @@ public class BuilderContext {
     }
 
     /**
-     * Checks out specified revision. Uses already parsed repositories. Checks
-     * out revision only if was not already checked out before. Stores revision
-     * directory in the revision map.
+     * Parses repository of specified revision unless it was already parsed.
+     * Failure is only logged, revisions of such repository then fail to check
+     * out.
      * 
-     * @param repositoryMap
      * @param revision
      */
-    private void checkout(Revision revision) {
+    private void parseRepository(Revision revision) {
 
         if (!repositoryMap.containsKey(revision.getRepository().getUrl())) {
             try {
@@ -210,32 +291,175 @@ public class BuilderContext {
                 logger.error(e, "Failed to create cache directory for repository.");
             }
         }
-        InvokedExecutionConfiguration.checkIfExecutionAborted();
-        if (!revisionMap.containsKey(revision)) {
-            try {
-                IRepository vcs = repositoryMap.get(revision.getRepository().getUrl());
-                File directory = FileUtils.createUniqueDirectory(sourceCodeDirectory, "revision", false);
-                String id = vcs.checkout(revision.getValue(), directory);
+    }
+
+    /**
+     * <p>
+     * Checks out and builds specified revisions which were not checked out
+     * before. Revisions are prepared concurrently by at most configured count
+     * of threads. Stores revision directories in the revision map in the
+     * order of revisions, {@code null} for revisions which failed.
+     * 
+     * @param revisions
+     *            The revisions to prepare.
+     */
+    private void prepareRevisions(Collection<Revision> revisions) {
+        List<Revision> planned = new ArrayList<>();
+        for (Revision revision : revisions) {
+            if (!revisionMap.containsKey(revision) && !planned.contains(revision)) {
+                InvokedExecutionConfiguration.checkIfExecutionAborted();
+                parseRepository(revision);
+                planned.add(revision);
+            }
+        }
+
+        if (planned.isEmpty()) {
+            return;
+        }
+
+        int revisionThreads = config.getDeploymentConfig().getRevisionThreads();
+        if (revisionThreads <= 0) {
+            revisionThreads = Runtime.getRuntime().availableProcessors();
+        }
+        logger.info("Preparing revisions [%d] by threads [%d].", planned.size(), Math.min(revisionThreads, planned.size()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(revisionThreads, planned.size()));
+        try {
+            List<Future<File>> preparations = new ArrayList<>();
+            for (Revision revision : planned) {
+                preparations.add(startPrepareRevision(executor, revision));
+            }
+
+            Iterator<Future<File>> preparation = preparations.iterator();
+            for (Revision revision : planned) {
+                InvokedExecutionConfiguration.checkIfExecutionAborted();
+                revisionMap.put(revision, getRevisionDirectory(revision, preparation.next()));
+            }
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Submits checkout and build of the revision. Revision directory is
+     * created by the calling thread so that directories are named in the
+     * order of revisions.
+     * 
+     * @param executor
+     * @param revision
+     * @return
+     *         Directory of the revision being prepared or {@code null} when
+     *         preparation can't be started.
+     */
+    private Future<File> startPrepareRevision(ExecutorService executor, final Revision revision) {
+        final IRepository vcs = repositoryMap.get(revision.getRepository().getUrl());
+        if (vcs == null) {
+            logger.error("Failed to checkout revision [%s], repository not available.", revision.getDeclarationString());
+            return null;
+        }
+
+        final File directory;
+        try {
+            directory = FileUtils.createUniqueDirectory(sourceCodeDirectory, "revision", false);
+        } catch (IOException e) {
+            logger.error(e, "Failed to create directory for revision.");
+            return null;
+        }
+
+        return executor.submit(new Callable<File>() {
+            @Override
+            public File call()
+                    throws VcsCheckoutException, BuildException {
+                return prepareRevision(vcs, revision, directory);
+            }
+        });
+    }
+
+    /**
+     * Checks out and builds the revision unless it's resolved to a cached
+     * one. Checkouts of the same repository are not run concurrently.
+     * 
+     * @param vcs
+     *            Repository of the revision.
+     * @param revision
+     *            The revision to prepare.
+     * @param directory
+     *            Where to check out the revision.
+     * @return
+     *         Directory with checked out and built revision.
+     * @throws VcsCheckoutException
+     * @throws BuildException
+     */
+    private File prepareRevision(IRepository vcs, Revision revision, File directory)
+            throws VcsCheckoutException, BuildException {
+        String id = null;
+        if (revisionCache != null) {
+            synchronized (vcs) {
+                id = vcs.resolve(revision.getValue());
+            }
+        }
+
+        if (id != null) {
+            File cached = revisionCache.get(RevisionCache.createKey(revision, id));
+            if (cached != null) {
                 revision.setRevisionIdentification(id);
+                logger.debug("Using cached revision [%s][%s][%s] from [%s].",
+                        revision.getRepository().getType(), revision.getRepository().getUrl(), revision.getValue(), cached);
+                return cached;
+            }
+        }
 
-                logger.debug("Checked out revision [%s][%s][%s] into [%s].",
-                        revision.getRepository().getType(), revision.getRepository().getUrl(), revision.getValue(), directory);
+        // only revisions the repository can resolve are cached
+        boolean cache = id != null;
+        synchronized (vcs) {
+            id = vcs.checkout(revision.getValue(), directory);
+        }
+        revision.setRevisionIdentification(id);
 
-                try {
-                    BuilderUtils.buildRevision(revision, directory, config);
-                    revisionMap.put(revision, directory);
-                } catch (BuildException e) {
-                    logger.error(e, "Failed to build revision.");
-                    revisionMap.put(revision, null);
-                }
+        logger.debug("Checked out revision [%s][%s][%s] into [%s].",
+                revision.getRepository().getType(), revision.getRepository().getUrl(), revision.getValue(), directory);
 
-            } catch (VcsCheckoutException e) {
-                logger.error(e, "Failed to checkout revision [%s].", revision.getDeclarationString());
-                revisionMap.put(revision, null);
-            } catch (IOException e) {
-                logger.error(e, "Failed to create directory for revision.");
-                revisionMap.put(revision, null);
+        BuilderUtils.buildRevision(revision, directory, config);
+
+        if (cache) {
+            return revisionCache.put(RevisionCache.createKey(revision, id), directory);
+        } else {
+            return directory;
+        }
+    }
+
+    /**
+     * Waits for the revision to be prepared.
+     * 
+     * @param revision
+     * @param preparation
+     *            The revision being prepared or {@code null}.
+     * @return
+     *         Directory of the revision or {@code null} when revision failed.
+     */
+    private File getRevisionDirectory(Revision revision, Future<File> preparation) {
+        if (preparation == null) {
+            return null;
+        }
+
+        try {
+            return preparation.get();
+
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof VcsCheckoutException) {
+                logger.error(e.getCause(), "Failed to checkout revision [%s].", revision.getDeclarationString());
+            } else {
+                logger.error(e.getCause(), "Failed to build revision [%s].", revision.getDeclarationString());
             }
+            return null;
+
+        } catch (InterruptedException e) {
+            preparation.cancel(true);
+            Thread.currentThread().interrupt();
+            InvokedExecutionConfiguration.checkIfExecutionAborted();
+            logger.error(e, "Interrupted while preparing revision [%s].", revision.getDeclarationString());
+            return null;
         }
     }
 
@@ -264,12 +488,27 @@ public class BuilderContext {
         logger.info("Repositories to possibly access [%d].", info.getProjects().size());
         logger.info("Revisions to possibly checkout [%d].", revisionCount());
 
-        int measurementCount = 1;
+        // some measurements may have full identification already present,
+        // revisions of the others are prepared at once
+        Set<Measurement> measured = Collections.newSetFromMap(new IdentityHashMap<Measurement, Boolean>());
+        Set<Revision> revisions = new LinkedHashSet<>();
         for (Measurement measurement : info.getMeasurements()) {
             InvokedExecutionConfiguration.checkIfExecutionAborted();
 
-            // some measurements may have full identification already present
             if (isMeasured(measurement)) {
+                measured.add(measurement);
+            } else {
+                revisions.add(measurement.getGenerator().getRevision());
+                revisions.add(measurement.getMethod().getRevision());
+            }
+        }
+        prepareRevisions(revisions);
+
+        int measurementCount = 1;
+        for (Measurement measurement : info.getMeasurements()) {
+            InvokedExecutionConfiguration.checkIfExecutionAborted();
+
+            if (measured.contains(measurement)) {
                 alreadyMeasured.add(measurement);
                 logger.info("[%" + Utils.magnitude(info.getMeasurements().size()) + "d/%d] - Already measured.", measurementCount, info.getMeasurements()
                         .size());
@@ -279,18 +518,10 @@ public class BuilderContext {
                 Revision mRevision = measurement.getMethod().getRevision();
 
                 String checkoutNotAvailableError = "";
-                if (canBeCodeAvailable(gRevision, mRevision)) {
-                    checkout(gRevision);
-                    if (canBeCodeAvailable(gRevision, mRevision)) {
-                        checkout(mRevision);
-                        if (!canBeCodeAvailable(gRevision, mRevision)) {
-                            checkoutNotAvailableError = "Method code not available.";
-                        }
-                    } else {
-                        checkoutNotAvailableError = "Generator code not available.";
-                    }
-                } else {
-                    checkoutNotAvailableError = "Generator or method code not available.";
+                if (!canBeCodeAvailable(gRevision)) {
+                    checkoutNotAvailableError = "Generator code not available.";
+                } else if (!canBeCodeAvailable(mRevision)) {
+                    checkoutNotAvailableError = "Method code not available.";
                 }
 
                 // measurement can be already measured if revisions just needed
@@ -299,8 +530,15 @@ public class BuilderContext {
                 if (isMeasured(measurement)) {
                     alreadyMeasured.add(measurement);
                     measurement.getMeasurementState().setLastPhase(LastPhase.BUILD);
+                    measurement.getMeasurementState().setBorrowedFrom(borrowed.get(SampleIdentification.createIdentification(measurement)));
+                    recordFingerprint(measurement);
                     logger.info("[%" + Utils.magnitude(info.getMeasurements().size()) + "d/%d] - Already measured.", measurementCount, info.getMeasurements()
                             .size());
+                } else if (canBeCodeAvailable(gRevision, mRevision) && borrowMeasurement(measurement)) {
+                    alreadyMeasured.add(measurement);
+                    measurement.getMeasurementState().setLastPhase(LastPhase.BUILD);
+                    logger.info("[%" + Utils.magnitude(info.getMeasurements().size()) + "d/%d] - Reused data of measurement with the same bytecode.",
+                            measurementCount, info.getMeasurements().size());
                 } else if (canBeCodeAvailable(gRevision, mRevision)) {
                     notMeasured.add(measurement);
                     logger.info("[%" + Utils.magnitude(info.getMeasurements().size()) + "d/%d] - Will measure.", measurementCount, info.getMeasurements()
@@ -318,6 +556,169 @@ public class BuilderContext {
 
             measurementCount++;
         }
+
+        // concurrent and cold measurements are never paired
+        if (!"none".equals(config.getDeploymentConfig().getPairing()) && config.getDeploymentConfig().getThreads() <= 1
+                && !Code.MEASUREMENT_MODE_COLD.equals(config.getDeploymentConfig().getMeasurementMode())) {
+            collectPairs();
+        }
+    }
+
+    /**
+     * Creates fingerprint of the measurement.
+     * 
+     * @param measurement
+     * @return
+     *         The fingerprint or {@code null} when fingerprints are not used or
+     *         the fingerprint can't be created.
+     */
+    private String createFingerprint(Measurement measurement) {
+        Revision gRevision = measurement.getGenerator().getRevision();
+        Revision mRevision = measurement.getMethod().getRevision();
+        if (fingerprintIndex == null || !revisionMap.containsKey(gRevision) || !revisionMap.containsKey(mRevision)
+                || revisionMap.get(gRevision) == null || revisionMap.get(mRevision) == null) {
+            return null;
+        }
+
+        try {
+            return fingerprint.create(measurement, revisionMap.get(gRevision), revisionMap.get(mRevision));
+        } catch (BuildException e) {
+            logger.debug(e, "Measurement [%s] has no fingerprint.", SampleIdentification.createIdentification(measurement));
+            return null;
+        }
+    }
+
+    /**
+     * Records measured measurement in the fingerprint index unless the
+     * fingerprint already points to measured data.
+     * 
+     * @param measurement
+     */
+    private void recordFingerprint(Measurement measurement) {
+        String measurementFingerprint = createFingerprint(measurement);
+        if (measurementFingerprint != null) {
+            SampleIdentification recorded = fingerprintIndex.find(measurementFingerprint);
+            if (recorded == null || !isMeasured(recorded)) {
+                fingerprintIndex.put(measurementFingerprint, new SampleIdentification(measurement));
+            }
+        }
+    }
+
+    /**
+     * Copies data of measurement with the same fingerprint into the store so
+     * the measurement doesn't have to be measured. Otherwise the measurement is
+     * recorded in the index so that its data can be reused once measured.
+     * 
+     * @param measurement
+     * @return
+     *         True if the data were reused.
+     */
+    private boolean borrowMeasurement(Measurement measurement) {
+        String measurementFingerprint = createFingerprint(measurement);
+        if (measurementFingerprint == null) {
+            return false;
+        }
+
+        SampleIdentification identification = new SampleIdentification(measurement);
+        SampleIdentification recorded = fingerprintIndex.find(measurementFingerprint);
+        if (recorded != null && !recorded.equals(identification) && isMeasured(recorded)) {
+            try (InputStream data = store.loadMeasurement(recorded)) {
+                store.saveMeasurement(data, identification);
+                measurement.getMeasurementState().setBorrowedFrom(recorded.getIdentification());
+                borrowed.put(identification.getIdentification(), recorded.getIdentification());
+                logger.debug("Measurement [%s] reuses data of [%s].", identification.getIdentification(), recorded.getIdentification());
+                return true;
+
+            } catch (StoreException | IOException e) {
+                logger.error(e, "Failed to reuse data of [%s].", recorded.getIdentification());
+                return false;
+            }
+        }
+
+        if (recorded == null || !isMeasured(recorded)) {
+            fingerprintIndex.put(measurementFingerprint, identification);
+        }
+        return false;
+    }
+
+    /**
+     * Walks through comparisons of all parsed formulas and collects pairs of
+     * different measurements which have no paired data in the store yet. Both
+     * orders of a pair are considered the same pair. Measurements with count of
+     * threads are measured concurrently and are never paired.
+     */
+    private void collectPairs() {
+        List<Comparison> comparisons = new LinkedList<>();
+        for (AnnotationLocation annotationLocation : info.getAnnotationLocations()) {
+            for (FormulaDeclaration formula : annotationLocation.getFormulas()) {
+                if (formula.hasDeclarationBeenParsedSuccessfully()) {
+                    collectComparisons(formula.getFormula(), comparisons);
+                }
+            }
+        }
+
+        Set<Revision> pairRevisions = new LinkedHashSet<>();
+        for (Comparison comparison : comparisons) {
+            Measurement left = comparison.getLeftMeasurement();
+            Measurement right = comparison.getRightMeasurement();
+            if (left.getThreads() == null && right.getThreads() == null) {
+                pairRevisions.add(left.getGenerator().getRevision());
+                pairRevisions.add(left.getMethod().getRevision());
+                pairRevisions.add(right.getGenerator().getRevision());
+                pairRevisions.add(right.getMethod().getRevision());
+            }
+        }
+        prepareRevisions(pairRevisions);
+
+        Set<String> pairs = new HashSet<>();
+        for (Comparison comparison : comparisons) {
+            InvokedExecutionConfiguration.checkIfExecutionAborted();
+
+            Measurement left = comparison.getLeftMeasurement();
+            Measurement right = comparison.getRightMeasurement();
+            if (left.getThreads() != null || right.getThreads() != null) {
+                continue;
+            }
+
+            Revision[] revisions = {
+                    left.getGenerator().getRevision(), left.getMethod().getRevision(),
+                    right.getGenerator().getRevision(), right.getMethod().getRevision() };
+            if (!canBeCodeAvailable(revisions)) {
+                logger.info("Unable to measure pair [%s] and [%s], missing code.", left.getIdentificationString(), right.getIdentificationString());
+                continue;
+            }
+
+            SampleIdentification pair = new SampleIdentification(left, right);
+            SampleIdentification reversedPair = new SampleIdentification(right, left);
+            if (new SampleIdentification(left).equals(new SampleIdentification(right))
+                    || !pairs.add(pair.getIdentification()) || !pairs.add(reversedPair.getIdentification())) {
+                continue;
+            }
+
+            if (isMeasured(pair) || isMeasured(reversedPair)) {
+                logger.info("Pair [%s] and [%s] already measured.", left.getIdentificationString(), right.getIdentificationString());
+            } else {
+                notMeasuredPairs.add(new Pair<>(left, right));
+                logger.info("Pair [%s] and [%s] will be measured.", left.getIdentificationString(), right.getIdentificationString());
+            }
+        }
+    }
+
+    /**
+     * Recursively collects comparisons of the formula.
+     * 
+     * @param formula
+     *            The formula to walk through.
+     * @param comparisons
+     *            The list to add comparisons to.
+     */
+    private static void collectComparisons(Formula formula, List<Comparison> comparisons) {
+        if (formula instanceof Expression) {
+            collectComparisons(((Expression) formula).getLeft(), comparisons);
+            collectComparisons(((Expression) formula).getRight(), comparisons);
+        } else if (formula instanceof Comparison) {
+            comparisons.add((Comparison) formula);
+        }
     }
 
     /**
@@ -29,13 +29,19 @@ package cz.cuni.mff.spl.deploy.build;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.io.Writer;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
 import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+
+import javax.tools.JavaFileObject;
 
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.velocity.VelocityContext;
@@ -46,7 +52,10 @@ import org.apache.velocity.runtime.RuntimeConstants;
 import cz.cuni.mff.spl.configuration.ConfigurationBundle;
 import cz.cuni.mff.spl.deploy.build.Assembler.GeneratorKind;
 import cz.cuni.mff.spl.deploy.build.exception.BuildException;
+import cz.cuni.mff.spl.deploy.execution.server.DependencyStore;
+import cz.cuni.mff.spl.deploy.execution.server.Server;
 import cz.cuni.mff.spl.deploy.store.LocalStore;
+import cz.cuni.mff.spl.deploy.store.utils.JmhResultImporter;
 import cz.cuni.mff.spl.utils.DateFormatPattern;
 import cz.cuni.mff.spl.utils.FileUtils;
 import cz.cuni.mff.spl.utils.StringUtils;
@@ -78,6 +87,16 @@ import cz.cuni.mff.spl.utils.logging.SplLogger;
  * generated and compiled based on actual project's generator source code. Same
  * thing happens for ISMethod.java.
  * 
+ * <p>
+ * Values returned by measured method are passed to SMSink.java shared by
+ * both sides of the pair, so that compiler can't eliminate the call as dead
+ * code.
+ * 
+ * <p>
+ * Concurrent sampler starts worker threads in SMeasurement, each with its own
+ * instances of CSGenerator and CSMethod, and measures them in rounds
+ * synchronized on barriers.
+ * 
  * 
  * @author Frantisek Haas
  * @author Jiri Daniel
@@ -89,12 +108,35 @@ public class Code {
     /** Main to execute sampler with. */
     public static final String MAIN_CLASS = "SMeasurement";
 
+    /**
+     * JVM arguments keeping the sink of returned values out of line, so that
+     * compiler can't see the values are not used. Unknown options are ignored
+     * by other than HotSpot JVMs.
+     */
+    public static final String SINK_ARGUMENTS = "-XX:CompileCommand=quiet -XX:CompileCommand=dontinline,SMSink::consume";
+
     /** Builds command to execute the sampler. */
     public static final String runCommand(String javaPath, String arguments) {
         if (arguments.isEmpty()) {
-            return javaPath + " " + MAIN_CLASS;
+            return javaPath + " " + SINK_ARGUMENTS + " " + MAIN_CLASS;
         } else {
-            return javaPath + " " + arguments + " " + MAIN_CLASS;
+            return javaPath + " " + SINK_ARGUMENTS + " " + arguments + " " + MAIN_CLASS;
+        }
+    }
+
+    /**
+     * Builds command to execute JMH benchmark of the sampler instead of the
+     * sampler. Forked JVM of the benchmark inherits the arguments, JMH output
+     * goes to log file and JSON result to {@link #JMH_RESULT_FILE_NAME}.
+     */
+    public static final String jmhRunCommand(String javaPath, String arguments) {
+        String classpath = "." + File.pathSeparator + JMH_LIBRARY_DIRECTORY + "/*";
+        String jmh = JMH_MAIN_CLASS + " " + JmhResultImporter.SAMPLER_BENCHMARK
+                + " -rf json -rff " + JMH_RESULT_FILE_NAME + " -o " + JMH_LOG_FILE_NAME;
+        if (arguments.isEmpty()) {
+            return javaPath + " -cp " + classpath + " " + jmh;
+        } else {
+            return javaPath + " " + arguments + " -cp " + classpath + " " + jmh;
         }
     }
 
@@ -106,6 +148,13 @@ public class Code {
     /** Name of the data result file. */
     public static final String       RESULT_FILE_NAME                  = "result.dat";
 
+    /**
+     * Name of the file sampler streams samples into while measuring. The file
+     * is removed when result file is written, otherwise it holds samples
+     * measured so far.
+     */
+    public static final String       PARTIAL_RESULT_FILE_NAME          = RESULT_FILE_NAME + Server.partialResultSuffix;
+
     public static final String       COMMENT                           = "#";
 
     public static final String       SIGN                              = "=";
@@ -116,12 +165,287 @@ public class Code {
     public static final String       PROPERTY_DATE                     = "#date=";
     /** Key to property in result file. Warmup cycles performed. */
     public static final String       PROPERTY_WARMUP_COUNT             = "#warmup=";
+    /** Key to property in result file. Warmup mode used. */
+    public static final String       PROPERTY_WARMUP_MODE              = "#warmupmode=";
+    /**
+     * Key to property in result file. Why warmup ended, one of
+     * {@link #WARMUP_END_CYCLES}, {@link #WARMUP_END_TIME},
+     * {@link #WARMUP_END_STEADY} or {@link #WARMUP_END_LIMIT}.
+     */
+    public static final String       PROPERTY_WARMUP_END               = "#warmupend=";
     /** Key to property in result file. Data samples measured. */
     public static final String       PROPERTY_SAMPLE_COUNT             = "#count=";
+    /** Key to property in result file. Measurement mode used. */
+    public static final String       PROPERTY_MEASUREMENT_MODE         = "#measurementmode=";
+    /**
+     * Key to property in result file. Why measurement ended, one of
+     * {@link #MEASUREMENT_END_CYCLES}, {@link #MEASUREMENT_END_TIME} or
+     * {@link #MEASUREMENT_END_PRECISION}.
+     */
+    public static final String       PROPERTY_MEASUREMENT_END          = "#measurementend=";
+    /**
+     * Key to property in result file. Achieved relative 95% confidence
+     * interval half-width of sample mean.
+     */
+    public static final String       PROPERTY_PRECISION                = "#precision=";
+    /** Key to property in result file. Streaming estimate of sample median. */
+    public static final String       PROPERTY_MEDIAN_ESTIMATE          = "#median=";
     /** Key to property in result file. Starts data section, data follows. */
     public static final String       MARK_SAMPLES_BEGIN                = "#begin";
     /** Key to property in result file. Ends data section, nothing follows. */
     public static final String       MARK_SAMPLES_END                  = "#end";
+    /**
+     * Key to property in result file. Starts binary data section, exactly
+     * {@link #PROPERTY_SAMPLE_COUNT} big-endian 64-bit samples follow,
+     * terminated by {@link #MARK_SAMPLES_END} on a separate line.
+     */
+    public static final String       MARK_SAMPLES_BINARY               = "#binary";
+    /**
+     * Key to property in result file. Comma separated names of columns stored
+     * for each sample in binary data section. First column is the sample
+     * value itself.
+     */
+    public static final String       PROPERTY_COLUMNS                  = "#columns=";
+    /** Key to property in result file. Garbage collection policy used. */
+    public static final String       PROPERTY_GC_POLICY                = "#gcpolicy=";
+    /** Key to property in result file. Stored samples hit by collection. */
+    public static final String       PROPERTY_GC_CONTAMINATED_COUNT    = "#gccontaminated=";
+    /** Key to property in result file. Samples discarded due to collection. */
+    public static final String       PROPERTY_GC_DROPPED_COUNT         = "#gcdropped=";
+    /** Key to property in merged result file. Number of merged forks. */
+    public static final String       PROPERTY_FORKS                    = "#forks=";
+    /**
+     * Key to property in merged result file. Comma separated sample counts of
+     * merged forks in the order their samples are stored.
+     */
+    public static final String       PROPERTY_FORK_SAMPLE_COUNTS       = "#forksamples=";
+    /**
+     * Key to property in result file. Pairing mode used, paired measurements
+     * store samples of the other side in {@link #COLUMN_PAIRED_TIME} column.
+     */
+    public static final String       PROPERTY_PAIRING                  = "#pairing=";
+    /**
+     * Key to property in result file. Time source which measured
+     * {@link #COLUMN_TIME} column.
+     */
+    public static final String       PROPERTY_TIME_SOURCE              = "#timesource=";
+    /**
+     * Key to property in partial result file. Present when sampler did not
+     * finish, sample count is then given by the data length.
+     */
+    public static final String       PROPERTY_PARTIAL                  = "#partial=";
+    /**
+     * Key to property in result file. Calibrated cost of consuming value
+     * returned by measured method in nanoseconds per call. Present only when
+     * measured method returns a value.
+     */
+    public static final String       PROPERTY_SINK_COST                = "#sinkcost=";
+    /**
+     * Key to property in result file. Count of threads which concurrently
+     * called measured method. Present only for concurrent measurements.
+     */
+    public static final String       PROPERTY_THREADS                  = "#threads=";
+    /**
+     * Key to property in result file. Smallest positive difference of time
+     * source readings in nanoseconds calibrated by sampler.
+     */
+    public static final String       PROPERTY_TIMER_GRANULARITY        = "#timergranularity=";
+    /**
+     * Key to property in result file. Cost of single time source reading in
+     * nanoseconds calibrated by sampler.
+     */
+    public static final String       PROPERTY_TIMER_OVERHEAD           = "#timeroverhead=";
+    /**
+     * Key to property in result file. Count of first invocations of measured
+     * method timed by cold start sampler.
+     */
+    public static final String       PROPERTY_COLD_INVOCATIONS         = "#coldinvocations=";
+    /**
+     * Key to property in result file. Name of JMH benchmark whose result was
+     * imported as measurement data.
+     */
+    public static final String       PROPERTY_JMH_BENCHMARK            = "#jmhbenchmark=";
+
+    /** Column with measured sample value. */
+    public static final String       COLUMN_TIME                       = "time";
+    /** Column with number of collections during sample. */
+    public static final String       COLUMN_GC_COUNT                   = "gc";
+    /** Column with collection time during sample in nanoseconds. */
+    public static final String       COLUMN_GC_TIME                    = "gctime";
+    /** Column with measured sample value of the other side of the pair. */
+    public static final String       COLUMN_PAIRED_TIME                = "pairedtime";
+    /** Column with number of collections during the other side sample. */
+    public static final String       COLUMN_PAIRED_GC_COUNT            = "pairedgc";
+    /** Column with collection time during the other side sample. */
+    public static final String       COLUMN_PAIRED_GC_TIME             = "pairedgctime";
+    /** Column with bytes allocated by measuring thread during sample. */
+    public static final String       COLUMN_ALLOCATED_BYTES            = "alloc";
+    /** Column with bytes allocated during the other side sample. */
+    public static final String       COLUMN_PAIRED_ALLOCATED_BYTES     = "pairedalloc";
+    /** Column with elapsed wall clock time of sample in nanoseconds. */
+    public static final String       COLUMN_WALL_TIME                  = "walltime";
+    /** Column with CPU time of measuring thread during sample in nanoseconds. */
+    public static final String       COLUMN_CPU_TIME                   = "cputime";
+    /** Prefix of columns of the other side of paired sampler. */
+    public static final String       COLUMN_PAIRED_PREFIX              = "paired";
+    /**
+     * Column with wall clock time in nanoseconds from the first thread
+     * starting to the last thread finishing concurrent sample.
+     */
+    public static final String       COLUMN_ROUND_TIME                 = "roundtime";
+    /** Column with calls of measured method by all threads during sample. */
+    public static final String       COLUMN_CALLS                      = "calls";
+    /**
+     * Column with calls per second by all threads during sample. Not stored,
+     * computed from {@link #COLUMN_CALLS} and {@link #COLUMN_ROUND_TIME}.
+     */
+    public static final String       COLUMN_THROUGHPUT                 = "throughput";
+    /**
+     * Column with number of cycles measured in the sample. Other columns
+     * except collection counts hold sums of all cycles of the batch.
+     */
+    public static final String       COLUMN_BATCH                      = "batch";
+    /**
+     * Column with time of loading and initialization of measured method
+     * classes before the first invocation in cold start sample.
+     */
+    public static final String       COLUMN_LOAD_TIME                  = "loadtime";
+
+    /** Time source measuring CPU time of measuring thread. */
+    public static final String       TIME_SOURCE_THREAD_TIME           = "threadtime";
+    /** Time source measuring wall clock time. */
+    public static final String       TIME_SOURCE_NANO_TIME             = "nanotime";
+
+    /**
+     * Gets name of the column which holds the same values as
+     * {@link #COLUMN_TIME} when measured by specified time source.
+     * 
+     * @param timeSource
+     *            The time source, for example {@link #TIME_SOURCE_THREAD_TIME}.
+     * @return {@link #COLUMN_CPU_TIME} for thread time source,
+     *         {@link #COLUMN_WALL_TIME} otherwise.
+     */
+    public static String getTimeSourceColumn(String timeSource) {
+        return TIME_SOURCE_THREAD_TIME.equals(timeSource) ? COLUMN_CPU_TIME : COLUMN_WALL_TIME;
+    }
+
+    /**
+     * Gets name of the column holding values of the other side of paired
+     * sampler.
+     * 
+     * @param column
+     *            The column of the first side, for example {@link #COLUMN_TIME}.
+     * @return The column of the other side, for example
+     *         {@link #COLUMN_PAIRED_TIME}.
+     */
+    public static String getPairedColumn(String column) {
+        return COLUMN_PAIRED_PREFIX + column;
+    }
+
+    /**
+     * Gets name of the column holding sample time of single thread of
+     * concurrent sampler. {@link #COLUMN_TIME} holds mean of these.
+     * 
+     * @param thread
+     *            Index of the thread starting from zero.
+     * @return The column name.
+     */
+    public static String getThreadColumn(int thread) {
+        return COLUMN_TIME + "." + thread;
+    }
+
+    /**
+     * Gets name of the column holding time of single invocation of cold start
+     * sampler. {@link #COLUMN_TIME} holds time of {@link #COLUMN_LOAD_TIME}
+     * and all invocations together.
+     * 
+     * @param invocation
+     *            Index of the invocation starting from zero.
+     * @return The column name.
+     */
+    public static String getInvocationColumn(int invocation) {
+        return "invocation." + invocation;
+    }
+
+    /** Warmup ended because warmup cycles limit was reached. */
+    public static final String       WARMUP_END_CYCLES                 = "cycles";
+    /** Warmup ended because warmup time limit was reached. */
+    public static final String       WARMUP_END_TIME                   = "time";
+    /** Warmup ended because steady state was detected. */
+    public static final String       WARMUP_END_STEADY                 = "steady";
+    /** Warmup ended because adaptive warmup max time was reached. */
+    public static final String       WARMUP_END_LIMIT                  = "limit";
+    /** Warmup was skipped because cold start was measured. */
+    public static final String       WARMUP_END_NONE                   = "none";
+
+    /** Measurement ended because measurement cycles limit was reached. */
+    public static final String       MEASUREMENT_END_CYCLES            = "cycles";
+    /** Measurement ended because measurement time limit was reached. */
+    public static final String       MEASUREMENT_END_TIME              = "time";
+    /** Measurement ended because target precision was reached. */
+    public static final String       MEASUREMENT_END_PRECISION         = "precision";
+
+    /**
+     * Measurement mode in which each sampler launch times only the first
+     * invocations of measured method in fresh JVM.
+     */
+    public static final String       MEASUREMENT_MODE_COLD             = "cold";
+
+    /**
+     * Columns stored by sampler for each measured side of sample in this
+     * order. Paired sampler stores the other side with
+     * {@link #COLUMN_PAIRED_PREFIX} prefixed columns right after.
+     */
+    private static final String[]    SAMPLE_COLUMNS                    = { COLUMN_TIME, COLUMN_GC_COUNT, COLUMN_GC_TIME };
+
+    /** Columns stored by sampler which measures allocated bytes too. */
+    private static final String[]    ALLOCATION_SAMPLE_COLUMNS         = { COLUMN_TIME, COLUMN_GC_COUNT, COLUMN_GC_TIME,
+            COLUMN_ALLOCATED_BYTES };
+
+    /**
+     * Columns appended to each measured side by sampler which measures all
+     * time sources.
+     */
+    private static final String[]    TIME_SOURCE_SAMPLE_COLUMNS        = { COLUMN_WALL_TIME, COLUMN_CPU_TIME };
+
+    /** Pairing mode of samplers measuring single generator and method. */
+    private static final String      PAIRING_NONE                      = "none";
+
+    /**
+     * Prefix of directories with generator and method code of the other side
+     * of paired sampler.
+     */
+    private static final String      PAIRED_DIRECTORY_PREFIX           = "paired";
+
+    /**
+     * Prefix of generator and method directories created by this instance.
+     * Empty unless this instance creates the other side of paired sampler.
+     */
+    private String                   directoryPrefix                   = "";
+
+    /** Code of the other side of paired sampler or {@code null}. */
+    private Code                     pairedCode;
+
+    /**
+     * Count of threads declared by measurement or {@code null} when count
+     * from deployment configuration is used.
+     */
+    private Integer                  threads;
+
+    /**
+     * Cache of dependency archives or {@code null} when dependencies are
+     * copied into the sampler directory.
+     */
+    private DependencyCache          dependencyCache;
+
+    /** Hashes of dependencies listed in the sampler's manifest. */
+    private final Set<String>        dependencies                      = new LinkedHashSet<>();
+
+    /**
+     * Cache of compiled modules shared by samplers or {@code null} when
+     * sampler uses its own.
+     */
+    private CompilationCache         compilationCache;
 
     /** Sampler identification. */
     private String                   sid;
@@ -130,6 +454,48 @@ public class Code {
 
     private static final String      SAMPLER_IMPLEMENTATION_TEMPLATE   = "measurement.vm";
 
+    /** JMH benchmark class measuring the same generator and method. */
+    public static final String       JMH_BENCHMARK_CLASS               = "SMBenchmark";
+
+    /** Package of JMH benchmark, JMH rejects benchmarks in default package. */
+    private static final String      JMH_BENCHMARK_PACKAGE             = "spl.jmh";
+
+    private static final String      JMH_BENCHMARK                     = JMH_BENCHMARK_CLASS + ".java";
+
+    private static final String      JMH_BENCHMARK_TEMPLATE            = "jmh.vm";
+
+    /** Cycle of JMH benchmark using sampler interfaces in default package. */
+    private static final String      JMH_CYCLE_CLASS                   = "SMBenchmarkCycle";
+
+    private static final String      JMH_CYCLE                         = JMH_CYCLE_CLASS + ".java";
+
+    private static final String      JMH_CYCLE_TEMPLATE                = "jmhcycle.vm";
+
+    /** Count of both warmup and measurement iterations of JMH benchmark. */
+    private static final int         JMH_ITERATIONS                    = 10;
+
+    /** Directory of the sampler with JMH libraries. */
+    private static final String      JMH_LIBRARY_DIRECTORY             = "jmh";
+
+    /** Name of the JSON result file of JMH benchmark. */
+    public static final String       JMH_RESULT_FILE_NAME              = "result.json";
+
+    /** Name of the file JMH writes its output to. */
+    private static final String      JMH_LOG_FILE_NAME                 = "jmh.log";
+
+    /** Main class of JMH runner. */
+    private static final String      JMH_MAIN_CLASS                    = "org.openjdk.jmh.Main";
+
+    /** Annotation processor generating JMH benchmark harness. */
+    private static final String      JMH_PROCESSOR_CLASS               = "org.openjdk.jmh.generators.BenchmarkProcessor";
+
+    /**
+     * Classes from archives JMH needs to run the benchmark. Classes are looked
+     * up by name so that JMH is needed only when benchmark is generated.
+     */
+    private static final String[]    JMH_RUNTIME_CLASSES               = { JMH_MAIN_CLASS, "joptsimple.OptionParser",
+            "org.apache.commons.math3.stat.descriptive.StatisticalSummary" };
+
     /**
      * Determines if generated data comes from a function or is represented by
      * the class itself.
@@ -200,6 +566,10 @@ public class Code {
 
     private static final String      METHOD_INTERFACE_TEMPLATE         = "imethod.vm";
 
+    private static final String      SINK_IMPLEMENTATION               = "SMSink.java";
+
+    private static final String      SINK_IMPLEMENTATION_TEMPLATE      = "sink.vm";
+
     /**
      * <p>
      * Prefix of directories containing the real implementation of measured
@@ -306,17 +676,25 @@ public class Code {
     }
 
     /**
-     * Invokes compiler on files specified with classpaths set.
+     * Fills the template with context specified and keeps result in memory
+     * as a compilation unit.
      * 
-     * @param filePath
-     *            The files to compile.
-     * @param classpaths
-     *            Dependency classpaths.
-     * @throws BuildException
+     * @param context
+     *            Context with specified variables.
+     * @param templateName
+     *            Template to load and fill.
+     * @param fileName
+     *            Name of the source file the class would be written to.
+     * @return
+     *         The compilation unit.
      */
-    private void compileCode(String filePath, List<String> classpaths)
-            throws BuildException {
-        Compiler.call(Arrays.asList(filePath), classpaths);
+    @SuppressWarnings("deprecation")
+    private JavaFileObject renderCode(VelocityContext context, String templateName, String fileName) {
+        InputStream template = this.getClass().getResourceAsStream(templateName);
+        StringWriter code = new StringWriter();
+        Velocity.evaluate(context, code, "", template);
+        String className = fileName.substring(0, fileName.length() - JavaFileObject.Kind.SOURCE.extension.length());
+        return Compiler.createSource(className, code.toString().replace("\t", "  "));
     }
 
     /**
@@ -353,24 +731,22 @@ public class Code {
      * sampling interface. That makes the usage possible without reflection.
      * 
      * <p>
-     * Generated source files are compiled using original classpaths for
-     * dependencies.
+     * Generated source is compiled using original classpaths for
+     * dependencies. Generators with identical declaration share the compiled
+     * module.
      * 
      * @param classpath
+     * @param interfaces
+     *            Module with sampler interfaces.
      * @throws BuildException
      */
-    private void makeAndCompileGeneratorCode(String classpath)
+    private void makeAndCompileGeneratorCode(String classpath, String interfaces)
             throws BuildException {
-        VelocityContext igContext = new VelocityContext();
         VelocityContext cgContext = new VelocityContext();
 
-        File generatorDirectory = new File(classpath, GENERATOR_DIRECTORY);
+        File generatorDirectory = new File(classpath, directoryPrefix + GENERATOR_DIRECTORY);
         generatorDirectory.mkdirs();
 
-        File igFile = new File(classpath, GENERATOR_INTERFACE);
-        File cgFile = new File(generatorDirectory.getPath(), GENERATOR_IMPLEMENTATION);
-
-        cgContext.put("identification", sid);
         cgContext.put("gKind", gKind.toString());
         cgContext.put("gType", gType);
         cgContext.put("gClass", gClass);
@@ -389,20 +765,27 @@ public class Code {
             }
         }
 
-        writeCode(igContext, GENERATOR_INTERFACE_TEMPLATE, igFile.getPath());
-        writeCode(cgContext, GENERATOR_IMPLEMENTATION_TEMPLATE, cgFile.getPath());
-
-        List<String> classpaths = new LinkedList<>();
-        classpaths.add(classpath);
-
-        compileCode(igFile.getPath(), classpaths);
-
-        classpaths.add(generatorDirectory.getPath());
-        for (File file : gClasspaths) {
-            classpaths.add(file.getPath());
-        }
+        List<JavaFileObject> sources = Arrays.asList(renderCode(cgContext, GENERATOR_IMPLEMENTATION_TEMPLATE, GENERATOR_IMPLEMENTATION));
+        compilationCache.compile(sources, new File(classpath), interfaces, gClasspaths, generatorDirectory);
+    }
 
-        compileCode(cgFile.getPath(), classpaths);
+    /**
+     * <p>
+     * Creates and compiles generator and method interfaces and the sink. These
+     * are the same for all samplers so the module is compiled once and shared.
+     * 
+     * @param classpath
+     * @return
+     *         The compiled module.
+     * @throws BuildException
+     */
+    private String makeAndCompileInterfaceCode(String classpath)
+            throws BuildException {
+        List<JavaFileObject> sources = Arrays.asList(
+                renderCode(new VelocityContext(), GENERATOR_INTERFACE_TEMPLATE, GENERATOR_INTERFACE),
+                renderCode(new VelocityContext(), METHOD_INTERFACE_TEMPLATE, METHOD_INTERFACE),
+                renderCode(new VelocityContext(), SINK_IMPLEMENTATION_TEMPLATE, SINK_IMPLEMENTATION));
+        return compilationCache.compile(sources, null, null, new File[0], new File(classpath));
     }
 
     /**
@@ -412,47 +795,44 @@ public class Code {
      * interface. That makes the usage possible without reflection.
      * 
      * <p>
-     * Generated source files are compiled using original classpaths for
-     * dependencies.
+     * Generated source is compiled using original classpaths for
+     * dependencies. Methods with identical declaration share the compiled
+     * module.
      * 
      * @param classpath
+     * @param interfaces
+     *            Module with sampler interfaces.
      * @throws BuildException
      */
-    private void makeAndCompileMethodCode(String classpath)
+    private void makeAndCompileMethodCode(String classpath, String interfaces)
             throws BuildException {
-        VelocityContext imContext = new VelocityContext();
         VelocityContext cmContext = new VelocityContext();
 
-        File methodDirectory = new File(classpath, METHOD_DIRECTORY);
+        File methodDirectory = new File(classpath, directoryPrefix + METHOD_DIRECTORY);
         methodDirectory.mkdirs();
 
-        File imFile = new File(classpath, METHOD_INTERFACE);
-        File cmFile = new File(methodDirectory.getPath(), METHOD_IMPLEMENTATION);
-
-        cmContext.put("identification", sid);
         cmContext.put("mClass", mClass);
         cmContext.put("mConstructorString", mConstructorArgument);
         cmContext.put("mFunction", mFunction);
         cmContext.put("mFunctionIsStatic", Modifier.isStatic(mFunction.getModifiers()));
+        cmContext.put("mReturnsValue", returnsValue());
 
         cmContext.put("mFunctionName", mClass + "." + mFunction.getName());
 
         cmContext.put("mHelper", new CodeHelper());
 
-        writeCode(imContext, METHOD_INTERFACE_TEMPLATE, imFile.getPath());
-        writeCode(cmContext, METHOD_IMPLEMENTATION_TEMPLATE, cmFile.getPath());
-
-        List<String> classpaths = new LinkedList<>();
-        classpaths.add(classpath);
-
-        compileCode(imFile.getPath(), classpaths);
-
-        classpaths.add(methodDirectory.getPath());
-        for (File file : mClasspaths) {
-            classpaths.add(file.getPath());
-        }
+        List<JavaFileObject> sources = Arrays.asList(renderCode(cmContext, METHOD_IMPLEMENTATION_TEMPLATE, METHOD_IMPLEMENTATION));
+        compilationCache.compile(sources, new File(classpath), interfaces, mClasspaths, methodDirectory);
+    }
 
-        compileCode(cmFile.getPath(), classpaths);
+    /**
+     * Checks whether measured method returns a value which has to be consumed
+     * by the sink.
+     * 
+     * @return True if measured method is not void.
+     */
+    private boolean returnsValue() {
+        return mFunction.getReturnType() != void.class;
     }
 
     /**
@@ -462,34 +842,232 @@ public class Code {
      * class loaders.
      * 
      * @param classpath
+     * @param interfaces
+     *            Module with sampler interfaces.
      * @throws BuildException
      */
-    private void makeAndCompileMeasurementCode(String classpath)
+    private void makeAndCompileMeasurementCode(String classpath, String interfaces)
             throws BuildException {
         VelocityContext measurementContext = new VelocityContext();
-        File measurementFile = new File(classpath, SAMPLER_IMPLEMENTATION);
 
         measurementContext.put("identification", sid);
         measurementContext.put("propertyDate", PROPERTY_DATE);
         measurementContext.put("propertyWarmupCount", PROPERTY_WARMUP_COUNT);
+        measurementContext.put("propertyWarmupMode", PROPERTY_WARMUP_MODE);
+        measurementContext.put("propertyWarmupEnd", PROPERTY_WARMUP_END);
+        measurementContext.put("warmupEndCycles", WARMUP_END_CYCLES);
+        measurementContext.put("warmupEndTime", WARMUP_END_TIME);
+        measurementContext.put("warmupEndSteady", WARMUP_END_STEADY);
+        measurementContext.put("warmupEndLimit", WARMUP_END_LIMIT);
+        measurementContext.put("propertyMeasurementMode", PROPERTY_MEASUREMENT_MODE);
+        measurementContext.put("propertyMeasurementEnd", PROPERTY_MEASUREMENT_END);
+        measurementContext.put("propertyPrecision", PROPERTY_PRECISION);
+        measurementContext.put("propertyMedianEstimate", PROPERTY_MEDIAN_ESTIMATE);
+        measurementContext.put("measurementEndCycles", MEASUREMENT_END_CYCLES);
+        measurementContext.put("measurementEndTime", MEASUREMENT_END_TIME);
+        measurementContext.put("measurementEndPrecision", MEASUREMENT_END_PRECISION);
         measurementContext.put("propertySampleCount", PROPERTY_SAMPLE_COUNT);
         measurementContext.put("markSamplesBegin", MARK_SAMPLES_BEGIN);
         measurementContext.put("markSamplesEnd", MARK_SAMPLES_END);
+        measurementContext.put("markSamplesBinary", MARK_SAMPLES_BINARY);
+        measurementContext.put("propertyColumns", PROPERTY_COLUMNS);
+        measurementContext.put("propertyGcPolicy", PROPERTY_GC_POLICY);
+        measurementContext.put("propertyGcContaminatedCount", PROPERTY_GC_CONTAMINATED_COUNT);
+        measurementContext.put("propertyGcDroppedCount", PROPERTY_GC_DROPPED_COUNT);
+        measurementContext.put("propertyPairing", PROPERTY_PAIRING);
+        measurementContext.put("propertyTimeSource", PROPERTY_TIME_SOURCE);
+        measurementContext.put("propertyPartial", PROPERTY_PARTIAL);
+        measurementContext.put("propertySinkCost", PROPERTY_SINK_COST);
+        measurementContext.put("propertyThreads", PROPERTY_THREADS);
+        measurementContext.put("sinkUsed", returnsValue() || (pairedCode != null && pairedCode.returnsValue()));
+        boolean measureAllocation = configBundle.getDeploymentConfig().getMeasureAllocation();
+        boolean measureAllTimeSources = configBundle.getDeploymentConfig().getMeasureAllTimeSources();
+        List<String> sideColumns = new ArrayList<>(Arrays.asList(measureAllocation ? ALLOCATION_SAMPLE_COLUMNS : SAMPLE_COLUMNS));
+        if (measureAllTimeSources) {
+            measurementContext.put("wallTimeColumn", sideColumns.size());
+            measurementContext.put("cpuTimeColumn", sideColumns.size() + 1);
+            sideColumns.addAll(Arrays.asList(TIME_SOURCE_SAMPLE_COLUMNS));
+        }
+        List<String> columns = new ArrayList<>(sideColumns);
+        if (pairedCode != null) {
+            for (String column : sideColumns) {
+                columns.add(getPairedColumn(column));
+            }
+        }
+        boolean cold = isCold();
+        int coldInvocations = Math.max(1, configBundle.getDeploymentConfig().getColdInvocations());
+        if (cold) {
+            measurementContext.put("loadTimeColumn", columns.size());
+            measurementContext.put("invocationColumn", columns.size() + 1);
+            columns.add(COLUMN_LOAD_TIME);
+            for (int i = 0; i < coldInvocations; ++i) {
+                columns.add(getInvocationColumn(i));
+            }
+        }
+        measurementContext.put("cold", cold);
+        measurementContext.put("coldInvocations", cold ? coldInvocations : 0);
+        measurementContext.put("propertyColdInvocations", PROPERTY_COLD_INVOCATIONS);
+        measurementContext.put("warmupEndNone", WARMUP_END_NONE);
+        int threadCount = getThreadCount();
+        if (threadCount > 0) {
+            measurementContext.put("roundTimeColumn", columns.size());
+            measurementContext.put("callsColumn", columns.size() + 1);
+            measurementContext.put("threadTimeColumn", columns.size() + 2);
+            columns.add(COLUMN_ROUND_TIME);
+            columns.add(COLUMN_CALLS);
+            for (int i = 0; i < threadCount; ++i) {
+                columns.add(getThreadColumn(i));
+            }
+        }
+        measurementContext.put("threads", threadCount);
+        int minimumSampleTime = configBundle.getDeploymentConfig().getMinimumSampleTime();
+        boolean batching = minimumSampleTime >= 0 && !cold;
+        if (batching) {
+            measurementContext.put("batchColumn", columns.size());
+            columns.add(COLUMN_BATCH);
+        }
+        measurementContext.put("batching", batching);
+        measurementContext.put("minimumSampleTime", Math.max(0, minimumSampleTime) * 1000L);
+        measurementContext.put("propertyTimerGranularity", PROPERTY_TIMER_GRANULARITY);
+        measurementContext.put("propertyTimerOverhead", PROPERTY_TIMER_OVERHEAD);
+        measurementContext.put("columns", StringUtils.createOneString(columns, ","));
+        measurementContext.put("columnCount", columns.size());
+        measurementContext.put("sideColumnCount", sideColumns.size());
+        measurementContext.put("measureAllocation", measureAllocation);
+        measurementContext.put("measureAllTimeSources", measureAllTimeSources);
+        measurementContext.put("pairing", pairedCode != null ? configBundle.getDeploymentConfig().getPairing() : PAIRING_NONE);
+        measurementContext.put("pairedPrefix", PAIRED_DIRECTORY_PREFIX);
         measurementContext.put("resultFileName", RESULT_FILE_NAME);
+        measurementContext.put("partialResultFileName", PARTIAL_RESULT_FILE_NAME);
+        measurementContext.put("resultFlushInterval", Math.max(0, configBundle.getDeploymentConfig().getResultFlushInterval()));
         measurementContext.put("dateFormatPattern", DateFormatPattern.getSystemPattern());
 
         measurementContext.put("warmupCycles", configBundle.getDeploymentConfig().getWarmupCycles());
         measurementContext.put("timeSource", configBundle.getDeploymentConfig().getTimeSource());
+        // any other time source falls back to wall clock time in sampler
+        measurementContext.put("timeSourceName",
+                TIME_SOURCE_THREAD_TIME.equals(configBundle.getDeploymentConfig().getTimeSource()) ? TIME_SOURCE_THREAD_TIME : TIME_SOURCE_NANO_TIME);
         measurementContext.put("warmupTime", configBundle.getDeploymentConfig().getWarmupTime());
         measurementContext.put("measurementCycles", configBundle.getDeploymentConfig().getMeasurementCycles());
         measurementContext.put("measurementTime", configBundle.getDeploymentConfig().getMeasurementTime());
+        String gcPolicy = configBundle.getDeploymentConfig().getGcPolicy();
+        if ("subtract".equals(gcPolicy) && TIME_SOURCE_THREAD_TIME.equals(configBundle.getDeploymentConfig().getTimeSource())) {
+            // thread time never contains collection time, nothing to subtract
+            Builder.logger.warn("GC policy [subtract] requires wall clock time source, samples are kept and flagged instead.");
+            gcPolicy = "keep";
+        }
+        measurementContext.put("gcPolicy", gcPolicy);
+        measurementContext.put("warmupMode", configBundle.getDeploymentConfig().getWarmupMode());
+        measurementContext.put("warmupWindow", Math.max(2, configBundle.getDeploymentConfig().getWarmupWindow()));
+        measurementContext.put("warmupCvLimit", configBundle.getDeploymentConfig().getWarmupCvLimit());
+        measurementContext.put("warmupMaxTime", configBundle.getDeploymentConfig().getWarmupMaxTime());
+        measurementContext.put("measurementMode", configBundle.getDeploymentConfig().getMeasurementMode());
+        measurementContext.put("measurementPrecision", configBundle.getDeploymentConfig().getMeasurementPrecision());
+
+        List<JavaFileObject> sources = Arrays.asList(renderCode(measurementContext, SAMPLER_IMPLEMENTATION_TEMPLATE, SAMPLER_IMPLEMENTATION));
+        compilationCache.compile(sources, new File(classpath), interfaces, new File[0], new File(classpath));
+    }
 
-        writeCode(measurementContext, SAMPLER_IMPLEMENTATION_TEMPLATE, measurementFile.getPath());
+    /**
+     * <p>
+     * Creates source of JMH benchmark measuring the same generator and method
+     * as the sampler and source of its cycle. Warmup and measurement time is
+     * split into {@link #JMH_ITERATIONS} iterations.
+     * 
+     * @param classpath
+     * @throws BuildException
+     */
+    private void makeJmhBenchmarkCode(String classpath)
+            throws BuildException {
+        VelocityContext benchmarkContext = new VelocityContext();
+        File benchmarkFile = new File(classpath, JMH_BENCHMARK);
+        File cycleFile = new File(classpath, JMH_CYCLE);
+
+        benchmarkContext.put("identification", sid);
+        benchmarkContext.put("package", JMH_BENCHMARK_PACKAGE);
+        benchmarkContext.put("benchmarkClass", JMH_BENCHMARK_PACKAGE + "." + JMH_BENCHMARK_CLASS);
+        benchmarkContext.put("cycleClass", JMH_CYCLE_CLASS);
+        benchmarkContext.put("threads", Math.max(1, getThreadCount()));
+        benchmarkContext.put("iterations", JMH_ITERATIONS);
+        benchmarkContext.put("warmupIterationTime", getJmhIterationTime(configBundle.getDeploymentConfig().getWarmupTime()));
+        benchmarkContext.put("measurementIterationTime", getJmhIterationTime(configBundle.getDeploymentConfig().getMeasurementTime()));
+
+        writeCode(benchmarkContext, JMH_BENCHMARK_TEMPLATE, benchmarkFile.getPath());
+        writeCode(benchmarkContext, JMH_CYCLE_TEMPLATE, cycleFile.getPath());
+    }
+
+    /**
+     * <p>
+     * Compiles JMH benchmark with JMH annotation processor which generates the
+     * benchmark harness and benchmark list into the sampler directory. JMH
+     * libraries the benchmark runs with are copied into
+     * {@link #JMH_LIBRARY_DIRECTORY}.
+     * 
+     * @param classpath
+     * @throws BuildException
+     */
+    private void compileJmhBenchmarkCode(String classpath)
+            throws BuildException {
+        List<String> classPaths = new ArrayList<>();
+        classPaths.add(classpath);
+        classPaths.add(getArchive(JMH_PROCESSOR_CLASS).getPath());
+        for (String runtimeClass : JMH_RUNTIME_CLASSES) {
+            classPaths.add(getArchive(runtimeClass).getPath());
+        }
+
+        List<String> options = Arrays.asList("-d", classpath, "-processor", JMH_PROCESSOR_CLASS);
+        List<String> sources = Arrays.asList(new File(classpath, JMH_BENCHMARK).getPath(), new File(classpath, JMH_CYCLE).getPath());
+        Compiler.call(sources, classPaths, options);
+
+        try {
+            File libraries = new File(classpath, JMH_LIBRARY_DIRECTORY);
+            FileUtils.createDirectory(libraries);
+            for (String runtimeClass : JMH_RUNTIME_CLASSES) {
+                File archive = getArchive(runtimeClass);
+                FileUtils.copyFile(archive, new File(libraries, archive.getName()));
+            }
+        } catch (IOException e) {
+            throw new BuildException(e);
+        }
+    }
+
+    /**
+     * Finds archive or directory the class is loaded from.
+     * 
+     * @param className
+     * @return The archive or directory.
+     * @throws BuildException
+     *             When the class is not available or its location is not a
+     *             file.
+     */
+    private static File getArchive(String className)
+            throws BuildException {
+        try {
+            return new File(Class.forName(className).getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (ClassNotFoundException | URISyntaxException | IllegalArgumentException | NullPointerException e) {
+            throw new BuildException(String.format("Failed to locate archive of [%s], JMH is not available.", className), e);
+        }
+    }
 
-        List<String> classpaths = new LinkedList<>();
-        classpaths.add(classpath);
+    /**
+     * @return
+     *         True if sampler is run as JMH benchmark. Paired and cold samplers
+     *         have no JMH counterpart.
+     */
+    public boolean hasJmhBenchmark() {
+        return configBundle.getDeploymentConfig().getJmhBenchmark() && pairedCode == null && !isCold();
+    }
 
-        compileCode(measurementFile.getPath(), classpaths);
+    /**
+     * Splits configured time into JMH iterations.
+     * 
+     * @param time
+     *            The time in seconds or -1 when not limited.
+     * @return Time of single iteration in milliseconds, one second when time
+     *         is not limited.
+     */
+    private static long getJmhIterationTime(int time) {
+        return time > 0 ? Math.max(1, time * 1000L / JMH_ITERATIONS) : 1000;
     }
 
     /**
@@ -506,12 +1084,7 @@ public class Code {
     private void copyGeneratorBinaries(String classpath)
             throws BuildException {
         for (int i = 0; i < gClasspaths.length; i++) {
-            try {
-                File target = new File(classpath, GENERATOR_DEPENDENCY_PREFIX + i);
-                FileUtils.copyDirectory(gClasspaths[i], target, localStoreRootDirectory);
-            } catch (IOException e) {
-                throw new BuildException(e);
-            }
+            copyBinaries(classpath, gClasspaths[i], directoryPrefix + GENERATOR_DEPENDENCY_PREFIX + i);
         }
     }
 
@@ -529,12 +1102,41 @@ public class Code {
     private void copyMethodBinaries(String classpath)
             throws BuildException {
         for (int i = 0; i < mClasspaths.length; i++) {
-            try {
-                File target = new File(classpath, METHOD_DEPENDENCY_PREFIX + i);
-                FileUtils.copyDirectory(mClasspaths[i], target, localStoreRootDirectory);
-            } catch (IOException e) {
-                throw new BuildException(e);
+            copyBinaries(classpath, mClasspaths[i], directoryPrefix + METHOD_DEPENDENCY_PREFIX + i);
+        }
+    }
+
+    /**
+     * Provides single class path to the sampler in the directory of the name
+     * specified. With dependency cache set the class path is only listed in
+     * the sampler's manifest (see {@link DependencyStore}) and linked into
+     * the directory on the execution machine. Otherwise it's copied.
+     * 
+     * @param classpath
+     *            The sampler directory.
+     * @param source
+     *            The class path to provide.
+     * @param name
+     *            The name of the directory sampler loads the class path from.
+     * @throws BuildException
+     */
+    private void copyBinaries(String classpath, File source, String name)
+            throws BuildException {
+        try {
+            if (dependencyCache == null) {
+                FileUtils.copyDirectory(source, new File(classpath, name), localStoreRootDirectory);
+                return;
             }
+
+            String hash = dependencyCache.add(source);
+            if (hash != null) {
+                try (Writer writer = new FileWriter(new File(classpath, DependencyStore.MANIFEST_FILE_NAME), true)) {
+                    writer.write(name + " " + hash + "\n");
+                }
+                dependencies.add(hash);
+            }
+        } catch (IOException e) {
+            throw new BuildException(e);
         }
     }
 
@@ -542,6 +1144,10 @@ public class Code {
      * Creates the sampler code based on configuration set in the specified
      * directory and build the code. Packs the sampler code into archive file.
      * 
+     * <p>
+     * Sources are generated in memory and compiled in modules with the same
+     * class paths, only compiled classes are written into the directory.
+     * 
      * @param classpath
      *            The path where to create the code, copy the required libraries
      *            and build the code.
@@ -549,11 +1155,118 @@ public class Code {
      */
     public void call(String classpath)
             throws BuildException {
-        makeAndCompileGeneratorCode(classpath);
-        makeAndCompileMethodCode(classpath);
-        makeAndCompileMeasurementCode(classpath);
+        if (compilationCache == null) {
+            compilationCache = new CompilationCache();
+        }
+        String interfaces = makeAndCompileInterfaceCode(classpath);
+        makeAndCompileGeneratorCode(classpath, interfaces);
+        makeAndCompileMethodCode(classpath, interfaces);
+        if (pairedCode != null) {
+            pairedCode.compilationCache = compilationCache;
+            pairedCode.makeAndCompileGeneratorCode(classpath, interfaces);
+            pairedCode.makeAndCompileMethodCode(classpath, interfaces);
+        }
+        makeAndCompileMeasurementCode(classpath, interfaces);
+        if (hasJmhBenchmark()) {
+            makeJmhBenchmarkCode(classpath);
+            compileJmhBenchmarkCode(classpath);
+        }
         copyGeneratorBinaries(classpath);
         copyMethodBinaries(classpath);
+        if (pairedCode != null) {
+            pairedCode.copyGeneratorBinaries(classpath);
+            pairedCode.copyMethodBinaries(classpath);
+            dependencies.addAll(pairedCode.dependencies);
+        }
+    }
+
+    /**
+     * <p>
+     * Sets cache of dependency archives so that dependencies are referenced
+     * by the sampler instead of being copied into it.
+     * 
+     * @param dependencyCache
+     *            The cache or {@code null} to copy dependencies.
+     */
+    public void setDependencyCache(DependencyCache dependencyCache) {
+        this.dependencyCache = dependencyCache;
+    }
+
+    /**
+     * <p>
+     * Sets cache of compiled modules shared by samplers.
+     * 
+     * @param compilationCache
+     *            The cache or {@code null} to compile all modules of the
+     *            sampler.
+     */
+    public void setCompilationCache(CompilationCache compilationCache) {
+        this.compilationCache = compilationCache;
+    }
+
+    /**
+     * @return
+     *         Hashes of dependencies the built sampler references, empty when
+     *         dependencies are copied into it.
+     */
+    public Set<String> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Gets count of threads which concurrently call measured method.
+     * 
+     * @return The count of threads or zero when measured method is called by
+     *         single main thread only.
+     */
+    private int getThreadCount() {
+        if (pairedCode != null || isCold()) {
+            return 0;
+        } else if (threads != null) {
+            return threads;
+        }
+        int configured = configBundle.getDeploymentConfig().getThreads();
+        return configured > 1 ? configured : 0;
+    }
+
+    /**
+     * Checks whether sampler measures cold start, cold sampler is neither
+     * concurrent nor batched.
+     * 
+     * @return True if cold measurement mode is configured.
+     */
+    private boolean isCold() {
+        return MEASUREMENT_MODE_COLD.equals(configBundle.getDeploymentConfig().getMeasurementMode());
+    }
+
+    /**
+     * <p>
+     * Sets count of threads which concurrently call measured method. Each
+     * thread has its own generator and method instance and all of them start
+     * each cycle together. Concurrent sampler can't be paired.
+     * 
+     * @param threads
+     *            Count of threads declared by measurement or {@code null} to
+     *            use count from deployment configuration.
+     */
+    public void setThreads(Integer threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * <p>
+     * Makes this sampler code paired. The other side's generator and method
+     * are created in separate directories and loaded by separate class
+     * loaders. Both sides are measured in each cycle in the order given by
+     * pairing mode in deployment configuration.
+     * 
+     * @param pairedCode
+     *            The code with generator and method of the other side set.
+     */
+    public void setPairedCode(Code pairedCode) {
+        this.pairedCode = pairedCode;
+        pairedCode.directoryPrefix = PAIRED_DIRECTORY_PREFIX;
+        pairedCode.dependencyCache = dependencyCache;
     }
 
     /**
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.build;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+import cz.cuni.mff.spl.deploy.build.exception.BuildException;
+import cz.cuni.mff.spl.utils.StringUtils;
+import cz.cuni.mff.spl.utils.logging.SplLog;
+import cz.cuni.mff.spl.utils.logging.SplLogger;
+
+/**
+ * <p>
+ * Compiles generated sampler sources in memory and keeps compiled modules
+ * keyed by the hash of their sources and class paths. Samplers generating the
+ * same module (e.g. sampler interfaces or generator with identical
+ * declaration) compile it only once, later samplers just get the classes
+ * written into their directories.
+ * 
+ * <p>
+ * Cache can be used by several threads. Different modules are compiled in
+ * parallel, each compilation borrows a file manager from a pool as file
+ * managers are not thread safe. Threads needing a module which is being
+ * compiled wait for that compilation.
+ */
+public class CompilationCache implements Closeable {
+
+    private static final SplLog                                          logger         = SplLogger.getLogger(CompilationCache.class);
+
+    private static final String                                          HASH_ALGORITHM = "SHA-256";
+
+    /** File managers not used by any compilation at the moment. */
+    private final ConcurrentLinkedQueue<StandardJavaFileManager>         fileManagers   = new ConcurrentLinkedQueue<>();
+    /** Compilations of modules by module hash. */
+    private final ConcurrentHashMap<String, Future<Map<String, byte[]>>> modules        = new ConcurrentHashMap<>();
+    /** Count of actually invoked compilations. */
+    private final AtomicInteger                                          compilations   = new AtomicInteger();
+
+    /**
+     * @throws BuildException
+     *             If system java compiler is not present.
+     */
+    public CompilationCache()
+            throws BuildException {
+        fileManagers.add(Compiler.createFileManager());
+    }
+
+    /**
+     * <p>
+     * Compiles the module unless module with the same sources and class paths
+     * is already compiled and writes its classes into the output directory.
+     * 
+     * @param sources
+     *            Sources of the module.
+     * @param baseDirectory
+     *            Directory with classes of the base module the sources depend
+     *            on or {@code null} when there is no such module.
+     * @param baseModule
+     *            Hash of the base module returned by previous call or
+     *            {@code null} when there is no such module.
+     * @param classPaths
+     *            Other dependency class paths.
+     * @param outputDirectory
+     *            Directory where to write compiled classes.
+     * @return
+     *         Hash identifying the compiled module.
+     * @throws BuildException
+     */
+    public String compile(final List<JavaFileObject> sources, File baseDirectory, String baseModule, File[] classPaths, File outputDirectory)
+            throws BuildException {
+        try {
+            String module = hash(sources, baseModule, classPaths);
+
+            final List<String> compileClassPaths = new LinkedList<>();
+            if (baseDirectory != null) {
+                compileClassPaths.add(baseDirectory.getPath());
+            }
+            for (File classPath : classPaths) {
+                compileClassPaths.add(classPath.getPath());
+            }
+
+            FutureTask<Map<String, byte[]>> compilation = new FutureTask<>(new Callable<Map<String, byte[]>>() {
+                @Override
+                public Map<String, byte[]> call()
+                        throws BuildException {
+                    return invokeCompiler(sources, compileClassPaths);
+                }
+            });
+
+            Future<Map<String, byte[]>> compiled = modules.putIfAbsent(module, compilation);
+            if (compiled == null) {
+                compiled = compilation;
+                compilation.run();
+            } else {
+                logger.trace("Reusing compiled module [%s].", module);
+            }
+
+            Map<String, byte[]> classes = getClasses(compiled);
+            for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+                File classFile = new File(outputDirectory, entry.getKey().replace('.', File.separatorChar) + ".class");
+                classFile.getParentFile().mkdirs();
+                try (OutputStream output = new FileOutputStream(classFile)) {
+                    output.write(entry.getValue());
+                }
+            }
+
+            return module;
+
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new BuildException("Failed to compile generated code.", e);
+        }
+    }
+
+    /**
+     * Compiles module sources with a file manager from the pool. New file
+     * manager is created when all are in use.
+     * 
+     * @param sources
+     * @param classPaths
+     * @return
+     *         Compiled classes by their binary names.
+     * @throws BuildException
+     */
+    private Map<String, byte[]> invokeCompiler(List<JavaFileObject> sources, List<String> classPaths)
+            throws BuildException {
+        StandardJavaFileManager fileManager = fileManagers.poll();
+        if (fileManager == null) {
+            fileManager = Compiler.createFileManager();
+        }
+
+        try {
+            compilations.incrementAndGet();
+            return Compiler.call(fileManager, sources, classPaths);
+        } finally {
+            fileManagers.add(fileManager);
+        }
+    }
+
+    /**
+     * Waits for compilation of module.
+     * 
+     * @param compiled
+     * @return
+     *         Compiled classes by their binary names.
+     * @throws BuildException
+     *             When the compilation failed or waiting was interrupted.
+     */
+    private static Map<String, byte[]> getClasses(Future<Map<String, byte[]>> compiled)
+            throws BuildException {
+        try {
+            return compiled.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BuildException("Interrupted while waiting for compilation of generated code.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof BuildException) {
+                throw (BuildException) e.getCause();
+            }
+            throw new BuildException("Failed to compile generated code.", e.getCause());
+        }
+    }
+
+    /**
+     * @return
+     *         Count of compilations actually invoked, modules taken from cache
+     *         are not counted.
+     */
+    public int getCompilationCount() {
+        return compilations.get();
+    }
+
+    /**
+     * Releases pooled file managers. Compiled modules are dropped.
+     */
+    @Override
+    public void close() {
+        modules.clear();
+        StandardJavaFileManager fileManager;
+        while ((fileManager = fileManagers.poll()) != null) {
+            try {
+                fileManager.close();
+            } catch (IOException e) {
+                logger.warn(e, "Failed to close file manager.");
+            }
+        }
+    }
+
+    /**
+     * Computes hash of module inputs. Sources are hashed by name and content,
+     * class paths by their paths as they don't change during single build.
+     * 
+     * @param sources
+     * @param baseModule
+     * @param classPaths
+     * @return
+     *         The hash as hexadecimal string.
+     * @throws IOException
+     * @throws NoSuchAlgorithmException
+     */
+    private static String hash(List<JavaFileObject> sources, String baseModule, File[] classPaths)
+            throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+
+        digest.update(StringUtils.getStringBytes((baseModule == null ? "" : baseModule) + "\n"));
+        for (File classPath : classPaths) {
+            digest.update(StringUtils.getStringBytes(classPath.getAbsolutePath() + "\n"));
+        }
+        for (JavaFileObject source : sources) {
+            String code = source.getCharContent(true).toString();
+            digest.update(StringUtils.getStringBytes(source.getName() + "\n" + code.length() + "\n" + code));
+        }
+
+        return StringUtils.createHexadecimalString(digest.digest());
+    }
+}
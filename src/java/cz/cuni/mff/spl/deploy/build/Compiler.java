@@ -27,18 +27,29 @@
  */
 package cz.cuni.mff.spl.deploy.build;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.OutputStream;
 import java.io.Writer;
+import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticCollector;
+import javax.tools.DiagnosticListener;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
 import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
 import javax.tools.StandardJavaFileManager;
 import javax.tools.ToolProvider;
 
@@ -50,6 +61,11 @@ import cz.cuni.mff.spl.utils.logging.SplLogger;
  * <p>
  * This class provides simple static API for java source code compilation.
  * 
+ * <p>
+ * Sources can be compiled either from files or from memory. In-memory
+ * compilation doesn't touch the disk at all, compiled classes are returned as
+ * bytes and the file manager can be shared by subsequent compilations.
+ * 
  * @author Frantisek Haas
  * 
  */
@@ -95,7 +111,7 @@ public class Compiler {
      * 
      * @return
      */
-    private static Iterable<String> getOptions(Iterable<String> classPaths) {
+    private static List<String> getOptions(Iterable<String> classPaths) {
         StringBuilder classPathBuilder = new StringBuilder();
         for (String classPath : classPaths) {
             classPathBuilder.append(File.pathSeparator + classPath);
@@ -127,6 +143,88 @@ public class Compiler {
         return compilationUnits;
     }
 
+    /**
+     * <p>
+     * Creates file manager which can be shared by in-memory compilations. File
+     * manager caches opened class path archives and directory listings.
+     * 
+     * @return
+     *         The file manager.
+     * @throws CompileException
+     *             If system java compiler is not present.
+     */
+    public static StandardJavaFileManager createFileManager()
+            throws CompileException {
+        Locale defaultLocale = null;
+        Charset defaultCharset = null;
+        DiagnosticListener<JavaFileObject> noDiagnostics = null;
+        return getCompiler().getStandardFileManager(noDiagnostics, defaultLocale, defaultCharset);
+    }
+
+    /**
+     * <p>
+     * Creates in-memory compilation unit.
+     * 
+     * @param className
+     *            Binary name of the class.
+     * @param code
+     *            Source code of the class.
+     * @return
+     *         The compilation unit.
+     */
+    public static JavaFileObject createSource(String className, String code) {
+        return new MemorySource(className, code);
+    }
+
+    /**
+     * Compiles in-memory sources using class paths for dependencies. Compiled
+     * classes are kept in memory too.
+     * 
+     * @param fileManager
+     *            File manager created by {@link #createFileManager()}. It must
+     *            not be used by more compilations at once.
+     * @param sources
+     *            The sources created by {@link #createSource(String, String)}.
+     * @param classPaths
+     *            Dependency class paths.
+     * @return
+     *         Compiled classes by their binary names.
+     * @throws CompileException
+     */
+    public static Map<String, byte[]> call(StandardJavaFileManager fileManager, List<JavaFileObject> sources, List<String> classPaths)
+            throws CompileException {
+
+        JavaCompiler compiler = getCompiler();
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+        MemoryFileManager memoryFileManager = new MemoryFileManager(fileManager);
+
+        Iterable<String> options = getOptions(classPaths);
+
+        Writer defaultToStdErr = null;
+        Iterable<String> noAnnotationClasses = null;
+        JavaCompiler.CompilationTask task = compiler.getTask(defaultToStdErr, memoryFileManager, diagnostics, options, noAnnotationClasses, sources);
+
+        if (!task.call()) {
+            for (JavaFileObject source : sources) {
+                logger.error("Source: %s.", source.getName());
+            }
+            for (String classPath : classPaths) {
+                logger.error("Class path: %s.", classPath);
+            }
+            for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+                logger.error("Diagnostics:\n%s", d.toString());
+            }
+            throw new CompileException("Failed to compile source code.");
+        }
+
+        Map<String, byte[]> classes = new LinkedHashMap<>();
+        for (Map.Entry<String, ByteArrayOutputStream> entry : memoryFileManager.classes.entrySet()) {
+            classes.put(entry.getKey(), entry.getValue().toByteArray());
+        }
+        return classes;
+    }
+
     /**
      * Compiles java source located on source paths and uses class paths for
      * dependencies.
@@ -137,6 +235,21 @@ public class Compiler {
      */
     public static void call(List<String> sourcePaths, List<String> classPaths)
             throws CompileException {
+        call(sourcePaths, classPaths, new ArrayList<String>());
+    }
+
+    /**
+     * Compiles java source located on source paths and uses class paths for
+     * dependencies. Additional options are passed to the compiler, for example
+     * output directory or annotation processors.
+     * 
+     * @param sourcePaths
+     * @param classPaths
+     * @param additionalOptions
+     * @throws CompileException
+     */
+    public static void call(List<String> sourcePaths, List<String> classPaths, List<String> additionalOptions)
+            throws CompileException {
 
         JavaCompiler compiler = getCompiler();
 
@@ -145,7 +258,8 @@ public class Compiler {
         DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
         StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, defaultLocale, defaultCharset);
 
-        Iterable<String> options = getOptions(classPaths);
+        List<String> options = getOptions(classPaths);
+        options.addAll(additionalOptions);
         Iterable<? extends JavaFileObject> compilationUnits = getCompilationUnits(compiler, sourcePaths);
 
         Writer defaultToStdErr = null;
@@ -165,4 +279,66 @@ public class Compiler {
             throw new CompileException("Failed to compile source code.");
         }
     }
+
+    /**
+     * Compilation unit with source code kept in memory.
+     */
+    private static class MemorySource extends SimpleJavaFileObject {
+
+        private final String code;
+
+        public MemorySource(String className, String code) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+    /**
+     * Compiled class kept in memory.
+     */
+    private static class MemoryClass extends SimpleJavaFileObject {
+
+        private final ByteArrayOutputStream content;
+
+        public MemoryClass(String className, ByteArrayOutputStream content) {
+            super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.content = content;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return content;
+        }
+    }
+
+    /**
+     * File manager which keeps compiled classes in memory. Everything else is
+     * delegated to the shared file manager.
+     */
+    private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        /** Compiled classes by their binary names. */
+        private final Map<String, ByteArrayOutputStream> classes = new LinkedHashMap<>();
+
+        public MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className, Kind kind, FileObject sibling) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            classes.put(className, content);
+            return new MemoryClass(className, content);
+        }
+
+        @Override
+        public void close() {
+            // shared file manager is closed by its owner
+        }
+    }
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.build;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import cz.cuni.mff.spl.deploy.build.exception.BuildException;
+import cz.cuni.mff.spl.deploy.execution.server.DependencyStore;
+import cz.cuni.mff.spl.utils.FileUtils;
+import cz.cuni.mff.spl.utils.StringUtils;
+import cz.cuni.mff.spl.utils.ZipUtils;
+
+/**
+ * <p>
+ * Packs class path entries of revisions into archives named by the hash of
+ * their content. Each entry is packed once no matter how many samplers
+ * reference it. Samplers only list hashes of their dependencies (see
+ * {@link DependencyStore}) and the archives are transferred once per content,
+ * so unchanged dependencies are not transferred again in later runs.
+ * 
+ * <p>
+ * Cache can be used by several threads.
+ */
+public class DependencyCache {
+
+    private static final String     HASH_ALGORITHM = "SHA-256";
+    private static final int        BUFFER_SIZE    = 65536;
+
+    /** Directory where the archives are kept. */
+    private final File              directory;
+    /** Directory not to be copied into dependencies or {@code null}. */
+    private final File              localStoreRootDirectory;
+    /** Hashes of class path entries already packed. */
+    private final Map<File, String> hashes         = new HashMap<>();
+
+    /**
+     * @param directory
+     *            Directory where to keep the archives.
+     * @param localStoreRootDirectory
+     *            The local store root directory or {@code null} when not
+     *            available.
+     * @throws BuildException
+     */
+    public DependencyCache(File directory, File localStoreRootDirectory)
+            throws BuildException {
+        this.directory = directory;
+        this.localStoreRootDirectory = localStoreRootDirectory;
+        try {
+            FileUtils.createDirectory(directory);
+        } catch (IOException e) {
+            throw new BuildException("Failed to create dependency cache directory.", e);
+        }
+    }
+
+    /**
+     * <p>
+     * Packs the class path entry unless it's already packed. Content is the
+     * same as would be copied into sampler directory, directory's files or the
+     * file itself.
+     * 
+     * @param classpath
+     *            The class path entry.
+     * @return
+     *         Hash of the content or {@code null} when there is nothing to
+     *         pack.
+     * @throws BuildException
+     */
+    public synchronized String add(File classpath)
+            throws BuildException {
+        try {
+            File source = classpath.getAbsoluteFile().getCanonicalFile();
+            if (hashes.containsKey(source)) {
+                return hashes.get(source);
+            }
+
+            File staging = FileUtils.createUniqueDirectory(directory, "staging", false);
+            try {
+                FileUtils.copyDirectory(source, staging, localStoreRootDirectory);
+
+                String hash = null;
+                if (staging.list().length > 0) {
+                    hash = hash(staging);
+                    File archive = getArchive(hash);
+                    if (!archive.exists()) {
+                        try (OutputStream output = new FileOutputStream(archive)) {
+                            ZipUtils.zip(staging.getPath(), "", output, null);
+                        }
+                    }
+                }
+
+                hashes.put(source, hash);
+                return hash;
+
+            } finally {
+                FileUtils.deleteAll(staging);
+            }
+
+        } catch (Exception e) {
+            throw new BuildException(String.format("Failed to pack dependency [%s].", classpath), e);
+        }
+    }
+
+    /**
+     * @param hash
+     *            Hash returned by {@link #add(File)}.
+     * @return
+     *         The archive with dependency content.
+     */
+    public File getArchive(String hash) {
+        return new File(directory, DependencyStore.archiveFileName(hash));
+    }
+
+    /**
+     * <p>
+     * Computes hash of the directory content. Relative paths and content of
+     * all files are hashed in the order of their names so that the same
+     * content always gives the same hash.
+     * 
+     * @param root
+     *            The directory to hash.
+     * @return
+     *         The hash as hexadecimal string.
+     * @throws IOException
+     * @throws NoSuchAlgorithmException
+     */
+    private static String hash(File root)
+            throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        hash(root, "", digest, new byte[BUFFER_SIZE]);
+        return StringUtils.createHexadecimalString(digest.digest());
+    }
+
+    /**
+     * Hashes files of the directory and its subdirectories.
+     * 
+     * @param directory
+     *            The directory to hash.
+     * @param path
+     *            Relative path of the directory ending with separator.
+     * @param digest
+     *            The digest to update.
+     * @param buffer
+     *            Buffer for reading files.
+     * @throws IOException
+     */
+    private static void hash(File directory, String path, MessageDigest digest, byte[] buffer)
+            throws IOException {
+        File[] files = directory.listFiles();
+        Arrays.sort(files);
+
+        for (File file : files) {
+            String name = path + file.getName();
+            if (file.isDirectory()) {
+                digest.update(StringUtils.getStringBytes(name + "/\n"));
+                hash(file, name + "/", digest, buffer);
+            } else {
+                digest.update(StringUtils.getStringBytes(name + "\n" + file.length() + "\n"));
+                try (InputStream input = new FileInputStream(file)) {
+                    int length;
+                    while ((length = input.read(buffer)) != -1) {
+                        digest.update(buffer, 0, length);
+                    }
+                }
+            }
+        }
+    }
+}
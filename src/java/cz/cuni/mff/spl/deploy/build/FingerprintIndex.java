@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import cz.cuni.mff.spl.deploy.build.exception.BuildException;
+import cz.cuni.mff.spl.utils.FileUtils;
+import cz.cuni.mff.spl.utils.StringUtils;
+import cz.cuni.mff.spl.utils.logging.SplLog;
+
+/**
+ * <p>
+ * Maps fingerprints created by {@link MeasurementFingerprint} to
+ * identifications of measurements whose data were measured with that
+ * fingerprint. Index is kept in the store between runs, each fingerprint in
+ * its own file.
+ * 
+ * <p>
+ * The index only points to the data. Whether the data are present and
+ * complete must be checked in the store.
+ */
+public class FingerprintIndex {
+
+    private static final SplLog logger = Builder.logger;
+
+    /** Directory with fingerprint files. */
+    private final File          directory;
+
+    /**
+     * @param directory
+     *            Directory with fingerprint files.
+     * @throws BuildException
+     */
+    public FingerprintIndex(File directory)
+            throws BuildException {
+        this.directory = directory;
+        try {
+            FileUtils.createDirectory(directory);
+        } catch (IOException e) {
+            throw new BuildException("Failed to create fingerprint index directory.", e);
+        }
+    }
+
+    /**
+     * Finds measurement with the fingerprint.
+     * 
+     * @param fingerprint
+     * @return
+     *         Identification of the measurement or {@code null} when not
+     *         known.
+     */
+    public SampleIdentification find(String fingerprint) {
+        File file = new File(directory, fingerprint);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        try {
+            return SampleIdentification.deserialize(new String(Files.readAllBytes(file.toPath()), "UTF-8"));
+        } catch (IOException | RuntimeException e) {
+            logger.debug(e, "Failed to read fingerprint [%s].", fingerprint);
+            return null;
+        }
+    }
+
+    /**
+     * Records measurement with the fingerprint replacing the previous one.
+     * 
+     * @param fingerprint
+     * @param identification
+     *            Identification of the measurement.
+     */
+    public void put(String fingerprint, SampleIdentification identification) {
+        File staging = null;
+        try {
+            staging = File.createTempFile(fingerprint, null, directory);
+            Files.write(staging.toPath(), StringUtils.getStringBytes(SampleIdentification.serialize(identification)));
+            Files.move(staging.toPath(), new File(directory, fingerprint).toPath(), StandardCopyOption.ATOMIC_MOVE);
+            staging = null;
+        } catch (IOException e) {
+            if (staging != null) {
+                staging.delete();
+            }
+            logger.debug(e, "Failed to record fingerprint [%s].", fingerprint);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.build;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import cz.cuni.mff.spl.annotation.Measurement;
+import cz.cuni.mff.spl.annotation.Revision;
+import cz.cuni.mff.spl.deploy.build.exception.BuildException;
+import cz.cuni.mff.spl.utils.StringUtils;
+
+/**
+ * <p>
+ * Creates fingerprints of measurements which don't depend on revisions but only
+ * on the code being measured. Measurements with the same fingerprint measure
+ * the same bytecode and their data can be shared.
+ * 
+ * <p>
+ * Fingerprint consists of measurement identification without revision
+ * identifications, bytecode of classes reachable from the generator and the
+ * method class through references in class directories and hashes of class
+ * path archives. Reachability is based on classes referenced in constant pools.
+ * Classes outside class path, such as Java runtime classes, are not included.
+ */
+public class MeasurementFingerprint {
+
+    private static final String         HASH_ALGORITHM   = "SHA-256";
+    private static final int            BUFFER_SIZE      = 65536;
+    private static final int            CLASS_MAGIC      = 0xCAFEBABE;
+    private static final String         CLASS_SUFFIX     = ".class";
+
+    /** Class names in field and method descriptors and signatures. */
+    private static final Pattern        DESCRIPTOR_CLASS = Pattern.compile("L([\\w/$]+)[;<]");
+
+    /** Hashes of class path archives already computed. */
+    private final Map<File, String>     archiveHashes    = new HashMap<>();
+    /** Hashes and references of class files already read. */
+    private final Map<File, ClassEntry> classes          = new HashMap<>();
+
+    /**
+     * Creates fingerprint of the measurement.
+     * 
+     * @param measurement
+     *            The measurement.
+     * @param generatorDirectory
+     *            Directory with checked out and built generator revision.
+     * @param methodDirectory
+     *            Directory with checked out and built method revision.
+     * @return
+     *         The fingerprint as hexadecimal string.
+     * @throws BuildException
+     */
+    public String create(Measurement measurement, File generatorDirectory, File methodDirectory)
+            throws BuildException {
+        Measurement sampled = measurement.getSampledMeasurement();
+        Revision generatorRevision = sampled.getGenerator().getRevision();
+        Revision methodRevision = sampled.getMethod().getRevision();
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            digest.update(StringUtils.getStringBytes(createDescription(sampled) + "\n"));
+            update(digest, "generator", sampled.getGenerator().getPath(), expandClassPaths(generatorRevision, generatorDirectory));
+            update(digest, "method", sampled.getMethod().getPath(), expandClassPaths(methodRevision, methodDirectory));
+            return StringUtils.createHexadecimalString(digest.digest());
+
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new BuildException(String.format("Failed to create fingerprint of [%s].", SampleIdentification.createIdentification(measurement)), e);
+        }
+    }
+
+    /**
+     * Creates measurement identification without revision identifications.
+     * 
+     * @param sampled
+     *            The sampled measurement.
+     * @return
+     *         The description.
+     */
+    private static String createDescription(Measurement sampled) {
+        String identification = sampled.getIdentificationString();
+        // the leading hash code depends on revisions too
+        String description = identification.substring(identification.indexOf('|') + 1);
+        for (Revision revision : new Revision[] { sampled.getGenerator().getRevision(), sampled.getMethod().getRevision() }) {
+            description = description.replace(revision.getIdentificationString(), revision.getProject().getAlias());
+        }
+        return description;
+    }
+
+    /**
+     * Expands class paths of the revision's project in its directory.
+     * 
+     * @param revision
+     * @param directory
+     * @return
+     *         The class path entries.
+     * @throws FileNotFoundException
+     */
+    private static File[] expandClassPaths(Revision revision, File directory)
+            throws FileNotFoundException {
+        List<String> classPaths = new LinkedList<>();
+        for (String relativeClassPath : revision.getProject().getClasspaths()) {
+            classPaths.add(new File(directory, relativeClassPath).getPath());
+        }
+        return ClassPathExpander.expandClassPathsToFiles(classPaths.toArray(new String[classPaths.size()]));
+    }
+
+    /**
+     * Updates digest with archives of the class path and bytecode of classes
+     * reachable from the root class in its directories.
+     * 
+     * @param digest
+     * @param name
+     *            Name of the part to hash.
+     * @param rootClass
+     *            Fully qualified name of the root class.
+     * @param classPaths
+     *            Class path entries.
+     * @throws IOException
+     * @throws NoSuchAlgorithmException
+     */
+    private void update(MessageDigest digest, String name, String rootClass, File[] classPaths)
+            throws IOException, NoSuchAlgorithmException {
+        digest.update(StringUtils.getStringBytes(name + "\n"));
+
+        List<File> directories = new LinkedList<>();
+        for (File classPath : classPaths) {
+            if (classPath.isDirectory()) {
+                directories.add(classPath);
+            } else if (classPath.isFile()) {
+                digest.update(StringUtils.getStringBytes("archive " + getArchiveHash(classPath) + "\n"));
+            }
+        }
+
+        // sorted so that order of traversal doesn't matter
+        Map<String, String> reachable = new TreeMap<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add(rootClass.replace('.', '/'));
+        while (!pending.isEmpty()) {
+            String className = pending.poll();
+            if (reachable.containsKey(className)) {
+                continue;
+            }
+
+            ClassEntry entry = findClass(className, directories);
+            if (entry == null) {
+                continue;
+            }
+
+            reachable.put(className, entry.hash);
+            pending.addAll(entry.references);
+        }
+
+        for (Map.Entry<String, String> entry : reachable.entrySet()) {
+            digest.update(StringUtils.getStringBytes("class " + entry.getKey() + " " + entry.getValue() + "\n"));
+        }
+    }
+
+    /**
+     * Finds class in the directories.
+     * 
+     * @param className
+     *            Internal name of the class.
+     * @param directories
+     *            Class path directories.
+     * @return
+     *         The class or {@code null} when it's not in any of directories.
+     * @throws IOException
+     * @throws NoSuchAlgorithmException
+     */
+    private ClassEntry findClass(String className, List<File> directories)
+            throws IOException, NoSuchAlgorithmException {
+        for (File directory : directories) {
+            File file = new File(directory, className + CLASS_SUFFIX);
+            if (!file.isFile()) {
+                continue;
+            }
+
+            ClassEntry entry = classes.get(file);
+            if (entry == null) {
+                byte[] bytecode = Files.readAllBytes(file.toPath());
+                MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+                entry = new ClassEntry(StringUtils.createHexadecimalString(digest.digest(bytecode)), readReferences(bytecode));
+                classes.put(file, entry);
+            }
+            return entry;
+        }
+        return null;
+    }
+
+    /**
+     * Computes hash of the class path archive content.
+     * 
+     * @param archive
+     * @return
+     *         The hash as hexadecimal string.
+     * @throws IOException
+     * @throws NoSuchAlgorithmException
+     */
+    private String getArchiveHash(File archive)
+            throws IOException, NoSuchAlgorithmException {
+        String hash = archiveHashes.get(archive);
+        if (hash == null) {
+            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream input = new FileInputStream(archive)) {
+                int length;
+                while ((length = input.read(buffer)) != -1) {
+                    digest.update(buffer, 0, length);
+                }
+            }
+            hash = StringUtils.createHexadecimalString(digest.digest());
+            archiveHashes.put(archive, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Reads internal names of classes referenced from the constant pool of the
+     * class file.
+     * 
+     * @param bytecode
+     *            The class file.
+     * @return
+     *         Referenced class names.
+     * @throws IOException
+     *             When the class file is malformed.
+     */
+    static Set<String> readReferences(byte[] bytecode)
+            throws IOException {
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytecode));
+        if (input.readInt() != CLASS_MAGIC) {
+            throw new IOException("Not a class file.");
+        }
+        // minor and major version
+        input.readUnsignedShort();
+        input.readUnsignedShort();
+
+        int count = input.readUnsignedShort();
+        String[] strings = new String[count];
+        List<Integer> classIndexes = new LinkedList<>();
+        for (int i = 1; i < count; i++) {
+            int tag = input.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    strings[i] = input.readUTF();
+                    break;
+                case 7: // Class
+                    classIndexes.add(input.readUnsignedShort());
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    input.skipBytes(2);
+                    break;
+                case 15: // MethodHandle
+                    input.skipBytes(3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    input.skipBytes(4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    input.skipBytes(8);
+                    // takes two entries
+                    i++;
+                    break;
+                default:
+                    throw new IOException(String.format("Unknown constant pool tag [%d].", tag));
+            }
+        }
+
+        Set<String> references = new TreeSet<>();
+        for (int index : classIndexes) {
+            String name = strings[index];
+            if (name != null && !name.startsWith("[")) {
+                references.add(name);
+            }
+        }
+        for (String string : strings) {
+            if (string != null) {
+                Matcher matcher = DESCRIPTOR_CLASS.matcher(string);
+                while (matcher.find()) {
+                    references.add(matcher.group(1));
+                }
+            }
+        }
+        return references;
+    }
+
+    /**
+     * Hash and references of a class file.
+     */
+    private static class ClassEntry {
+
+        /** Hash of the class file. */
+        private final String      hash;
+        /** Internal names of referenced classes. */
+        private final Set<String> references;
+
+        public ClassEntry(String hash, Set<String> references) {
+            this.hash = hash;
+            this.references = references;
+        }
+    }
+}
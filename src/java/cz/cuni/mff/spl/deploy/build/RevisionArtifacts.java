@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.build;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import cz.cuni.mff.spl.annotation.Revision;
+import cz.cuni.mff.spl.deploy.build.exception.BuildException;
+import cz.cuni.mff.spl.utils.logging.SplLog;
+import cz.cuni.mff.spl.utils.logging.SplLogger;
+
+/**
+ * <p>
+ * Keeps what is needed to assemble samplers of single {@link Revision}.
+ * Expanded class paths, class loader and classes and methods resolved by
+ * reflection are created once per revision and shared by all samplers which
+ * use its generators or methods.
+ * 
+ * <p>
+ * Artifacts can be used by several threads.
+ */
+public class RevisionArtifacts implements Closeable {
+
+    private static final SplLog                             logger  = SplLogger.getLogger(RevisionArtifacts.class);
+
+    /** Expanded class paths of the revision. */
+    private final File[]                                    classPaths;
+    /** Class loader to obtain details about revision's classes. */
+    private final URLClassLoader                            classLoader;
+    /** Classes already loaded by their names. */
+    private final Map<String, Class<?>>                     classes = new HashMap<>();
+    /** Public methods of already inspected classes. */
+    private final Map<Class<?>, java.lang.reflect.Method[]> methods = new HashMap<>();
+
+    /**
+     * @param classPaths
+     *            Expanded class paths of the revision.
+     * @throws BuildException
+     */
+    public RevisionArtifacts(File[] classPaths)
+            throws BuildException {
+        this.classPaths = classPaths;
+        this.classLoader = createUrlClassLoader(classPaths);
+    }
+
+    /**
+     * Creates URL class loader with paths specified.
+     * 
+     * @param paths
+     * @return
+     * @throws BuildException
+     */
+    private static URLClassLoader createUrlClassLoader(File[] paths)
+            throws BuildException {
+        try {
+            LinkedList<URL> urls = new LinkedList<>();
+            for (File url : paths) {
+                urls.add(url.toURI().toURL());
+            }
+            return new URLClassLoader(urls.toArray(new URL[urls.size()]));
+        } catch (MalformedURLException e) {
+            throw new BuildException(String.format("Failed to create URL class loader due to [%s].", e.getMessage()), e);
+        }
+    }
+
+    /**
+     * @return
+     *         Expanded class paths of the revision.
+     */
+    public File[] getClassPaths() {
+        return classPaths;
+    }
+
+    /**
+     * Loads the class using revision's class paths.
+     * 
+     * @param name
+     *            Binary name of the class.
+     * @return
+     *         The class.
+     * @throws ClassNotFoundException
+     */
+    public synchronized Class<?> loadClass(String name)
+            throws ClassNotFoundException {
+        Class<?> loaded = classes.get(name);
+        if (loaded == null) {
+            loaded = classLoader.loadClass(name);
+            classes.put(name, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Gets public methods of the class as returned by
+     * {@link Class#getMethods()}. Returned array must not be modified.
+     * 
+     * @param clazz
+     *            Class loaded by {@link #loadClass(String)}.
+     * @return
+     *         Public methods of the class.
+     */
+    public synchronized java.lang.reflect.Method[] getMethods(Class<?> clazz) {
+        java.lang.reflect.Method[] classMethods = methods.get(clazz);
+        if (classMethods == null) {
+            classMethods = clazz.getMethods();
+            methods.put(clazz, classMethods);
+        }
+        return classMethods;
+    }
+
+    /**
+     * Releases the class loader.
+     */
+    @Override
+    public synchronized void close() {
+        classes.clear();
+        methods.clear();
+        try {
+            classLoader.close();
+        } catch (IOException e) {
+            logger.warn(e, "Failed to close revision class loader.");
+        }
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.build;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import cz.cuni.mff.spl.annotation.Build;
+import cz.cuni.mff.spl.annotation.Revision;
+import cz.cuni.mff.spl.deploy.build.exception.BuildException;
+import cz.cuni.mff.spl.deploy.store.StoreUtils;
+import cz.cuni.mff.spl.utils.FileUtils;
+import cz.cuni.mff.spl.utils.StringUtils;
+import cz.cuni.mff.spl.utils.lock.Lock;
+import cz.cuni.mff.spl.utils.logging.SplLog;
+
+/**
+ * <p>
+ * Persistent cache of checked out and built revisions. Entries are keyed by
+ * the full revision identifier and the hash of repository URL and build
+ * command, so the same commit built by a different command is a different
+ * entry. Cached directories are used directly as revision directories.
+ * 
+ * <p>
+ * Total size of entries is bounded, least recently used entries are evicted
+ * when a new entry is added. Size of each entry is kept in a file next to it,
+ * entry without the size file is not complete and is ignored.
+ * 
+ * <p>
+ * Entries in use are leased with shared lock of a lease file next to them
+ * until the cache is closed. Eviction must lock the lease file exclusively, so
+ * entries used by any run sharing the store, even in other processes, are
+ * never evicted.
+ * 
+ * <p>
+ * Cache can be used by several threads.
+ */
+public class RevisionCache implements AutoCloseable {
+
+    private static final SplLog     logger            = Builder.logger;
+
+    private static final String     HASH_ALGORITHM    = "SHA-256";
+    /** Suffix of files with entry sizes. */
+    private static final String     SIZE_FILE_SUFFIX  = ".size";
+    /** Suffix of files locked by runs using the entries. */
+    private static final String     LEASE_FILE_SUFFIX = ".lease";
+
+    /** Directory with cached revisions. */
+    private final File              directory;
+    /** Maximum total size of entries in bytes. */
+    private final long              maximumSize;
+    /** Entries used by this instance. */
+    private final Set<String>       used              = new HashSet<>();
+    /** Leases of entries used by this instance. */
+    private final Map<String, Lock> leases            = new HashMap<>();
+
+    /**
+     * @param directory
+     *            Directory with cached revisions.
+     * @param maximumSize
+     *            Maximum total size of entries in bytes.
+     * @throws BuildException
+     */
+    public RevisionCache(File directory, long maximumSize)
+            throws BuildException {
+        this.directory = directory;
+        this.maximumSize = maximumSize;
+        try {
+            FileUtils.createDirectory(directory);
+        } catch (IOException e) {
+            throw new BuildException("Failed to create revision cache directory.", e);
+        }
+    }
+
+    /**
+     * Creates key of revision checked out as the identifier.
+     * 
+     * @param revision
+     *            The revision.
+     * @param id
+     *            Full identifier of the revision returned by repository.
+     * @return
+     *         The key.
+     * @throws BuildException
+     */
+    public static String createKey(Revision revision, String id)
+            throws BuildException {
+        Build build = revision.getProject().getBuild();
+        String command = build == null || build.getCommand() == null ? "" : build.getCommand().trim();
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            digest.update(StringUtils.getStringBytes(revision.getRepository().getUrl() + "\n" + command));
+            String hash = StringUtils.createHexadecimalString(digest.digest()).substring(0, 16);
+            return id.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + hash;
+
+        } catch (NoSuchAlgorithmException e) {
+            throw new BuildException(e);
+        }
+    }
+
+    /**
+     * Gets cached revision, leases it and marks it as recently used.
+     * 
+     * @param key
+     *            Key created by {@link #createKey(Revision, String)}.
+     * @return
+     *         Directory of the revision or {@code null} when not cached.
+     */
+    public synchronized File get(String key) {
+        File entry = new File(directory, key);
+        if (!isComplete(key)) {
+            return null;
+        }
+
+        lease(key);
+        if (!isComplete(key)) {
+            // evicted before the lease was acquired
+            release(key);
+            return null;
+        }
+
+        used.add(key);
+        entry.setLastModified(System.currentTimeMillis());
+        return entry;
+    }
+
+    /**
+     * Moves checked out and built revision into the cache and evicts least
+     * recently used entries over the size limit.
+     * 
+     * @param key
+     *            Key created by {@link #createKey(Revision, String)}.
+     * @param revisionDirectory
+     *            Directory with checked out and built revision.
+     * @return
+     *         Directory of the revision in the cache or the original directory
+     *         when it can't be cached.
+     */
+    public synchronized File put(String key, File revisionDirectory) {
+        File entry = new File(directory, key);
+
+        try (Lock lock = Lock.waitForLock(new File(directory, StoreUtils.LOCK_FILE_NAME))) {
+            lock.dummy();
+
+            if (get(key) != null) {
+                return entry;
+            }
+            if (entry.exists()) {
+                // incomplete entry left by crashed run
+                FileUtils.deleteAll(entry);
+            }
+
+            long size = size(revisionDirectory);
+            lease(key);
+            Files.move(revisionDirectory.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            used.add(key);
+            Files.write(getSizeFile(key).toPath(), StringUtils.getStringBytes(String.valueOf(size)));
+
+            evict();
+            return entry;
+
+        } catch (IOException e) {
+            logger.debug(e, "Failed to cache revision [%s].", key);
+            if (!used.contains(key)) {
+                release(key);
+            }
+            return revisionDirectory.exists() ? revisionDirectory : entry;
+        }
+    }
+
+    /**
+     * Releases leases of entries used by this instance, they can be evicted
+     * afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        for (Lock lease : leases.values()) {
+            lease.close();
+        }
+        leases.clear();
+        used.clear();
+    }
+
+    /**
+     * Evicts least recently used entries until the size limit is met. Entries
+     * leased by other runs are skipped. Incomplete entries are removed too.
+     * 
+     * @throws IOException
+     */
+    private void evict()
+            throws IOException {
+        List<File> entries = new ArrayList<>();
+        long totalSize = 0;
+        for (File file : directory.listFiles()) {
+            String name = file.getName();
+            if (!file.isDirectory()) {
+                continue;
+            }
+            if (used.contains(name)) {
+                // used entries are counted but never evicted
+                totalSize += readSize(name);
+                continue;
+            }
+            if (!getSizeFile(name).isFile()) {
+                FileUtils.deleteAll(file);
+                continue;
+            }
+            entries.add(file);
+            totalSize += readSize(name);
+        }
+
+        Collections.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File left, File right) {
+                return Long.compare(left.lastModified(), right.lastModified());
+            }
+        });
+
+        for (File entry : entries) {
+            if (totalSize <= maximumSize) {
+                break;
+            }
+
+            String name = entry.getName();
+            try (Lock lease = Lock.tryLock(getLeaseFile(name))) {
+                if (!lease.isLocked()) {
+                    logger.debug("Skipped eviction of cached revision in use [%s].", name);
+                    continue;
+                }
+
+                totalSize -= readSize(name);
+                Files.delete(getSizeFile(name).toPath());
+                FileUtils.deleteAll(entry);
+                Files.deleteIfExists(getLeaseFile(name).toPath());
+                logger.debug("Evicted cached revision [%s].", name);
+            }
+        }
+    }
+
+    /**
+     * Acquires shared lease of the entry unless already held. Entry is used
+     * even when the lease can't be acquired, it is then protected from
+     * eviction by this instance only.
+     * 
+     * @param key
+     */
+    private void lease(String key) {
+        if (leases.containsKey(key)) {
+            return;
+        }
+
+        Lock lease = Lock.tryLock(getLeaseFile(key), true);
+        if (lease.isLocked()) {
+            leases.put(key, lease);
+        } else {
+            lease.close();
+            logger.debug("Failed to lease cached revision [%s].", key);
+        }
+    }
+
+    /**
+     * Releases lease of the entry if held.
+     * 
+     * @param key
+     */
+    private void release(String key) {
+        Lock lease = leases.remove(key);
+        if (lease != null) {
+            lease.close();
+        }
+    }
+
+    /**
+     * @param key
+     * @return
+     *         Whether the entry is complete.
+     */
+    private boolean isComplete(String key) {
+        return new File(directory, key).isDirectory() && getSizeFile(key).isFile();
+    }
+
+    /**
+     * @param key
+     * @return
+     *         File locked by runs using the entry.
+     */
+    private File getLeaseFile(String key) {
+        return new File(directory, key + LEASE_FILE_SUFFIX);
+    }
+
+    /**
+     * @param key
+     * @return
+     *         File with size of the entry.
+     */
+    private File getSizeFile(String key) {
+        return new File(directory, key + SIZE_FILE_SUFFIX);
+    }
+
+    /**
+     * @param key
+     * @return
+     *         Size of the entry in bytes, zero when not readable.
+     */
+    private long readSize(String key) {
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(getSizeFile(key).toPath()), "UTF-8").trim());
+        } catch (IOException | NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Computes total size of files in the directory.
+     * 
+     * @param file
+     * @return
+     *         Size in bytes.
+     */
+    private static long size(File file) {
+        if (file.isFile()) {
+            return file.length();
+        }
+
+        long size = 0;
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                if (!Files.isSymbolicLink(child.toPath())) {
+                    size += size(child);
+                }
+            }
+        }
+        return size;
+    }
+}
@@ -47,27 +47,43 @@ public class SampleIdentification {
      * 
      * Hash code of measurement is encoded to hexadecimal string as it not cover
      * entire project of method/generator, but only specific revision.
+     * Measurements differing only in metric share the file.
      * 
      * @param measurement
      *            The measurement.
      * @return The file name prefix for measurement sample file.
      */
     public static String createFileNamePrefix(Measurement measurement) {
-        return FileNameMapper.getMeasurementFileNamePrefix(measurement);
+        return FileNameMapper.getMeasurementFileNamePrefix(measurement.getSampledMeasurement());
     }
 
     /**
      * Creates the identification of measurement.
      * 
      * Uses {@link AnnotationToString#getIdentificationString()}, which is
-     * expected to contain no new lines.
+     * expected to contain no new lines. Measurements differing only in metric
+     * share the identification as they are measured by the same sampler.
      * 
      * @param measurement
      *            The measurement.
      * @return The identification of measurement as one line string.
      */
     public static String createIdentification(Measurement measurement) {
-        return "#" + measurement.getIdentificationString().replace('\\', '/');
+        return "#" + measurement.getSampledMeasurement().getIdentificationString().replace('\\', '/');
+    }
+
+    /**
+     * Creates the identification of paired measurement of two measurements.
+     * 
+     * @param measurement
+     *            The measurement stored in the first column.
+     * @param pairedMeasurement
+     *            The other measurement of the pair.
+     * @return The identification of paired measurement as one line string.
+     */
+    public static String createPairedIdentification(Measurement measurement, Measurement pairedMeasurement) {
+        return createIdentification(measurement) + " paired with "
+                + pairedMeasurement.getSampledMeasurement().getIdentificationString().replace('\\', '/');
     }
 
     /**
@@ -90,6 +106,22 @@ public class SampleIdentification {
         identification = createIdentification(measurement);
     }
 
+    /**
+     * Instantiates a new sample identification of paired measurement. Samples
+     * of both measurements are measured by the same sampler and stored in
+     * matched rows.
+     * 
+     * @param measurement
+     *            The measurement stored in the first column.
+     * @param pairedMeasurement
+     *            The other measurement of the pair.
+     */
+    public SampleIdentification(Measurement measurement, Measurement pairedMeasurement) {
+        fileNamePrefix = FileNameMapper.getPairedMeasurementFileNamePrefix(measurement.getSampledMeasurement(),
+                pairedMeasurement.getSampledMeasurement());
+        identification = createPairedIdentification(measurement, pairedMeasurement);
+    }
+
     /**
      * For purpose of serialization.
      */
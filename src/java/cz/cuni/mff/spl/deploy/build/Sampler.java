@@ -31,6 +31,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
 
 /**
  * <p>
@@ -46,12 +48,18 @@ public class Sampler {
     private final File                 sampler;
     private final String               command;
     private final String               resultFileName;
+    private final Map<String, File>    dependencies;
 
     public Sampler(SampleIdentification identification, File sampler, String command, String resultFileName) {
+        this(identification, sampler, command, resultFileName, Collections.<String, File> emptyMap());
+    }
+
+    public Sampler(SampleIdentification identification, File sampler, String command, String resultFileName, Map<String, File> dependencies) {
         this.identification = identification;
         this.sampler = sampler;
         this.command = command;
         this.resultFileName = resultFileName;
+        this.dependencies = dependencies;
     }
 
     /**
@@ -91,4 +99,15 @@ public class Sampler {
     public String getResultFileName() {
         return resultFileName;
     }
+
+    /**
+     * Dependency archives the sampler references instead of containing them.
+     * They must be transferred to the execution machine with the sampler.
+     * 
+     * @return
+     *         Archives by hashes of their content.
+     */
+    public Map<String, File> getDependencies() {
+        return dependencies;
+    }
 }
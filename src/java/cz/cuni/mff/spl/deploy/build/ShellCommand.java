@@ -68,13 +68,15 @@ public class ShellCommand {
                 case Linux:
                     commands.add("/bin/sh");
                     commands.add("-c");
-                    break;
+                    commands.add(createScript(command));
+                    return;
 
                 default:
                     // hope for the best
                     commands.add("sh");
                     commands.add("-c");
-                    break;
+                    commands.add(createScript(command));
+                    return;
             }
         }
 
@@ -83,6 +85,30 @@ public class ShellCommand {
         }
     }
 
+    /**
+     * Creates single script for 'sh -c' which takes only the first argument as
+     * the command. Command with more arguments is quoted so that they are
+     * passed to the executable unchanged.
+     * 
+     * @param command
+     * @return
+     *         The script.
+     */
+    private static String createScript(String... command) {
+        if (command.length == 1) {
+            return command[0];
+        }
+
+        StringBuilder script = new StringBuilder();
+        for (String c : command) {
+            if (script.length() > 0) {
+                script.append(' ');
+            }
+            script.append('\'').append(c.replace("'", "'\\''")).append('\'');
+        }
+        return script.toString();
+    }
+
     /**
      * @return
      *         Platform specific command derived from the original command.
@@ -28,12 +28,19 @@
 package cz.cuni.mff.spl.deploy.build.vcs;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.util.Map;
 
 import org.eclipse.jgit.api.CheckoutCommand;
 import org.eclipse.jgit.api.CloneCommand;
+import org.eclipse.jgit.api.FetchCommand;
+import org.eclipse.jgit.api.TransportCommand;
 import org.eclipse.jgit.api.TransportConfigCallback;
 import org.eclipse.jgit.api.errors.CheckoutConflictException;
 import org.eclipse.jgit.api.errors.JGitInternalException;
@@ -42,13 +49,25 @@ import org.eclipse.jgit.errors.NoRemoteRepositoryException;
 import org.eclipse.jgit.errors.NotSupportedException;
 import org.eclipse.jgit.errors.TransportException;
 import org.eclipse.jgit.errors.UnsupportedCredentialItem;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.transport.CredentialItem;
 import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.FetchResult;
 import org.eclipse.jgit.transport.JschConfigSessionFactory;
 import org.eclipse.jgit.transport.OpenSshConfig.Host;
+import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.transport.SshTransport;
 import org.eclipse.jgit.transport.Transport;
 import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.util.FS;
 
 import com.jcraft.jsch.JSchException;
@@ -56,8 +75,11 @@ import com.jcraft.jsch.Session;
 
 import cz.cuni.mff.spl.deploy.build.vcs.exception.VcsCheckoutException;
 import cz.cuni.mff.spl.deploy.store.LocalStore;
+import cz.cuni.mff.spl.deploy.store.StoreUtils;
 import cz.cuni.mff.spl.utils.FileUtils;
+import cz.cuni.mff.spl.utils.StringUtils;
 import cz.cuni.mff.spl.utils.interactive.InteractiveInterface;
+import cz.cuni.mff.spl.utils.lock.Lock;
 import cz.cuni.mff.spl.utils.logging.SplLog;
 import cz.cuni.mff.spl.utils.logging.SplLogger;
 import cz.cuni.mff.spl.utils.ssh.SshDetails;
@@ -75,6 +97,12 @@ import cz.cuni.mff.spl.utils.ssh.SshUtils.SshUserInfo;
  * implementation and semantics between JGit and main stream Git a fall back to
  * Git on system path is present and seamlesslly used.
  * 
+ * <p>
+ * When {@link LocalStore} is available the repository is kept as a bare
+ * mirror in the store shared by all runs. The mirror is only updated by fetch
+ * and revisions are exported from it without cloning or copying the whole
+ * working tree.
+ * 
  * @author Frantisek Haas
  * 
  */
@@ -82,6 +110,13 @@ public class Git extends IRepository {
 
     private static final SplLog        logger       = SplLogger.getLogger(Git.class);
 
+    /** Refs fetched into the mirror. */
+    private static final RefSpec[]     MIRROR_REFS  = {
+                                                    new RefSpec("+refs/heads/*:refs/heads/*"),
+                                                    new RefSpec("+refs/tags/*:refs/tags/*") };
+    /** Remote branches prefix in a clone. */
+    private static final String        R_ORIGIN     = Constants.R_REMOTES + Constants.DEFAULT_REMOTE_NAME + "/";
+
     /** Directory to use as a cache for cloning repository. */
     private File                       cache;
     /**
@@ -90,6 +125,8 @@ public class Git extends IRepository {
     private final File                 localStoreRootDirectory;
     /** Flag whether the repository is already cached or not. */
     private boolean                    cached       = false;
+    /** Flag whether the mirror is already updated in this run or not. */
+    private boolean                    mirrored     = false;
 
     /** URL of the repository. */
     private final String               url;
@@ -201,14 +238,218 @@ public class Git extends IRepository {
      * This method sets the correct authentication provider based on the type of
      * transfer JGit is going to use.
      * 
-     * @param cloneCommand
+     * @param command
      */
-    private void setAuthentication(CloneCommand cloneCommand) {
+    private void setAuthentication(TransportCommand<?, ?> command) {
         if (username != null && keyPath != null) {
-            cloneCommand.setTransportConfigCallback(new MyTransportConfigCallback());
+            command.setTransportConfigCallback(new MyTransportConfigCallback());
 
         } else if (username != null) {
-            cloneCommand.setCredentialsProvider(new MyAuthentication());
+            command.setCredentialsProvider(new MyAuthentication());
+        }
+    }
+
+    /**
+     * <p>
+     * Gets directory of the repository mirror. Each repository url has its own
+     * mirror in the {@link LocalStore}.
+     * 
+     * @return
+     *         The mirror directory or {@code null} when {@link LocalStore} is
+     *         not available.
+     * @throws Throwable
+     */
+    private File getMirror()
+            throws Throwable {
+        if (localStoreRootDirectory == null) {
+            return null;
+        }
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        String hash = StringUtils.createHexadecimalString(digest.digest(StringUtils.getStringBytes(url)));
+        return new File(new File(localStoreRootDirectory, StoreUtils.MIRRORS), hash.substring(0, 16) + ".git");
+    }
+
+    /**
+     * <p>
+     * Creates the mirror if it does not exist yet and fetches all branches and
+     * tags into it. Only objects missing in the mirror are transferred.
+     * 
+     * @param mirror
+     *            The mirror directory.
+     * @throws Throwable
+     */
+    private void innerMirror(File mirror)
+            throws Throwable {
+        FileUtils.createDirectory(mirror);
+
+        try (Lock lock = Lock.waitForLock(new File(mirror, StoreUtils.LOCK_FILE_NAME))) {
+            lock.dummy();
+
+            org.eclipse.jgit.api.Git git =
+                    org.eclipse.jgit.api.Git.init().setBare(true).setDirectory(mirror).call();
+            try {
+                FetchCommand fetchCommand = git.fetch();
+                fetchCommand.setRemote(url);
+                fetchCommand.setRefSpecs(MIRROR_REFS);
+                setAuthentication(fetchCommand);
+                FetchResult result = fetchCommand.call();
+
+                updateRefs(git.getRepository(), result);
+
+            } finally {
+                git.getRepository().close();
+            }
+        }
+
+        logger.trace("Updated mirror [%s] of [%s].", mirror, url);
+    }
+
+    /**
+     * <p>
+     * Points mirror's HEAD to the remote default branch and creates remote
+     * branches so revisions resolve the same as in a clone.
+     * 
+     * @param repository
+     *            The mirror.
+     * @param result
+     *            Result of the fetch.
+     * @throws IOException
+     */
+    private static void updateRefs(Repository repository, FetchResult result)
+            throws IOException {
+        for (Ref ref : result.getAdvertisedRefs()) {
+            if (ref.getName().startsWith(Constants.R_HEADS) && ref.getObjectId() != null) {
+                RefUpdate update = repository.updateRef(R_ORIGIN + ref.getName().substring(Constants.R_HEADS.length()));
+                update.setNewObjectId(ref.getObjectId());
+                update.forceUpdate();
+            }
+        }
+
+        Ref head = result.getAdvertisedRef(Constants.HEAD);
+        if (head == null || head.getObjectId() == null) {
+            return;
+        }
+
+        String branch = null;
+        for (Ref ref : result.getAdvertisedRefs()) {
+            if (ref.getName().startsWith(Constants.R_HEADS) && head.getObjectId().equals(ref.getObjectId())) {
+                if (branch == null || ref.getName().equals(Constants.R_HEADS + Constants.MASTER)) {
+                    branch = ref.getName();
+                }
+            }
+        }
+
+        if (branch != null) {
+            repository.updateRef(Constants.HEAD).link(branch);
+        }
+    }
+
+    /**
+     * <p>
+     * Resolves revision to a commit in the repository.
+     * 
+     * @param repository
+     *            The repository.
+     * @param what
+     *            What revision to resolve.
+     * @return
+     *         The commit or {@code null} when not found.
+     * @throws IOException
+     */
+    private static RevCommit resolveCommit(Repository repository, String what)
+            throws IOException {
+        ObjectId id = repository.resolve(what);
+        if (id == null) {
+            return null;
+        }
+
+        RevWalk walk = new RevWalk(repository);
+        try {
+            return walk.parseCommit(id);
+        } finally {
+            walk.release();
+        }
+    }
+
+    /**
+     * <p>
+     * Writes files of the revision from the mirror into the directory. No
+     * repository metadata are written.
+     * 
+     * @param mirror
+     *            The mirror directory.
+     * @param what
+     *            What revision to export.
+     * @param where
+     *            Where to export.
+     * @return
+     *         Revision's hash.
+     * @throws Throwable
+     */
+    private String innerExport(File mirror, String what, File where)
+            throws Throwable {
+        org.eclipse.jgit.api.Git git =
+                org.eclipse.jgit.api.Git.open(mirror);
+        try {
+            Repository repository = git.getRepository();
+            RevCommit commit = resolveCommit(repository, what);
+            if (commit == null) {
+                throw new VcsCheckoutException("Revision [" + what + "] not found in [" + url + "].");
+            }
+
+            TreeWalk treeWalk = new TreeWalk(repository);
+            try {
+                treeWalk.addTree(commit.getTree());
+                treeWalk.setRecursive(true);
+
+                while (treeWalk.next()) {
+                    File file = new File(where, treeWalk.getPathString());
+                    FileMode mode = treeWalk.getFileMode(0);
+                    FileUtils.createDirectory(file.getParentFile());
+
+                    if (FileMode.GITLINK.equals(mode)) {
+                        // submodules are not checked out in a clone either
+                        FileUtils.createDirectory(file);
+                        continue;
+                    }
+
+                    ObjectLoader loader = repository.open(treeWalk.getObjectId(0));
+                    if (FileMode.SYMLINK.equals(mode)) {
+                        Files.createSymbolicLink(file.toPath(), Paths.get(new String(loader.getBytes(), "UTF-8")));
+                    } else {
+                        try (OutputStream output = new FileOutputStream(file)) {
+                            loader.copyTo(output);
+                        }
+                        if (FileMode.EXECUTABLE_FILE.equals(mode)) {
+                            file.setExecutable(true);
+                        }
+                    }
+                }
+            } finally {
+                treeWalk.release();
+            }
+
+            return commit.getName();
+
+        } finally {
+            git.getRepository().close();
+        }
+    }
+
+    /**
+     * <p>
+     * Updates the mirror once per run.
+     * 
+     * @param mirror
+     *            The mirror directory.
+     * @throws Throwable
+     */
+    private void updateMirror(File mirror)
+            throws Throwable {
+        if (!mirrored) {
+            innerMirror(mirror);
+            mirrored = true;
         }
     }
 
@@ -296,7 +537,9 @@ public class Git extends IRepository {
      * <p>
      * Handles git operations. Clones the remote repository and checks out
      * specified revision. If cache file is present clones the remote repository
-     * only once.
+     * only once. Exports the revision from the mirror instead when
+     * {@link LocalStore} is available. Falls back to system's git if JGit
+     * fails.
      * 
      * @param what
      *            What revision to checkout.
@@ -313,6 +556,29 @@ public class Git extends IRepository {
             return handleSystem(what, where);
         }
 
+        File mirror = getMirror();
+        if (mirror != null) {
+            try {
+                updateMirror(mirror);
+                return innerExport(mirror, what, where);
+
+            } catch (VcsCheckoutException e) {
+                // revision is missing, system's git would not find it either
+                throw e;
+
+            } catch (Exception e) {
+                if (!GitSystem.isPresent()) {
+                    throw e;
+                }
+
+                logger.debug(e, "Troubles using JGit mirror. Falling back to system's git.");
+
+                FileUtils.makeClearDirectory(where);
+                useSystemGit = true;
+                return handleSystem(what, where);
+            }
+        }
+
         try {
             if (!cached && cache != null) {
                 innerClone(url, cache);
@@ -360,6 +626,56 @@ public class Git extends IRepository {
         }
     }
 
+    /**
+     * <p>
+     * Resolves the revision in the mirror or in cloned repository cache. The
+     * mirror is updated or repository is cloned into the cache if it isn't yet.
+     * Without both or with system's git revisions aren't resolved.
+     */
+    @Override
+    public String resolve(String what)
+            throws VcsCheckoutException {
+        if (what == null || what.trim().isEmpty() || useSystemGit) {
+            return null;
+        }
+
+        try {
+            File mirror = getMirror();
+            if (mirror != null) {
+                updateMirror(mirror);
+
+                org.eclipse.jgit.api.Git git = org.eclipse.jgit.api.Git.open(mirror);
+                try {
+                    RevCommit commit = resolveCommit(git.getRepository(), what.trim());
+                    return commit == null ? null : commit.getName();
+                } finally {
+                    git.getRepository().close();
+                }
+            }
+
+            if (cache == null) {
+                return null;
+            }
+
+            if (!cached) {
+                innerClone(url, cache);
+                cached = true;
+            }
+
+            org.eclipse.jgit.api.Git git = org.eclipse.jgit.api.Git.open(cache);
+            try {
+                ObjectId id = git.getRepository().resolve(what.trim());
+                return id == null ? null : id.getName();
+            } finally {
+                git.getRepository().close();
+            }
+
+        } catch (Throwable e) {
+            logger.debug(e, "Failed to resolve revision [%s] in [%s].", what, url);
+            return null;
+        }
+    }
+
     @Override
     public String checkout(String what, File where)
             throws VcsCheckoutException {
@@ -80,4 +80,27 @@ public abstract class IRepository {
      */
     public abstract String checkout(String what, File where)
             throws VcsCheckoutException;
+
+    /**
+     * <p>
+     * Resolves full identifier of specified revision without checking it out,
+     * so that already checked out and built code of the same revision can be
+     * reused. Identifier must be the same as {@link #checkout(String, File)}
+     * would return.
+     * 
+     * <p>
+     * Repositories which can't resolve revisions cheaply or whose content may
+     * change under the same identifier return {@code null}.
+     * 
+     * @param what
+     *            Repository specific identification of revision to resolve.
+     * @return
+     *         Full revision identifier or {@code null} when not resolved.
+     * @throws VcsCheckoutException
+     *             If resolving fails for some reason.
+     */
+    public String resolve(String what)
+            throws VcsCheckoutException {
+        return null;
+    }
 }
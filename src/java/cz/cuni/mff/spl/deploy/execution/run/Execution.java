@@ -27,24 +27,40 @@
  */
 package cz.cuni.mff.spl.deploy.execution.run;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
 
 import cz.cuni.mff.spl.InvokedExecutionConfiguration;
 import cz.cuni.mff.spl.annotation.Info;
 import cz.cuni.mff.spl.annotation.Measurement;
 import cz.cuni.mff.spl.annotation.MeasurementState.LastPhase;
 import cz.cuni.mff.spl.configuration.ConfigurationBundle;
+import cz.cuni.mff.spl.deploy.build.Code;
 import cz.cuni.mff.spl.deploy.build.SampleIdentification;
 import cz.cuni.mff.spl.deploy.build.Sampler;
 import cz.cuni.mff.spl.deploy.exception.DeployException;
 import cz.cuni.mff.spl.deploy.execution.run.exception.ExecutionServerAlreadyRunning;
+import cz.cuni.mff.spl.deploy.execution.server.DependencyStore;
 import cz.cuni.mff.spl.deploy.execution.server.Server;
 import cz.cuni.mff.spl.deploy.execution.server.ServerMain;
+import cz.cuni.mff.spl.deploy.execution.server.SlotTopology;
+import cz.cuni.mff.spl.deploy.execution.server.StatusFollower;
+import cz.cuni.mff.spl.deploy.store.utils.JmhResultImporter;
+import cz.cuni.mff.spl.deploy.store.utils.MeasurementDataMerger;
 import cz.cuni.mff.spl.utils.FileUtils;
 import cz.cuni.mff.spl.utils.PackUtils;
 import cz.cuni.mff.spl.utils.StreamUtils;
@@ -75,25 +91,48 @@ public abstract class Execution implements IExecution {
         return config.getDeploymentConfig().getJavaPath() + SERVER_COMMAND_ARGUMENTS;
     }
 
+    private String serverName() {
+        return String.format("%s.jar", sid);
+    }
+
+    private String statusCommand() {
+        return String.format("%s -cp %s %s %s", config.getDeploymentConfig().getJavaPath(), serverName(), StatusFollower.class.getName(), sid);
+    }
+
     /** Server identification. */
     protected final String                                sid;
     /** Info object to process. */
     protected final Info                                  info;
     /** Configuration. */
     protected final ConfigurationBundle                   config;
-    /** Samplers to run. */
-    protected final Iterable<Sampler>                     samplers;
+    /** Samplers to run, samplers submitted later are appended. */
+    protected final List<Sampler>                         samplers;
     /**
      * Mapping of samplers to identifications. This makes checking of running /
      * finished samplers easier. It's not necessary to check all done files but
-     * only the one of upcoming sampler.
+     * only the one of upcoming sampler. When sampler is run in several forks
+     * job identifications of forks are derived from this one (see
+     * {@link #forkJobIds(String)}).
      */
     protected final HashMap<SampleIdentification, String> idMapping;
+    /** Id of the next submitted sampler. */
+    private int                                           nextSamplerId = 1;
+    /** Number of the next batch of jobs. */
+    private int                                           nextBatch     = 1;
+    /** Listener of finished samplers. */
+    private CompletionListener                            completionListener;
+    /** Samplers whose finish has been already checked. */
+    private final Set<SampleIdentification>               finished      = new HashSet<>();
+    /** Hashes of dependency archives present in the base directory. */
+    private final Set<String>                             dependencies  = new HashSet<>();
 
     protected Execution(Info info, Iterable<Sampler> samplers, ConfigurationBundle config) {
         this.sid = UniqueIdProvider.newId();
         this.info = info;
-        this.samplers = samplers;
+        this.samplers = new ArrayList<>();
+        for (Sampler sampler : samplers) {
+            this.samplers.add(sampler);
+        }
         this.config = config;
         this.idMapping = new HashMap<>();
     }
@@ -352,7 +391,7 @@ public abstract class Execution implements IExecution {
             throws DeployException {
         logger.info("Starting server identified as [%s].", sid);
 
-        final String serverName = String.format("%s.jar", sid);
+        final String serverName = serverName();
         final String serverCommand = String.format("%s %s %s", serverCommand(), serverName, sid);
 
         copyServer(serverName);
@@ -394,106 +433,179 @@ public abstract class Execution implements IExecution {
     }
 
     /**
-     * Returns count of samplers.
+     * Returns in how many forks is each sampler run.
      * 
-     * Will be much better use different structure to hold sampler but don't
-     * want to change api.
+     * @return
+     */
+    private int forkCount() {
+        return Math.max(1, config.getDeploymentConfig().getForks());
+    }
+
+    /**
+     * Returns identifications of jobs running forks of the sampler with
+     * specified id. Single fork job is identified by the sampler id itself.
      * 
+     * @param id
+     *            Id of the sampler.
      * @return
      */
-    private int samplerCount() {
-        Iterator<Sampler> iterator = samplers.iterator();
-        int samplerCount = 0;
-        while (iterator.hasNext()) {
-            iterator.next();
-            samplerCount++;
+    private List<String> forkJobIds(String id) {
+        List<String> result = new ArrayList<>();
+        if (forkCount() == 1) {
+            result.add(id);
+        } else {
+            for (int fork = 1; fork <= forkCount(); ++fork) {
+                result.add(String.format("%s.%d", id, fork));
+            }
         }
+        return result;
+    }
 
-        return samplerCount;
+    /**
+     * Returns count of samplers submitted so far.
+     * 
+     * @return
+     */
+    private int samplerCount() {
+        return samplers.size();
     }
 
     /**
-     * Copies zipped samplers to the server directory.
+     * Copies dependency archive to the base directory unless it's there from
+     * this or any earlier execution. Archive is marked complete by its ready
+     * file once transferred.
      * 
+     * @param hash
+     *            Hash of the dependency content.
+     * @param archive
+     *            The dependency archive.
      * @throws DeployException
-     * 
      */
-    private void copyCode()
+    private void copyDependency(String hash, File archive)
             throws DeployException {
+        if (dependencies.contains(hash)) {
+            return;
+        }
 
-        try {
-            createServerDirectory();
-        } catch (Exception e) {
-            throw new DeployException("Failed to create server directory.", e);
+        if (existsBaseFile(DependencyStore.readyFileName(hash))) {
+            logger.debug("Dependency [%s] is already present.", hash);
+        } else {
+            try (OutputStream output = baseFileOutputStream(DependencyStore.archiveFileName(hash))) {
+                FileUtils.copy(archive, output);
+            } catch (Exception e) {
+                throw new DeployException("Failed to transfer dependency to remote directory.", e);
+            }
+            createBaseFile(DependencyStore.readyFileName(hash));
+            logger.debug("Transferred dependency [%s].", hash);
         }
 
-        logger.info("Transferring sampling code for measurements [%d].", samplerCount());
+        dependencies.add(hash);
+    }
 
-        Iterator<Sampler> iterator = samplers.iterator();
-        int id = 1;
-        while (iterator.hasNext()) {
+    /**
+     * Copies zipped samplers of a batch to the server directory and assigns
+     * their ids. Dependencies the samplers reference are copied first.
+     * 
+     * @param batch
+     *            Samplers of the batch.
+     * @throws DeployException
+     * 
+     */
+    private void copyCode(List<Sampler> batch)
+            throws DeployException {
+        int transferred = 1;
+        for (Sampler sampler : batch) {
             InvokedExecutionConfiguration.checkIfExecutionAborted();
 
-            Sampler sampler = iterator.next();
-            String jobId = String.valueOf(id);
+            for (Entry<String, File> dependency : sampler.getDependencies().entrySet()) {
+                copyDependency(dependency.getKey(), dependency.getValue());
+            }
+
+            String samplerId = String.valueOf(nextSamplerId++);
+            idMapping.put(sampler.getIdentification(), samplerId);
 
             try (
                     InputStream input = sampler.getInputStream();
-                    OutputStream output = serverFileOutputStream(archiveFileName(jobId))) {
+                    OutputStream output = serverFileOutputStream(archiveFileName(samplerId))) {
                 FileUtils.copy(input, output);
                 logger.debug("Transferred sampling code for [%s].", sampler.getIdentification());
-                logger.info("[%" + Utils.magnitude(samplerCount()) + "d/%d].", id, samplerCount());
+                if (batch.size() > 1) {
+                    logger.info("[%" + Utils.magnitude(batch.size()) + "d/%d].", transferred, batch.size());
+                }
 
             } catch (Exception e) {
                 throw new DeployException("Failed to transfer code to remote directory.", e);
             }
 
-            id++;
+            transferred++;
         }
     }
 
     /**
-     * Creates job configuration file. Configuration consists of jobs
+     * Creates job configuration of a batch. Configuration consists of jobs
      * information. Each job has 'id', 'zip file name', 'command', 'timeout in
      * seconds'.
      * 
+     * When samplers are run in several forks, each fork is a separate job
+     * sharing the sampler's zip file. Jobs of all forks in the batch are
+     * shuffled so forks of one sampler do not run in a row and are not
+     * affected by the same machine state.
+     * 
+     * @param batch
+     *            Samplers of the batch with ids already assigned.
      * @return
-     * @throws IOException
      */
-    public Server.Data createConfiguration()
-            throws IOException {
+    private Server.Data createConfiguration(List<Sampler> batch) {
         LinkedList<Server.Data.Configuration> configuration = new LinkedList<>();
 
-        Iterator<Sampler> iterator = samplers.iterator();
-        int id = 1;
-        while (iterator.hasNext()) {
-            Sampler sampler = iterator.next();
-            String jobId = String.valueOf(id);
+        for (Sampler sampler : batch) {
+            String samplerId = idMapping.get(sampler.getIdentification());
 
-            idMapping.put(sampler.getIdentification(), jobId);
-
-            Server.Data.Configuration c = new Server.Data.Configuration(jobId, archiveFileName(jobId), sampler.getCommand(), config.getDeploymentConfig()
-                    .getTimeout());
-            configuration.add(c);
+            for (String jobId : forkJobIds(samplerId)) {
+                Server.Data.Configuration c = new Server.Data.Configuration(jobId, archiveFileName(samplerId), sampler.getCommand(), config
+                        .getDeploymentConfig().getTimeout());
+                configuration.add(c);
+            }
+        }
 
-            id++;
+        if (forkCount() > 1 && batch.size() > 1) {
+            long seed = System.nanoTime();
+            Collections.shuffle(configuration, new Random(seed));
+            logger.info("Scheduled [%d] forks of each measurement in random order, seed [%d].", forkCount(), seed);
         }
 
         return new Server.Data(configuration);
     }
 
     /**
-     * Copies configuration file to the server.
+     * Creates job slots configuration. CPU sets of the slots are resolved by
+     * server on the execution machine.
+     * 
+     * @return
+     */
+    private SlotTopology createSlotTopology() {
+        return new SlotTopology(
+                Math.max(1, config.getDeploymentConfig().getJobSlots()),
+                config.getDeploymentConfig().getSlotCpus(),
+                config.getDeploymentConfig().getExcludeSiblingThreads());
+    }
+
+    /**
+     * Copies job slots configuration to the server.
      * 
      * @throws DeployException
      */
     private void copyConfiguration()
             throws DeployException {
-        try (OutputStream stream = serverFileOutputStream(Server.dataBatchFileName)) {
-            createConfiguration().save(stream);
-            logger.info("Transferred sampling configuration.");
+        try (OutputStream stream = serverFileOutputStream(Server.slotsBatchFileName)) {
+            createSlotTopology().save(stream);
         } catch (Exception e) {
-            throw new DeployException("Failed to transfer configuration to specified directory.", e);
+            throw new DeployException("Failed to transfer job slots configuration to specified directory.", e);
+        }
+
+        // each fork of cold sampler is one launch of fresh JVM
+        if (Code.MEASUREMENT_MODE_COLD.equals(config.getDeploymentConfig().getMeasurementMode()) && forkCount() < 2) {
+            logger.warn("Cold start is measured in single launch of each sampler, set forks to measure more launches.");
         }
     }
 
@@ -514,19 +626,99 @@ public abstract class Execution implements IExecution {
     }
 
     /**
-     * This function starts the server and measuring.
+     * Transfers code and configuration of a batch of samplers and marks the
+     * batch ready so that server queues its jobs.
+     * 
+     * @param batch
+     *            Samplers of the batch.
+     * @throws DeployException
+     */
+    private void submitBatch(List<Sampler> batch)
+            throws DeployException {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        copyCode(batch);
+
+        String batchFileName = Server.batchFileName(nextBatch);
+        try (OutputStream stream = serverFileOutputStream(batchFileName)) {
+            createConfiguration(batch).save(stream);
+        } catch (Exception e) {
+            throw new DeployException("Failed to transfer configuration to specified directory.", e);
+        }
+
+        try {
+            createServerFile(batchFileName + Server.readyBatchSuffix);
+        } catch (Exception e) {
+            throw new DeployException("Failed to mark batch of jobs ready.", e);
+        }
+
+        nextBatch++;
+    }
+
+    /**
+     * This function starts the server and lets it wait for samplers submitted
+     * later.
      * 
      * @throws DeployException
      */
     @Override
-    public void start()
+    public void open()
             throws DeployException {
         runServer();
-        copyCode();
         copyConfiguration();
         markStart();
     }
 
+    /**
+     * Submits sampler built after the server was opened. Server executes it
+     * as soon as earlier jobs allow.
+     * 
+     * @param sampler
+     *            The sampler to execute.
+     * @throws DeployException
+     */
+    @Override
+    public void submit(Sampler sampler)
+            throws DeployException {
+        samplers.add(sampler);
+        submitBatch(Collections.singletonList(sampler));
+        logger.debug("Submitted sampler [%s] for measuring.", sampler.getIdentification());
+    }
+
+    /**
+     * Tells server no more samplers will be submitted.
+     * 
+     * @throws DeployException
+     */
+    @Override
+    public void finishSubmission()
+            throws DeployException {
+        try {
+            createServerFile(Server.endBatchFileName);
+            logger.info("Submitted all samplers [%d].", samplerCount());
+        } catch (Exception e) {
+            throw new DeployException("Failed to create end file for batch server.", e);
+        }
+    }
+
+    /**
+     * This function starts the server and measuring of all samplers passed to
+     * the constructor.
+     * 
+     * @throws DeployException
+     */
+    @Override
+    public void start()
+            throws DeployException {
+        open();
+        logger.info("Transferring sampling code for measurements [%d].", samplerCount());
+        submitBatch(new ArrayList<>(samplers));
+        logger.info("Transferred sampling configuration.");
+        finishSubmission();
+    }
+
     @Override
     public void stop()
             throws DeployException {
@@ -589,11 +781,12 @@ public abstract class Execution implements IExecution {
     }
 
     /**
-     * Sets details about measurement status to {@link Info}.
+     * Sets details about measurement status to {@link Info}. Measurement with
+     * partial results is measured when partial results are accepted.
      * 
      * @param samplerIdentification
      */
-    private void setMeasurementStatus(SampleIdentification samplerIdentification, Trace.Status status) {
+    private void setMeasurementStatus(SampleIdentification samplerIdentification, Trace.Status status, boolean partial) {
         for (Measurement m : info.getMeasurements()) {
             SampleIdentification sid = new SampleIdentification(m);
 
@@ -601,6 +794,9 @@ public abstract class Execution implements IExecution {
                 if (m.getMeasurementState().isOk()) {
                     if (status == Trace.Status.Successful) {
                         m.getMeasurementState().setLastPhase(LastPhase.MEASURED);
+                    } else if (partial && config.getDeploymentConfig().getAcceptPartialResults()) {
+                        m.getMeasurementState().setLastPhase(LastPhase.MEASURED);
+                        m.getMeasurementState().setMessage(String.format("Measurement sampler ended with: %s, only partial results are available.", status));
                     } else {
                         m.getMeasurementState().setOk(false);
                         m.getMeasurementState().setLastPhase(LastPhase.FAILED);
@@ -630,11 +826,16 @@ public abstract class Execution implements IExecution {
             logger.debug("Status [%s] of measurement [%s].", status, sampler.getIdentification());
             logger.info("[%" + Utils.magnitude(samplerCount()) + "d/%d], result [%s].", samplerId, samplerCount(), status);
 
+            boolean partial = false;
             if (status != Trace.Status.Successful) {
+                partial = isPartial(sampler.getIdentification());
+                if (partial) {
+                    logger.warn("Measurement [%s] left partial results.", sampler.getIdentification());
+                }
                 logJobTrace(sampler.getIdentification());
             }
 
-            setMeasurementStatus(sampler.getIdentification(), status);
+            setMeasurementStatus(sampler.getIdentification(), status, partial);
 
             return true;
         }
@@ -644,24 +845,139 @@ public abstract class Execution implements IExecution {
 
     /**
      * <p>
-     * Sleep between job checks.
+     * Opens stream of job statuses reported by server.
      * 
+     * @return
+     *         The stream or null if it could not be opened.
+     */
+    private StatusStream openStatusStream() {
+        try {
+            return new StatusStream(executeCommand(statusCommand()));
+        } catch (DeployException e) {
+            logger.warn("Failed to follow job statuses due to [%s], checking jobs periodically instead.", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * <p>
+     * Waits until server reports next job has finished or the server itself
+     * has finished. When status stream is not available sleeps instead.
+     * 
+     * @param statuses
+     *            Stream of job statuses or null.
+     * @param finishedJobs
+     *            Jobs reported finished so far, updated with reported
+     *            statuses.
+     * @return
+     *         True if server has finished.
      * @throws DeployException
      */
-    private void jobWaitSleep()
+    private boolean waitForJobs(StatusStream statuses, Set<String> finishedJobs)
             throws DeployException {
         try {
+            while (statuses != null && !statuses.isEnded()) {
+                String line = statuses.next(JOB_WAIT_SLEEP);
+                if (line == null) {
+                    continue;
+                } else if (line.equals(Server.finishedFileName)) {
+                    return true;
+                }
+
+                String[] status = line.split(" ");
+                if (status.length == 2 && (status[1].equals(Server.successJobFileName) || status[1].equals(Server.errorJobFileName)
+                        || status[1].equals(Server.timeoutJobFileName))) {
+                    finishedJobs.add(status[0]);
+                    return false;
+                }
+            }
+
             Thread.sleep(JOB_WAIT_SLEEP);
+            return isFinished();
+
         } catch (InterruptedException e) {
             stop();
             Thread.currentThread().interrupt();
             InvokedExecutionConfiguration.checkIfExecutionAborted();
+            return false;
+        }
+    }
+
+    /**
+     * <p>
+     * Waits until server reports it has finished. When status stream is not
+     * available or ends checks the server periodically instead.
+     * 
+     * @param statuses
+     *            Stream of job statuses or null.
+     * @throws DeployException
+     */
+    private void waitForServer(StatusStream statuses)
+            throws DeployException {
+        try {
+            while (statuses != null && !statuses.isEnded()) {
+                if (Server.finishedFileName.equals(statuses.next(JOB_WAIT_SLEEP))) {
+                    return;
+                }
+            }
+
+            while (!isFinished()) {
+                Thread.sleep(JOB_WAIT_SLEEP);
+            }
+
+        } catch (InterruptedException e) {
+            stop();
+            Thread.currentThread().interrupt();
+            InvokedExecutionConfiguration.checkIfExecutionAborted();
+        }
+    }
+
+    @Override
+    public void setCompletionListener(CompletionListener listener) {
+        this.completionListener = listener;
+    }
+
+    /**
+     * <p>
+     * Checks whether sampler has finished. Finished sampler is logged only
+     * once and completion listener is notified about it.
+     * 
+     * @param sampler
+     *            The sampler not yet finished.
+     * @return
+     *         True if the sampler has finished.
+     * @throws DeployException
+     */
+    private boolean samplerCheck(Sampler sampler)
+            throws DeployException {
+        if (!jobCheck(finished.size() + 1, sampler)) {
+            return false;
+        }
+
+        finished.add(sampler.getIdentification());
+        if (completionListener != null) {
+            completionListener.samplerFinished(sampler);
+        }
+        return true;
+    }
+
+    @Override
+    public void checkFinished()
+            throws DeployException {
+        for (Sampler sampler : samplers) {
+            if (!finished.contains(sampler.getIdentification()) && !samplerCheck(sampler)) {
+                return;
+            }
         }
     }
 
     /**
-     * This function wait for server and measurements to finish. In fixed
-     * intervals logs status of upcoming jobs.
+     * This function wait for server and measurements to finish. Follows job
+     * statuses reported by server and logs status of each sampler once all
+     * its jobs have finished, then notifies completion listener. Samplers are
+     * handled in the order they finish. When job statuses are not followed
+     * samplers are checked in the order of submission. Samplers already
+     * reported by {@link #checkFinished()} are not reported again.
      * 
      * @throws DeployException
      */
@@ -669,27 +985,49 @@ public abstract class Execution implements IExecution {
     public void waitForFinished()
             throws DeployException {
         boolean running = true;
-        int samplerId = 1;
+        Set<String> finishedJobs = new HashSet<>();
+        List<Sampler> pending = new LinkedList<>();
+        for (Sampler sampler : samplers) {
+            if (!finished.contains(sampler.getIdentification())) {
+                pending.add(sampler);
+            }
+        }
 
-        try {
-            for (Sampler sampler : samplers) {
-                while (true) {
-                    if (jobCheck(samplerId, sampler)) {
-                        break;
+        try (StatusStream statuses = openStatusStream()) {
+            while (!pending.isEmpty()) {
+                boolean following = running && statuses != null && !statuses.isEnded();
+                boolean checked = false;
+
+                Iterator<Sampler> iterator = pending.iterator();
+                while (iterator.hasNext()) {
+                    Sampler sampler = iterator.next();
+                    if (following && !finishedJobs.containsAll(forkJobIds(idMapping.get(sampler.getIdentification())))) {
+                        continue;
                     }
 
-                    // if server has finished but jobs did not, something wrong
-                    // happened
-                    if (!running) {
-                        throw new DeployException("Server has stopped running but some jobs still didn't finish.");
-                    } else if ((false || isFinished()) && running) {
-                        running = false;
+                    if (samplerCheck(sampler)) {
+                        iterator.remove();
+                        checked = true;
+                    } else if (!following) {
+                        break;
                     }
+                }
 
-                    jobWaitSleep();
+                if (pending.isEmpty() || checked) {
+                    continue;
+                }
 
+                // if server has finished but jobs did not, something wrong
+                // happened
+                if (!running) {
+                    throw new DeployException("Server has stopped running but some jobs still didn't finish.");
                 }
-                samplerId++;
+
+                running = !waitForJobs(statuses, finishedJobs);
+            }
+
+            if (running) {
+                waitForServer(statuses);
             }
         } finally {
             logServerTrace();
@@ -767,7 +1105,8 @@ public abstract class Execution implements IExecution {
     }
 
     /**
-     * Returns trace and status information of a single measurement.
+     * Returns trace and status information of a single measurement. Trace of
+     * measurement run in several forks contains output of all forks.
      * 
      * @param sampleIdentification
      *            Measurement identification.
@@ -777,40 +1116,112 @@ public abstract class Execution implements IExecution {
     @Override
     public Trace getTrace(SampleIdentification sid)
             throws DeployException {
-        String id = idMapping.get(sid);
+        List<String> ids = forkJobIds(idMapping.get(sid));
 
-        Trace.Status status = Trace.Status.NotStarted;
-
-        if (existsJobFile(id, Server.successJobFileName)) {
-            status = Trace.Status.Successful;
-        } else if (existsJobFile(id, Server.errorJobFileName)) {
-            status = Trace.Status.Error;
-        } else if (existsJobFile(id, Server.timeoutJobFileName)) {
-            status = Trace.Status.Timeout;
-        }
+        Trace.Status status = getStatus(sid);
 
         String out = null;
         String err = null;
         String log = null;
+        String slot = null;
 
         if (status == Trace.Status.Successful || status == Trace.Status.Error || status == Trace.Status.Timeout) {
-            try (
-                    InputStream outStream = jobFileInputStream(id, Server.outJobFileName);
-                    InputStream errStream = jobFileInputStream(id, Server.errJobFileName);
-                    InputStream logStream = jobFileInputStream(id, Server.logJobFileName)) {
-                out = StreamUtils.readEntireStreamToString(outStream);
-                err = StreamUtils.readEntireStreamToString(errStream);
-                log = StreamUtils.readEntireStreamToString(logStream);
-            } catch (IOException e) {
-                throw new DeployException(String.format("Failed to retrieve trace information due to [%s].", e.getMessage()), e);
+            StringBuilder outBuilder = new StringBuilder();
+            StringBuilder errBuilder = new StringBuilder();
+            StringBuilder logBuilder = new StringBuilder();
+            StringBuilder slotBuilder = new StringBuilder();
+
+            for (String id : ids) {
+                String header = ids.size() > 1 ? String.format("[fork %s: %s%s]\n", id, getJobStatus(id),
+                        existsJobFile(id, Server.partialJobFileName) ? ", partial" : "") : "";
+
+                try (
+                        InputStream outStream = jobFileInputStream(id, Server.outJobFileName);
+                        InputStream errStream = jobFileInputStream(id, Server.errJobFileName);
+                        InputStream logStream = jobFileInputStream(id, Server.logJobFileName)) {
+                    outBuilder.append(header).append(StreamUtils.readEntireStreamToString(outStream));
+                    errBuilder.append(header).append(StreamUtils.readEntireStreamToString(errStream));
+                    logBuilder.append(header).append(StreamUtils.readEntireStreamToString(logStream));
+                    if (existsJobFile(id, Server.slotJobFileName)) {
+                        try (InputStream slotStream = jobFileInputStream(id, Server.slotJobFileName)) {
+                            slotBuilder.append(header).append(StreamUtils.readEntireStreamToString(slotStream));
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new DeployException(String.format("Failed to retrieve trace information due to [%s].", e.getMessage()), e);
+                }
             }
+
+            out = outBuilder.toString();
+            err = errBuilder.toString();
+            log = logBuilder.toString();
+            slot = slotBuilder.toString();
+        }
+
+        return new Trace(status, out, err, log, isPartial(sid), slot);
+    }
+
+    /**
+     * Checks whether measurement has not finished successfully but all its
+     * forks which have not succeeded left partial results.
+     * 
+     * @param sid
+     *            Measurement identification.
+     * @return True, if partial result of measurement is available.
+     * @throws DeployException
+     */
+    private boolean isPartial(SampleIdentification sid)
+            throws DeployException {
+        boolean partial = false;
+        for (String id : forkJobIds(idMapping.get(sid))) {
+            Trace.Status jobStatus = getJobStatus(id);
+            if (jobStatus == Trace.Status.NotStarted) {
+                return false;
+            } else if (jobStatus != Trace.Status.Successful) {
+                if (!existsJobFile(id, Server.partialJobFileName)) {
+                    return false;
+                }
+                partial = true;
+            }
+        }
+        return partial;
+    }
+
+    /**
+     * Opens result of single job. Partial result of job which has not
+     * finished successfully is completed first. JSON result of JMH benchmark
+     * is converted to measurement data, JMH leaves no partial result.
+     * 
+     * @param id
+     *            Job identification.
+     * @param sampler
+     *            The sampler run by the job.
+     * @return Stream with the result.
+     * @throws DeployException
+     * @throws IOException
+     */
+    private InputStream jobResultInputStream(String id, Sampler sampler)
+            throws DeployException, IOException {
+        if (Code.JMH_RESULT_FILE_NAME.equals(sampler.getResultFileName())) {
+            ByteArrayOutputStream converted = new ByteArrayOutputStream();
+            JmhResultImporter.importResult(jobFileInputStream(id, sampler.getResultFileName()), JmhResultImporter.SAMPLER_BENCHMARK,
+                    sampler.getIdentification().getIdentification(), converted);
+            return new ByteArrayInputStream(converted.toByteArray());
         }
 
-        return new Trace(status, out, err, log);
+        if (getJobStatus(id) == Trace.Status.Successful) {
+            return jobFileInputStream(id, sampler.getResultFileName());
+        }
+
+        ByteArrayOutputStream completed = new ByteArrayOutputStream();
+        MeasurementDataMerger.complete(jobFileInputStream(id, sampler.getResultFileName() + Server.partialResultSuffix), completed);
+        return new ByteArrayInputStream(completed.toByteArray());
     }
 
     /**
-     * Returns status information of a single measurement.
+     * Returns status information of a single measurement. Measurement run in
+     * several forks is finished when all its forks are finished and is
+     * successful only when all its forks are successful.
      * 
      * @param sampleIdentification
      *            Measurement identification.
@@ -819,8 +1230,33 @@ public abstract class Execution implements IExecution {
      */
     public Trace.Status getStatus(SampleIdentification sid)
             throws DeployException {
-        String id = idMapping.get(sid);
+        Trace.Status status = Trace.Status.Successful;
 
+        for (String id : forkJobIds(idMapping.get(sid))) {
+            Trace.Status jobStatus = getJobStatus(id);
+
+            if (jobStatus == Trace.Status.NotStarted) {
+                return Trace.Status.NotStarted;
+            } else if (jobStatus == Trace.Status.Error) {
+                status = Trace.Status.Error;
+            } else if (jobStatus == Trace.Status.Timeout && status == Trace.Status.Successful) {
+                status = Trace.Status.Timeout;
+            }
+        }
+
+        return status;
+    }
+
+    /**
+     * Returns status information of a single job.
+     * 
+     * @param id
+     *            Job identification.
+     * @return
+     * @throws DeployException
+     */
+    private Trace.Status getJobStatus(String id)
+            throws DeployException {
         Trace.Status status = Trace.Status.NotStarted;
 
         if (existsJobFile(id, Server.successJobFileName)) {
@@ -837,7 +1273,10 @@ public abstract class Execution implements IExecution {
     }
 
     /**
-     * Returns stream to measured data.
+     * Returns stream to measured data. Data of measurement run in several
+     * forks are merged into one measurement keeping fork boundaries (see
+     * {@link MeasurementDataMerger}). Partial results of jobs which have not
+     * finished successfully are used when present.
      * 
      * @param sampleIdentification
      * @return
@@ -846,10 +1285,34 @@ public abstract class Execution implements IExecution {
     @Override
     public InputStream getResult(SampleIdentification sid)
             throws DeployException {
-        String id = idMapping.get(sid);
+        List<String> ids = forkJobIds(idMapping.get(sid));
         for (Sampler sampler : samplers) {
             if (sampler.getIdentification().equals(sid)) {
-                return jobFileInputStream(id, sampler.getResultFileName());
+                List<InputStream> forks = new ArrayList<>(ids.size());
+                try {
+                    if (ids.size() == 1) {
+                        return jobResultInputStream(ids.get(0), sampler);
+                    }
+
+                    for (String id : ids) {
+                        forks.add(jobResultInputStream(id, sampler));
+                    }
+
+                    ByteArrayOutputStream merged = new ByteArrayOutputStream();
+                    MeasurementDataMerger.merge(forks, merged);
+                    return new ByteArrayInputStream(merged.toByteArray());
+
+                } catch (IOException e) {
+                    throw new DeployException(String.format("Failed to read results of measurement [%s].", sid.getIdentification()), e);
+                } finally {
+                    for (InputStream fork : forks) {
+                        try {
+                            fork.close();
+                        } catch (IOException e) {
+                            logger.debug(e, "Failed to close fork result.");
+                        }
+                    }
+                }
             }
         }
         throw new DeployException("Sampler not present in this execution context.");
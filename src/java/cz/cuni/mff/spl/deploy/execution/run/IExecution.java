@@ -30,6 +30,7 @@ package cz.cuni.mff.spl.deploy.execution.run;
 import java.io.InputStream;
 
 import cz.cuni.mff.spl.deploy.build.SampleIdentification;
+import cz.cuni.mff.spl.deploy.build.Sampler;
 import cz.cuni.mff.spl.deploy.exception.DeployException;
 
 /**
@@ -41,13 +42,43 @@ import cz.cuni.mff.spl.deploy.exception.DeployException;
 public interface IExecution extends AutoCloseable {
 
     /**
-     * Starts the server and measuring.
+     * Starts the server and measuring of samplers passed on creation. Same as
+     * {@link #open()} followed by submission of these samplers and
+     * {@link #finishSubmission()}.
      * 
      * @throws Exception
      */
     public void start()
             throws DeployException;
 
+    /**
+     * Starts the server which waits for submitted samplers.
+     * 
+     * @throws DeployException
+     */
+    public void open()
+            throws DeployException;
+
+    /**
+     * Submits sampler for measuring. Server measures it as soon as it is
+     * transferred and earlier samplers allow. Server must be opened.
+     * 
+     * @param sampler
+     *            The sampler to measure.
+     * @throws DeployException
+     */
+    public void submit(Sampler sampler)
+            throws DeployException;
+
+    /**
+     * Tells server no more samplers will be submitted. Server finishes once
+     * it has measured all submitted samplers.
+     * 
+     * @throws DeployException
+     */
+    public void finishSubmission()
+            throws DeployException;
+
     /**
      * Stops the server.
      * 
@@ -95,13 +126,36 @@ public interface IExecution extends AutoCloseable {
             throws DeployException;
 
     /**
-     * Waits for server and measurements to finish.
+     * Waits for server and measurements to finish. Completion listener is
+     * notified about each sampler as soon as all its jobs have finished,
+     * samplers are reported in the order they finish.
      * 
      * @throws DeployException
+     *             Also when completion listener fails.
      */
     public void waitForFinished()
             throws DeployException;
 
+    /**
+     * Notifies completion listener about samplers which have finished since
+     * the last check without waiting for the others. Samplers are checked in
+     * the order of submission until the first one which has not finished.
+     * 
+     * @throws DeployException
+     *             Also when completion listener fails.
+     */
+    public void checkFinished()
+            throws DeployException;
+
+    /**
+     * Sets listener notified about finished samplers while waiting for
+     * measurements to finish or checking finished ones.
+     * 
+     * @param listener
+     *            The listener or null.
+     */
+    public void setCompletionListener(CompletionListener listener);
+
     /**
      * Gets server trace information.
      * 
@@ -122,7 +176,9 @@ public interface IExecution extends AutoCloseable {
             throws DeployException;
 
     /**
-     * Gets measurement run status.
+     * Gets measurement run result. Result of measurement which has not
+     * finished successfully is available only if its trace is partial and
+     * contains samples measured until the run was stopped.
      * 
      * @param sampleIdentification
      * @return
@@ -131,6 +187,24 @@ public interface IExecution extends AutoCloseable {
     public InputStream getResult(SampleIdentification sampleIdentification)
             throws DeployException;
 
+    /**
+     * Listener of samplers whose measuring has ended. Status of the sampler
+     * is available in its {@link Trace} when the listener is called.
+     */
+    public interface CompletionListener {
+
+        /**
+         * Called once for each sampler when all its jobs have finished.
+         * 
+         * @param sampler
+         *            The finished sampler.
+         * @throws DeployException
+         *             Stops waiting for remaining samplers.
+         */
+        public void samplerFinished(Sampler sampler)
+                throws DeployException;
+    }
+
     /**
      * Class holds server trace information.
      * 
@@ -196,16 +270,28 @@ public interface IExecution extends AutoCloseable {
             Started, Successful, Error, Timeout, NotStarted
         }
 
-        private final Status status;
-        private final String out;
-        private final String err;
-        private final String log;
+        private final Status  status;
+        private final String  out;
+        private final String  err;
+        private final String  log;
+        private final boolean partial;
+        private final String  slot;
 
         public Trace(Status status, String out, String err, String log) {
+            this(status, out, err, log, false);
+        }
+
+        public Trace(Status status, String out, String err, String log, boolean partial) {
+            this(status, out, err, log, partial, null);
+        }
+
+        public Trace(Status status, String out, String err, String log, boolean partial, String slot) {
             this.status = status;
             this.out = out;
             this.err = err;
             this.log = log;
+            this.partial = partial;
+            this.slot = slot;
         }
 
         /**
@@ -239,5 +325,23 @@ public interface IExecution extends AutoCloseable {
         public Status getStatus() {
             return status;
         }
+
+        /**
+         * @return
+         *         True if program has not finished successfully but left
+         *         partial results.
+         */
+        public boolean isPartial() {
+            return partial;
+        }
+
+        /**
+         * @return
+         *         Server job slot and CPU set the program was executed in, null
+         *         if unknown.
+         */
+        public String getSlot() {
+            return slot;
+        }
     }
 }
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.execution.run;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import cz.cuni.mff.spl.deploy.execution.server.StatusFollower;
+
+/**
+ * <p>
+ * Stream of job status lines reported by server (see {@link StatusFollower}).
+ * Lines are read in a background thread so that waiting for them can be
+ * interrupted.
+ */
+public class StatusStream implements AutoCloseable {
+
+    /** The stream lines are read from. */
+    private final InputStream           stream;
+    /** Lines read so far and not taken. Empty line marks end of stream. */
+    private final BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+    /** Whether the stream has ended. */
+    private volatile boolean            ended = false;
+
+    /**
+     * <p>
+     * Starts reading status lines from the stream.
+     * 
+     * @param stream
+     *            Output of {@link StatusFollower}.
+     */
+    public StatusStream(InputStream stream) {
+        this.stream = stream;
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                read();
+            }
+        }, "status-stream");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * <p>
+     * Reads lines until the stream ends or fails.
+     */
+    private void read() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    lines.add(line);
+                }
+            }
+        } catch (IOException e) {
+            // stream ends the same way as when closed
+        } finally {
+            ended = true;
+            lines.add("");
+        }
+    }
+
+    /**
+     * <p>
+     * Waits for the next status line.
+     * 
+     * @param milliseconds
+     *            Maximum time to wait.
+     * @return
+     *         The line or null if there is none in time or the stream has
+     *         ended.
+     * @throws InterruptedException
+     */
+    public String next(long milliseconds)
+            throws InterruptedException {
+        String line = lines.poll(milliseconds, TimeUnit.MILLISECONDS);
+        if (line == null || line.isEmpty()) {
+            return null;
+        }
+        return line;
+    }
+
+    /**
+     * @return
+     *         True if the stream has ended and all its lines were taken.
+     */
+    public boolean isEnded() {
+        String line = lines.peek();
+        return ended && (line == null || line.isEmpty());
+    }
+
+    @Override
+    public void close() {
+        try {
+            stream.close();
+        } catch (IOException ignore) {
+        }
+    }
+}
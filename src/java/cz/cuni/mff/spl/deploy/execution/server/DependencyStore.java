@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.execution.server;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import cz.cuni.mff.spl.utils.FileUtils;
+import cz.cuni.mff.spl.utils.ZipUtils;
+
+/**
+ * <p>
+ * Persistent store of dependency archives in the base directory. Dependencies
+ * (class path entries of measured revisions) are not packed into each sampler.
+ * Each is transferred once as an archive named by the hash of its content and
+ * kept in the base directory for all following servers. Archive is complete
+ * once its ready file exists.
+ * 
+ * <p>
+ * Sampler lists its dependencies in the manifest file, one per line as the
+ * directory name the sampler expects and the hash. Each archive is extracted
+ * once and the extracted directory is linked into job directories. When
+ * symbolic links are not supported the extracted directory is copied.
+ */
+public class DependencyStore {
+
+    /** Name of the manifest file in the sampler archive. */
+    public static final String  MANIFEST_FILE_NAME = "dependencies";
+
+    private static final String PREFIX             = "dependency-";
+    private static final String ARCHIVE_SUFFIX     = ".zip";
+    private static final String READY_SUFFIX       = ".ready";
+
+    /** Directory with archives and extracted dependencies. */
+    private final File          directory;
+
+    /**
+     * @param directory
+     *            The base directory shared by servers.
+     */
+    public DependencyStore(File directory) {
+        this.directory = directory.getAbsoluteFile();
+    }
+
+    /**
+     * @param hash
+     *            Hash of the dependency content.
+     * @return
+     *         Name of the dependency archive in the base directory.
+     */
+    public static String archiveFileName(String hash) {
+        return PREFIX + hash + ARCHIVE_SUFFIX;
+    }
+
+    /**
+     * @param hash
+     *            Hash of the dependency content.
+     * @return
+     *         Name of the file indicating the archive is completely
+     *         transferred.
+     */
+    public static String readyFileName(String hash) {
+        return PREFIX + hash + READY_SUFFIX;
+    }
+
+    /**
+     * <p>
+     * Links dependencies listed in the manifest of the job into its directory.
+     * Does nothing when the job has no manifest.
+     * 
+     * @param jobDirectory
+     *            Directory with extracted sampler.
+     * @throws IOException
+     *             When dependency is missing or can't be extracted.
+     */
+    public void link(File jobDirectory)
+            throws IOException {
+        File manifest = new File(jobDirectory, MANIFEST_FILE_NAME);
+        if (!manifest.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(manifest))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] entry = line.trim().split(" ");
+                if (entry.length != 2) {
+                    continue;
+                }
+
+                File extracted = extract(entry[1]);
+                File target = new File(jobDirectory, entry[0]);
+                try {
+                    Files.createSymbolicLink(target.toPath(), extracted.toPath());
+                } catch (UnsupportedOperationException | IOException e) {
+                    copy(extracted.toPath(), target.toPath());
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Extracts the dependency archive unless it's already extracted. Archive
+     * is extracted into a temporary directory which is then renamed so that
+     * concurrent jobs and servers never see partially extracted dependency.
+     * 
+     * @param hash
+     *            Hash of the dependency.
+     * @return
+     *         The extracted directory.
+     * @throws IOException
+     */
+    private File extract(String hash)
+            throws IOException {
+        File extracted = new File(directory, PREFIX + hash);
+        if (extracted.isDirectory()) {
+            return extracted;
+        }
+
+        File archive = new File(directory, archiveFileName(hash));
+        if (!new File(directory, readyFileName(hash)).exists()) {
+            throw new IOException(String.format("Dependency archive [%s] has not been transferred.", archive.getPath()));
+        }
+
+        File temporary = Files.createTempDirectory(directory.toPath(), PREFIX + hash + ".").toFile();
+        try {
+            try (InputStream input = new FileInputStream(archive)) {
+                ZipUtils.unzip(input, temporary);
+            }
+            Files.move(temporary.toPath(), extracted.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // other job could have extracted it meanwhile
+            if (!extracted.isDirectory()) {
+                throw e;
+            }
+        } finally {
+            FileUtils.deleteAll(temporary);
+        }
+
+        return extracted;
+    }
+
+    /**
+     * <p>
+     * Copies the directory recursively.
+     * 
+     * @param source
+     *            The directory to copy.
+     * @param target
+     *            The copy to create.
+     * @throws IOException
+     */
+    private static void copy(Path source, Path target)
+            throws IOException {
+        if (Files.isDirectory(source)) {
+            Files.createDirectories(target);
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(source)) {
+                for (Path child : children) {
+                    copy(child, target.resolve(child.getFileName().toString()));
+                }
+            }
+        } else {
+            Files.copy(source, target);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.execution.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Watches a directory using {@link WatchService} so that server reacts to files
+ * created by client as soon as they appear instead of polling for them.
+ * 
+ * <p>
+ * File systems which don't report changes (e.g. some network file systems) are
+ * covered by rechecking the awaited files in a fixed interval.
+ */
+public class DirectoryWatcher implements AutoCloseable {
+
+    /** The watched directory. */
+    private final File                                   directory;
+    /** Interval in milliseconds of rechecking files without any change. */
+    private final long                                   recheckMilliseconds;
+    private final WatchService                           watchService;
+    private final Thread                                 thread;
+    /** Awaited files which have not been created yet. */
+    private final Map<String, CompletableFuture<Void>> awaited = new HashMap<>();
+    /** Count of changes reported in the directory. */
+    private long                                         changes = 0;
+
+    /**
+     * <p>
+     * Starts watching the directory.
+     * 
+     * @param directory
+     *            The directory to watch.
+     * @param recheckSeconds
+     *            Interval of rechecking files when no change is reported.
+     * @throws IOException
+     */
+    public DirectoryWatcher(File directory, int recheckSeconds)
+            throws IOException {
+        this.directory = directory;
+        this.recheckMilliseconds = TimeUnit.SECONDS.toMillis(recheckSeconds);
+        this.watchService = FileSystems.getDefault().newWatchService();
+        directory.toPath().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                watch();
+            }
+        }, "directory-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * <p>
+     * Returns future completed when file of specified name exists in the
+     * watched directory.
+     * 
+     * @param fileName
+     *            The file name.
+     * @return
+     */
+    public synchronized CompletableFuture<Void> fileCreated(String fileName) {
+        CompletableFuture<Void> future = awaited.get(fileName);
+        if (future == null) {
+            future = new CompletableFuture<>();
+            if (new File(directory, fileName).exists()) {
+                future.complete(null);
+            } else {
+                awaited.put(fileName, future);
+            }
+        }
+        return future;
+    }
+
+    /**
+     * <p>
+     * Waits until anything changes in the watched directory or the time runs
+     * out.
+     * 
+     * @param milliseconds
+     *            Maximum time to wait.
+     * @throws InterruptedException
+     */
+    public synchronized void awaitChange(long milliseconds)
+            throws InterruptedException {
+        long start = changes;
+        long deadline = System.currentTimeMillis() + milliseconds;
+        long remaining = milliseconds;
+        while (changes == start && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * <p>
+     * Processes reported changes until the watcher is closed.
+     */
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.poll(recheckMilliseconds, TimeUnit.MILLISECONDS);
+                synchronized (this) {
+                    if (key != null) {
+                        key.pollEvents();
+                        key.reset();
+                        ++changes;
+                        notifyAll();
+                    }
+                    checkAwaited();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // watcher was closed
+        }
+    }
+
+    /**
+     * <p>
+     * Completes futures of awaited files which exist.
+     */
+    private void checkAwaited() {
+        Iterator<Entry<String, CompletableFuture<Void>>> iterator = awaited.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry<String, CompletableFuture<Void>> entry = iterator.next();
+            if (new File(directory, entry.getKey()).exists()) {
+                entry.getValue().complete(null);
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException ignore) {
+        }
+        thread.interrupt();
+    }
+}
@@ -31,6 +31,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import cz.cuni.mff.spl.InvokedExecutionConfiguration;
 
@@ -43,6 +45,9 @@ import cz.cuni.mff.spl.InvokedExecutionConfiguration;
  * process. Normal output stream and error stream can be accessed represented as
  * a String it is not intended for heavy use but just for debugging purposes.
  * 
+ * Completion of the process is exposed as a future so that waiting for the job
+ * reacts to its exit immediately.
+ * 
  * @author Frantisek Haas
  * 
  */
@@ -53,6 +58,8 @@ public class Job {
     private final ProcessBuilder processBuilder = new ProcessBuilder();
     /** Whether to close all streams to the child process right after start. */
     private boolean              closeStreams   = false;
+    /** Completed when the process exits, see {@link #getCompletion()}. */
+    private CompletableFuture<Process> completion = null;
     /** Process output. */
     private String               output         = new String();
     /** Process error. */
@@ -196,6 +203,40 @@ public class Job {
         return error;
     }
 
+    /**
+     * Returns future completed with the process when it exits. The exit is
+     * awaited by a daemon thread started on first call.
+     * 
+     * @return
+     * @throws IOException
+     */
+    public synchronized CompletableFuture<Process> getCompletion()
+            throws IOException {
+        if (process == null) {
+            throw new IOException("Process not started.");
+        }
+
+        if (completion == null) {
+            final Process waited = process;
+            final CompletableFuture<Process> future = new CompletableFuture<>();
+            Thread waiter = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        waited.waitFor();
+                        future.complete(waited);
+                    } catch (InterruptedException e) {
+                        future.completeExceptionally(e);
+                    }
+                }
+            }, "job-waiter");
+            waiter.setDaemon(true);
+            waiter.start();
+            completion = future;
+        }
+        return completion;
+    }
+
     /**
      * Returns job exit status. If job has not yet finished returns -1 by
      * default.
@@ -227,31 +268,14 @@ public class Job {
             return true;
         }
 
-        final long millisecondsWaitInterval = 100;
+        long deadline = System.currentTimeMillis() + milliseconds;
         while (true) {
-            if (milliseconds < millisecondsWaitInterval) {
-                try {
-                    Thread.sleep(milliseconds);
-                } catch (InterruptedException e) {
-                    InvokedExecutionConfiguration.checkIfExecutionAborted();
-                    // if execution was not aborted, clear the interrupted flag
-                    Thread.interrupted();
-                }
-                return isRunning();
-
-            } else {
-                milliseconds -= millisecondsWaitInterval;
-                try {
-                    Thread.sleep(millisecondsWaitInterval);
-                } catch (InterruptedException e) {
-                    InvokedExecutionConfiguration.checkIfExecutionAborted();
-                    // if execution was not aborted, clear the interrupted flag
-                    Thread.interrupted();
-                }
-
-                if (!isRunning()) {
-                    return true;
-                }
+            try {
+                return process.waitFor(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                InvokedExecutionConfiguration.checkIfExecutionAborted();
+                // if execution was not aborted, clear the interrupted flag
+                Thread.interrupted();
             }
         }
     }
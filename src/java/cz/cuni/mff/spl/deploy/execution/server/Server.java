@@ -32,20 +32,31 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import cz.cuni.mff.spl.utils.StringUtils;
 import cz.cuni.mff.spl.utils.ZipUtils;
 
 /**
- * This class executes a batch of measurements one by one.
+ * This class executes a batch of measurements one by one in each of its job
+ * slots.
  * 
  * Server keeps a directory structure like this:
  * 
@@ -61,20 +72,31 @@ import cz.cuni.mff.spl.utils.ZipUtils;
  * Multiple servers may be present, not running, in the base directory.
  * 
  * Server waits until file indicating start is created by the client in the base
- * directory. By that time, sampling code and configuration should be prepared
- * in the server directory.
+ * directory. By that time, job slots configuration should be prepared in the
+ * server directory. Jobs are then appended by the client in numbered batches
+ * while the server is already executing the earlier ones so that building and
+ * measuring overlap. Each batch is taken once its ready file exists, file
+ * indicating end tells there will be no more batches.
  * 
- * Server creates directory for each job, unzips its code and executes its
- * command. Server waits for the job to finish or kills the job if it exceeds
- * timeout.
+ * Server creates directory for each job, unzips its code, links dependencies
+ * the code references from {@link DependencyStore} and executes its command. Server waits for the job to finish or kills the job if it exceeds
+ * timeout. Start and stop files are watched using {@link DirectoryWatcher} and
+ * job's exit is awaited using its completion future so that the server reacts
+ * immediately.
  * 
- * Job's status is marked also with files. Job's standard output and error is
- * stored in the job's directory. If anything happens while preparing the job
- * for execution details are written into job's log file.
+ * Job's status is marked also with files. Each status is also appended to the
+ * status file client follows using {@link StatusFollower}. Job's standard
+ * output and error is stored in the job's directory. If anything happens while
+ * preparing the job for execution details are written into job's log file.
  * 
  * If anything happens to the server itself it written in the base directory to
  * server's logs.
  * 
+ * Jobs may be executed concurrently in several slots configured by
+ * {@link SlotTopology}. Slots take jobs in their order and each slot may be
+ * pinned to its own CPU set using {@code taskset}. Slot and CPU set of the job
+ * are recorded in the job's directory.
+ * 
  * @author Frantisek Haas
  * 
  */
@@ -82,31 +104,31 @@ public class Server {
 
     /**
      * <p>
-     * Sleep interval in seconds while waiting for file indicating start.
+     * Interval in seconds in which watched files are rechecked when file
+     * system does not report changes of the server directory.
      */
-    private final static int SLEEP_SECONDS      = 1;
+    public final static int  RECHECK_SECONDS    = 1;
 
     /**
      * <p>
-     * Sleep interval in seconds while waiting for job to finish or reach
-     * timeout.
+     * Command prefix pinning job to CPU set of its slot.
      */
-    private final static int MAIN_SLEEP_SECONDS = 3;
+    private final static String TASKSET_COMMAND = "taskset -c ";
 
     /**
      * <p>
-     * Sleep interval while waiting for job to finish or reach timeout. Also the
-     * interval the file indicating server's run is touched.
-     * 
-     * @see Server#runningFileName
+     * Marks end of the job queue for a slot.
      */
-    public final static int  MAIN_SLEEP         = MAIN_SLEEP_SECONDS * 1000;
+    private final static Data.Configuration END_OF_QUEUE = new Data.Configuration("", "", "", 0);
 
     @SuppressWarnings("unused")
     private final String     identification;
-    @SuppressWarnings("unused")
     private final File       baseDirectory;
     private final File       serverDirectory;
+    /** Watches server directory for files created by client. */
+    private DirectoryWatcher watcher;
+    /** Completed when file indicating server should stop is created. */
+    private CompletableFuture<Void> stop;
 
     public Server(String identification) {
         this.identification = identification;
@@ -156,8 +178,6 @@ public class Server {
      * Server creates the file. Client should check if time-stamp is still or
      * changing.
      * 
-     * @see Server#MAIN_SLEEP
-     * 
      */
     public static String       runningFileName    = "running";
 
@@ -197,14 +217,61 @@ public class Server {
 
     /**
      * <p>
-     * File containing measurements configuration.
+     * Prefix of files containing configuration of batches of jobs. Batches are
+     * numbered from one, e.g. {@code data.1}, and their jobs are queued in
+     * this order. The batch's archives must be prepared before the batch.
      * 
      * <p>
      * Location : server directory.
      * 
+     * @see Server#batchFileName(int)
      */
     public final static String dataBatchFileName  = "data";
 
+    /**
+     * <p>
+     * Suffix of file client creates after has written batch of jobs. Server
+     * does not read the batch before.
+     * 
+     * <p>
+     * Location : server directory.
+     */
+    public final static String readyBatchSuffix   = ".ready";
+
+    /**
+     * <p>
+     * File indicating client will not append any more batches of jobs. Client
+     * creates it after the last batch is ready.
+     * 
+     * <p>
+     * Location : server directory.
+     */
+    public final static String endBatchFileName   = "end";
+
+    /**
+     * <p>
+     * File containing job slots configuration (see {@link SlotTopology}). Jobs
+     * are executed in single unpinned slot when not present.
+     * 
+     * <p>
+     * Location : server directory.
+     * 
+     */
+    public final static String slotsBatchFileName = "slots";
+
+    /**
+     * <p>
+     * File server appends job statuses to as they are marked. Each line holds
+     * job id and name of the job status file separated by space. The last line
+     * is {@link Server#finishedFileName} once server has finished.
+     * 
+     * <p>
+     * Location : server directory.
+     * 
+     * @see StatusFollower
+     */
+    public final static String statusBatchFileName = "status";
+
     /**
      * <p>
      * File indicating job has been started.
@@ -242,6 +309,28 @@ public class Server {
      */
     public final static String errorJobFileName   = "error";
 
+    /**
+     * <p>
+     * File indicating job has not finished successfully but left partial
+     * results. Created besides {@link Server#timeoutJobFileName} or
+     * {@link Server#errorJobFileName}.
+     * 
+     * <p>
+     * Location : job directory.
+     */
+    public final static String partialJobFileName = "partial";
+
+    /**
+     * <p>
+     * Suffix of files job streams its results into while running. Such files
+     * are left in place when job is killed or fails so that results written
+     * so far may be salvaged.
+     * 
+     * <p>
+     * Location : job directory.
+     */
+    public final static String partialResultSuffix = ".partial";
+
     /**
      * <p>
      * File containing server's log of this job execution. Valid after job has
@@ -252,6 +341,17 @@ public class Server {
      */
     public final static String logJobFileName     = "log";
 
+    /**
+     * <p>
+     * File containing slot the job was executed in and CPU set the slot was
+     * pinned to so that jobs running side by side may be audited. Valid after
+     * job has started.
+     * 
+     * <p>
+     * Location : job directory.
+     */
+    public final static String slotJobFileName    = "slot";
+
     /**
      * <p>
      * File containing job's standard output. Valid after has finished.
@@ -273,29 +373,89 @@ public class Server {
     /**
      * <p>
      * Waits for start file {@link Server#startBatchFileName(String)}.
+     * 
+     * @throws InterruptedException
+     */
+    private void waitForStart()
+            throws InterruptedException {
+        try {
+            watcher.fileCreated(startBatchFileName).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * <p>
+     * Returns name of file containing configuration of batch of jobs.
+     * 
+     * @param batch
+     *            Number of the batch starting from one.
+     * @return
      */
-    private void waitForStart() {
-        File start = new File(serverDirectory, startBatchFileName);
-        while (!start.exists()) {
-            Server.sleep(SLEEP_SECONDS);
+    public static String batchFileName(int batch) {
+        return dataBatchFileName + "." + batch;
+    }
+
+    /**
+     * <p>
+     * Waits until batch of jobs is ready, client has appended all batches or
+     * server should stop.
+     * 
+     * @param batch
+     *            Number of the batch.
+     * @return
+     *         True if the batch is ready.
+     * @throws InterruptedException
+     */
+    private boolean waitForBatch(int batch)
+            throws InterruptedException {
+        String ready = batchFileName(batch) + readyBatchSuffix;
+        try {
+            CompletableFuture.anyOf(watcher.fileCreated(ready), watcher.fileCreated(endBatchFileName), stop).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
         }
+        // end is created only after the last batch is ready
+        return !checkStop() && new File(serverDirectory, ready).exists();
     }
 
     /**
      * <p>
-     * Loads job's configuration from file {@link Server#dataBatchFileName}.
+     * Loads job's configuration from batch file
+     * {@link Server#batchFileName(int)}.
      * 
+     * @param batch
+     *            Number of the batch.
      * @return
      * @throws IOException
      */
-    private Data loadData()
+    private Data loadData(int batch)
             throws IOException {
-        File dataFile = new File(serverDirectory, dataBatchFileName);
+        File dataFile = new File(serverDirectory, batchFileName(batch));
         try (FileInputStream dataStream = new FileInputStream(dataFile)) {
             return new Data(dataStream);
         }
     }
 
+    /**
+     * <p>
+     * Loads job slots from file {@link Server#slotsBatchFileName}.
+     * 
+     * @return CPU set of each slot, empty when the slot is not pinned.
+     * @throws IOException
+     */
+    private List<String> loadSlots()
+            throws IOException {
+        File slotsFile = new File(serverDirectory, slotsBatchFileName);
+        if (!slotsFile.exists()) {
+            return Collections.singletonList("");
+        }
+        try (FileInputStream slotsStream = new FileInputStream(slotsFile)) {
+            return new SlotTopology(slotsStream).resolve();
+        }
+    }
+
     /**
      * <p>
      * Creates directory for execution.
@@ -330,6 +490,26 @@ public class Server {
         ZipUtils.unzip(new FileInputStream(zip), directory);
     }
 
+    /**
+     * <p>
+     * Records slot the job is executed in.
+     * 
+     * @param directory
+     *            Directory of the job.
+     * @param slot
+     *            Index of the slot.
+     * @param cpus
+     *            CPU set of the slot, empty when not pinned.
+     * @throws IOException
+     */
+    private void recordJobSlot(File directory, int slot, String cpus)
+            throws IOException {
+        try (PrintStream stream = new PrintStream(new File(directory, slotJobFileName))) {
+            stream.printf("slot=%d%n", slot);
+            stream.printf("cpus=%s%n", cpus);
+        }
+    }
+
     /**
      * <p>
      * Creates file indication job's status.
@@ -343,6 +523,47 @@ public class Server {
         if (!jobStatusFile.createNewFile()) {
             throw new IOException(String.format("Failed to create job state file [%s].", jobStatusFile.getAbsolutePath()));
         }
+        reportStatus(jobStatusFile.getParentFile().getName() + " " + jobStatusFile.getName());
+    }
+
+    /**
+     * <p>
+     * Appends line to the status file {@link Server#statusBatchFileName}. Lines
+     * of concurrent slots are not interleaved.
+     * 
+     * @param line
+     *            The status line.
+     * @throws IOException
+     */
+    private synchronized void reportStatus(String line)
+            throws IOException {
+        try (OutputStream stream = new FileOutputStream(new File(serverDirectory, statusBatchFileName), true)) {
+            stream.write((line + "\n").getBytes());
+        }
+    }
+
+    /**
+     * <p>
+     * Marks job as partial if it left any non-empty file with
+     * {@link Server#partialResultSuffix}.
+     * 
+     * @param directory
+     *            Directory of the job.
+     * @throws IOException
+     */
+    private void markPartialResults(File directory)
+            throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            if (file.isFile() && file.getName().endsWith(partialResultSuffix) && file.length() > 0) {
+                markJobStatus(new File(directory, partialJobFileName));
+                return;
+            }
+        }
     }
 
     /**
@@ -352,14 +573,14 @@ public class Server {
      * @return
      */
     private boolean checkStop() {
-        File stop = new File(serverDirectory, stopBatchFileName);
-        return stop.exists();
+        return stop.isDone();
     }
 
     /**
      * <p>
      * Executes the job and waits for it to finish. In case execution exceeds
-     * timeout it gets killed. Marks job status.
+     * timeout it gets killed. Marks job status. Job which has not finished
+     * successfully is also marked partial when it left partial results.
      * 
      * @param directory
      *            Directory where code is present and where to execute.
@@ -383,31 +604,31 @@ public class Server {
             Job job = new Job(command, directory, true);
             job.execute();
 
-            int secondsToTimeout = timeoutSeconds;
-            final int secondsSleepLength = MAIN_SLEEP_SECONDS;
-
-            // wait for job to finish or break if it exceeded timeout
-            while (job.isRunning()) {
-                sleep(secondsSleepLength);
-                secondsToTimeout -= secondsSleepLength;
-
-                if (secondsToTimeout <= 0) {
-                    break;
-                }
+            // wait for job to finish, stop request or timeout
+            try {
+                CompletableFuture.anyOf(job.getCompletion(), stop).get(timeoutSeconds, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                // job is destroyed below
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to wait for job.", e);
+            }
 
-                if (checkStop()) {
-                    job.destroy();
-                    throw new InterruptedException();
-                }
+            if (job.isRunning() && checkStop()) {
+                job.destroy();
+                throw new InterruptedException();
             }
 
             if (job.isRunning()) {
                 job.destroy();
+                // partial mark must precede the status so that client never
+                // sees finished job without it
+                markPartialResults(directory);
                 markJobStatus(new File(directory, timeoutJobFileName));
             } else {
                 if (job.isFinished()) {
                     markJobStatus(new File(directory, successJobFileName));
                 } else {
+                    markPartialResults(directory);
                     markJobStatus(new File(directory, errorJobFileName));
                 }
             }
@@ -423,10 +644,14 @@ public class Server {
      * 
      * @param job
      *            The job to execute.
+     * @param slot
+     *            Index of the slot executing the job.
+     * @param cpus
+     *            CPU set the job is pinned to, empty when not pinned.
      * 
      * @throws InterruptedException
      */
-    private void runJob(Data.Configuration job)
+    private void runJob(Data.Configuration job, int slot, String cpus)
             throws InterruptedException {
 
         File jobDirectory = new File(serverDirectory, job.getId());
@@ -442,9 +667,12 @@ public class Server {
         try (PrintStream jobLogStream = new PrintStream(jobLog)) {
             // all troubles caught here goes to job's log
             try {
+                recordJobSlot(jobDirectory, slot, cpus);
                 extractJobFiles(jobDirectory, new File(serverDirectory, job.getZip()));
+                new DependencyStore(baseDirectory).link(jobDirectory);
 
-                executeJob(jobDirectory, job.getId(), job.getCommand(), job.getTimeoutSeconds());
+                String command = cpus.isEmpty() ? job.getCommand() : TASKSET_COMMAND + cpus + " " + job.getCommand();
+                executeJob(jobDirectory, job.getId(), command, job.getTimeoutSeconds());
 
             } catch (IOException e) {
                 try {
@@ -462,17 +690,94 @@ public class Server {
     }
 
     /**
-     * Waits for data and executes everything prepared.
+     * <p>
+     * Executes jobs from the queue one by one until end of the queue is
+     * reached.
+     * 
+     * @param jobs
+     *            Jobs shared by all slots.
+     * @param slot
+     *            Index of the slot.
+     * @param cpus
+     *            CPU set of the slot, empty when not pinned.
+     * @throws InterruptedException
+     *             When server was stopped.
+     */
+    private void runSlot(BlockingQueue<Data.Configuration> jobs, int slot, String cpus)
+            throws InterruptedException {
+        Data.Configuration job;
+        while ((job = jobs.take()) != END_OF_QUEUE) {
+            if (checkStop()) {
+                throw new InterruptedException();
+            }
+            runJob(job, slot, cpus);
+        }
+    }
+
+    /**
+     * <p>
+     * Queues jobs of batches as they are ready until client has appended all
+     * of them or server should stop.
+     * 
+     * @param jobs
+     *            Jobs shared by all slots.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private void queueBatches(BlockingQueue<Data.Configuration> jobs)
+            throws IOException, InterruptedException {
+        for (int batch = 1; waitForBatch(batch); ++batch) {
+            for (Data.Configuration c : loadData(batch).getJobs()) {
+                jobs.put(c);
+            }
+        }
+    }
+
+    /**
+     * Waits for start and executes jobs as they are queued. Each slot runs in
+     * its own thread while this one queues the jobs.
      * 
      * @throws IOException
      */
     public void run() {
         try {
+            watcher = new DirectoryWatcher(serverDirectory, RECHECK_SECONDS);
+            stop = watcher.fileCreated(stopBatchFileName);
+            new File(serverDirectory, statusBatchFileName).createNewFile();
+
             waitForStart();
-            Data data = loadData();
+            List<String> slots = loadSlots();
+
+            final BlockingQueue<Data.Configuration> jobs = new LinkedBlockingQueue<>();
+
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < slots.size(); ++i) {
+                final int slot = i;
+                final String cpus = slots.get(i);
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            runSlot(jobs, slot, cpus);
+                        } catch (InterruptedException e) {
+                            e.printStackTrace();
+                        }
+                    }
+                }, "slot-" + i);
+                thread.start();
+                threads.add(thread);
+            }
 
-            for (Data.Configuration c : data.getJobs()) {
-                runJob(c);
+            try {
+                queueBatches(jobs);
+            } finally {
+                // each slot ends on its own end of queue
+                for (int i = 0; i < threads.size(); ++i) {
+                    jobs.put(END_OF_QUEUE);
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
             }
 
         } catch (InterruptedException e) {
@@ -481,11 +786,17 @@ public class Server {
             e.printStackTrace();
         } finally {
             try {
+                // file precedes the status so that client which has read the
+                // status sees the server finished
                 File done = new File(serverDirectory, finishedFileName);
                 done.createNewFile();
+                reportStatus(finishedFileName);
             } catch (IOException e) {
                 e.printStackTrace();
             }
+            if (watcher != null) {
+                watcher.close();
+            }
         }
     }
 
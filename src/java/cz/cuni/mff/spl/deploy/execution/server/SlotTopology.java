@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.execution.server;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * <p>
+ * Configuration of job slots the server runs jobs in concurrently. Each slot
+ * runs its jobs one by one and may be pinned to its own set of CPUs using
+ * {@code taskset} on Linux so that concurrent jobs don't share CPUs.
+ * 
+ * <p>
+ * CPU sets of slots are either given explicitly in {@code taskset} list
+ * format separated by semicolons (e.g. {@code 0-3;4-7}), one disjoint set for
+ * each slot, or derived on the server by splitting online CPUs into the
+ * requested count of contiguous disjoint sets. Sibling hardware threads may be excluded so that only the
+ * first thread of each core is used. Single slot without explicit CPUs is not
+ * pinned at all.
+ */
+public class SlotTopology {
+
+    private static final String SLOTS_KEY            = "slots";
+    private static final String CPUS_KEY             = "cpus";
+    private static final String EXCLUDE_SIBLINGS_KEY = "excludeSiblings";
+
+    /** Separator of CPU sets of slots. */
+    private static final String SLOT_SEPARATOR       = ";";
+
+    /** Linux directory describing CPUs. */
+    private static final File   CPU_DIRECTORY        = new File("/sys/devices/system/cpu");
+
+    private final int           slots;
+    private final String        cpus;
+    private final boolean       excludeSiblings;
+
+    /**
+     * <p>
+     * Creates slot topology.
+     * 
+     * @param slots
+     *            Count of slots when CPU sets are derived.
+     * @param cpus
+     *            CPU sets of slots or empty to derive them.
+     * @param excludeSiblings
+     *            Whether only the first hardware thread of each core is used.
+     */
+    public SlotTopology(int slots, String cpus, boolean excludeSiblings) {
+        this.slots = Math.max(1, slots);
+        this.cpus = cpus == null ? "" : cpus.trim();
+        this.excludeSiblings = excludeSiblings;
+    }
+
+    /**
+     * <p>
+     * Creates slot topology from stream saved by {@link #save(OutputStream)}.
+     * 
+     * @param source
+     *            Stream to be parsed.
+     * @throws IOException
+     */
+    public SlotTopology(InputStream source)
+            throws IOException {
+        Properties properties = new Properties();
+        properties.load(source);
+        try {
+            this.slots = Math.max(1, Integer.parseInt(properties.getProperty(SLOTS_KEY, "1")));
+        } catch (NumberFormatException e) {
+            throw new IOException("Slot count malformed.", e);
+        }
+        this.cpus = properties.getProperty(CPUS_KEY, "").trim();
+        this.excludeSiblings = Boolean.parseBoolean(properties.getProperty(EXCLUDE_SIBLINGS_KEY, "false"));
+    }
+
+    /**
+     * <p>
+     * Saves topology into stream which can be later loaded via stream
+     * constructor.
+     * 
+     * @param destination
+     * @throws IOException
+     */
+    public void save(OutputStream destination)
+            throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(SLOTS_KEY, String.valueOf(slots));
+        properties.setProperty(CPUS_KEY, cpus);
+        properties.setProperty(EXCLUDE_SIBLINGS_KEY, String.valueOf(excludeSiblings));
+        properties.store(destination, null);
+    }
+
+    /**
+     * <p>
+     * Resolves CPU sets of slots on this machine.
+     * 
+     * @return CPU set of each slot in {@code taskset} list format, empty when
+     *         the slot is not pinned.
+     * @throws IOException
+     *             When CPU sets are malformed or there are not enough CPUs for
+     *             the slots.
+     */
+    public List<String> resolve()
+            throws IOException {
+        return resolve(CPU_DIRECTORY);
+    }
+
+    /**
+     * <p>
+     * Resolves CPU sets of slots using CPU description in the specified
+     * directory.
+     * 
+     * @param cpuDirectory
+     *            Directory laid out as {@code /sys/devices/system/cpu}.
+     * @return CPU set of each slot in {@code taskset} list format, empty when
+     *         the slot is not pinned.
+     * @throws IOException
+     *             When CPU sets are malformed, overlap, don't match count of
+     *             slots or there are not enough CPUs for the slots.
+     */
+    public List<String> resolve(File cpuDirectory)
+            throws IOException {
+        List<String> result = new ArrayList<>();
+
+        if (!cpus.isEmpty()) {
+            String[] sets = cpus.split(SLOT_SEPARATOR);
+            if (sets.length != slots) {
+                throw new IOException(String.format("Count of CPU sets [%s] doesn't match count of slots [%d].", cpus, slots));
+            }
+
+            TreeSet<Integer> used = new TreeSet<>();
+            for (String set : sets) {
+                List<Integer> setCpus = parseList(set);
+                for (int cpu : setCpus) {
+                    if (!used.add(cpu)) {
+                        throw new IOException(String.format("CPU [%d] is in more than one slot of [%s].", cpu, cpus));
+                    }
+                }
+
+                List<Integer> slotCpus = excludeSiblings ? primaryThreads(cpuDirectory, setCpus) : setCpus;
+                if (slotCpus.isEmpty()) {
+                    throw new IOException(String.format("No CPUs left in slot [%s].", set));
+                }
+                result.add(formatList(slotCpus));
+            }
+            return result;
+        }
+
+        if (slots == 1 && !excludeSiblings) {
+            result.add("");
+            return result;
+        }
+
+        File online = new File(cpuDirectory, "online");
+        if (!online.isFile()) {
+            // CPUs are not described, slots run unpinned
+            for (int i = 0; i < slots; ++i) {
+                result.add("");
+            }
+            return result;
+        }
+
+        List<Integer> available = parseList(readLine(online));
+        if (excludeSiblings) {
+            available = primaryThreads(cpuDirectory, available);
+        }
+
+        int size = available.size() / slots;
+        if (size == 0) {
+            throw new IOException(String.format("Not enough CPUs [%d] for [%d] slots.", available.size(), slots));
+        }
+        for (int i = 0; i < slots; ++i) {
+            result.add(formatList(available.subList(i * size, (i + 1) * size)));
+        }
+        return result;
+    }
+
+    /**
+     * <p>
+     * Filters CPUs leaving only the first hardware thread of each core.
+     * 
+     * @param cpuDirectory
+     *            Directory laid out as {@code /sys/devices/system/cpu}.
+     * @param cpus
+     *            The CPUs.
+     * @return CPUs which are the lowest of their thread siblings.
+     * @throws IOException
+     */
+    private static List<Integer> primaryThreads(File cpuDirectory, List<Integer> cpus)
+            throws IOException {
+        List<Integer> result = new ArrayList<>();
+        for (int cpu : cpus) {
+            File siblings = new File(cpuDirectory, "cpu" + cpu + "/topology/thread_siblings_list");
+            if (!siblings.isFile() || parseList(readLine(siblings)).get(0) == cpu) {
+                result.add(cpu);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * <p>
+     * Parses CPU list like {@code 0-3,8,10-11}.
+     * 
+     * @param list
+     *            The list.
+     * @return Sorted CPUs without duplicates.
+     * @throws IOException
+     *             When the list is malformed.
+     */
+    static List<Integer> parseList(String list)
+            throws IOException {
+        TreeSet<Integer> result = new TreeSet<>();
+        try {
+            for (String range : list.trim().split(",")) {
+                String[] bounds = range.trim().split("-");
+                int first = Integer.parseInt(bounds[0].trim());
+                int last = bounds.length > 1 ? Integer.parseInt(bounds[1].trim()) : first;
+                if (bounds.length > 2 || first < 0 || last < first) {
+                    throw new NumberFormatException(range);
+                }
+                for (int cpu = first; cpu <= last; ++cpu) {
+                    result.add(cpu);
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException(String.format("Malformed CPU list [%s].", list), e);
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * <p>
+     * Formats CPUs as list accepted by {@code taskset -c}.
+     * 
+     * @param cpus
+     *            The CPUs.
+     * @return Comma separated CPUs.
+     */
+    private static String formatList(List<Integer> cpus) {
+        StringBuilder result = new StringBuilder();
+        for (int cpu : cpus) {
+            if (result.length() > 0) {
+                result.append(',');
+            }
+            result.append(cpu);
+        }
+        return result.toString();
+    }
+
+    /**
+     * <p>
+     * Reads the first line of a file.
+     * 
+     * @param file
+     * @return The line, empty when file is empty.
+     * @throws IOException
+     */
+    private static String readLine(File file)
+            throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line = reader.readLine();
+            return line == null ? "" : line;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.execution.server;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * <p>
+ * Follows status file {@link Server#statusBatchFileName} of a server and
+ * copies its lines to standard output as they are appended. Exits after the
+ * line reporting server has finished.
+ * 
+ * <p>
+ * Client starts the follower in the base directory the same way as the server
+ * so that it gets the stream of job statuses both locally and over SSH instead
+ * of repeatedly checking job files.
+ */
+public class StatusFollower {
+
+    /** Size of the read buffer. */
+    private static final int  BUFFER_SIZE = 4096;
+
+    /** Server directory. */
+    private final File        serverDirectory;
+    /** Stream to copy status lines to. */
+    private final PrintStream output;
+
+    /**
+     * @param identification
+     *            Identification of the server to follow.
+     * @param output
+     *            Stream to copy status lines to.
+     */
+    public StatusFollower(String identification, PrintStream output) {
+        this.serverDirectory = new File(identification);
+        this.output = output;
+    }
+
+    /**
+     * <p>
+     * Copies status lines until server reports it has finished or the output
+     * is closed. Only complete lines are copied.
+     * 
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void follow()
+            throws IOException, InterruptedException {
+        final long waitMilliseconds = Server.RECHECK_SECONDS * 1000;
+
+        try (
+                DirectoryWatcher watcher = new DirectoryWatcher(serverDirectory, Server.RECHECK_SECONDS);
+                InputStream stream = openStatus(watcher)) {
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            StringBuilder line = new StringBuilder();
+            boolean finished = false;
+
+            while (true) {
+                int length = stream.read(buffer);
+                if (length > 0) {
+                    for (int i = 0; i < length; ++i) {
+                        char c = (char) buffer[i];
+                        if (c != '\n') {
+                            line.append(c);
+                            continue;
+                        }
+
+                        output.println(line);
+                        if (Server.finishedFileName.equals(line.toString())) {
+                            output.flush();
+                            return;
+                        }
+                        line.setLength(0);
+                    }
+                    output.flush();
+                    if (output.checkError()) {
+                        // client is not listening anymore
+                        return;
+                    }
+
+                } else if (finished) {
+                    // server has finished without reporting it
+                    return;
+
+                } else {
+                    // server reports it has finished right after creating the
+                    // file so one more change is awaited
+                    finished = new File(serverDirectory, Server.finishedFileName).exists();
+                    watcher.awaitChange(waitMilliseconds);
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Waits for the status file to be created and opens it.
+     * 
+     * @param watcher
+     *            Watcher of the server directory.
+     * @return
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private InputStream openStatus(DirectoryWatcher watcher)
+            throws IOException, InterruptedException {
+        try {
+            watcher.fileCreated(Server.statusBatchFileName).get();
+        } catch (ExecutionException e) {
+            throw new IOException(e);
+        }
+        return new FileInputStream(new File(serverDirectory, Server.statusBatchFileName));
+    }
+
+    public static void main(String args[]) {
+        if (args.length == 1) {
+            try {
+                new StatusFollower(args[0], System.out).follow();
+            } catch (Throwable e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+        } else {
+            new IllegalArgumentException("Wrong command line arguments.").printStackTrace();
+            System.exit(1);
+        }
+    }
+}
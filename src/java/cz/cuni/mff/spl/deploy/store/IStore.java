@@ -53,6 +53,31 @@ public interface IStore extends IStoreReadonly {
     public void saveMeasurement(InputStream measurement, SampleIdentification identification)
             throws StoreException;
 
+    /**
+     * Saves measurement from the stream into the store. Partial measurement
+     * contains only samples measured until the sampler was stopped. Partial
+     * measurement is replaced when the measurement is saved again.
+     * 
+     * @param measurement
+     * @param identification
+     * @param partial
+     *            Whether measurement is partial.
+     * @throws StoreException
+     */
+    public void saveMeasurement(InputStream measurement, SampleIdentification identification, boolean partial)
+            throws StoreException;
+
+    /**
+     * Checks whether stored measurement is partial.
+     * 
+     * @param identification
+     * @return
+     *         True if measurement exists and is partial. False otherwise.
+     * @throws StoreException
+     */
+    public boolean isMeasurementPartial(SampleIdentification identification)
+            throws StoreException;
+
     /**
      * Creates evaluation directory and returns object to control it.
      * 
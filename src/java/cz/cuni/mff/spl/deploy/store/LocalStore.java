@@ -77,6 +77,12 @@ public class LocalStore implements IStore, AutoCloseable {
 
     private static final SplLog              logger         = SplLogger.getLogger(LocalStore.class);
 
+    /**
+     * Suffix of partial measurement files preceding measurement data file
+     * extension.
+     */
+    private static final String              PARTIAL_MEASUREMENT_SUFFIX = ".partial";
+
     /** The local store root directory or {@code null} when not available. */
     private File                             localStoreRootDirectory;
     private final File                       measurement;
@@ -226,18 +232,72 @@ public class LocalStore implements IStore, AutoCloseable {
         }
     }
 
+    /**
+     * Inner locking free search for measurement file.
+     * 
+     * @param sid
+     * @return
+     *         The measurement file or {@code null} when measurement does not
+     *         exist.
+     * @throws StoreException
+     */
+    private File findMeasurementInner(SampleIdentification sid)
+            throws StoreException {
+        File[] files = FileUtils.listFiles(measurement, sid.getFileNamePrefix(), FileNameMapper.getMeasurementDataFileNameExtension());
+        for (File f : files) {
+            try {
+                String line = StreamUtils.readFirstStreamLineToString(new FileInputStream(f));
+                if (sid.getIdentification().equals(line)) {
+                    return f;
+                }
+            } catch (IOException e) {
+                throw new StoreException(e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether measurement file holds partial measurement.
+     * 
+     * @param file
+     * @return
+     */
+    private static boolean isPartialMeasurementFile(File file) {
+        return file.getName().endsWith(PARTIAL_MEASUREMENT_SUFFIX + FileNameMapper.getMeasurementDataFileNameExtension());
+    }
+
     @Override
     public void saveMeasurement(InputStream stream, SampleIdentification sid)
             throws StoreException {
+        saveMeasurement(stream, sid, false);
+    }
+
+    @Override
+    public void saveMeasurement(InputStream stream, SampleIdentification sid, boolean partial)
+            throws StoreException {
         try (Lock lock = Lock.waitForLock(measurementLock)) {
             lock.dummy();
 
-            if (measurementExistsInner(sid)) {
-                throw new StoreException("Measurement already exists: " + sid.getIdentification());
+            File existing = findMeasurementInner(sid);
+            if (existing != null) {
+                if (!isPartialMeasurementFile(existing)) {
+                    throw new StoreException("Measurement already exists: " + sid.getIdentification());
+                }
+
+                logger.debug("Replacing partial measurement [%s].", sid);
+                if (!existing.delete()) {
+                    throw new StoreException("Failed to replace partial measurement: " + sid.getIdentification());
+                }
+            }
+
+            String extension = FileNameMapper.getMeasurementDataFileNameExtension();
+            if (partial) {
+                extension = PARTIAL_MEASUREMENT_SUFFIX + extension;
             }
 
             try {
-                File file = FileUtils.createUniqueFile(measurement, sid.getFileNamePrefix(), FileNameMapper.getMeasurementDataFileNameExtension());
+                File file = FileUtils.createUniqueFile(measurement, sid.getFileNamePrefix(), extension);
                 FileUtils.copy(stream, file);
                 measurementIndex.put(file.getName(), sid.getIdentification());
             } catch (IOException e) {
@@ -246,6 +306,17 @@ public class LocalStore implements IStore, AutoCloseable {
         }
     }
 
+    @Override
+    public boolean isMeasurementPartial(SampleIdentification sid)
+            throws StoreException {
+        try (Lock lock = Lock.waitForLock(measurementLock)) {
+            lock.dummy();
+
+            File file = findMeasurementInner(sid);
+            return file != null && isPartialMeasurementFile(file);
+        }
+    }
+
     @Override
     public InputStream loadMeasurement(SampleIdentification sid)
             throws StoreException {
@@ -420,6 +491,27 @@ public class LocalStore implements IStore, AutoCloseable {
         return localStoreRootDirectory;
     }
 
+    /**
+     * Gets the directory of checked out and built revisions kept between
+     * runs. Unlike temporary directories it's never cleared.
+     * 
+     * @return The revision cache directory or {@code null} when local store
+     *         root directory is not available.
+     */
+    public File getRevisionCacheDirectory() {
+        return localStoreRootDirectory == null ? null : new File(localStoreRootDirectory, StoreUtils.REVISIONS);
+    }
+
+    /**
+     * Gets the directory of measurement fingerprint index kept between runs.
+     * 
+     * @return The fingerprint index directory or {@code null} when local store
+     *         root directory is not available.
+     */
+    public File getFingerprintDirectory() {
+        return localStoreRootDirectory == null ? null : new File(localStoreRootDirectory, StoreUtils.FINGERPRINTS);
+    }
+
     /**
      * Implementation of {@link #findLocalStore(File)} which does all the search
      * work.
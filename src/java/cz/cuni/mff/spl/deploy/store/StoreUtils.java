@@ -49,4 +49,13 @@ public class StoreUtils {
 
     /** Temporary directory default name. */
     public static final String TEMPORARY      = "temporary";
+
+    /** Revision cache directory default name. */
+    public static final String REVISIONS      = "revisions";
+
+    /** Git mirror directory default name. */
+    public static final String MIRRORS        = "mirrors";
+
+    /** Measurement fingerprint index directory default name. */
+    public static final String FINGERPRINTS   = "fingerprints";
 }
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.store.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import cz.cuni.mff.spl.deploy.build.Code;
+import cz.cuni.mff.spl.utils.DateFormatPattern;
+import cz.cuni.mff.spl.utils.parsers.JsonParser;
+import cz.cuni.mff.spl.utils.parsers.ParseException;
+
+/**
+ * <p>
+ * Converts JSON result of JMH benchmark (JMH run with {@code -rf json}) into
+ * measurement data so that it is stored and evaluated as any other
+ * measurement.
+ * 
+ * <p>
+ * Each measurement iteration of the benchmark becomes one sample holding time
+ * of single operation in nanoseconds, throughput scores are inverted. Forks of
+ * the benchmark are kept in {@link Code#PROPERTY_FORKS} and
+ * {@link Code#PROPERTY_FORK_SAMPLE_COUNTS} properties as when merged by
+ * {@link MeasurementDataMerger}. Samples are stored in text form as scores of
+ * fast operations are fractions of nanosecond.
+ */
+public class JmhResultImporter {
+
+    /**
+     * Name of the benchmark generated next to sampler (see
+     * {@link Code#JMH_BENCHMARK_CLASS}).
+     */
+    public static final String SAMPLER_BENCHMARK = Code.JMH_BENCHMARK_CLASS + ".cycle";
+
+    /**
+     * <p>
+     * Converts result of the benchmark into measurement data. Input stream is
+     * closed.
+     * 
+     * @param json
+     *            JSON result of JMH run.
+     * @param benchmark
+     *            Name of the benchmark, for example {@link #SAMPLER_BENCHMARK}.
+     *            Benchmarks in packages match by the name without package.
+     * @param identification
+     *            Identification of the measurement.
+     * @param output
+     *            The stream to write measurement data to. Is not closed.
+     * @throws IOException
+     *             When the result can't be read or doesn't contain the
+     *             benchmark with raw data of iterations.
+     */
+    public static void importResult(InputStream json, String benchmark, String identification, OutputStream output)
+            throws IOException {
+        Object document;
+        try (InputStreamReader reader = new InputStreamReader(json, StandardCharsets.UTF_8)) {
+            document = JsonParser.parseJson(reader);
+        } catch (ParseException e) {
+            throw new IOException("Failed to parse JMH result.", e);
+        }
+
+        Map<?, ?> result = findBenchmark(document, benchmark);
+        Map<?, ?> metric = get(result, "primaryMetric", Map.class);
+        String unit = get(metric, "scoreUnit", String.class);
+        double nanoseconds = getNanosecondsPerOperation(unit);
+        boolean throughput = isThroughput(unit);
+
+        List<Double> samples = new ArrayList<>();
+        StringBuilder forkSampleCounts = new StringBuilder();
+        int forkCount = 0;
+        for (Object fork : get(metric, "rawData", List.class)) {
+            if (!(fork instanceof List)) {
+                throw new IOException(String.format("Raw data of benchmark [%s] are not iterations of forks.", benchmark));
+            }
+            for (Object score : (List<?>) fork) {
+                if (!(score instanceof Double)) {
+                    throw new IOException(String.format("Raw data of benchmark [%s] contain non-numeric score.", benchmark));
+                }
+                double value = (Double) score;
+                samples.add(throughput ? nanoseconds / value : nanoseconds * value);
+            }
+            if (forkSampleCounts.length() > 0) {
+                forkSampleCounts.append(',');
+            }
+            forkSampleCounts.append(((List<?>) fork).size());
+            ++forkCount;
+        }
+
+        Object warmupIterations = result.get("warmupIterations");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write(Code.COMMENT + identification + "\n");
+        writer.write(Code.PROPERTY_DATE + new SimpleDateFormat(DateFormatPattern.getSystemPattern()).format(new Date()) + "\n");
+        if (warmupIterations instanceof Double) {
+            writer.write(Code.PROPERTY_WARMUP_COUNT + ((Double) warmupIterations).intValue() + "\n");
+        }
+        writer.write(Code.PROPERTY_SAMPLE_COUNT + samples.size() + "\n");
+        writer.write(Code.PROPERTY_COLUMNS + Code.COLUMN_TIME + "\n");
+        writer.write(Code.PROPERTY_FORKS + forkCount + "\n");
+        writer.write(Code.PROPERTY_FORK_SAMPLE_COUNTS + forkSampleCounts + "\n");
+        writer.write(Code.PROPERTY_JMH_BENCHMARK + result.get("benchmark") + "\n");
+        writer.write(Code.MARK_SAMPLES_BEGIN + "\n");
+        for (double sample : samples) {
+            writer.write(sample + "\n");
+        }
+        writer.write(Code.MARK_SAMPLES_END + "\n");
+        writer.flush();
+    }
+
+    /**
+     * <p>
+     * Finds result of the benchmark in JMH result document.
+     * 
+     * @param document
+     *            The parsed document, array of benchmark results.
+     * @param benchmark
+     *            The benchmark name.
+     * @return The benchmark result.
+     * @throws IOException
+     *             When the benchmark is not present.
+     */
+    private static Map<?, ?> findBenchmark(Object document, String benchmark)
+            throws IOException {
+        if (document instanceof List) {
+            for (Object result : (List<?>) document) {
+                if (result instanceof Map) {
+                    Object name = ((Map<?, ?>) result).get("benchmark");
+                    if (benchmark.equals(name) || (name instanceof String && ((String) name).endsWith("." + benchmark))) {
+                        return (Map<?, ?>) result;
+                    }
+                }
+            }
+        }
+        throw new IOException(String.format("JMH result doesn't contain benchmark [%s].", benchmark));
+    }
+
+    /**
+     * <p>
+     * Gets member of JSON object and checks its type.
+     * 
+     * @param object
+     *            The object.
+     * @param name
+     *            The member name.
+     * @param type
+     *            Expected type of the member.
+     * @return The member value.
+     * @throws IOException
+     *             When the member is missing or has other type.
+     */
+    private static <T> T get(Map<?, ?> object, String name, Class<T> type)
+            throws IOException {
+        Object value = object.get(name);
+        if (!type.isInstance(value)) {
+            throw new IOException(String.format("JMH result has no [%s] of type [%s].", name, type.getSimpleName()));
+        }
+        return type.cast(value);
+    }
+
+    /**
+     * <p>
+     * Checks whether score unit is throughput like {@code ops/ms}.
+     * 
+     * @param unit
+     *            The score unit.
+     * @return True for throughput, false for time like {@code ns/op}.
+     */
+    private static boolean isThroughput(String unit) {
+        return unit.startsWith("ops/");
+    }
+
+    /**
+     * <p>
+     * Gets nanoseconds of time unit of score unit. Time score multiplied and
+     * throughput score divided by it gives nanoseconds per operation.
+     * 
+     * @param unit
+     *            The score unit, for example {@code us/op} or {@code ops/s}.
+     * @return Nanoseconds of the time unit.
+     * @throws IOException
+     *             When the unit is not supported.
+     */
+    private static double getNanosecondsPerOperation(String unit)
+            throws IOException {
+        String[] parts = unit.split("/");
+        if (parts.length != 2 || !(parts[0].equals("ops") || parts[1].equals("op"))) {
+            throw new IOException(String.format("Unsupported JMH score unit [%s].", unit));
+        }
+        switch (isThroughput(unit) ? parts[1] : parts[0]) {
+            case "ns":
+                return 1;
+            case "us":
+                return 1e3;
+            case "ms":
+                return 1e6;
+            case "s":
+                return 1e9;
+            case "min":
+                return 60e9;
+            default:
+                throw new IOException(String.format("Unsupported JMH score unit [%s].", unit));
+        }
+    }
+}
@@ -27,12 +27,14 @@
  */
 package cz.cuni.mff.spl.deploy.store.utils;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -49,6 +51,19 @@ import cz.cuni.mff.spl.utils.logging.SplLogger;
  * Allows to read both measurement samples and stored meatadata (date and time
  * of measurement, sample count, warmup samples).
  * 
+ * <p>
+ * Samples may be stored either as text (one sample per line between
+ * {@link Code#MARK_SAMPLES_BEGIN} and {@link Code#MARK_SAMPLES_END}) or as a
+ * binary block of big-endian longs following {@link Code#MARK_SAMPLES_BINARY}.
+ * Both forms are read transparently. Binary block may hold several columns for
+ * each sample (see {@link Code#PROPERTY_COLUMNS}), the first one is the sample
+ * value.
+ * 
+ * <p>
+ * Partial data (see {@link Code#PROPERTY_PARTIAL}) streamed by sampler which
+ * did not finish have no sample count, binary samples are read up to the last
+ * completely written one.
+ * 
  * @author Frantisek Haas
  * @author Martin Lacina
  */
@@ -57,10 +72,25 @@ public class MeasurementData implements AutoCloseable {
     private static final SplLog       logger               = SplLogger.getLogger(MeasurementData.class);
 
     /** Measurement data stream. */
-    private final BufferedReader      input;
+    private final DataInputStream     input;
+
+    /** Buffer for reading text lines from the data stream. */
+    private final ByteArrayOutputStream lineBuffer         = new ByteArrayOutputStream();
+
+    /** Whether samples are stored in binary form. */
+    private boolean                   binary               = false;
+
+    /** Binary samples not read yet. */
+    private long                      binarySamplesLeft    = 0;
+
+    /** Values stored for each binary sample, sample value is the first. */
+    private int                       columnCount          = 1;
 
-    /** Properties loaded from measurement data file. */
-    private final Map<String, String> properties           = new HashMap<>();
+    /** Index of {@link Code#COLUMN_BATCH} column or -1 when not batched. */
+    private int                       batchIndex           = -1;
+
+    /** Properties loaded from measurement data file in stored order. */
+    private final Map<String, String> properties           = new LinkedHashMap<>();
 
     /** Identification of measurement. */
     private String                    identification       = "<unknown>";
@@ -69,6 +99,8 @@ public class MeasurementData implements AutoCloseable {
     private final double              eofSample            = -1;
     private boolean                   hasSample            = false;
     private double                    sample               = eofSample;
+    /** All values stored for the sample read ahead. */
+    private long[]                    row                  = new long[1];
 
     /**
      * The constant for unknown warm-up sample count returned by
@@ -82,6 +114,9 @@ public class MeasurementData implements AutoCloseable {
      */
     public static final int           UNKNOWN_SAMPLE_COUNT = -1;
 
+    /** Column index marking throughput computed from other columns. */
+    private static final int          THROUGHPUT_INDEX     = -2;
+
     /**
      * <p>
      * Opens the stream to data and reads properties stored at the beginning of
@@ -93,7 +128,7 @@ public class MeasurementData implements AutoCloseable {
      */
     public MeasurementData(InputStream input)
             throws IOException {
-        this.input = new BufferedReader(new InputStreamReader(input));
+        this.input = new DataInputStream(new BufferedInputStream(input));
         open();
     }
 
@@ -106,7 +141,7 @@ public class MeasurementData implements AutoCloseable {
      */
     private void open()
             throws IOException {
-        String line = input.readLine();
+        String line = readLine();
 
         /**
          * <p>
@@ -114,7 +149,7 @@ public class MeasurementData implements AutoCloseable {
          */
         if (line != null && line.startsWith(Code.COMMENT)) {
             identification = line.substring(Code.COMMENT.length());
-            line = input.readLine();
+            line = readLine();
         }
 
         /**
@@ -123,7 +158,18 @@ public class MeasurementData implements AutoCloseable {
          */
         while (line != null) {
             if (line.startsWith(Code.MARK_SAMPLES_BEGIN)) {
-                line = input.readLine();
+                break;
+            }
+
+            if (line.startsWith(Code.MARK_SAMPLES_BINARY)) {
+                binary = true;
+                columnCount = Math.max(1, getColumns().size());
+                batchIndex = getColumns().indexOf(Code.COLUMN_BATCH);
+                row = new long[columnCount];
+                binarySamplesLeft = getExpectedSampleCount();
+                if (binarySamplesLeft == UNKNOWN_SAMPLE_COUNT && !isPartial()) {
+                    throw new IOException(String.format("Missing sample count for binary data of measurement [%s]", identification));
+                }
                 break;
             }
 
@@ -133,22 +179,87 @@ public class MeasurementData implements AutoCloseable {
                         line.substring(line.indexOf(Code.SIGN) + Code.SIGN.length()));
             }
 
-            line = input.readLine();
+            line = readLine();
         }
 
         /**
          * <p>
          * Read first sample.
          */
-        try {
+        if (line != null) {
+            readNextSample();
+        }
+    }
 
-            if (line != null) {
-                sample = eofSample;
-                sample = Double.parseDouble(line);
-                hasSample = true;
+    /**
+     * <p>
+     * Reads one line of text from the data stream. Line terminator is not
+     * included.
+     * 
+     * @return The line or {@code null} at the end of stream.
+     * @throws IOException
+     */
+    private String readLine()
+            throws IOException {
+        int read = input.read();
+        if (read == -1) {
+            return null;
+        }
+
+        lineBuffer.reset();
+        while (read != -1 && read != '\n') {
+            lineBuffer.write(read);
+            read = input.read();
+        }
+
+        String line = lineBuffer.toString();
+        if (line.endsWith("\r")) {
+            line = line.substring(0, line.length() - 1);
+        }
+        return line;
+    }
+
+    /**
+     * <p>
+     * Reads the next sample from either text or binary data section.
+     * 
+     * @throws IOException
+     */
+    private void readNextSample()
+            throws IOException {
+        sample = eofSample;
+        hasSample = false;
+        try {
+            if (binary) {
+                if (binarySamplesLeft == UNKNOWN_SAMPLE_COUNT) {
+                    try {
+                        for (int i = 0; i < columnCount; ++i) {
+                            row[i] = input.readLong();
+                        }
+                    } catch (EOFException e) {
+                        // partially written sample is dropped
+                        return;
+                    }
+                    sample = normalize(row[0], row);
+                    hasSample = true;
+                } else if (binarySamplesLeft > 0) {
+                    for (int i = 0; i < columnCount; ++i) {
+                        row[i] = input.readLong();
+                    }
+                    sample = normalize(row[0], row);
+                    --binarySamplesLeft;
+                    hasSample = true;
+                }
+            } else {
+                String line = readLine();
+                if (line != null && !line.startsWith(Code.MARK_SAMPLES_END)) {
+                    sample = Double.parseDouble(line);
+                    row[0] = (long) sample;
+                    hasSample = true;
+                }
             }
 
-        } catch (NumberFormatException e) {
+        } catch (NumberFormatException | IOException e) {
             throw new IOException(String.format("Failed to read data for measurement [%s]", identification), e);
         }
     }
@@ -198,6 +309,132 @@ public class MeasurementData implements AutoCloseable {
         }
     }
 
+    /**
+     * <p>
+     * Returns why warmup ended (see {@link Code#WARMUP_END_CYCLES},
+     * {@link Code#WARMUP_END_TIME}, {@link Code#WARMUP_END_STEADY},
+     * {@link Code#WARMUP_END_LIMIT} and {@link Code#WARMUP_END_NONE}) or
+     * {@code null} when not known.
+     * 
+     * @return Why warmup ended or {@code null} when not known.
+     */
+    public String getWarmupEnd() {
+        return properties.get(Code.PROPERTY_WARMUP_END);
+    }
+
+    /**
+     * <p>
+     * Returns warmup mode used during measurement or {@code null} when not
+     * known.
+     * 
+     * @return Warmup mode used during measurement or {@code null} when not
+     *         known.
+     */
+    public String getWarmupMode() {
+        return properties.get(Code.PROPERTY_WARMUP_MODE);
+    }
+
+    /**
+     * <p>
+     * Returns why measurement ended (see {@link Code#MEASUREMENT_END_CYCLES},
+     * {@link Code#MEASUREMENT_END_TIME} and
+     * {@link Code#MEASUREMENT_END_PRECISION}) or {@code null} when not known.
+     * 
+     * @return Why measurement ended or {@code null} when not known.
+     */
+    public String getMeasurementEnd() {
+        return properties.get(Code.PROPERTY_MEASUREMENT_END);
+    }
+
+    /**
+     * <p>
+     * Returns achieved relative 95% confidence interval half-width of sample
+     * mean or {@link Double#NaN} when not known.
+     * 
+     * @return Achieved relative confidence interval half-width of sample mean
+     *         or {@link Double#NaN} when not known.
+     */
+    public double getPrecision() {
+        return getDoubleProperty(Code.PROPERTY_PRECISION);
+    }
+
+    /**
+     * <p>
+     * Returns streaming estimate of sample median computed by sampler or
+     * {@link Double#NaN} when not known.
+     * 
+     * @return Streaming estimate of sample median or {@link Double#NaN} when
+     *         not known.
+     */
+    public double getMedianEstimate() {
+        return getDoubleProperty(Code.PROPERTY_MEDIAN_ESTIMATE);
+    }
+
+    /**
+     * <p>
+     * Returns calibrated cost of consuming value returned by measured method
+     * in nanoseconds per call or {@link Double#NaN} when not known. The cost
+     * is included in measured times and may be subtracted.
+     * 
+     * @return Cost of consuming returned value or {@link Double#NaN} when not
+     *         known.
+     */
+    public double getSinkCost() {
+        return getDoubleProperty(Code.PROPERTY_SINK_COST);
+    }
+
+    /**
+     * <p>
+     * Returns granularity of time source in nanoseconds calibrated by sampler
+     * or {@link Double#NaN} when not known.
+     * 
+     * @return Time source granularity or {@link Double#NaN} when not known.
+     */
+    public double getTimerGranularity() {
+        return getDoubleProperty(Code.PROPERTY_TIMER_GRANULARITY);
+    }
+
+    /**
+     * <p>
+     * Returns cost of single time source reading in nanoseconds calibrated by
+     * sampler or {@link Double#NaN} when not known.
+     * 
+     * @return Time source overhead or {@link Double#NaN} when not known.
+     */
+    public double getTimerOverhead() {
+        return getDoubleProperty(Code.PROPERTY_TIMER_OVERHEAD);
+    }
+
+    /**
+     * <p>
+     * Returns count of threads which concurrently called measured method or
+     * zero when measured method was called by single main thread only.
+     * 
+     * @return Count of threads of concurrent measurement or zero.
+     */
+    public int getThreadCount() {
+        try {
+            return Integer.parseInt(properties.get(Code.PROPERTY_THREADS));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * <p>
+     * Returns count of first invocations of measured method timed in each
+     * launch of cold start measurement. Each sample is then one launch.
+     * 
+     * @return Count of timed invocations or zero when warm state was measured.
+     */
+    public int getColdInvocations() {
+        try {
+            return Integer.parseInt(properties.get(Code.PROPERTY_COLD_INVOCATIONS));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
     /**
      * <p>
      * Returns how many samples are expected to be present, or
@@ -217,6 +454,206 @@ public class MeasurementData implements AutoCloseable {
         }
     }
 
+    /**
+     * <p>
+     * Returns names of values stored for each sample. The first one is the
+     * sample value itself. Data without columns specification have only the
+     * sample value column.
+     * 
+     * @return Names of values stored for each sample.
+     */
+    public List<String> getColumns() {
+        List<String> columns = new ArrayList<>();
+        String value = properties.get(Code.PROPERTY_COLUMNS);
+        if (value != null) {
+            for (String column : value.split(",")) {
+                columns.add(column.trim());
+            }
+        } else {
+            columns.add(Code.COLUMN_TIME);
+        }
+        return columns;
+    }
+
+    /**
+     * <p>
+     * Returns time source which measured {@link Code#COLUMN_TIME} column or
+     * {@code null} when not known.
+     * 
+     * @return Time source used during measurement or {@code null} when not
+     *         known.
+     */
+    public String getTimeSource() {
+        return properties.get(Code.PROPERTY_TIME_SOURCE);
+    }
+
+    /**
+     * <p>
+     * Gets stored column holding values of specified column. Columns of
+     * separate time sources are not stored unless all time sources were
+     * measured, the one of the time source used during measurement is then
+     * read from {@link Code#COLUMN_TIME} column.
+     * 
+     * @param column
+     *            The column name, possibly of the other side of paired
+     *            sampler.
+     * @return The stored column name or {@code null} when the values are not
+     *         stored.
+     */
+    public String resolveColumn(String column) {
+        List<String> stored = getColumns();
+        if (stored.contains(column)) {
+            return column;
+        }
+
+        String timeSource = getTimeSource();
+        if (timeSource == null) {
+            return null;
+        }
+
+        String sourceColumn = Code.getTimeSourceColumn(timeSource);
+        if (sourceColumn.equals(column)) {
+            return Code.COLUMN_TIME;
+        } else if (Code.getPairedColumn(sourceColumn).equals(column) && stored.contains(Code.COLUMN_PAIRED_TIME)) {
+            return Code.COLUMN_PAIRED_TIME;
+        }
+        return null;
+    }
+
+    /**
+     * <p>
+     * Checks whether data are partial, that is sampler did not finish and
+     * only samples measured until it was stopped are present.
+     * 
+     * @return True, if data are partial.
+     */
+    public boolean isPartial() {
+        return Boolean.parseBoolean(properties.get(Code.PROPERTY_PARTIAL));
+    }
+
+    /**
+     * <p>
+     * Returns garbage collection policy used during measurement or {@code null}
+     * when not known.
+     * 
+     * @return Garbage collection policy used during measurement or {@code null}
+     *         when not known.
+     */
+    public String getGcPolicy() {
+        return properties.get(Code.PROPERTY_GC_POLICY);
+    }
+
+    /**
+     * <p>
+     * Returns how many stored samples were measured while garbage collection
+     * occurred. Data without garbage collection tracking report zero.
+     * 
+     * @return How many stored samples were measured while garbage collection
+     *         occurred.
+     */
+    public long getGcContaminatedCount() {
+        return getLongProperty(Code.PROPERTY_GC_CONTAMINATED_COUNT, 0);
+    }
+
+    /**
+     * <p>
+     * Returns how many samples were discarded and measured again because
+     * garbage collection occurred. Data without garbage collection tracking
+     * report zero.
+     * 
+     * @return How many samples were discarded due to garbage collection.
+     */
+    public long getGcDroppedCount() {
+        return getLongProperty(Code.PROPERTY_GC_DROPPED_COUNT, 0);
+    }
+
+    /**
+     * <p>
+     * Returns how many forks (separate sampler runs) were merged into this
+     * measurement. Data of a single run report one fork.
+     * 
+     * @return How many forks were merged into this measurement.
+     */
+    public int getForkCount() {
+        return (int) getLongProperty(Code.PROPERTY_FORKS, 1);
+    }
+
+    /**
+     * <p>
+     * Returns sample counts of merged forks in the order their samples are
+     * stored. Data of a single run report one fork with all samples.
+     * 
+     * @return Sample counts of merged forks.
+     * @throws IOException
+     */
+    public long[] getForkSampleCounts()
+            throws IOException {
+        String value = properties.get(Code.PROPERTY_FORK_SAMPLE_COUNTS);
+        if (value == null) {
+            return new long[] { getExpectedSampleCount() };
+        }
+
+        String[] counts = value.split(",");
+        long[] result = new long[counts.length];
+        try {
+            for (int i = 0; i < counts.length; ++i) {
+                result[i] = Long.parseLong(counts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException(String.format("Malformed fork sample counts of measurement [%s]", identification), e);
+        }
+        return result;
+    }
+
+    /**
+     * <p>
+     * Returns all properties in the order they were stored. Keys include
+     * {@link Code#COMMENT} prefix and {@link Code#SIGN} suffix.
+     * 
+     * @return The properties.
+     */
+    Map<String, String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * <p>
+     * Returns property value parsed as long or default value when property is
+     * not present or malformed.
+     * 
+     * @param key
+     *            The property key.
+     * @param defaultValue
+     *            The default value.
+     * @return The property value.
+     */
+    private long getLongProperty(String key, long defaultValue) {
+        try {
+            return Long.valueOf(properties.get(key));
+        } catch (NumberFormatException e) {
+            logger.debug(e, "Failed to get property [%s].", key);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * <p>
+     * Returns property value parsed as double or {@link Double#NaN} when
+     * property is not present or malformed.
+     * 
+     * @param key
+     *            The property key.
+     * @return The property value.
+     */
+    private double getDoubleProperty(String key) {
+        try {
+            return Double.valueOf(properties.get(key));
+        } catch (NullPointerException | NumberFormatException e) {
+            logger.debug(e, "Failed to get property [%s].", key);
+            return Double.NaN;
+        }
+    }
+
     /**
      * <p>
      * Returns true if more samples can be read.
@@ -232,7 +669,7 @@ public class MeasurementData implements AutoCloseable {
     /**
      * <p>
      * Reads the next sample if such is present. If it's not present '-1' is
-     * returned.
+     * returned. Batched sample is normalized to single cycle.
      * 
      * @return
      * @throws IOException
@@ -244,25 +681,33 @@ public class MeasurementData implements AutoCloseable {
             throws IOException {
 
         double lastSample = sample;
-        sample = eofSample;
-        hasSample = false;
-        try {
-            String line = input.readLine();
-            if (line != null && !line.startsWith(Code.MARK_SAMPLES_END)) {
-                sample = Double.parseDouble(line);
-                hasSample = true;
-            }
+        readNextSample();
+        return lastSample;
+    }
 
-        } catch (NumberFormatException | IOException e) {
-            throw new IOException(String.format("Failed to read data for measurement [%s]", identification), e);
+    /**
+     * <p>
+     * Reads the next sample with all its stored column values (see
+     * {@link #getColumns()}). If it's not present {@code null} is returned.
+     * 
+     * @return The sample values or {@code null}.
+     * @throws IOException
+     */
+    public long[] readSampleRow()
+            throws IOException {
+        if (!hasSample) {
+            return null;
         }
 
-        return lastSample;
+        long[] lastRow = row.clone();
+        readNextSample();
+        return lastRow;
     }
 
     /**
      * <p>
-     * Reads all the samples into one big array.
+     * Reads all the samples into one big array. Batched samples are
+     * normalized to single cycle.
      * 
      * @return
      * @throws IOException
@@ -288,6 +733,83 @@ public class MeasurementData implements AutoCloseable {
         return ConvertUtils.convertDoublesToArray(samples, new double[samples.size()]);
     }
 
+    /**
+     * <p>
+     * Reads all the remaining samples and returns values of specified columns
+     * (see {@link #getColumns()} and {@link #resolveColumn(String)}). Values
+     * of the same sample share the index. {@link Code#COLUMN_THROUGHPUT} is
+     * computed from calls and round time of concurrent measurement. Values
+     * of batched samples are normalized to single cycle except for collection
+     * counts and the batch itself.
+     * 
+     * @param columns
+     *            Names of columns to read.
+     * @return Array of column values for each requested column.
+     * @throws IOException
+     *             When reading fails or any column is not stored.
+     */
+    public double[][] readColumns(String... columns)
+            throws IOException {
+        List<String> stored = getColumns();
+        int callsIndex = stored.indexOf(Code.COLUMN_CALLS);
+        int roundTimeIndex = stored.indexOf(Code.COLUMN_ROUND_TIME);
+        int[] indices = new int[columns.length];
+        boolean[] normalized = new boolean[columns.length];
+        for (int i = 0; i < columns.length; ++i) {
+            String column = resolveColumn(columns[i]);
+            indices[i] = column != null ? stored.indexOf(column) : -1;
+            normalized[i] = !Code.COLUMN_BATCH.equals(column) && !Code.COLUMN_GC_COUNT.equals(column)
+                    && !Code.COLUMN_PAIRED_GC_COUNT.equals(column);
+            if (indices[i] < 0 && Code.COLUMN_THROUGHPUT.equals(columns[i]) && callsIndex >= 0 && roundTimeIndex >= 0) {
+                indices[i] = THROUGHPUT_INDEX;
+                continue;
+            }
+            if (indices[i] < 0 || indices[i] >= row.length) {
+                throw new IOException(String.format("Measurement [%s] has no column [%s].", getIdentification(), columns[i]));
+            }
+        }
+
+        List<long[]> rows = new ArrayList<>(Math.max(0, getExpectedSampleCount()));
+        long[] values;
+        while ((values = readSampleRow()) != null) {
+            rows.add(values);
+        }
+
+        double[][] result = new double[columns.length][rows.size()];
+        for (int r = 0; r < rows.size(); ++r) {
+            long[] sample = rows.get(r);
+            for (int i = 0; i < columns.length; ++i) {
+                if (indices[i] == THROUGHPUT_INDEX) {
+                    // calls per second, round time is in nanoseconds
+                    result[i][r] = sample[callsIndex] * 1e9 / Math.max(1, sample[roundTimeIndex]);
+                } else if (normalized[i]) {
+                    result[i][r] = normalize(sample[indices[i]], sample);
+                } else {
+                    result[i][r] = sample[indices[i]];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * <p>
+     * Normalizes value of batched sample to single cycle.
+     * 
+     * @param value
+     *            The value of the sample.
+     * @param sample
+     *            All stored values of the sample.
+     * @return The value divided by the batch or unchanged value when sample
+     *         is not batched.
+     */
+    private double normalize(long value, long[] sample) {
+        if (batchIndex < 0 || batchIndex >= sample.length || sample[batchIndex] <= 1) {
+            return value;
+        }
+        return (double) value / sample[batchIndex];
+    }
+
     @Override
     public void close()
             throws IOException {
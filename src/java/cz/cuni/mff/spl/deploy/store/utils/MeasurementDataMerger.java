@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.store.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+
+import cz.cuni.mff.spl.deploy.build.Code;
+
+/**
+ * <p>
+ * Merges measurement data of several forks (separate runs of the same sampler)
+ * into one measurement data file.
+ *
+ * <p>
+ * Samples of forks are stored one fork after another in the binary form.
+ * Boundaries of forks are kept in {@link Code#PROPERTY_FORKS} and
+ * {@link Code#PROPERTY_FORK_SAMPLE_COUNTS} properties. Other properties are
+ * taken from the first fork except for sample count and garbage collection
+ * counts which are summed. Precision and median estimates are specific to a
+ * single fork and are left out. Merged data are partial when any fork is.
+ * 
+ * <p>
+ * Partial data streamed by sampler which did not finish are completed by
+ * {@link #complete(InputStream, OutputStream)} before merging or storing.
+ */
+public class MeasurementDataMerger {
+
+    /**
+     * <p>
+     * Merges measurement data of forks into single output. Input streams are
+     * closed.
+     *
+     * @param forks
+     *            Measurement data of forks in the order to be stored.
+     * @param output
+     *            The stream to write merged data to. Is not closed.
+     * @throws IOException
+     *             When reading of any fork fails or forks have different
+     *             columns.
+     */
+    public static void merge(List<InputStream> forks, OutputStream output)
+            throws IOException {
+        List<MeasurementData> data = new ArrayList<>(forks.size());
+        try {
+            for (InputStream fork : forks) {
+                data.add(new MeasurementData(fork));
+            }
+            writeMerged(data, output);
+        } finally {
+            for (InputStream fork : forks) {
+                fork.close();
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Completes partial measurement data (see {@link Code#PROPERTY_PARTIAL})
+     * into regular measurement data with sample count set to the number of
+     * completely written samples. Data stay marked as partial. Input stream is
+     * closed.
+     * 
+     * @param partial
+     *            Partial measurement data.
+     * @param output
+     *            The stream to write completed data to. Is not closed.
+     * @throws IOException
+     *             When reading of partial data fails.
+     */
+    public static void complete(InputStream partial, OutputStream output)
+            throws IOException {
+        try (MeasurementData data = new MeasurementData(partial)) {
+            List<long[]> rows = new ArrayList<>();
+            long[] row;
+            while ((row = data.readSampleRow()) != null) {
+                rows.add(row);
+            }
+
+            StringBuilder header = new StringBuilder();
+            header.append(Code.COMMENT).append(data.getIdentification()).append('\n');
+            for (Entry<String, String> property : data.getProperties().entrySet()) {
+                if (!Code.PROPERTY_SAMPLE_COUNT.equals(property.getKey()) && !Code.PROPERTY_PARTIAL.equals(property.getKey())) {
+                    header.append(property.getKey()).append(property.getValue()).append('\n');
+                }
+            }
+            header.append(Code.PROPERTY_SAMPLE_COUNT).append(rows.size()).append('\n');
+            header.append(Code.PROPERTY_PARTIAL).append(true).append('\n');
+            header.append(Code.MARK_SAMPLES_BINARY).append('\n');
+
+            DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(output));
+            stream.write(header.toString().getBytes());
+            for (long[] values : rows) {
+                for (long value : values) {
+                    stream.writeLong(value);
+                }
+            }
+            stream.write(("\n" + Code.MARK_SAMPLES_END + "\n").getBytes());
+            stream.flush();
+        }
+    }
+
+    /**
+     * <p>
+     * Writes merged header and samples of all forks.
+     *
+     * @param forks
+     *            Opened measurement data of forks.
+     * @param output
+     *            The stream to write merged data to.
+     * @throws IOException
+     */
+    private static void writeMerged(List<MeasurementData> forks, OutputStream output)
+            throws IOException {
+        if (forks.isEmpty()) {
+            throw new IOException("No forks to merge.");
+        }
+
+        MeasurementData first = forks.get(0);
+        List<String> columns = first.getColumns();
+
+        long sampleCount = 0;
+        long gcContaminatedCount = 0;
+        long gcDroppedCount = 0;
+        boolean partial = false;
+        int forkCount = 0;
+        StringBuilder forkSampleCounts = new StringBuilder();
+
+        for (MeasurementData fork : forks) {
+            if (!columns.equals(fork.getColumns())) {
+                throw new IOException(String.format("Forks of measurement [%s] have different columns.", first.getIdentification()));
+            }
+
+            long forkSampleCount = 0;
+            for (long count : fork.getForkSampleCounts()) {
+                forkSampleCount += count;
+                if (forkSampleCounts.length() > 0) {
+                    forkSampleCounts.append(',');
+                }
+                forkSampleCounts.append(count);
+                ++forkCount;
+            }
+
+            sampleCount += forkSampleCount;
+            gcContaminatedCount += fork.getGcContaminatedCount();
+            gcDroppedCount += fork.getGcDroppedCount();
+            partial |= fork.isPartial();
+        }
+
+        StringBuilder header = new StringBuilder();
+        header.append(Code.COMMENT).append(first.getIdentification()).append('\n');
+        for (Entry<String, String> property : first.getProperties().entrySet()) {
+            switch (property.getKey()) {
+                case Code.PROPERTY_SAMPLE_COUNT:
+                case Code.PROPERTY_GC_CONTAMINATED_COUNT:
+                case Code.PROPERTY_GC_DROPPED_COUNT:
+                case Code.PROPERTY_PRECISION:
+                case Code.PROPERTY_MEDIAN_ESTIMATE:
+                case Code.PROPERTY_FORKS:
+                case Code.PROPERTY_FORK_SAMPLE_COUNTS:
+                case Code.PROPERTY_COLUMNS:
+                case Code.PROPERTY_PARTIAL:
+                    break;
+
+                default:
+                    header.append(property.getKey()).append(property.getValue()).append('\n');
+                    break;
+            }
+        }
+        header.append(Code.PROPERTY_SAMPLE_COUNT).append(sampleCount).append('\n');
+        header.append(Code.PROPERTY_COLUMNS).append(joinColumns(columns)).append('\n');
+        header.append(Code.PROPERTY_GC_CONTAMINATED_COUNT).append(gcContaminatedCount).append('\n');
+        header.append(Code.PROPERTY_GC_DROPPED_COUNT).append(gcDroppedCount).append('\n');
+        header.append(Code.PROPERTY_FORKS).append(forkCount).append('\n');
+        header.append(Code.PROPERTY_FORK_SAMPLE_COUNTS).append(forkSampleCounts).append('\n');
+        if (partial) {
+            header.append(Code.PROPERTY_PARTIAL).append(true).append('\n');
+        }
+        header.append(Code.MARK_SAMPLES_BINARY).append('\n');
+
+        DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(output));
+        stream.write(header.toString().getBytes());
+
+        long written = 0;
+        for (MeasurementData fork : forks) {
+            long[] row;
+            while ((row = fork.readSampleRow()) != null) {
+                for (long value : row) {
+                    stream.writeLong(value);
+                }
+                ++written;
+            }
+        }
+
+        if (written != sampleCount) {
+            throw new IOException(String.format("Forks of measurement [%s] contain [%d] samples, expected [%d].",
+                    first.getIdentification(), written, sampleCount));
+        }
+
+        stream.write(("\n" + Code.MARK_SAMPLES_END + "\n").getBytes());
+        stream.flush();
+    }
+
+    /**
+     * <p>
+     * Joins column names into {@link Code#PROPERTY_COLUMNS} value.
+     *
+     * @param columns
+     *            The column names.
+     * @return The property value.
+     */
+    private static String joinColumns(List<String> columns) {
+        StringBuilder result = new StringBuilder();
+        for (String column : columns) {
+            if (result.length() > 0) {
+                result.append(',');
+            }
+            result.append(column);
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.evaluator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import cz.cuni.mff.spl.annotation.AnnotationLocation;
+import cz.cuni.mff.spl.annotation.Comparison;
+import cz.cuni.mff.spl.annotation.Expression;
+import cz.cuni.mff.spl.annotation.Formula;
+import cz.cuni.mff.spl.annotation.FormulaDeclaration;
+import cz.cuni.mff.spl.annotation.Info;
+import cz.cuni.mff.spl.annotation.Measurement;
+import cz.cuni.mff.spl.configuration.ConfigurationBundle;
+import cz.cuni.mff.spl.deploy.build.SampleIdentification;
+import cz.cuni.mff.spl.deploy.store.IStore.IStoreDirectory;
+import cz.cuni.mff.spl.evaluator.input.MeasurementDataProvider;
+import cz.cuni.mff.spl.evaluator.input.MeasurementSampleProvider;
+import cz.cuni.mff.spl.evaluator.output.EvaluatorOutput;
+import cz.cuni.mff.spl.evaluator.output.results.AnnotationEvaluationResult;
+import cz.cuni.mff.spl.evaluator.output.results.ComparisonEvaluationResult;
+import cz.cuni.mff.spl.evaluator.output.results.FormulaEvaluationResult;
+import cz.cuni.mff.spl.evaluator.statistics.MeasurementSample;
+import cz.cuni.mff.spl.evaluator.statistics.StatisticValueChecker;
+import cz.cuni.mff.spl.evaluator.statistics.StatisticValueCheckerImpl;
+import cz.cuni.mff.spl.utils.logging.SplLog;
+import cz.cuni.mff.spl.utils.logging.SplLogger;
+
+/**
+ * <p>
+ * Evaluates formulas while measurement is still running. A formula is
+ * evaluated as soon as data of all measurements it compares are in the store
+ * and none of its samples is still being measured. Results are only logged,
+ * the complete evaluation with outputs is still done by {@link Evaluator}
+ * once measuring ends. Samples loaded here stay cached in the shared sample
+ * provider so that they are not loaded again by the complete evaluation.
+ */
+public class EarlyEvaluator {
+
+    private static final SplLog            logger    = SplLogger.getLogger(EarlyEvaluator.class);
+
+    /** The data provider used to check which measurements are stored. */
+    private final MeasurementDataProvider  dataProvider;
+
+    /** The evaluator sharing the sample provider of complete evaluation. */
+    private final EvaluatorImpl            evaluator;
+
+    /** Formulas not evaluated yet. */
+    private final List<FormulaDeclaration> waiting   = new ArrayList<>();
+
+    /** Samples which are being measured. */
+    private final Set<String>              measuring = new HashSet<>();
+
+    /**
+     * @param configuration
+     *            The configuration.
+     * @param info
+     *            The context with formulas to evaluate.
+     * @param dataProvider
+     *            The measurement data provider of the store.
+     * @param sampleProvider
+     *            The sample provider to be shared with complete evaluation.
+     */
+    public EarlyEvaluator(ConfigurationBundle configuration, Info info, MeasurementDataProvider dataProvider,
+            MeasurementSampleProvider sampleProvider) {
+        StatisticValueChecker checker = new StatisticValueCheckerImpl(configuration.getEvaluatorConfig());
+        this.dataProvider = dataProvider;
+        this.evaluator = new EvaluatorImpl(sampleProvider, checker, configuration.getEvaluatorConfig());
+
+        for (AnnotationLocation annotationLocation : info.getAnnotationLocations()) {
+            for (FormulaDeclaration formula : annotationLocation.getFormulas()) {
+                if (formula.hasDeclarationBeenParsedSuccessfully()) {
+                    waiting.add(formula);
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Marks the sample as being measured. Formulas comparing it are not
+     * evaluated until it is reported measured.
+     * 
+     * @param sample
+     *            The sample submitted for measuring.
+     */
+    public void measuring(SampleIdentification sample) {
+        measuring.add(sample.getIdentification());
+    }
+
+    /**
+     * <p>
+     * Marks the sample as measured and evaluates formulas which have all
+     * their data available. Failed sample is reported the same way, formulas
+     * comparing it then wait for data which never come and are left to the
+     * complete evaluation.
+     * 
+     * @param sample
+     *            The sample whose measurement has ended.
+     */
+    public void measured(SampleIdentification sample) {
+        measuring.remove(sample.getIdentification());
+
+        Iterator<FormulaDeclaration> iterator = waiting.iterator();
+        while (iterator.hasNext()) {
+            FormulaDeclaration formula = iterator.next();
+            if (isReady(formula.getFormula())) {
+                iterator.remove();
+                FormulaEvaluationResult result = evaluator.evaluateFormula(formula, NO_OUTPUT);
+                logger.info("Formula [%s] of [%s] evaluated early with result [%s].", formula.getImage(),
+                        formula.getAnnotationLocation().getBasicSignature(), result.getStatisticalResult());
+            }
+        }
+    }
+
+    /**
+     * @return
+     *         Number of formulas not evaluated yet.
+     */
+    public int getWaitingCount() {
+        return waiting.size();
+    }
+
+    /**
+     * <p>
+     * Checks that data of all comparisons in the formula are stored and that
+     * paired samples of the comparisons are not being measured.
+     * 
+     * @param formula
+     *            The formula to check.
+     * @return
+     *         True if the formula can be evaluated.
+     */
+    private boolean isReady(Formula formula) {
+        if (formula instanceof Expression) {
+            return isReady(((Expression) formula).getLeft()) && isReady(((Expression) formula).getRight());
+        }
+
+        if (formula instanceof Comparison) {
+            Measurement left = ((Comparison) formula).getLeftMeasurement();
+            Measurement right = ((Comparison) formula).getRightMeasurement();
+            return isStored(new SampleIdentification(left)) && isStored(new SampleIdentification(right))
+                    && !measuring.contains(new SampleIdentification(left, right).getIdentification())
+                    && !measuring.contains(new SampleIdentification(right, left).getIdentification());
+        }
+
+        return false;
+    }
+
+    /**
+     * @param sample
+     *            The sample to check.
+     * @return
+     *         True if the sample is not being measured and its data are
+     *         stored.
+     */
+    private boolean isStored(SampleIdentification sample) {
+        return !measuring.contains(sample.getIdentification()) && dataProvider.measurementExists(sample);
+    }
+
+    /** Evaluator output which ignores everything, results are only logged. */
+    private static final EvaluatorOutput NO_OUTPUT = new EvaluatorOutput() {
+        @Override
+        public void init(ConfigurationBundle configuration, Info context, StatisticValueChecker statisticValueChecker,
+                IStoreDirectory outputStoreDirectory) {
+        }
+
+        @Override
+        public void generateMeasurementOutput(MeasurementSample measurementSample) {
+        }
+
+        @Override
+        public void generateComparisonOutput(ComparisonEvaluationResult result) {
+        }
+
+        @Override
+        public void generateFormulaOutput(FormulaEvaluationResult formulaEvaluationResult) {
+        }
+
+        @Override
+        public void generateAnnotationOutput(AnnotationEvaluationResult annotationEvaluationResult) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+}
@@ -50,6 +50,7 @@ import cz.cuni.mff.spl.evaluator.statistics.ComparisonEvaluator;
 import cz.cuni.mff.spl.evaluator.statistics.ComparisonEvaluatorT;
 import cz.cuni.mff.spl.evaluator.statistics.ComparisonEvaluatorMWW;
 import cz.cuni.mff.spl.evaluator.statistics.ComparisonEvaluatorKS;
+import cz.cuni.mff.spl.evaluator.statistics.ComparisonEvaluatorPaired;
 import cz.cuni.mff.spl.evaluator.statistics.MeasurementSample;
 import cz.cuni.mff.spl.evaluator.statistics.StatisticValueChecker;
 
@@ -75,6 +76,9 @@ class EvaluatorImpl {
      The comparison evaluator for the Kolmogorov Smirnov test*/
      private final ComparisonEvaluatorKS        comparisonEvaluatorKS;
 
+    /** The comparison evaluator for the paired t test on paired measurements. */
+    private final ComparisonEvaluatorPaired     comparisonEvaluatorPaired;
+
    
 
     /**
@@ -92,6 +96,7 @@ class EvaluatorImpl {
         this.comparisonEvaluatorT = new ComparisonEvaluatorT(configuration, checker);
         this.comparisonEvaluatorMWW = new ComparisonEvaluatorMWW(configuration, checker);
         this.comparisonEvaluatorKS = new ComparisonEvaluatorKS(configuration, checker);
+        this.comparisonEvaluatorPaired = new ComparisonEvaluatorPaired(configuration, checker);
     }
 
     /**
@@ -133,7 +138,7 @@ class EvaluatorImpl {
      *            The output provider.
      * @return Formula evaluation result.
      */
-    private FormulaEvaluationResult evaluateFormula(FormulaDeclaration formulaDeclaration, EvaluatorOutput outputProvider) {
+    FormulaEvaluationResult evaluateFormula(FormulaDeclaration formulaDeclaration, EvaluatorOutput outputProvider) {
         InvokedExecutionConfiguration.checkIfExecutionAborted();
 
         EvaluationResult formulaResult = evaluateFormulaPart(formulaDeclaration.getFormula(), outputProvider);
@@ -225,8 +230,11 @@ class EvaluatorImpl {
         ComparisonResult comparisonResultT = comparisonEvaluatorT.evaluate(formula, leftSample, rightSample);
         ComparisonResult comparisonResultMWW = comparisonEvaluatorMWW.evaluate(formula, leftSample, rightSample);
         ComparisonResult comparisonResultKS = comparisonEvaluatorKS.evaluate(formula, leftSample, rightSample);
+        ComparisonResult comparisonResultPaired = comparisonEvaluatorPaired.evaluate(formula, leftSample, rightSample,
+                measurementSampleProvider.getPairedSamples(leftMeasurement, rightMeasurement));
         result = new ComparisonEvaluationResult(formula, comparisonResultT, comparisonResultMWW , comparisonResultKS, 
             leftSample, rightSample);
+        result.setComparisonResultPaired(comparisonResultPaired);
         outputProvider.generateComparisonOutput(result);
         releaseDataOnSamples(leftSample, rightSample);
 
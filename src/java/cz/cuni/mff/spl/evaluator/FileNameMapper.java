@@ -73,6 +73,19 @@ public class FileNameMapper {
         return "m-" + createPrefixProposal(measurement);
     }
 
+    /**
+     * Gets the file name prefix of paired measurement of two measurements.
+     * 
+     * @param measurement
+     *            The measurement measured first in pair.
+     * @param pairedMeasurement
+     *            The other measurement of pair.
+     * @return The paired measurement file name prefix. Never {@code null}.
+     */
+    public static String getPairedMeasurementFileNamePrefix(Measurement measurement, Measurement pairedMeasurement) {
+        return "p-" + createPrefixProposal(measurement) + createPrefixProposal(pairedMeasurement);
+    }
+
     /**
      * Gets the comparison file name prefix.
      * 
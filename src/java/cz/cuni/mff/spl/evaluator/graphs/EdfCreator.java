@@ -213,7 +213,7 @@ public class EdfCreator {
         String subtitle = samples.length == 1 ? samples[0].getSpecification() : "";
 
         final JFreeChart chart = createEdfGraph(String.format("Empirical Distribution (%s)", definition.getDataClipTypePrettyString()),
-                subtitle, data, "Execution time [ns]", "Cumulative Probability", samples.length != 1);
+                subtitle, data, GraphUtils.getValueAxisLabel(samples), "Cumulative Probability", samples.length != 1);
         return chart;
     }
 
@@ -43,6 +43,7 @@ import org.jfree.data.xy.XYSeries;
 import org.jfree.chart.plot.CategoryPlot;
 import org.jfree.chart.renderer.category.CategoryItemRenderer;
 
+import cz.cuni.mff.spl.annotation.Measurement;
 import cz.cuni.mff.spl.configuration.SplEvaluatorConfiguration;
 import cz.cuni.mff.spl.deploy.build.SampleIdentification;
 import cz.cuni.mff.spl.evaluator.input.MeasurementDataProvider.MeasurementDataNotFoundException;
@@ -92,6 +93,36 @@ public class GraphUtils {
         this.configuration = configuration;
     }
 
+    /**
+     * Gets the label of axis with sample values according to metric of
+     * samples. Values are execution times by configured time source unless
+     * samples are of other metric.
+     * 
+     * @param samples
+     *            The samples shown in graph.
+     * @return The axis label.
+     */
+    public static String getValueAxisLabel(MeasurementSampleDescriptor... samples) {
+        if (samples.length == 0 || samples[0].getMeasurementSample().getMeasurement() == null) {
+            return "Execution time [ns]";
+        }
+
+        switch (samples[0].getMeasurementSample().getMeasurement().getMetric()) {
+            case Measurement.METRIC_ALLOCATION:
+                return "Allocated memory [B]";
+            case Measurement.METRIC_WALL_TIME:
+                return "Wall clock time [ns]";
+            case Measurement.METRIC_CPU_TIME:
+                return "Thread CPU time [ns]";
+            case Measurement.METRIC_GC_TIME:
+                return "Garbage collection time [ns]";
+            case Measurement.METRIC_THROUGHPUT:
+                return "Throughput [calls/s]";
+            default:
+                return "Execution time [ns]";
+        }
+    }
+
     /**
      * Creates the series of points.
      * 
@@ -265,7 +265,7 @@ public class HistogramCreator {
         String subtitle = samples.length == 1 ? samples[0].getSpecification() : "";
 
         final JFreeChart chart = createHistogram(String.format("Histogram (%s)", definition.getDataClipTypePrettyString()),
-                subtitle, data, "Execution time [ns]", "Frequency", binCount, samples.length != 1);
+                subtitle, data, GraphUtils.getValueAxisLabel(samples), "Frequency", binCount, samples.length != 1);
         return chart;
     }
 
@@ -161,7 +161,7 @@ public class ProbabilityDensityGraphCreator {
 
         final JFreeChart chart = ChartFactory.createXYAreaChart(
                 String.format("Probability density comparison (%s)", definition.getDataClipTypePrettyString()),
-                "Execution time [ns]", "Probability density",
+                GraphUtils.getValueAxisLabel(samples), "Probability density",
                 dataset, PlotOrientation.VERTICAL, true, false, false);
 
         return finishChart(chart, cutYaxis, cutYaxisValue);
@@ -125,7 +125,7 @@ public class TimeGraphCreator {
         final JFreeChart chart =
                 ChartFactory.createScatterPlot(
                         String.format("Time diagram (%s)", graphDefinition.getDataClipTypePrettyString()),
-                        "Measurement number", "Execution time [ns]", dataset,
+                        "Measurement number", GraphUtils.getValueAxisLabel(samples), dataset,
                         PlotOrientation.VERTICAL, samples.length != 1, false, false);
 
         if (samples.length == 1) {
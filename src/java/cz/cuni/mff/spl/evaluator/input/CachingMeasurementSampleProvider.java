@@ -66,13 +66,32 @@ public class CachingMeasurementSampleProvider implements MeasurementSampleProvid
     public MeasurementSample getMeasurementSample(Measurement measurement) throws MeasurementDataNotFoundException {
         MeasurementSample sample = cachedSamples.get(measurement);
         if (sample == null) {
-            MeasurementSampleDataProvider sampleDataProvider = measurementDataProvider.getMeasurementData(new SampleIdentification(measurement));
+            MeasurementSampleDataProvider sampleDataProvider = measurementDataProvider.getMeasurementData(new SampleIdentification(measurement),
+                    measurement.getMetric());
             sample = new MeasurementSample(measurement, sampleDataProvider);
             cachedSamples.put(measurement, sample);
         }
         return sample;
     }
 
+    @Override
+    public double[][] getPairedSamples(Measurement left, Measurement right) {
+        try {
+            SampleIdentification pair = new SampleIdentification(left, right);
+            if (measurementDataProvider.measurementExists(pair)) {
+                return measurementDataProvider.loadPairedData(pair, left.getMetric());
+            }
+
+            SampleIdentification reversedPair = new SampleIdentification(right, left);
+            if (measurementDataProvider.measurementExists(reversedPair)) {
+                double[][] data = measurementDataProvider.loadPairedData(reversedPair, left.getMetric());
+                return new double[][] { data[1], data[0] };
+            }
+        } catch (MeasurementDataNotFoundException e) {
+        }
+        return null;
+    }
+
     @Override
     public MeasurementSample getInvalidMeasurementSample(Measurement measurement) {
         return MeasurementSample.createInvalidMeasurementSample(measurement, AnnotationPrettyPrinter.createMeasurementOutput(measurement));
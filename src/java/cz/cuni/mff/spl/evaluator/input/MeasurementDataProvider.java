@@ -58,6 +58,20 @@ public interface MeasurementDataProvider {
      */
     MeasurementSampleDataProvider getMeasurementData(SampleIdentification measurement) throws MeasurementDataNotFoundException;
 
+    /**
+     * Gets the measurement specific sample data of specified column. Samplers
+     * store time and possibly other metrics in separate columns.
+     * 
+     * @param measurement
+     *            The measurement to get data for.
+     * @param column
+     *            The column to get data of.
+     * @return The measurement data.
+     * @throws MeasurementDataNotFoundException
+     *             Thrown when the measurement data were not found.
+     */
+    MeasurementSampleDataProvider getMeasurementData(SampleIdentification measurement, String column) throws MeasurementDataNotFoundException;
+
     /**
      * Checks if measurement exists.
      * 
@@ -67,6 +81,21 @@ public interface MeasurementDataProvider {
      */
     boolean measurementExists(SampleIdentification identification);
 
+    /**
+     * Loads matched samples of paired measurement.
+     * 
+     * @param identification
+     *            The paired measurement identification.
+     * @param column
+     *            The column of the first measurement to get data of, the
+     *            other measurement's column is derived from it.
+     * @return Two arrays of the same length, samples of the first measurement
+     *         and matched samples of the other measurement of the pair.
+     * @throws MeasurementDataNotFoundException
+     *             Thrown when the paired measurement data were not found.
+     */
+    double[][] loadPairedData(SampleIdentification identification, String column) throws MeasurementDataNotFoundException;
+
     /**
      * The exception which is thrown by {@link MeasurementDataProvider} when no
      * data for specified measurement were not found.
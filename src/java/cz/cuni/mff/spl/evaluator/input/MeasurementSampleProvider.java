@@ -57,4 +57,19 @@ public interface MeasurementSampleProvider {
      * @return The invalid measurement sample.
      */
     MeasurementSample getInvalidMeasurementSample(Measurement measurement);
+
+    /**
+     * Gets matched samples of paired measurement of two measurements. Paired
+     * measurement of the pair in any order is accepted. Samples of the left
+     * measurement's metric are returned.
+     * 
+     * @param left
+     *            The left measurement.
+     * @param right
+     *            The right measurement.
+     * @return Samples of left measurement and matched samples of right
+     *         measurement or {@code null} when no paired measurement is
+     *         available.
+     */
+    double[][] getPairedSamples(Measurement left, Measurement right);
 }
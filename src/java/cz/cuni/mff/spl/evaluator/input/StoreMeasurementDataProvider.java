@@ -29,10 +29,12 @@ package cz.cuni.mff.spl.evaluator.input;
 
 import java.io.IOException;
 
+import org.apache.commons.math3.stat.StatUtils;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math3.stat.descriptive.StatisticalSummary;
 import org.apache.commons.math3.stat.descriptive.rank.Median;
 
+import cz.cuni.mff.spl.deploy.build.Code;
 import cz.cuni.mff.spl.deploy.build.SampleIdentification;
 import cz.cuni.mff.spl.deploy.store.IStore;
 import cz.cuni.mff.spl.deploy.store.IStoreReadonly;
@@ -82,9 +84,25 @@ public class StoreMeasurementDataProvider implements MeasurementDataProvider {
      */
     @Override
     public MeasurementSampleDataProvider getMeasurementData(SampleIdentification identification) throws MeasurementDataNotFoundException {
+        return getMeasurementData(identification, Code.COLUMN_TIME);
+    }
+
+    /**
+     * Gets the measurement data of specified column.
+     * 
+     * @param identification
+     *            The identification.
+     * @param column
+     *            The column.
+     * @return The measurement data.
+     * @throws MeasurementDataNotFoundException
+     *             The measurement data not found exception.
+     */
+    @Override
+    public MeasurementSampleDataProvider getMeasurementData(SampleIdentification identification, String column) throws MeasurementDataNotFoundException {
         try {
             if (this.store.measurementExists(identification)) {
-                return new MeasurementDataImpl(identification);
+                return new MeasurementDataImpl(identification, column);
             }
         } catch (StoreException e) {
             logger.debug(e, "Unable to load data for measurement sample [%s]", identification.getIdentification());
@@ -112,6 +130,27 @@ public class StoreMeasurementDataProvider implements MeasurementDataProvider {
         return false;
     }
 
+    /**
+     * Loads matched samples of paired measurement from the store.
+     * 
+     * @param identification
+     *            The paired measurement identification.
+     * @param column
+     *            The column of the first measurement.
+     * @return Samples of the first measurement and of the other one.
+     * @throws MeasurementDataNotFoundException
+     *             Thrown when the data were not found or are not paired.
+     */
+    @Override
+    public double[][] loadPairedData(SampleIdentification identification, String column) throws MeasurementDataNotFoundException {
+        try (MeasurementData data = new MeasurementData(this.store.loadMeasurement(identification))) {
+            return data.readColumns(column, Code.getPairedColumn(column));
+        } catch (StoreException | IOException e) {
+            logger.warn(e, "Unable to load data for paired measurement '%s'", identification.getIdentification());
+            throw new MeasurementDataNotFoundException(identification, e);
+        }
+    }
+
     /**
      * The Class MeasurementDataImpl.
      */
@@ -120,6 +159,9 @@ public class StoreMeasurementDataProvider implements MeasurementDataProvider {
         /** The identification. */
         private final SampleIdentification       identification;
 
+        /** The column with sample values. */
+        private final String                     column;
+
         /** The cache buffer. */
         private double[]                         cacheBuffer;
 
@@ -134,9 +176,12 @@ public class StoreMeasurementDataProvider implements MeasurementDataProvider {
          * 
          * @param identification
          *            The measurement sample identification.
+         * @param column
+         *            The column with sample values.
          */
-        public MeasurementDataImpl(SampleIdentification identification) {
+        public MeasurementDataImpl(SampleIdentification identification, String column) {
             this.identification = identification;
+            this.column = column;
         }
 
         /**
@@ -181,7 +226,7 @@ public class StoreMeasurementDataProvider implements MeasurementDataProvider {
          */
         private double[] loadMeasurementData(double lambdaMultiplier) throws MeasurementDataNotFoundException {
             try (MeasurementData data = new MeasurementData(StoreMeasurementDataProvider.this.store.loadMeasurement(identification))) {
-                double[] dataArray = data.readSamples(lambdaMultiplier);
+                double[] dataArray = readSamples(data, lambdaMultiplier);
 
                 if (Double.doubleToLongBits(lambdaMultiplier) == Double.doubleToLongBits(1)) {
                     if (statisticalSummary == null) {
@@ -198,6 +243,13 @@ public class StoreMeasurementDataProvider implements MeasurementDataProvider {
                         statisticalData.median = new Median().evaluate(dataArray);
                         statisticalData.minimum = statisticalSummary.getMin();
                         statisticalData.maximum = statisticalSummary.getMax();
+                        statisticalData.gcContaminatedCount = data.getGcContaminatedCount();
+                        setForkStatistics(statisticalData, dataArray, data.getForkSampleCounts());
+                        statisticalData.partial = data.isPartial();
+                        if (statisticalData.partial) {
+                            logger.warn("Measurement sample '%s' holds only partial results of sampler which did not finish.",
+                                    identification.getIdentification());
+                        }
                     }
                 }
                 return dataArray;
@@ -207,6 +259,63 @@ public class StoreMeasurementDataProvider implements MeasurementDataProvider {
             }
         }
 
+        /**
+         * Reads samples of the column. Time column is the first one and is
+         * also the only one in data without columns specification.
+         * 
+         * @param data
+         *            The measurement data to read.
+         * @param lambdaMultiplier
+         *            The lambda multiplier to apply.
+         * @return The samples.
+         * @throws IOException
+         *             When reading fails or column is not stored.
+         */
+        private double[] readSamples(MeasurementData data, double lambdaMultiplier) throws IOException {
+            if (Code.COLUMN_TIME.equals(column)) {
+                return data.readSamples(lambdaMultiplier);
+            }
+
+            double[] dataArray = data.readColumns(column)[0];
+            for (int i = 0; i < dataArray.length; ++i) {
+                dataArray[i] *= lambdaMultiplier;
+            }
+            return dataArray;
+        }
+
+        /**
+         * Computes statistics of fork means. Samples of forks are stored one
+         * fork after another.
+         * 
+         * @param statisticalData
+         *            The statistical data to set fork statistics to.
+         * @param dataArray
+         *            The measurement sample data.
+         * @param forkSampleCounts
+         *            The sample counts of forks.
+         */
+        private void setForkStatistics(MeasurementSampleStatisticalData statisticalData, double[] dataArray, long[] forkSampleCounts) {
+            DescriptiveStatistics forkMeans = new DescriptiveStatistics();
+            int offset = 0;
+            for (long count : forkSampleCounts) {
+                if (count <= 0 || offset + count > dataArray.length) {
+                    continue;
+                }
+                forkMeans.addValue(StatUtils.mean(dataArray, offset, (int) count));
+                offset += count;
+            }
+
+            if (forkMeans.getN() == 0) {
+                statisticalData.forkCount = 1;
+                statisticalData.forkMean = statisticalData.mean;
+                statisticalData.forkVariance = Double.NaN;
+            } else {
+                statisticalData.forkCount = forkMeans.getN();
+                statisticalData.forkMean = forkMeans.getMean();
+                statisticalData.forkVariance = forkMeans.getVariance();
+            }
+        }
+
         /**
          * Load raw data.
          * 
@@ -185,6 +185,12 @@ public class AnnotationPrettyPrinter {
         buffer.append(createGeneratorVariableOutput(measurement.getVariable()));
         buffer.append(')');
 
+        if (measurement.getThreads() != null) {
+            buffer.append(" {");
+            buffer.append(measurement.getThreads());
+            buffer.append('}');
+        }
+
         return buffer;
     }
 
@@ -94,10 +94,14 @@ public class SuspiciousMeasurementsResultDescriptor extends OutputResultDescript
             double stdVsMean = standardDeviation / mean;
             double median = measurementSample.getMedian();
             double medianVsMean = median / mean;
+            long gcContaminatedCount = measurementSample.getGcContaminatedCount();
+            boolean partial = measurementSample.isPartial();
 
             if (!(checker.isSampleCountAcceptable(sampleCount)
                     && checker.isStandardDeviationVsMeanAcceptable(stdVsMean)
-                    && checker.isMedianVsMeanAcceptable(medianVsMean))) {
+                    && checker.isMedianVsMeanAcceptable(medianVsMean)
+                    && gcContaminatedCount == 0
+                    && !partial)) {
 
                 String name = AnnotationPrettyPrinter.createMeasurementOutput(measurementSample.getMeasurement());
                 @SuppressWarnings("deprecation")
@@ -105,10 +109,11 @@ public class SuspiciousMeasurementsResultDescriptor extends OutputResultDescript
                 suspiciousMeasurements.add(new SuspiciousMeasurement(
                         id, name,
                         sampleCount, mean, standardDeviation,
-                        median, stdVsMean, medianVsMean,
+                        median, stdVsMean, medianVsMean, gcContaminatedCount,
                         !checker.isSampleCountAcceptable(sampleCount),
                         !checker.isStandardDeviationVsMeanAcceptable(stdVsMean),
-                        !checker.isMedianVsMeanAcceptable(medianVsMean)
+                        !checker.isMedianVsMeanAcceptable(medianVsMean),
+                        partial
                         ));
 
                 return true;
@@ -139,12 +144,16 @@ public class SuspiciousMeasurementsResultDescriptor extends OutputResultDescript
         private final double  stdVsMean;
         /** The median vs mean. */
         private final double  medianVsMean;
+        /** The count of samples measured while garbage collection occurred. */
+        private final long    gcContaminatedCount;
         /** The is sample count suspicious flag. */
         private final boolean isSampleCountSuspicious;
         /** The is std vs mean suspicious flag. */
         private final boolean isStdVsMeanSuspicious;
         /** The is median vs mean suspicious flag. */
         private final boolean isMedianVsMeanSuspicious;
+        /** The partial results flag. */
+        private final boolean partial;
 
         /**
          * Gets the reference id.
@@ -218,6 +227,28 @@ public class SuspiciousMeasurementsResultDescriptor extends OutputResultDescript
             return medianVsMean;
         }
 
+        /**
+         * Gets the count of samples measured while garbage collection
+         * occurred.
+         * 
+         * @return The count of samples measured while garbage collection
+         *         occurred.
+         */
+        public long getGcContaminatedCount() {
+            return gcContaminatedCount;
+        }
+
+        /**
+         * Checks if some samples were measured while garbage collection
+         * occurred.
+         * 
+         * @return True, if some samples were measured while garbage collection
+         *         occurred.
+         */
+        public boolean isGcContaminatedCountSuspicious() {
+            return gcContaminatedCount > 0;
+        }
+
         /**
          * Checks if sample count is suspicious.
          * 
@@ -245,6 +276,16 @@ public class SuspiciousMeasurementsResultDescriptor extends OutputResultDescript
             return isMedianVsMeanSuspicious;
         }
 
+        /**
+         * Checks if measurement holds only partial results of sampler which
+         * timed out or crashed.
+         * 
+         * @return True, if measurement holds partial results.
+         */
+        public boolean isPartial() {
+            return partial;
+        }
+
         /**
          * Instantiates a new overview node.
          * 
@@ -264,15 +305,21 @@ public class SuspiciousMeasurementsResultDescriptor extends OutputResultDescript
          *            The std vs mean.
          * @param medianVsMean
          *            The median vs mean.
+         * @param gcContaminatedCount
+         *            The count of samples measured while garbage collection
+         *            occurred.
          * @param isSampleCountSuspicious
          *            The is sample count suspicious flag.
          * @param isStdVsMeanSuspicious
          *            The is std vs mean suspicious flag.
          * @param isMedianVsMeanSuspicious
          *            The is median vs mean suspicious flag.
+         * @param partial
+         *            The partial results flag.
          */
         public SuspiciousMeasurement(String referenceId, String name, long sampleCount, double mean, double standardDeviation, double median, double stdVsMean,
-                double medianVsMean, boolean isSampleCountSuspicious, boolean isStdVsMeanSuspicious, boolean isMedianVsMeanSuspicious) {
+                double medianVsMean, long gcContaminatedCount, boolean isSampleCountSuspicious, boolean isStdVsMeanSuspicious,
+                boolean isMedianVsMeanSuspicious, boolean partial) {
             this.referenceId = referenceId;
             this.name = name;
             this.sampleCount = sampleCount;
@@ -281,9 +328,11 @@ public class SuspiciousMeasurementsResultDescriptor extends OutputResultDescript
             this.median = median;
             this.stdVsMean = stdVsMean;
             this.medianVsMean = medianVsMean;
+            this.gcContaminatedCount = gcContaminatedCount;
             this.isSampleCountSuspicious = isSampleCountSuspicious;
             this.isStdVsMeanSuspicious = isStdVsMeanSuspicious;
             this.isMedianVsMeanSuspicious = isMedianVsMeanSuspicious;
+            this.partial = partial;
         }
 
         @Override
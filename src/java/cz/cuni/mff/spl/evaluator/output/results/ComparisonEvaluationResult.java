@@ -29,6 +29,7 @@ package cz.cuni.mff.spl.evaluator.output.results;
 
 import cz.cuni.mff.spl.annotation.Comparison;
 import cz.cuni.mff.spl.evaluator.statistics.MeasurementSample;
+import cz.cuni.mff.spl.utils.EqualsUtils;
 
 /**
  * Result of comparison evaluation in SPL formula.
@@ -52,6 +53,12 @@ public class ComparisonEvaluationResult extends AbstractEvaluationResult {
 
     /** The comparison result performing a Kolmogorov Smirnov test.*/
     private ComparisonResult comparisonResultKS;
+
+    /**
+     * The comparison result performing a paired t test on paired measurement
+     * or {@code null} when not evaluated.
+     */
+    private ComparisonResult        comparisonResultPaired;
     
 
     /** The left measurement sample. */
@@ -112,6 +119,16 @@ public class ComparisonEvaluationResult extends AbstractEvaluationResult {
         return this.comparisonResultKS;
     }
 
+    /**
+     * Gets the paired t test comparison result.
+     * 
+     * @return The paired comparison result or {@code null} when not
+     *         evaluated.
+     */
+    public ComparisonResult getComparisonResultPaired() {
+        return this.comparisonResultPaired;
+    }
+
     public Comparison getComparison() {
         return this.comparison;
     }
@@ -137,6 +154,10 @@ public class ComparisonEvaluationResult extends AbstractEvaluationResult {
         return comparisonResultKS.getStatisticalResult();
     }
 
+    public StatisticalResult getStatisticalResultPaired() {
+        return comparisonResultPaired != null ? comparisonResultPaired.getStatisticalResult() : StatisticalResult.NOT_COMPUTED;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -145,6 +166,7 @@ public class ComparisonEvaluationResult extends AbstractEvaluationResult {
         result = prime * result + ((comparisonResultT == null) ? 0 : comparisonResultT.hashCode());
         result = prime * result + ((comparisonResultMWW == null) ? 0 : comparisonResultMWW.hashCode());
         result = prime * result + ((comparisonResultKS == null) ? 0 : comparisonResultKS.hashCode());
+        result = prime * result + ((comparisonResultPaired == null) ? 0 : comparisonResultPaired.hashCode());
         return result;
     }
 
@@ -158,6 +180,7 @@ public class ComparisonEvaluationResult extends AbstractEvaluationResult {
                     && otherResult.getComparisonResultT().equals(comparisonResultT)
                     && otherResult.getComparisonResultMWW().equals(comparisonResultMWW)
                     && otherResult.getComparisonResultKS().equals(comparisonResultKS)
+                    && EqualsUtils.safeEquals(otherResult.getComparisonResultPaired(), comparisonResultPaired)
                     && otherResult.getLeftMeasurementSample().equals(leftMeasurementSample)
                     && otherResult.getRightMeasurementSample().equals(rightMeasurementSample);
         } else {
@@ -226,6 +249,16 @@ public class ComparisonEvaluationResult extends AbstractEvaluationResult {
       }
      
 
+    /**
+     * Sets the paired t test comparison result.
+     * 
+     * @param comparisonResultPaired
+     *            The new paired comparison result.
+     */
+    public void setComparisonResultPaired(ComparisonResult comparisonResultPaired) {
+        this.comparisonResultPaired = comparisonResultPaired;
+    }
+
     /**
      * Sets the left measurement sample.
      * 
@@ -71,9 +71,9 @@ public abstract class ComparisonEvaluator {
         if (leftMeasurementSample.getMeasurement().getMeasurementState().isOk() && rightMeasurementSample.getMeasurement().getMeasurementState().isOk()) {
             if (leftMeasurementSample.getSampleCount() >= 2 && rightMeasurementSample.getSampleCount() >= 2) {
 
-                StatisticalSummary leftSummary = transformStatisticalSummary(leftMeasurementSample.getStatisticalSummary(),
+                StatisticalSummary leftSummary = transformStatisticalSummary(getComparedSummary(leftMeasurementSample, rightMeasurementSample),
                         getLambdaMultiplier(comparison.getLeftLambda()));
-                StatisticalSummary rightSummary = transformStatisticalSummary(rightMeasurementSample.getStatisticalSummary(),
+                StatisticalSummary rightSummary = transformStatisticalSummary(getComparedSummary(rightMeasurementSample, leftMeasurementSample),
                         getLambdaMultiplier(comparison.getRightLambda()));
 
 
@@ -166,6 +166,28 @@ public abstract class ComparisonEvaluator {
 
 
 
+    /**
+     * Gets the statistical summary to compare.
+     * <p>
+     * When both samples were measured in several forks, summary of fork means
+     * is used, so tests working with summaries account for variance between
+     * sampler runs instead of treating all samples as independent. Otherwise
+     * summary of all samples is used.
+     * 
+     * @param sample
+     *            The sample to get summary of.
+     * @param otherSample
+     *            The sample it is compared with.
+     * @return The statistical summary to compare.
+     */
+    public static StatisticalSummary getComparedSummary(MeasurementSample sample, MeasurementSample otherSample) {
+        StatisticalSummary forkSummary = sample.getForkStatisticalSummary();
+        if (forkSummary != null && otherSample.getForkStatisticalSummary() != null) {
+            return forkSummary;
+        }
+        return sample.getStatisticalSummary();
+    }
+
     /**
      * An abstract method which is over written in each subclass with the correct implementation
      * for processing comparisons 
@@ -0,0 +1,229 @@
+package cz.cuni.mff.spl.evaluator.statistics;
+
+import org.apache.commons.math3.stat.StatUtils;
+import org.apache.commons.math3.stat.descriptive.StatisticalSummary;
+import org.apache.commons.math3.stat.inference.TTest;
+
+import cz.cuni.mff.spl.annotation.Comparison;
+import cz.cuni.mff.spl.annotation.Sign;
+import cz.cuni.mff.spl.configuration.SplEvaluatorConfiguration;
+import cz.cuni.mff.spl.evaluator.output.results.ComparisonResult;
+
+/**
+ * <p>
+ * Processes comparison evaluation of paired measurement using a paired t-test
+ * on log ratios.
+ *
+ * <p>
+ * Paired measurement measures both sides of the comparison by single sampler
+ * in the same cycles, so i-th samples of both sides were affected by the same
+ * conditions. Logarithm of ratio of matched samples is tested against zero,
+ * which makes the test sensitive to relative differences and removes common
+ * drift of both sides.
+ */
+public class ComparisonEvaluatorPaired extends ComparisonEvaluator {
+
+    /** The TTest singleton instance to be used. */
+    private static final TTest TTEST = new TTest();
+
+    /**
+     * Instantiates a new paired comparison evaluator.
+     *
+     * @param configuration
+     *            The configuration.
+     * @param checker
+     */
+    public ComparisonEvaluatorPaired(SplEvaluatorConfiguration configuration, StatisticValueChecker checker) {
+        super(configuration, checker);
+    }
+
+    /**
+     * Paired test can't be computed from independent samples.
+     *
+     * @see #evaluate(Comparison, MeasurementSample, MeasurementSample,
+     *      double[][])
+     */
+    @Override
+    public ComparisonResult evaluate(Comparison comparison, MeasurementSample leftMeasurementSample, MeasurementSample rightMeasurementSample) {
+        return evaluate(comparison, leftMeasurementSample, rightMeasurementSample, null);
+    }
+
+    /**
+     * Evaluates comparison on matched samples of paired measurement. Applies
+     * lambda function on samples.
+     *
+     * @param comparison
+     *            The comparison.
+     * @param leftMeasurementSample
+     *            The left measurement sample.
+     * @param rightMeasurementSample
+     *            The right measurement sample.
+     * @param pairedData
+     *            Matched samples of left and right measurement or
+     *            {@code null} when no paired measurement is available.
+     * @return The comparison result.
+     */
+    public ComparisonResult evaluate(Comparison comparison, MeasurementSample leftMeasurementSample, MeasurementSample rightMeasurementSample,
+            double[][] pairedData) {
+        if (pairedData == null) {
+            return ComparisonResult.createNotComputedComparisonResult("No paired measurement available.");
+        }
+        if (!leftMeasurementSample.getMeasurement().getMeasurementState().isOk() || !rightMeasurementSample.getMeasurement().getMeasurementState().isOk()) {
+            return ComparisonResult.createNotComputedComparisonResult("Measurements are not prepared for evaluation.");
+        }
+
+        double[] left = transformMeasuredArray(pairedData[0].clone(), getLambdaMultiplier(comparison.getLeftLambda()));
+        double[] right = transformMeasuredArray(pairedData[1].clone(), getLambdaMultiplier(comparison.getRightLambda()));
+
+        return processComparison(comparison, left, right, null, null, Double.NaN, Double.NaN, comparison.getSign());
+    }
+
+    @Override
+    public ComparisonResult processComparison(Comparison comparison,
+            double[] dataArray1, double[] dataArray2, StatisticalSummary measuredData1,
+            StatisticalSummary measuredData2, double median1, double median2, Sign comparisonType) {
+
+        double[] logRatios = computeLogRatios(dataArray1, dataArray2);
+        if (comparisonType == Sign.EQI) {
+            return processIntervalEqualityComparison(comparison, logRatios);
+        }
+        return processComparison(logRatios, comparisonType);
+    }
+
+    @Override
+    public ComparisonResult processIntervalEqualityComparison(Comparison comparison,
+            double[] dataArray2, double[] dataArray1, StatisticalSummary measuredData2,
+            StatisticalSummary measuredData1, double median2, double median1) {
+
+        return processIntervalEqualityComparison(comparison, computeLogRatios(dataArray1, dataArray2));
+    }
+
+    /**
+     * Computes logarithms of ratios of matched samples. Pairs with
+     * non-positive sample are skipped as their ratio is not defined.
+     *
+     * @param left
+     *            The left samples.
+     * @param right
+     *            The right samples matched by index.
+     * @return The log ratios.
+     */
+    private static double[] computeLogRatios(double[] left, double[] right) {
+        int count = Math.min(left.length, right.length);
+        double[] result = new double[count];
+        int valid = 0;
+        for (int i = 0; i < count; ++i) {
+            if (left[i] > 0 && right[i] > 0) {
+                result[valid++] = Math.log(left[i] / right[i]);
+            }
+        }
+        if (valid == count) {
+            return result;
+        }
+        double[] trimmed = new double[valid];
+        System.arraycopy(result, 0, trimmed, 0, valid);
+        return trimmed;
+    }
+
+    /**
+     * Returns log ratios shifted by constant. Shifting log ratio equals
+     * multiplying left side samples.
+     */
+    private static double[] shift(double[] logRatios, double shift) {
+        double[] result = new double[logRatios.length];
+        for (int i = 0; i < logRatios.length; ++i) {
+            result[i] = logRatios[i] + shift;
+        }
+        return result;
+    }
+
+    /**
+     * Processes comparison using one sample t-test of log ratios against zero.
+     *
+     * @param logRatios
+     *            Logarithms of left to right sample ratios.
+     * @param comparisonType
+     *            The comparison type.
+     * @return The comparison result with result and p-value.
+     */
+    private ComparisonResult processComparison(double[] logRatios, Sign comparisonType) {
+        if (logRatios.length < 2) {
+            return ComparisonResult.createNotComputedComparisonResult("Not enough matched samples for paired t-test.");
+        }
+
+        switch (comparisonType) {
+            case GE:
+                // just negate ratios and test for LE
+                return processComparison(negate(logRatios), Sign.LE);
+            case GT:
+                // just negate ratios and test for LT
+                return processComparison(negate(logRatios), Sign.LT);
+            case LE: {
+                ComparisonResult lt = processComparison(logRatios, Sign.LT);
+                ComparisonResult eq = processComparison(logRatios, Sign.EQ);
+
+                if (lt.isSatisfied() && eq.isSatisfied()) {
+                    return new ComparisonResult(Math.max(lt.getPValue(), eq.getPValue()), true);
+                } else if (lt.isSatisfied()) {
+                    return lt;
+                } else {
+                    return eq;
+                }
+            }
+            case LT:
+                if (StatUtils.mean(logRatios) < 0) {
+                    // one sided test, the mean is in correct relation
+                    double pValueNegate = TTEST.tTest(0, logRatios) / 2.0;
+                    return new ComparisonResult(pValueNegate, !confidenceChecker.isPvalueAcceptable(pValueNegate));
+                } else {
+                    // mean is not in correct relation => it is certain
+                    return new ComparisonResult(0, false);
+                }
+            case EQ:
+                double pValue = TTEST.tTest(0, logRatios);
+                return new ComparisonResult(pValue, confidenceChecker.isPvalueAcceptable(pValue));
+            default:
+                throw new IllegalStateException("Unexpected switch value " + comparisonType.toString());
+        }
+    }
+
+    /**
+     * Process interval equality comparison on log ratios.
+     *
+     * @param comparison
+     *            The comparison.
+     * @param logRatios
+     *            Logarithms of left to right sample ratios.
+     * @return The comparison result.
+     */
+    private ComparisonResult processIntervalEqualityComparison(Comparison comparison, double[] logRatios) {
+        Double interval = comparison.getInterval();
+        interval = interval != null ? interval : configuration.getEqualityInterval();
+
+        double lowerShift = Math.log((1.0d - interval) / (1.0d + interval));
+        double greaterShift = Math.log((1.0d + interval) / (1.0d - interval));
+
+        ComparisonResult lowerResult = processComparison(shift(logRatios, lowerShift), Sign.LE);
+        ComparisonResult greaterResult = processComparison(shift(logRatios, greaterShift), Sign.GE);
+
+        // combine results if satisfied, or return the one that failed
+        if (lowerResult.isSatisfied() && greaterResult.isSatisfied()) {
+            return new ComparisonResult(Math.min(lowerResult.getPValue(), greaterResult.getPValue()), true);
+        } else if (lowerResult.isSatisfied()) {
+            return greaterResult;
+        } else {
+            return lowerResult;
+        }
+    }
+
+    /**
+     * Returns negated log ratios, that is log ratios of right to left.
+     */
+    private static double[] negate(double[] logRatios) {
+        double[] result = new double[logRatios.length];
+        for (int i = 0; i < logRatios.length; ++i) {
+            result[i] = -logRatios[i];
+        }
+        return result;
+    }
+}
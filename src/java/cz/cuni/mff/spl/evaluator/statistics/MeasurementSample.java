@@ -309,6 +309,51 @@ public class MeasurementSample extends AbstractXmlTransformationReference {
         statisticalData.maximum = maximum;
     }
 
+    /**
+     * Gets the count of samples measured while garbage collection occurred.
+     * 
+     * @return statisticalData.The count of samples measured while garbage
+     *         collection occurred.
+     */
+    public long getGcContaminatedCount() {
+        return statisticalData.gcContaminatedCount;
+    }
+
+    /**
+     * Gets the count of forks (separate sampler runs) merged into the sample.
+     * 
+     * @return The count of forks merged into the sample.
+     */
+    public long getForkCount() {
+        return statisticalData.forkCount;
+    }
+
+    /**
+     * Checks whether the sample holds only partial results of sampler which
+     * timed out or crashed.
+     * 
+     * @return True if the sample holds partial results.
+     */
+    public boolean isPartial() {
+        return statisticalData.partial;
+    }
+
+    /**
+     * Gets the statistical summary of fork means, i. e. sample where each
+     * value is mean of one fork. Variance of such sample includes variance
+     * between sampler runs which is not visible within one run.
+     * 
+     * @return The statistical summary of fork means or {@code null} when
+     *         sample was not measured in at least two forks.
+     */
+    public StatisticalSummary getForkStatisticalSummary() {
+        if (statisticalData.forkCount < 2 || Double.isNaN(statisticalData.forkVariance)) {
+            return null;
+        }
+        return new StatisticalSummaryValues(statisticalData.forkMean, statisticalData.forkVariance, statisticalData.forkCount,
+                statisticalData.maximum, statisticalData.minimum, statisticalData.forkMean * statisticalData.forkCount);
+    }
+
     /**
      * Gets the statistical data.
      * 
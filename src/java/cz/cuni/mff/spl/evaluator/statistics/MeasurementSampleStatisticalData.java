@@ -64,6 +64,21 @@ public class MeasurementSampleStatisticalData {
     /** The maximum. Should not be changed manually. */
     public double maximum;
 
+    /** The count of samples measured while garbage collection occurred. */
+    public long   gcContaminatedCount;
+
+    /** The count of forks (separate sampler runs) merged into the sample. */
+    public long   forkCount = 1;
+
+    /** The mean of fork means. Should not be changed manually. */
+    public double forkMean;
+
+    /** The sample variance of fork means. Should not be changed manually. */
+    public double forkVariance;
+
+    /** Whether the sample holds only partial results of unfinished sampler. */
+    public boolean partial;
+
     /**
      * Gets the sample count.
      * 
@@ -236,6 +251,104 @@ public class MeasurementSampleStatisticalData {
         this.maximum = maximum;
     }
 
+    /**
+     * Gets the count of samples measured while garbage collection occurred.
+     * 
+     * @return The count of samples measured while garbage collection occurred.
+     */
+    public long getGcContaminatedCount() {
+        return gcContaminatedCount;
+    }
+
+    /**
+     * Sets the count of samples measured while garbage collection occurred.
+     * 
+     * @param gcContaminatedCount
+     *            The new count of samples measured while garbage collection
+     *            occurred.
+     */
+    public void setGcContaminatedCount(long gcContaminatedCount) {
+        this.gcContaminatedCount = gcContaminatedCount;
+    }
+
+    /**
+     * Gets the count of forks merged into the sample.
+     * 
+     * @return The count of forks merged into the sample.
+     */
+    public long getForkCount() {
+        return forkCount;
+    }
+
+    /**
+     * Sets the count of forks merged into the sample.
+     * 
+     * @param forkCount
+     *            The new count of forks merged into the sample.
+     */
+    public void setForkCount(long forkCount) {
+        this.forkCount = forkCount;
+    }
+
+    /**
+     * Checks whether the sample holds only partial results of sampler which
+     * did not finish.
+     * 
+     * @return True if the sample holds partial results.
+     */
+    public boolean getPartial() {
+        return partial;
+    }
+
+    /**
+     * Sets whether the sample holds only partial results of sampler which did
+     * not finish.
+     * 
+     * @param partial
+     *            True if the sample holds partial results.
+     */
+    public void setPartial(boolean partial) {
+        this.partial = partial;
+    }
+
+    /**
+     * Gets the mean of fork means.
+     * 
+     * @return The mean of fork means.
+     */
+    public double getForkMean() {
+        return forkMean;
+    }
+
+    /**
+     * Sets the mean of fork means.
+     * 
+     * @param forkMean
+     *            The new mean of fork means.
+     */
+    public void setForkMean(double forkMean) {
+        this.forkMean = forkMean;
+    }
+
+    /**
+     * Gets the sample variance of fork means.
+     * 
+     * @return The sample variance of fork means.
+     */
+    public double getForkVariance() {
+        return forkVariance;
+    }
+
+    /**
+     * Sets the sample variance of fork means.
+     * 
+     * @param forkVariance
+     *            The new sample variance of fork means.
+     */
+    public void setForkVariance(double forkVariance) {
+        this.forkVariance = forkVariance;
+    }
+
     @Override
     public String toString() {
         return "MeasurementSampleStatisticalData [sampleCount=" + sampleCount + ", variance=" + variance + ", standardDeviation=" + standardDeviation
@@ -39,6 +39,7 @@ import java.io.OutputStream;
 import java.nio.channels.FileChannel;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
@@ -331,11 +332,12 @@ public class FileUtils {
      */
     public static void deleteAll(File file)
             throws IOException {
-        if (file == null || !file.exists()) {
+        if (file == null || !Files.exists(file.toPath(), LinkOption.NOFOLLOW_LINKS)) {
             return;
         }
 
-        if (file.isDirectory()) {
+        // linked directories (e.g. shared dependencies) are not emptied
+        if (file.isDirectory() && !Files.isSymbolicLink(file.toPath())) {
             for (File f : file.listFiles()) {
                 deleteAll(f);
             }
@@ -347,7 +349,7 @@ public class FileUtils {
          * for git's object, pack and idx files. Therefore it's needed to
          * firstly set them writeable.
          */
-        if (!file.isDirectory()) {
+        if (!file.isDirectory() && !Files.isSymbolicLink(file.toPath())) {
             if (!file.setWritable(true, false)) {
                 throw new IOException(String.format("Failed to change file to writeable [%s].", file));
             }
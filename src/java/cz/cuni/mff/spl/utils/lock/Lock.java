@@ -87,6 +87,24 @@ public class Lock implements AutoCloseable {
      *         The lock on the file.
      */
     public static Lock tryLock(File lockFile) {
+        return tryLock(lockFile, false);
+    }
+
+    /**
+     * <p>
+     * Tries to lock the file specified. Shared lock can be held by several
+     * processes at once but excludes exclusive lock. {@link Lock#isLocked()}
+     * must be checked if lock was successfully acquired. Always returns valid
+     * object.
+     * 
+     * @param lockFile
+     *            The file to lock.
+     * @param shared
+     *            Whether to acquire shared lock instead of exclusive.
+     * @return
+     *         The lock on the file.
+     */
+    public static Lock tryLock(File lockFile, boolean shared) {
         final String lockType = "rw";
 
         RandomAccessFile access = null;
@@ -94,7 +112,7 @@ public class Lock implements AutoCloseable {
         try {
             access = new RandomAccessFile(lockFile, lockType);
             channel = access.getChannel();
-            FileLock lock = channel.tryLock();
+            FileLock lock = channel.tryLock(0L, Long.MAX_VALUE, shared);
 
             if (lock != null) {
                 logger.trace("Successfully acquired lock on [%s].", lockFile);
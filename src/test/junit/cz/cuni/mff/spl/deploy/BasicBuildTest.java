@@ -27,9 +27,13 @@
  */
 package cz.cuni.mff.spl.deploy;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.log4j.Level;
@@ -40,9 +44,14 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import cz.cuni.mff.spl.annotation.Machine;
+import cz.cuni.mff.spl.annotation.Measurement;
+import cz.cuni.mff.spl.configuration.ConfigurationBundle;
 import cz.cuni.mff.spl.deploy.build.Builder;
+import cz.cuni.mff.spl.deploy.build.BuilderContext;
+import cz.cuni.mff.spl.deploy.build.BuilderScanner;
 import cz.cuni.mff.spl.deploy.build.Sampler;
 import cz.cuni.mff.spl.deploy.store.LocalStore;
+import cz.cuni.mff.spl.deploy.store.StoreUtils;
 
 /**
  * 
@@ -52,9 +61,11 @@ import cz.cuni.mff.spl.deploy.store.LocalStore;
 public class BasicBuildTest {
 
     @Rule
-    public TemporaryFolder folder = new TemporaryFolder();
+    public TemporaryFolder folder     = new TemporaryFolder();
 
-    private final File     xml    = new File("src/test/projects/test-basic/spl.xml");
+    private final File     xml        = new File("src/test/projects/test-basic/spl.xml");
+    /** Project whose BROKEN revision fails to build. */
+    private final File     failingXml = new File("src/test/projects/build-test-failing-revision/spl.xml");
 
     @Before
     public void init() {
@@ -75,4 +86,82 @@ public class BasicBuildTest {
             fail("No sampling code built.");
         }
     }
+
+    @Test
+    public void testParallelBuildKeepsOrder()
+            throws Exception {
+        List<String> sequential = build("sequential", 1);
+        List<String> parallel = build("parallel", 4);
+
+        assertEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testFingerprintsRecorded()
+            throws Exception {
+        File root = folder.newFolder("store");
+        LocalStore store = new LocalStore(root);
+
+        ConfigurationBundle config = Utils.createTestConfig();
+        config.getDeploymentConfig().setFingerprintReuse(true);
+
+        Builder builder = new Builder(store, new Machine("test", "test"), xml, null, config);
+        builder.call();
+
+        assertTrue(new File(root, StoreUtils.FINGERPRINTS).list().length > 0);
+        assertEquals(build("plain", 1).size(), builder.getSamplers().size());
+    }
+
+    @Test
+    public void testFailedRevisionBuild()
+            throws Exception {
+        LocalStore store = new LocalStore(folder.newFolder("store"));
+
+        ConfigurationBundle config = Utils.createTestConfig();
+        config.getDeploymentConfig().setRevisionThreads(2);
+
+        File outputDirectory = store.createTemporaryDirectory(Builder.OUTPUT_DIR_NAME);
+        File sourceCodeDirectory = new File(outputDirectory, Builder.SOURCE_CODE_DIR_NAME);
+
+        BuilderScanner scanner = new BuilderScanner(failingXml, new Machine("test", "test"), outputDirectory, sourceCodeDirectory, null, config,
+                store.getLocalStoreRootDirectory());
+        scanner.call();
+
+        BuilderContext context = new BuilderContext(scanner.getInfo(), store, failingXml, sourceCodeDirectory, scanner.getRepository(),
+                scanner.getRevision(), null, config, store.getLocalStoreRootDirectory());
+        context.call();
+
+        assertEquals(2, context.getUnableToMeasure().size());
+        for (Measurement measurement : context.getUnableToMeasure()) {
+            assertEquals("BROKEN", measurement.getMethod().getRevision().getProject().getAlias());
+        }
+
+        assertEquals(2, context.getNotMeasured().size());
+        for (Measurement measurement : context.getNotMeasured()) {
+            assertEquals("METHOD", measurement.getMethod().getRevision().getProject().getAlias());
+            assertNotNull(context.getRevisionMap().get(measurement.getMethod().getRevision()));
+        }
+
+        Builder builder = new Builder(store, new Machine("test", "test"), failingXml, null, config);
+        builder.call();
+
+        assertEquals(2, builder.getSamplers().size());
+    }
+
+    private List<String> build(String name, int buildThreads)
+            throws Exception {
+        LocalStore store = new LocalStore(folder.newFolder(name));
+
+        ConfigurationBundle config = Utils.createTestConfig();
+        config.getDeploymentConfig().setBuildThreads(buildThreads);
+
+        Builder builder = new Builder(store, new Machine("test", "test"), xml, null, config);
+        builder.call();
+
+        List<String> identifications = new LinkedList<>();
+        for (Sampler sampler : builder.getSamplers()) {
+            identifications.add(sampler.getIdentification().getFileNamePrefix());
+        }
+        return identifications;
+    }
 }
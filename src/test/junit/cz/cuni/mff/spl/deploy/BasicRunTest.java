@@ -27,10 +27,7 @@
  */
 package cz.cuni.mff.spl.deploy;
 
-import static org.junit.Assert.fail;
-
 import java.io.File;
-import java.util.List;
 
 import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
@@ -39,12 +36,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
-import cz.cuni.mff.spl.annotation.Info;
-import cz.cuni.mff.spl.annotation.Machine;
 import cz.cuni.mff.spl.deploy.build.Builder;
-import cz.cuni.mff.spl.deploy.build.Sampler;
-import cz.cuni.mff.spl.deploy.execution.run.IExecution;
-import cz.cuni.mff.spl.deploy.execution.run.LocalExecution;
 import cz.cuni.mff.spl.deploy.store.LocalStore;
 
 /**
@@ -69,26 +61,7 @@ public class BasicRunTest {
             throws Exception {
         LocalStore store = new LocalStore(folder.newFolder("store"));
 
-        Builder builder = new Builder(store, new Machine("test", "test"), xml, null, Utils.createTestConfig());
-        builder.call();
-
-        List<Sampler> samplers = builder.getSamplers();
-        Info info = builder.getInfo();
-
-        if (samplers.isEmpty()) {
-            fail("No sampling code built.");
-        }
-
-        File executionDirectory = store.createTemporaryDirectory("execution");
-        try (IExecution execution = new LocalExecution(info, samplers, executionDirectory, Utils.createTestConfig())) {
-
-            execution.start();
-
-            execution.waitForFinished();
-
-            if (!execution.isSuccessful()) {
-                fail("Execution has not finished successfully.");
-            }
-        }
+        Builder builder = Utils.build(store, xml, Utils.createTestConfig());
+        Utils.run(store, builder, Utils.createTestConfig()).close();
     }
 }
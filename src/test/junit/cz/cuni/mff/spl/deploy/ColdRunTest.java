@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cz.cuni.mff.spl.configuration.ConfigurationBundle;
+import cz.cuni.mff.spl.configuration.SplDeploymentConfiguration;
+import cz.cuni.mff.spl.deploy.build.Builder;
+import cz.cuni.mff.spl.deploy.build.Code;
+import cz.cuni.mff.spl.deploy.build.Sampler;
+import cz.cuni.mff.spl.deploy.execution.run.IExecution;
+import cz.cuni.mff.spl.deploy.store.LocalStore;
+import cz.cuni.mff.spl.deploy.store.utils.MeasurementData;
+
+/**
+ * Checks that cold start is measured in separate launches of sampler which
+ * are merged into one measurement with single sample per launch.
+ */
+public class ColdRunTest {
+
+    private static final int LAUNCHES    = 3;
+
+    private static final int INVOCATIONS = 4;
+
+    @Rule
+    public TemporaryFolder   folder      = new TemporaryFolder();
+
+    private final File       xml         = new File("src/test/projects/test-sink/spl.xml");
+
+    @Before
+    public void init() {
+        LogManager.getRootLogger().setLevel(Level.FATAL);
+    }
+
+    private static ConfigurationBundle createConfig() {
+        SplDeploymentConfiguration deployment = new SplDeploymentConfiguration(true, true, true, "java", "", 2000, 5, 20, 5, 60, "nanotime");
+        deployment.setMeasurementMode(Code.MEASUREMENT_MODE_COLD);
+        deployment.setColdInvocations(INVOCATIONS);
+        deployment.setForks(LAUNCHES);
+        return Utils.createTestConfig(deployment);
+    }
+
+    @Test
+    public void test()
+            throws Exception {
+        ConfigurationBundle config = createConfig();
+
+        LocalStore store = new LocalStore(folder.newFolder("store"));
+        Builder builder = Utils.build(store, xml, config);
+
+        try (IExecution execution = Utils.run(store, builder, config)) {
+            for (Sampler sampler : builder.getSamplers()) {
+                try (MeasurementData data = new MeasurementData(execution.getResult(sampler.getIdentification()))) {
+                    assertEquals(INVOCATIONS, data.getColdInvocations());
+                    assertEquals(Code.WARMUP_END_NONE, data.getWarmupEnd());
+                    assertEquals(LAUNCHES, data.getForkCount());
+                    assertArrayEquals(new long[] { 1, 1, 1 }, data.getForkSampleCounts());
+
+                    String[] names = new String[INVOCATIONS + 2];
+                    names[0] = Code.COLUMN_TIME;
+                    names[1] = Code.COLUMN_LOAD_TIME;
+                    for (int i = 0; i < INVOCATIONS; ++i) {
+                        names[i + 2] = Code.getInvocationColumn(i);
+                    }
+                    double[][] columns = data.readColumns(names);
+                    assertEquals(LAUNCHES, columns[0].length);
+
+                    // sample is loading and all invocations of single launch
+                    for (int launch = 0; launch < LAUNCHES; ++launch) {
+                        double sum = 0;
+                        for (int i = 1; i < columns.length; ++i) {
+                            assertTrue(columns[i][launch] > 0);
+                            sum += columns[i][launch];
+                        }
+                        assertEquals(columns[0][launch], sum, 0);
+                    }
+                }
+            }
+        }
+    }
+}
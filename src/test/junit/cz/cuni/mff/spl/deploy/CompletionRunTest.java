@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cz.cuni.mff.spl.deploy.build.Builder;
+import cz.cuni.mff.spl.deploy.build.Sampler;
+import cz.cuni.mff.spl.deploy.exception.DeployException;
+import cz.cuni.mff.spl.deploy.execution.run.IExecution;
+import cz.cuni.mff.spl.deploy.store.LocalStore;
+import cz.cuni.mff.spl.deploy.store.exception.StoreException;
+
+/**
+ * Checks that each finished sampler is reported exactly once while waiting
+ * for the execution or checking finished samplers and that its result can be
+ * stored right away.
+ */
+public class CompletionRunTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final File     xml    = new File("src/test/projects/test-basic/spl.xml");
+
+    @Before
+    public void init() {
+        LogManager.getRootLogger().setLevel(Level.FATAL);
+    }
+
+    @Test(timeout = 300000)
+    public void test()
+            throws Exception {
+        LocalStore store = new LocalStore(folder.newFolder("store"));
+        Builder builder = Utils.build(store, xml, Utils.createTestConfig());
+        List<Sampler> samplers = builder.getSamplers();
+
+        List<Sampler> finished = new ArrayList<>();
+
+        try (IExecution execution = Utils.createExecution(store, builder, samplers, Utils.createTestConfig())) {
+            execution.setCompletionListener(createListener(execution, store, finished));
+
+            execution.start();
+            Utils.waitForSuccess(execution);
+        }
+
+        checkFinished(store, samplers, finished);
+    }
+
+    @Test(timeout = 300000)
+    public void testCheckFinished()
+            throws Exception {
+        LocalStore store = new LocalStore(folder.newFolder("store"));
+        Builder builder = Utils.build(store, xml, Utils.createTestConfig());
+        List<Sampler> samplers = builder.getSamplers();
+
+        List<Sampler> finished = new ArrayList<>();
+
+        try (IExecution execution = Utils.createExecution(store, builder, new ArrayList<Sampler>(), Utils.createTestConfig())) {
+            execution.setCompletionListener(createListener(execution, store, finished));
+
+            execution.open();
+
+            Sampler first = samplers.get(0);
+            execution.submit(first);
+
+            // the first sampler is reported while submission is not finished
+            while (finished.isEmpty()) {
+                Thread.sleep(100);
+                execution.checkFinished();
+            }
+            assertEquals(first, finished.get(0));
+
+            for (Sampler sampler : samplers.subList(1, samplers.size())) {
+                execution.submit(sampler);
+            }
+            execution.finishSubmission();
+
+            Utils.waitForSuccess(execution);
+        }
+
+        checkFinished(store, samplers, finished);
+    }
+
+    private static IExecution.CompletionListener createListener(final IExecution execution, final LocalStore store, final List<Sampler> finished) {
+        return new IExecution.CompletionListener() {
+            @Override
+            public void samplerFinished(Sampler sampler)
+                    throws DeployException {
+                finished.add(sampler);
+                try (InputStream result = execution.getResult(sampler.getIdentification())) {
+                    store.saveMeasurement(result, sampler.getIdentification());
+                } catch (IOException | StoreException e) {
+                    throw new DeployException(e);
+                }
+            }
+        };
+    }
+
+    private static void checkFinished(LocalStore store, List<Sampler> samplers, List<Sampler> finished)
+            throws StoreException {
+        assertEquals(samplers.size(), finished.size());
+        for (Sampler sampler : samplers) {
+            assertTrue(finished.contains(sampler));
+            assertTrue(store.measurementExists(sampler.getIdentification()));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cz.cuni.mff.spl.configuration.ConfigurationBundle;
+import cz.cuni.mff.spl.configuration.SplDeploymentConfiguration;
+import cz.cuni.mff.spl.deploy.build.Builder;
+import cz.cuni.mff.spl.deploy.build.Code;
+import cz.cuni.mff.spl.deploy.build.Sampler;
+import cz.cuni.mff.spl.deploy.execution.run.IExecution;
+import cz.cuni.mff.spl.deploy.store.LocalStore;
+import cz.cuni.mff.spl.deploy.store.utils.MeasurementData;
+
+/**
+ * Checks that measurements with count of threads are sampled by concurrent
+ * sampler which stores time of each thread, calls of all threads and
+ * throughput.
+ */
+public class ConcurrentRunTest {
+
+    /** Calls of measured method by single thread in one cycle. */
+    private static final int CALLS  = 10;
+
+    @Rule
+    public TemporaryFolder   folder = new TemporaryFolder();
+
+    private final File       xml    = new File("src/test/projects/test-concurrent/spl.xml");
+
+    @Before
+    public void init() {
+        LogManager.getRootLogger().setLevel(Level.FATAL);
+    }
+
+    @Test
+    public void test()
+            throws Exception {
+        ConfigurationBundle config = Utils.createTestConfig(
+                new SplDeploymentConfiguration(true, true, true, "java", "", 200, 5, 50, 5, 60, "nanotime"));
+
+        LocalStore store = new LocalStore(folder.newFolder("store"));
+        Builder builder = Utils.build(store, xml, config);
+
+        // one sampler for each count of threads, concurrent ones are not paired
+        List<Sampler> samplers = builder.getSamplers();
+        assertEquals("Sampling code of both measurements not built.", 2, samplers.size());
+
+        try (IExecution execution = Utils.run(store, builder, config)) {
+            int threadCounts = 0;
+            for (Sampler sampler : samplers) {
+                try (MeasurementData data = new MeasurementData(execution.getResult(sampler.getIdentification()))) {
+                    int threads = data.getThreadCount();
+                    assertTrue(sampler.getIdentification().getIdentification().endsWith("{" + threads + "}"));
+                    threadCounts += threads;
+                    List<String> stored = data.getColumns();
+                    assertEquals(Code.getThreadColumn(threads - 1), stored.get(stored.indexOf(Code.COLUMN_CALLS) + threads));
+
+                    double[][] columns = data.readColumns(Code.COLUMN_CALLS, Code.COLUMN_THROUGHPUT, Code.COLUMN_ROUND_TIME, Code.COLUMN_TIME);
+                    double[] calls = new double[columns[0].length];
+                    Arrays.fill(calls, CALLS * threads);
+                    assertArrayEquals(calls, columns[0], 0);
+                    for (int i = 0; i < calls.length; ++i) {
+                        assertTrue(columns[1][i] > 0);
+                        // round spans times of all threads
+                        assertTrue(columns[2][i] >= columns[3][i]);
+                    }
+                }
+            }
+            assertEquals(3, threadCounts);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cz.cuni.mff.spl.configuration.ConfigurationBundle;
+import cz.cuni.mff.spl.configuration.SplDeploymentConfiguration;
+import cz.cuni.mff.spl.deploy.build.Builder;
+import cz.cuni.mff.spl.deploy.build.Sampler;
+import cz.cuni.mff.spl.deploy.execution.run.IExecution;
+import cz.cuni.mff.spl.deploy.store.LocalStore;
+import cz.cuni.mff.spl.deploy.store.utils.MeasurementData;
+
+/**
+ * Checks that samples contaminated by garbage collection are dropped when
+ * measurement is limited only by time, the measured method allocates and the
+ * young generation is small so that collections are frequent.
+ */
+public class GcDropRunTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final File     xml    = new File("src/test/projects/test-gc/spl.xml");
+
+    @Before
+    public void init() {
+        LogManager.getRootLogger().setLevel(Level.FATAL);
+    }
+
+    private static ConfigurationBundle createConfig() {
+        SplDeploymentConfiguration deployment = new SplDeploymentConfiguration(true, true, true, "java", "-Xmn4m", 200, 5, -1, 2, 60, "nanotime");
+        deployment.setGcPolicy("drop");
+        return Utils.createTestConfig(deployment);
+    }
+
+    @Test
+    public void test()
+            throws Exception {
+        ConfigurationBundle config = createConfig();
+
+        LocalStore store = new LocalStore(folder.newFolder("store"));
+        Builder builder = Utils.build(store, xml, config);
+
+        try (IExecution execution = Utils.run(store, builder, config)) {
+            for (Sampler sampler : builder.getSamplers()) {
+                try (MeasurementData data = new MeasurementData(execution.getResult(sampler.getIdentification()))) {
+                    assertEquals("drop", data.getGcPolicy());
+                    assertTrue(String.format("Dropped [%d] samples.", data.getGcDroppedCount()), data.getGcDroppedCount() > 0);
+                    assertEquals(0, data.getGcContaminatedCount());
+                }
+            }
+        }
+    }
+}
@@ -27,10 +27,21 @@
  */
 package cz.cuni.mff.spl.deploy;
 
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.List;
+
+import cz.cuni.mff.spl.annotation.Machine;
 import cz.cuni.mff.spl.configuration.ConfigurationBundle;
 import cz.cuni.mff.spl.configuration.SplAccessConfiguration;
 import cz.cuni.mff.spl.configuration.SplDeploymentConfiguration;
 import cz.cuni.mff.spl.configuration.SplEvaluatorConfiguration;
+import cz.cuni.mff.spl.deploy.build.Builder;
+import cz.cuni.mff.spl.deploy.build.Sampler;
+import cz.cuni.mff.spl.deploy.execution.run.IExecution;
+import cz.cuni.mff.spl.deploy.execution.run.LocalExecution;
+import cz.cuni.mff.spl.deploy.store.LocalStore;
 
 /**
  * 
@@ -48,4 +59,99 @@ public class Utils {
 
         return config;
     }
+
+    /**
+     * @param deployment
+     *            Deployment configuration of the test.
+     * @return
+     *         Test configuration with the deployment configuration.
+     */
+    public static ConfigurationBundle createTestConfig(SplDeploymentConfiguration deployment) {
+        return new ConfigurationBundle(
+                SplAccessConfiguration.createDefaultConfiguration(),
+                SplEvaluatorConfiguration.createDefaultConfigurationWithoutGraphs(),
+                deployment);
+    }
+
+    /**
+     * Builds samplers of the project, fails when none is built.
+     * 
+     * @param store
+     * @param xml
+     *            Project configuration.
+     * @param config
+     * @return
+     *         The called builder.
+     * @throws Exception
+     */
+    public static Builder build(LocalStore store, File xml, ConfigurationBundle config)
+            throws Exception {
+        Builder builder = new Builder(store, new Machine("test", "test"), xml, null, config);
+        builder.call();
+
+        if (builder.getSamplers().isEmpty()) {
+            fail("No sampling code built.");
+        }
+
+        return builder;
+    }
+
+    /**
+     * Creates local execution of the samplers which is not started yet.
+     * 
+     * @param store
+     * @param builder
+     *            Builder of the samplers.
+     * @param samplers
+     * @param config
+     * @return
+     *         The execution.
+     * @throws Exception
+     */
+    public static IExecution createExecution(LocalStore store, Builder builder, List<Sampler> samplers, ConfigurationBundle config)
+            throws Exception {
+        File executionDirectory = store.createTemporaryDirectory("execution");
+        return new LocalExecution(builder.getInfo(), samplers, executionDirectory, config);
+    }
+
+    /**
+     * Waits for the execution, fails when it has not finished successfully.
+     * 
+     * @param execution
+     * @throws Exception
+     */
+    public static void waitForSuccess(IExecution execution)
+            throws Exception {
+        execution.waitForFinished();
+
+        if (!execution.isSuccessful()) {
+            fail("Execution has not finished successfully.");
+        }
+    }
+
+    /**
+     * Runs all built samplers locally and waits until they successfully finish.
+     * The returned execution must be closed.
+     * 
+     * @param store
+     * @param builder
+     *            Builder of the samplers.
+     * @param config
+     * @return
+     *         The finished execution.
+     * @throws Exception
+     */
+    public static IExecution run(LocalStore store, Builder builder, ConfigurationBundle config)
+            throws Exception {
+        IExecution execution = createExecution(store, builder, builder.getSamplers(), config);
+        try {
+            execution.start();
+            waitForSuccess(execution);
+            return execution;
+
+        } catch (Exception | Error e) {
+            execution.close();
+            throw e;
+        }
+    }
 }
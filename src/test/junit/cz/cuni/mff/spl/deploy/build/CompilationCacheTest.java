@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.build;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.tools.JavaFileObject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cz.cuni.mff.spl.deploy.build.exception.CompileException;
+
+/**
+ * Checks modules with the same sources are compiled once and their classes
+ * written into every output directory.
+ */
+public class CompilationCacheTest {
+
+    /** Threads compiling concurrently. */
+    private static final int THREADS = 4;
+
+    @Rule
+    public TemporaryFolder   folder  = new TemporaryFolder();
+
+    private CompilationCache cache;
+
+    @Before
+    public void init()
+            throws Exception {
+        cache = new CompilationCache();
+    }
+
+    @After
+    public void close() {
+        cache.close();
+    }
+
+    private static List<JavaFileObject> interfaces() {
+        return Arrays.asList(Compiler.createSource("IShape", "public interface IShape { int size(); }"));
+    }
+
+    private static List<JavaFileObject> implementation(int size) {
+        return Arrays.asList(Compiler.createSource("CShape", "public class CShape implements IShape { public int size() { return " + size + "; } }"));
+    }
+
+    @Test
+    public void testSameModuleCompiledOnce()
+            throws Exception {
+        File first = folder.newFolder("first");
+        File second = folder.newFolder("second");
+
+        String firstBase = cache.compile(interfaces(), null, null, new File[0], first);
+        String secondBase = cache.compile(interfaces(), null, null, new File[0], second);
+        assertEquals(firstBase, secondBase);
+
+        String firstModule = cache.compile(implementation(1), first, firstBase, new File[0], new File(first, "impl"));
+        String secondModule = cache.compile(implementation(1), second, secondBase, new File[0], new File(second, "impl"));
+        assertEquals(firstModule, secondModule);
+
+        assertEquals(2, cache.getCompilationCount());
+        assertTrue(new File(second, "IShape.class").isFile());
+        assertTrue(new File(second, "impl/CShape.class").isFile());
+        assertFalse(new File(second, "impl/IShape.class").exists());
+    }
+
+    @Test
+    public void testDifferentSourcesCompiledSeparately()
+            throws Exception {
+        File first = folder.newFolder("first");
+        File second = folder.newFolder("second");
+
+        String base = cache.compile(interfaces(), null, null, new File[0], first);
+        cache.compile(interfaces(), null, null, new File[0], second);
+
+        String firstModule = cache.compile(implementation(1), first, base, new File[0], first);
+        String secondModule = cache.compile(implementation(2), second, base, new File[0], second);
+        assertFalse(firstModule.equals(secondModule));
+        assertEquals(3, cache.getCompilationCount());
+    }
+
+    @Test
+    public void testConcurrentCompilations()
+            throws Exception {
+        final File base = folder.newFolder("base");
+        final String baseModule = cache.compile(interfaces(), null, null, new File[0], base);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> modules = new ArrayList<>();
+            for (int i = 0; i < 2 * THREADS; ++i) {
+                final int size = i % 2;
+                final File output = folder.newFolder("output" + i);
+                modules.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call()
+                            throws Exception {
+                        return cache.compile(implementation(size), base, baseModule, new File[0], output);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < modules.size(); ++i) {
+                assertEquals(modules.get(i % 2).get(), modules.get(i).get());
+                assertTrue(new File(folder.getRoot(), "output" + i + "/CShape.class").isFile());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // interfaces and two implementations, each compiled once
+        assertEquals(3, cache.getCompilationCount());
+    }
+
+    @Test(expected = CompileException.class)
+    public void testCompilationFailure()
+            throws Exception {
+        cache.compile(implementation(1), null, null, new File[0], folder.newFolder("output"));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.build;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cz.cuni.mff.spl.annotation.Build;
+import cz.cuni.mff.spl.annotation.Generator;
+import cz.cuni.mff.spl.annotation.Machine;
+import cz.cuni.mff.spl.annotation.Measurement;
+import cz.cuni.mff.spl.annotation.Method;
+import cz.cuni.mff.spl.annotation.Method.DeclarationType;
+import cz.cuni.mff.spl.annotation.ParserVariable;
+import cz.cuni.mff.spl.annotation.Project;
+import cz.cuni.mff.spl.annotation.Repository;
+import cz.cuni.mff.spl.annotation.Revision;
+
+/**
+ * Checks measurements of different revisions with the same reachable bytecode
+ * have the same fingerprint.
+ */
+public class MeasurementFingerprintTest {
+
+    @Rule
+    public TemporaryFolder   folder = new TemporaryFolder();
+
+    private CompilationCache compiler;
+    private Project          project;
+
+    @Before
+    public void init()
+            throws Exception {
+        LogManager.getRootLogger().setLevel(Level.FATAL);
+        compiler = new CompilationCache();
+
+        project = new Project();
+        project.setAlias("project");
+        project.setBuild(new Build("command"));
+        project.setRepository(new Repository("git", "url"));
+        project.getClasspaths().add("classes");
+    }
+
+    @After
+    public void close() {
+        compiler.close();
+    }
+
+    private File revisionDirectory(String name, int helperValue, int otherValue)
+            throws Exception {
+        File directory = folder.newFolder(name);
+        File classes = new File(directory, "classes");
+        compiler.compile(Arrays.asList(
+                Compiler.createSource("Helper", "public class Helper { public static int value() { return " + helperValue + "; } }"),
+                Compiler.createSource("Other", "public class Other { public static int value() { return " + otherValue + "; } }"),
+                Compiler.createSource("Meth", "public class Meth { public int run(java.util.List<Helper> list) { return Helper.value(); } }"),
+                Compiler.createSource("Gen", "public class Gen { public Object create() { return new Meth(); } }")),
+                null, null, new File[0], classes);
+        return directory;
+    }
+
+    @SuppressWarnings("deprecation")
+    private Measurement measurement(String revisionIdentification) {
+        Revision revision = new Revision(revisionIdentification, revisionIdentification);
+        revision.setRevisionIdentification(revisionIdentification);
+        project.getRepository().addRevision(revision);
+
+        Method method = new Method();
+        method.setRevision(revision);
+        method.setPath("Meth");
+        method.setName("run");
+        method.setDeclarated(DeclarationType.WITHOUT_PARAMETERS);
+
+        Measurement measurement = new Measurement(method, new Generator(revision, "Gen", null, null), new Machine("localhost", "Local computer"));
+        measurement.setVariable(new ParserVariable());
+        return measurement;
+    }
+
+    @Test
+    public void testSameBytecodeSameFingerprint()
+            throws Exception {
+        File first = revisionDirectory("first", 1, 1);
+        File second = revisionDirectory("second", 1, 2);
+
+        MeasurementFingerprint fingerprint = new MeasurementFingerprint();
+        assertEquals(fingerprint.create(measurement("r1"), first, first), fingerprint.create(measurement("r2"), second, second));
+    }
+
+    @Test
+    public void testReachableChangeDifferentFingerprint()
+            throws Exception {
+        File first = revisionDirectory("first", 1, 1);
+        File second = revisionDirectory("second", 2, 1);
+
+        MeasurementFingerprint fingerprint = new MeasurementFingerprint();
+        assertFalse(fingerprint.create(measurement("r1"), first, first).equals(fingerprint.create(measurement("r2"), second, second)));
+    }
+
+    @Test
+    public void testReadReferences()
+            throws Exception {
+        File directory = revisionDirectory("classes", 1, 1);
+        byte[] bytecode = Files.readAllBytes(new File(directory, "classes/Meth.class").toPath());
+        assertTrue(MeasurementFingerprint.readReferences(bytecode).contains("Helper"));
+        assertFalse(MeasurementFingerprint.readReferences(bytecode).contains("Other"));
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.build;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cz.cuni.mff.spl.annotation.Build;
+import cz.cuni.mff.spl.annotation.Project;
+import cz.cuni.mff.spl.annotation.Repository;
+import cz.cuni.mff.spl.annotation.Revision;
+
+/**
+ * Checks built revisions are kept between cache instances and least recently
+ * used ones are evicted.
+ */
+public class RevisionCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File revision(String name, int size)
+            throws Exception {
+        File directory = folder.newFolder(name);
+        Files.write(new File(directory, "data").toPath(), new byte[size]);
+        return directory;
+    }
+
+    private static Revision revision(String url, String command) {
+        Build build = new Build();
+        build.setCommand(command);
+        Project project = new Project();
+        project.setBuild(build);
+        Repository repository = new Repository("git", url);
+        repository.setProject(project);
+        Revision revision = new Revision("head", "HEAD");
+        revision.setRepository(repository);
+        return revision;
+    }
+
+    @Test
+    public void testPutAndGet()
+            throws Exception {
+        File directory = folder.newFolder("cache");
+        File built = revision("built", 10);
+
+        File entry;
+        try (RevisionCache cache = new RevisionCache(directory, 1000)) {
+            entry = cache.put("first", built);
+        }
+        assertFalse(built.exists());
+        assertTrue(new File(entry, "data").isFile());
+
+        try (RevisionCache cache = new RevisionCache(directory, 1000)) {
+            assertEquals(entry, cache.get("first"));
+            assertNull(cache.get("second"));
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted()
+            throws Exception {
+        File directory = folder.newFolder("cache");
+        try (RevisionCache cache = new RevisionCache(directory, 1000)) {
+            cache.put("first", revision("first", 400));
+        }
+        try (RevisionCache cache = new RevisionCache(directory, 1000)) {
+            cache.put("second", revision("second", 400));
+        }
+
+        File first = new File(directory, "first");
+        File second = new File(directory, "second");
+        first.setLastModified(System.currentTimeMillis() - 20000);
+        second.setLastModified(System.currentTimeMillis() - 10000);
+
+        try (RevisionCache cache = new RevisionCache(directory, 1000)) {
+            assertNotNull(cache.get("first"));
+            cache.put("third", revision("third", 400));
+
+            assertNotNull(cache.get("first"));
+            assertNull(cache.get("second"));
+            assertNotNull(cache.get("third"));
+        }
+    }
+
+    @Test
+    public void testLeasedEntryNotEvicted()
+            throws Exception {
+        File directory = folder.newFolder("cache");
+        try (RevisionCache cache = new RevisionCache(directory, 1000)) {
+            cache.put("first", revision("first", 400));
+        }
+        new File(directory, "first").setLastModified(System.currentTimeMillis() - 20000);
+
+        // another run still uses the least recently used entry
+        try (RevisionCache running = new RevisionCache(directory, 1000)) {
+            assertNotNull(running.get("first"));
+            new File(directory, "first").setLastModified(System.currentTimeMillis() - 20000);
+
+            try (RevisionCache cache = new RevisionCache(directory, 1000)) {
+                cache.put("second", revision("second", 400));
+                cache.put("third", revision("third", 400));
+                assertTrue(new File(directory, "first").isDirectory());
+            }
+        }
+        new File(directory, "first").setLastModified(System.currentTimeMillis() - 20000);
+
+        // released entry is evicted by the next run over the limit
+        try (RevisionCache cache = new RevisionCache(directory, 1000)) {
+            cache.put("fourth", revision("fourth", 100));
+            assertNull(cache.get("first"));
+            assertNotNull(cache.get("fourth"));
+        }
+    }
+
+    @Test
+    public void testKeyDependsOnRepositoryAndBuild()
+            throws Exception {
+        String key = RevisionCache.createKey(revision("file:///first", "ant"), "abc");
+        assertTrue(key.startsWith("abc-"));
+        assertEquals(key, RevisionCache.createKey(revision("file:///first", " ant "), "abc"));
+        assertFalse(key.equals(RevisionCache.createKey(revision("file:///second", "ant"), "abc")));
+        assertFalse(key.equals(RevisionCache.createKey(revision("file:///first", "make"), "abc")));
+    }
+}
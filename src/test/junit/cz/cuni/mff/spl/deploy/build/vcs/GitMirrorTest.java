@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.build.vcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cz.cuni.mff.spl.deploy.store.StoreUtils;
+import cz.cuni.mff.spl.utils.StringUtils;
+
+/**
+ * Checks revisions are exported from a mirror in the store which is shared
+ * and updated by following runs.
+ */
+public class GitMirrorTest {
+
+    @Rule
+    public TemporaryFolder           folder = new TemporaryFolder();
+
+    private File                     store;
+    private File                     origin;
+    private org.eclipse.jgit.api.Git repository;
+
+    @Before
+    public void init()
+            throws Exception {
+        LogManager.getRootLogger().setLevel(Level.FATAL);
+
+        store = folder.newFolder("store");
+        origin = folder.newFolder("origin");
+        repository = org.eclipse.jgit.api.Git.init().setDirectory(origin).call();
+    }
+
+    private String commit(String file, String content)
+            throws Exception {
+        Files.write(new File(origin, file).toPath(), StringUtils.getStringBytes(content));
+        repository.add().addFilepattern(file).call();
+        return repository.commit().setMessage(file).call().getName();
+    }
+
+    private Git createGit()
+            throws Exception {
+        return new Git(origin.toPath().toUri().toString(), new HashMap<String, String>(), null, folder.newFolder(), store);
+    }
+
+    private static String read(File file)
+            throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), "UTF-8");
+    }
+
+    @Test
+    public void testCheckout()
+            throws Exception {
+        String first = commit("file", "first");
+        repository.tag().setName("1.0").call();
+        String second = commit("file", "second");
+
+        Git git = createGit();
+
+        File head = folder.newFolder();
+        assertEquals(second, git.checkout("HEAD", head));
+        assertEquals("second", read(new File(head, "file")));
+        assertFalse(new File(head, ".git").exists());
+
+        File tag = folder.newFolder();
+        assertEquals(first, git.checkout("1.0", tag));
+        assertEquals("first", read(new File(tag, "file")));
+
+        File branch = folder.newFolder();
+        assertEquals(second, git.checkout("origin/master", branch));
+        assertEquals(first, git.resolve(first.substring(0, 8)));
+    }
+
+    @Test
+    public void testMirrorUpdated()
+            throws Exception {
+        commit("file", "first");
+        createGit().checkout("master", folder.newFolder());
+
+        String second = commit("other", "second");
+        Git git = createGit();
+        assertEquals(second, git.resolve("master"));
+
+        File directory = folder.newFolder();
+        git.checkout("master", directory);
+        assertTrue(new File(directory, "file").isFile());
+        assertTrue(new File(directory, "other").isFile());
+
+        assertEquals(1, new File(store, StoreUtils.MIRRORS).listFiles().length);
+    }
+
+    @Test
+    public void testFallbackToSystemGit()
+            throws Exception {
+        Assume.assumeTrue(GitSystem.isPresent());
+        String first = commit("file", "first");
+
+        // mirror can't be created under a plain file
+        Files.write(new File(store, StoreUtils.MIRRORS).toPath(), new byte[0]);
+
+        File directory = folder.newFolder();
+        assertEquals(first, createGit().checkout("master", directory));
+        assertEquals("first", read(new File(directory, "file")));
+    }
+}
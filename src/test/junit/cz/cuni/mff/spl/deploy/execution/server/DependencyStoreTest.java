@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.execution.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cz.cuni.mff.spl.deploy.build.DependencyCache;
+import cz.cuni.mff.spl.utils.FileUtils;
+
+/**
+ * Checks dependency archives are named by their content and that jobs get
+ * their dependencies linked from the shared base directory.
+ */
+public class DependencyStoreTest {
+
+    @Rule
+    public TemporaryFolder  folder = new TemporaryFolder();
+
+    private DependencyCache cache;
+
+    @Before
+    public void init()
+            throws Exception {
+        cache = new DependencyCache(folder.newFolder("cache"), null);
+    }
+
+    @Test
+    public void testSameContentSameArchive()
+            throws Exception {
+        File first = folder.newFolder("first");
+        write(new File(first, "lib.jar"), "jar");
+        write(new File(first, "a/A.class"), "class");
+
+        File second = folder.newFolder("second");
+        write(new File(second, "lib.jar"), "jar");
+        write(new File(second, "a/A.class"), "class");
+
+        String hash = cache.add(first);
+        assertEquals(hash, cache.add(second));
+        assertTrue(cache.getArchive(hash).exists());
+        assertEquals(1, cache.getArchive(hash).getParentFile().list().length);
+
+        write(new File(second, "a/A.class"), "changed");
+        File third = folder.newFolder("third");
+        FileUtils.copyDirectory(second, third, null);
+        assertFalse(hash.equals(cache.add(third)));
+    }
+
+    @Test
+    public void testEmptyDirectoryIsSkipped()
+            throws Exception {
+        assertNull(cache.add(folder.newFolder("empty")));
+    }
+
+    @Test
+    public void testLink()
+            throws Exception {
+        File classpath = folder.newFolder("classpath");
+        write(new File(classpath, "a/A.class"), "class");
+        String hash = cache.add(classpath);
+
+        File base = folder.newFolder("base");
+        FileUtils.copy(cache.getArchive(hash), new File(base, DependencyStore.archiveFileName(hash)));
+        new File(base, DependencyStore.readyFileName(hash)).createNewFile();
+
+        DependencyStore store = new DependencyStore(base);
+        for (String job : new String[] { "1", "2" }) {
+            File jobDirectory = new File(base, job);
+            jobDirectory.mkdir();
+            write(new File(jobDirectory, DependencyStore.MANIFEST_FILE_NAME), "methodCP0 " + hash + "\n");
+
+            store.link(jobDirectory);
+            assertEquals("class", FileUtils.readEntireFileToString(new File(jobDirectory, "methodCP0/a/A.class")));
+        }
+
+        // deleting job does not delete the shared dependency
+        FileUtils.deleteAll(new File(base, "1"));
+        assertTrue(new File(base, "2/methodCP0/a/A.class").exists());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingDependency()
+            throws Exception {
+        File jobDirectory = folder.newFolder("job");
+        write(new File(jobDirectory, DependencyStore.MANIFEST_FILE_NAME), "methodCP0 0123\n");
+        try {
+            new DependencyStore(folder.getRoot()).link(jobDirectory);
+        } finally {
+            assertFalse(new File(jobDirectory, "methodCP0").exists());
+        }
+    }
+
+    private static void write(File file, String content)
+            throws IOException {
+        file.getParentFile().mkdirs();
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.execution.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks CPU sets of job slots resolved from fake CPU description of a machine
+ * with two cores and two hardware threads per core (siblings 0,2 and 1,3).
+ */
+public class SlotTopologyTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File           cpuDirectory;
+
+    @Before
+    public void init()
+            throws IOException {
+        cpuDirectory = folder.newFolder("cpu");
+        write(new File(cpuDirectory, "online"), "0-3");
+        for (int cpu = 0; cpu < 4; ++cpu) {
+            File topology = new File(cpuDirectory, "cpu" + cpu + "/topology");
+            topology.mkdirs();
+            write(new File(topology, "thread_siblings_list"), cpu % 2 == 0 ? "0,2" : "1,3");
+        }
+    }
+
+    private static void write(File file, String line)
+            throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(line + "\n");
+        }
+    }
+
+    @Test
+    public void testSingleSlotNotPinned()
+            throws IOException {
+        assertEquals(Collections.singletonList(""), new SlotTopology(1, "", false).resolve(cpuDirectory));
+    }
+
+    @Test
+    public void testDerivedSlots()
+            throws IOException {
+        assertEquals(Arrays.asList("0,1", "2,3"), new SlotTopology(2, "", false).resolve(cpuDirectory));
+        assertEquals(Arrays.asList("0", "1", "2", "3"), new SlotTopology(4, "", false).resolve(cpuDirectory));
+        // the remaining CPU is left unused
+        assertEquals(Arrays.asList("0", "1", "2"), new SlotTopology(3, "", false).resolve(cpuDirectory));
+    }
+
+    @Test
+    public void testSiblingsExcluded()
+            throws IOException {
+        assertEquals(Arrays.asList("0", "1"), new SlotTopology(2, "", true).resolve(cpuDirectory));
+        assertEquals(Arrays.asList("0,1"), new SlotTopology(1, "", true).resolve(cpuDirectory));
+        assertEquals(Arrays.asList("0,1"), new SlotTopology(1, "0-3", true).resolve(cpuDirectory));
+    }
+
+    @Test
+    public void testExplicitSlots()
+            throws IOException {
+        assertEquals(Arrays.asList("0,2", "1,3"), new SlotTopology(2, "2,0;1-1,3", false).resolve(cpuDirectory));
+    }
+
+    @Test(expected = IOException.class)
+    public void testOverlappingSlots()
+            throws IOException {
+        new SlotTopology(2, "0-2;2-3", false).resolve(cpuDirectory);
+    }
+
+    @Test(expected = IOException.class)
+    public void testSlotCountMismatch()
+            throws IOException {
+        new SlotTopology(3, "0-1;2-3", false).resolve(cpuDirectory);
+    }
+
+    @Test
+    public void testSaveAndLoad()
+            throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new SlotTopology(2, "", true).save(stream);
+        SlotTopology loaded = new SlotTopology(new ByteArrayInputStream(stream.toByteArray()));
+        assertEquals(Arrays.asList("0", "1"), loaded.resolve(cpuDirectory));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotEnoughCpus()
+            throws IOException {
+        new SlotTopology(3, "", true).resolve(cpuDirectory);
+    }
+
+    @Test(expected = IOException.class)
+    public void testMalformedCpus()
+            throws IOException {
+        new SlotTopology(1, "0-a", false).resolve(cpuDirectory);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2012, František Haas, Martin Lacina, Jaroslav Kotrč, Jiří Daniel
+ * All rights reserved.
+ * 
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the author nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" 
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE 
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE 
+ * ARE DISCLAIMED. IN NO EVENT SHALL AUTHOR BE LIABLE FOR ANY DIRECT, INDIRECT,
+ * INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT
+ * LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+ * OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF 
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING 
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE,
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ */
+package cz.cuni.mff.spl.deploy.execution.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that follower copies status lines appended by server while it runs
+ * and exits once server reports it has finished.
+ */
+public class StatusFollowerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void append(File file, String text)
+            throws IOException {
+        try (OutputStream stream = new FileOutputStream(file, true)) {
+            stream.write(text.getBytes());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testFollowsUntilFinished()
+            throws Exception {
+        final File serverDirectory = folder.newFolder("server");
+        final File status = new File(serverDirectory, Server.statusBatchFileName);
+
+        Thread server = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                    append(status, "a " + Server.startJobFileName + "\n");
+                    Thread.sleep(200);
+                    // incomplete line is not copied until it is completed
+                    append(status, "a " + Server.successJobFileName.substring(0, 3));
+                    Thread.sleep(200);
+                    append(status, Server.successJobFileName.substring(3) + "\n");
+                    new File(serverDirectory, Server.finishedFileName).createNewFile();
+                    append(status, Server.finishedFileName + "\n");
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        server.start();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        new StatusFollower(serverDirectory.getPath(), new PrintStream(output)).follow();
+        server.join();
+
+        String separator = System.lineSeparator();
+        assertEquals("a " + Server.startJobFileName + separator + "a " + Server.successJobFileName + separator + Server.finishedFileName
+                + separator, output.toString());
+    }
+}
@@ -0,0 +1,108 @@
+package cz.cuni.mff.spl.deploy.store.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Checks that {@link JmhResultImporter} converts raw iteration scores of JMH
+ * result into samples of single operation time keeping fork boundaries.
+ */
+public class JmhResultImporterTest {
+
+    private static String result(String mode, String unit, String rawData) {
+        return "[\n"
+                + "    {\n"
+                + "        \"jmhVersion\" : \"1.37\",\n"
+                + "        \"benchmark\" : \"spl.SMBenchmark.cycle\",\n"
+                + "        \"mode\" : \"" + mode + "\",\n"
+                + "        \"threads\" : 1,\n"
+                + "        \"forks\" : 2,\n"
+                + "        \"jvmArgs\" : [ \"-XX:CompileCommand=quiet\" ],\n"
+                + "        \"warmupIterations\" : 5,\n"
+                + "        \"measurementIterations\" : 3,\n"
+                + "        \"params\" : { \"size\" : \"\\u0031\\n\" },\n"
+                + "        \"primaryMetric\" : {\n"
+                + "            \"score\" : 2.5,\n"
+                + "            \"scoreError\" : \"NaN\",\n"
+                + "            \"scoreConfidence\" : [ -1.5E-3, 1e2 ],\n"
+                + "            \"scoreUnit\" : \"" + unit + "\",\n"
+                + "            \"rawData\" : " + rawData + "\n"
+                + "        },\n"
+                + "        \"secondaryMetrics\" : { }\n"
+                + "    }\n"
+                + "]\n";
+    }
+
+    private static MeasurementData importResult(String json)
+            throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        JmhResultImporter.importResult(new ByteArrayInputStream(json.getBytes()), JmhResultImporter.SAMPLER_BENCHMARK, "sampler", output);
+        return new MeasurementData(new ByteArrayInputStream(output.toByteArray()));
+    }
+
+    @Test
+    public void testAverageTime()
+            throws IOException {
+        try (MeasurementData data = importResult(result("avgt", "us/op", "[ [ 1.5, 2.0, 2.5 ], [ 3.0, 3.5, 4.0 ] ]"))) {
+            assertEquals("sampler", data.getIdentification());
+            assertEquals(Integer.valueOf(5), data.getWarmupCount());
+            assertEquals(6, data.getExpectedSampleCount());
+            assertEquals(2, data.getForkCount());
+            assertArrayEquals(new long[] { 3, 3 }, data.getForkSampleCounts());
+            assertArrayEquals(new double[] { 1500, 2000, 2500, 3000, 3500, 4000 }, data.readSamples(1), 1e-9);
+        }
+    }
+
+    @Test
+    public void testThroughput()
+            throws IOException {
+        try (MeasurementData data = importResult(result("thrpt", "ops/ms", "[ [ 4, 0.5 ] ]"))) {
+            assertEquals(1, data.getForkCount());
+            assertArrayEquals(new double[] { 250000, 2000000 }, data.readSamples(1), 1e-9);
+        }
+    }
+
+    @Test
+    public void testNonAsciiStrings()
+            throws IOException {
+        // characters outside ASCII are valid in strings only
+        String json = result("avgt", "ns/op", "[ [ 1, 2 ] ]").replace("\\u0031\\n", "\u017e\u6f22");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        JmhResultImporter.importResult(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), JmhResultImporter.SAMPLER_BENCHMARK, "sampler",
+                output);
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(output.toByteArray()))) {
+            assertArrayEquals(new double[] { 1, 2 }, data.readSamples(1), 1e-9);
+        }
+    }
+
+    @Test
+    public void testMissingBenchmark()
+            throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            JmhResultImporter.importResult(new ByteArrayInputStream(result("avgt", "ns/op", "[ [ 1 ] ]").getBytes()), "Other.cycle", "sampler", output);
+            fail("Missing benchmark imported.");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testUnsupportedUnit()
+            throws IOException {
+        try {
+            importResult(result("sample", "ns/op/op", "[ [ 1 ] ]"));
+            fail("Unsupported unit imported.");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package cz.cuni.mff.spl.deploy.store.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import cz.cuni.mff.spl.deploy.build.Code;
+
+/**
+ * Checks that {@link MeasurementData} reads both text and binary sample
+ * sections and that {@link MeasurementDataMerger} keeps fork boundaries.
+ */
+public class MeasurementDataTest {
+
+    private static final String HEADER = "#sampler\n"
+                                               + Code.PROPERTY_DATE + "2012-01-01\n"
+                                               + Code.PROPERTY_WARMUP_COUNT + "10\n"
+                                               + Code.PROPERTY_SAMPLE_COUNT + "3\n";
+
+    @Test
+    public void testTextSamples()
+            throws IOException {
+        String text = HEADER + Code.MARK_SAMPLES_BEGIN + "\n1\n2\n3\n" + Code.MARK_SAMPLES_END + "\n";
+
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(text.getBytes()))) {
+            assertEquals("sampler", data.getIdentification());
+            assertEquals(Integer.valueOf(10), data.getWarmupCount());
+            assertTrue(Double.isNaN(data.getPrecision()));
+            assertEquals(3, data.getExpectedSampleCount());
+            assertArrayEquals(new double[] { 1, 2, 3 }, data.readSamples(1), 0);
+            assertFalse(data.hasSample());
+        }
+    }
+
+    @Test
+    public void testWarmupEndProperties()
+            throws IOException {
+        String steady = HEADER
+                + Code.PROPERTY_WARMUP_MODE + "adaptive\n"
+                + Code.PROPERTY_WARMUP_END + Code.WARMUP_END_STEADY + "\n"
+                + Code.MARK_SAMPLES_BEGIN + "\n1\n2\n3\n" + Code.MARK_SAMPLES_END + "\n";
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(steady.getBytes()))) {
+            assertEquals("adaptive", data.getWarmupMode());
+            assertEquals(Code.WARMUP_END_STEADY, data.getWarmupEnd());
+            assertEquals(Integer.valueOf(10), data.getWarmupCount());
+        }
+
+        String limit = HEADER
+                + Code.PROPERTY_WARMUP_MODE + "adaptive\n"
+                + Code.PROPERTY_WARMUP_END + Code.WARMUP_END_LIMIT + "\n"
+                + Code.MARK_SAMPLES_BEGIN + "\n1\n2\n3\n" + Code.MARK_SAMPLES_END + "\n";
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(limit.getBytes()))) {
+            assertEquals("adaptive", data.getWarmupMode());
+            assertEquals(Code.WARMUP_END_LIMIT, data.getWarmupEnd());
+        }
+
+        // data measured before warmup end was recorded
+        String old = HEADER + Code.MARK_SAMPLES_BEGIN + "\n1\n2\n3\n" + Code.MARK_SAMPLES_END + "\n";
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(old.getBytes()))) {
+            assertNull(data.getWarmupMode());
+            assertNull(data.getWarmupEnd());
+        }
+    }
+
+    @Test
+    public void testBinarySamples()
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.write((HEADER + Code.MARK_SAMPLES_BINARY + "\n").getBytes());
+            // values containing line feed and carriage return bytes
+            output.writeLong(10);
+            output.writeLong(13);
+            output.writeLong(Long.MAX_VALUE);
+            output.write(("\n" + Code.MARK_SAMPLES_END + "\n").getBytes());
+        }
+
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals("sampler", data.getIdentification());
+            assertEquals(3, data.getExpectedSampleCount());
+            assertArrayEquals(new double[] { 20, 26, 2.0 * Long.MAX_VALUE }, data.readSamples(2), 0);
+            assertFalse(data.hasSample());
+        }
+    }
+
+    @Test
+    public void testBinaryColumns()
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.write((HEADER
+                    + Code.PROPERTY_COLUMNS + Code.COLUMN_TIME + "," + Code.COLUMN_GC_COUNT + "," + Code.COLUMN_GC_TIME + "\n"
+                    + Code.PROPERTY_GC_CONTAMINATED_COUNT + "1\n"
+                    + Code.PROPERTY_PRECISION + "0.25\n"
+                    + Code.MARK_SAMPLES_BINARY + "\n").getBytes());
+            output.writeLong(100);
+            output.writeLong(0);
+            output.writeLong(0);
+            output.writeLong(200);
+            output.writeLong(1);
+            output.writeLong(5000000);
+            output.writeLong(300);
+            output.writeLong(0);
+            output.writeLong(0);
+            output.write(("\n" + Code.MARK_SAMPLES_END + "\n").getBytes());
+        }
+
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(3, data.getColumns().size());
+            assertEquals(1, data.getGcContaminatedCount());
+            assertEquals(0.25, data.getPrecision(), 0);
+            assertArrayEquals(new double[] { 100, 200, 300 }, data.readSamples(1), 0);
+            assertFalse(data.hasSample());
+        }
+    }
+
+    @Test
+    public void testTimeSourceColumns()
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.write((HEADER
+                    + Code.PROPERTY_COLUMNS + Code.COLUMN_TIME + "," + Code.COLUMN_WALL_TIME + "," + Code.COLUMN_CPU_TIME + "\n"
+                    + Code.PROPERTY_TIME_SOURCE + Code.TIME_SOURCE_THREAD_TIME + "\n"
+                    + Code.MARK_SAMPLES_BINARY + "\n").getBytes());
+            for (int i = 1; i <= 3; ++i) {
+                output.writeLong(90 * i);
+                output.writeLong(100 * i);
+                output.writeLong(90 * i);
+            }
+            output.write(("\n" + Code.MARK_SAMPLES_END + "\n").getBytes());
+        }
+
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(Code.TIME_SOURCE_THREAD_TIME, data.getTimeSource());
+            double[][] columns = data.readColumns(Code.COLUMN_WALL_TIME, Code.COLUMN_CPU_TIME, Code.COLUMN_TIME);
+            assertArrayEquals(new double[] { 100, 200, 300 }, columns[0], 0);
+            assertArrayEquals(new double[] { 90, 180, 270 }, columns[1], 0);
+            assertArrayEquals(columns[1], columns[2], 0);
+        }
+    }
+
+    @Test
+    public void testTimeSourceColumnFallback()
+            throws IOException {
+        String header = HEADER + Code.PROPERTY_COLUMNS + Code.COLUMN_TIME + "," + Code.COLUMN_PAIRED_TIME + "\n"
+                + Code.PROPERTY_TIME_SOURCE + Code.TIME_SOURCE_NANO_TIME + "\n";
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.write((header + Code.MARK_SAMPLES_BINARY + "\n").getBytes());
+            for (int i = 1; i <= 3; ++i) {
+                output.writeLong(i);
+                output.writeLong(10 * i);
+            }
+            output.write(("\n" + Code.MARK_SAMPLES_END + "\n").getBytes());
+        }
+
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(bytes.toByteArray()))) {
+            // wall clock time is stored as time of the used time source
+            assertEquals(Code.COLUMN_TIME, data.resolveColumn(Code.COLUMN_WALL_TIME));
+            assertNull(data.resolveColumn(Code.COLUMN_CPU_TIME));
+            double[][] columns = data.readColumns(Code.COLUMN_WALL_TIME, Code.getPairedColumn(Code.COLUMN_WALL_TIME));
+            assertArrayEquals(new double[] { 1, 2, 3 }, columns[0], 0);
+            assertArrayEquals(new double[] { 10, 20, 30 }, columns[1], 0);
+        }
+
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(bytes.toByteArray()))) {
+            data.readColumns(Code.COLUMN_CPU_TIME);
+            fail("Thread CPU time was not measured.");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testConcurrentColumns()
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.write((HEADER
+                    + Code.PROPERTY_COLUMNS + Code.COLUMN_TIME + "," + Code.COLUMN_ROUND_TIME + "," + Code.COLUMN_CALLS + ","
+                    + Code.getThreadColumn(0) + "," + Code.getThreadColumn(1) + "\n"
+                    + Code.PROPERTY_THREADS + "2\n"
+                    + Code.MARK_SAMPLES_BINARY + "\n").getBytes());
+            for (int i = 1; i <= 3; ++i) {
+                output.writeLong(90 * i);
+                output.writeLong(100 * i);
+                output.writeLong(200);
+                output.writeLong(80 * i);
+                output.writeLong(100 * i);
+            }
+            output.write(("\n" + Code.MARK_SAMPLES_END + "\n").getBytes());
+        }
+
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(2, data.getThreadCount());
+            double[][] columns = data.readColumns(Code.COLUMN_THROUGHPUT, Code.getThreadColumn(1));
+            assertArrayEquals(new double[] { 2e9, 1e9, 2e9 / 3 }, columns[0], 1e-3);
+            assertArrayEquals(new double[] { 100, 200, 300 }, columns[1], 0);
+        }
+
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream((HEADER + Code.MARK_SAMPLES_BEGIN + "\n1\n2\n3\n"
+                + Code.MARK_SAMPLES_END + "\n").getBytes()))) {
+            assertEquals(0, data.getThreadCount());
+            data.readColumns(Code.COLUMN_THROUGHPUT);
+            fail("Throughput of single threaded measurement is not known.");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBatchedSamples()
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.write((HEADER
+                    + Code.PROPERTY_COLUMNS + Code.COLUMN_TIME + "," + Code.COLUMN_GC_COUNT + "," + Code.COLUMN_GC_TIME + ","
+                    + Code.COLUMN_BATCH + "\n"
+                    + Code.PROPERTY_TIMER_GRANULARITY + "1000\n"
+                    + Code.MARK_SAMPLES_BINARY + "\n").getBytes());
+            output.writeLong(400);
+            output.writeLong(2);
+            output.writeLong(80);
+            output.writeLong(4);
+            output.writeLong(600);
+            output.writeLong(0);
+            output.writeLong(0);
+            output.writeLong(4);
+            // sample of other fork with different batch
+            output.writeLong(70);
+            output.writeLong(1);
+            output.writeLong(0);
+            output.writeLong(1);
+            output.write(("\n" + Code.MARK_SAMPLES_END + "\n").getBytes());
+        }
+
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(1000, data.getTimerGranularity(), 0);
+            assertTrue(Double.isNaN(data.getTimerOverhead()));
+            assertArrayEquals(new double[] { 100, 150, 70 }, data.readSamples(1), 0);
+        }
+
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(bytes.toByteArray()))) {
+            double[][] columns = data.readColumns(Code.COLUMN_GC_COUNT, Code.COLUMN_GC_TIME, Code.COLUMN_BATCH);
+            assertArrayEquals(new double[] { 2, 0, 1 }, columns[0], 0);
+            assertArrayEquals(new double[] { 20, 0, 0 }, columns[1], 0);
+            assertArrayEquals(new double[] { 4, 4, 1 }, columns[2], 0);
+        }
+
+        // merged data keep the whole batches
+        ByteArrayOutputStream merged = new ByteArrayOutputStream();
+        MeasurementDataMerger.merge(Arrays.<InputStream> asList(new ByteArrayInputStream(bytes.toByteArray())), merged);
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(merged.toByteArray()))) {
+            assertArrayEquals(new long[] { 400, 2, 80, 4 }, data.readSampleRow());
+            assertArrayEquals(new double[] { 150, 70 }, data.readSamples(1), 0);
+        }
+    }
+
+    @Test
+    public void testPartialSamples()
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            // sampler did not finish, no sample count and the last row is torn
+            output.write(("#sampler\n" + Code.PROPERTY_DATE + "2012-01-01\n"
+                    + Code.PROPERTY_PARTIAL + "true\n" + Code.MARK_SAMPLES_BINARY + "\n").getBytes());
+            output.writeLong(1);
+            output.writeLong(2);
+            output.writeInt(3);
+        }
+
+        ByteArrayOutputStream completed = new ByteArrayOutputStream();
+        MeasurementDataMerger.complete(new ByteArrayInputStream(bytes.toByteArray()), completed);
+
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(completed.toByteArray()))) {
+            assertTrue(data.isPartial());
+            assertEquals("2012-01-01", data.getDate());
+            assertEquals(2, data.getExpectedSampleCount());
+            assertArrayEquals(new double[] { 1, 2 }, data.readSamples(1), 0);
+        }
+
+        ByteArrayOutputStream merged = new ByteArrayOutputStream();
+        MeasurementDataMerger.merge(Arrays.<InputStream> asList(
+                new ByteArrayInputStream((HEADER + Code.MARK_SAMPLES_BEGIN + "\n4\n5\n6\n" + Code.MARK_SAMPLES_END + "\n").getBytes()),
+                new ByteArrayInputStream(completed.toByteArray())), merged);
+
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(merged.toByteArray()))) {
+            assertTrue(data.isPartial());
+            assertArrayEquals(new long[] { 3, 2 }, data.getForkSampleCounts());
+            assertArrayEquals(new double[] { 4, 5, 6, 1, 2 }, data.readSamples(1), 0);
+        }
+    }
+
+    @Test
+    public void testMergeForks()
+            throws IOException {
+        String text = HEADER + Code.PROPERTY_GC_CONTAMINATED_COUNT + "1\n"
+                + Code.MARK_SAMPLES_BEGIN + "\n1\n2\n3\n" + Code.MARK_SAMPLES_END + "\n";
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.write((HEADER + Code.PROPERTY_GC_CONTAMINATED_COUNT + "2\n" + Code.MARK_SAMPLES_BINARY + "\n").getBytes());
+            output.writeLong(4);
+            output.writeLong(5);
+            output.writeLong(6);
+            output.write(("\n" + Code.MARK_SAMPLES_END + "\n").getBytes());
+        }
+
+        ByteArrayOutputStream merged = new ByteArrayOutputStream();
+        MeasurementDataMerger.merge(Arrays.<InputStream> asList(
+                new ByteArrayInputStream(text.getBytes()),
+                new ByteArrayInputStream(bytes.toByteArray())), merged);
+
+        try (MeasurementData data = new MeasurementData(new ByteArrayInputStream(merged.toByteArray()))) {
+            assertEquals("sampler", data.getIdentification());
+            assertEquals("2012-01-01", data.getDate());
+            assertEquals(6, data.getExpectedSampleCount());
+            assertEquals(3, data.getGcContaminatedCount());
+            assertEquals(2, data.getForkCount());
+            assertFalse(data.isPartial());
+            assertArrayEquals(new long[] { 3, 3 }, data.getForkSampleCounts());
+            assertArrayEquals(new double[] { 1, 2, 3, 4, 5, 6 }, data.readSamples(1), 0);
+            assertFalse(data.hasSample());
+        }
+    }
+}
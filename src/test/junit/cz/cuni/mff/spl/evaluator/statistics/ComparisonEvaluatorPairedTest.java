@@ -0,0 +1,73 @@
+package cz.cuni.mff.spl.evaluator.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cz.cuni.mff.spl.annotation.Comparison;
+import cz.cuni.mff.spl.annotation.Sign;
+import cz.cuni.mff.spl.configuration.SplEvaluatorConfiguration;
+import cz.cuni.mff.spl.evaluator.output.results.ComparisonResult;
+import cz.cuni.mff.spl.evaluator.output.results.StatisticalResult;
+
+public class ComparisonEvaluatorPairedTest {
+
+    private ComparisonEvaluatorPaired evaluator;
+
+    /** Left side is 5% slower than right side. */
+    private double[]                  left;
+
+    private double[]                  right;
+
+    @Before
+    public void setUp() {
+        SplEvaluatorConfiguration configuration = SplEvaluatorConfiguration.createDefaultConfigurationWithoutGraphs();
+        evaluator = new ComparisonEvaluatorPaired(configuration, new StatisticValueCheckerImpl(configuration));
+
+        // both sides share large drift which hides the difference
+        // in unpaired samples, matched samples keep the ratio
+        Random random = new Random(42);
+        left = new double[200];
+        right = new double[200];
+        for (int i = 0; i < left.length; ++i) {
+            double drift = 1000 + 800 * Math.sin(i / 5.0);
+            left[i] = drift * 1.05 * (1 + 0.01 * random.nextGaussian());
+            right[i] = drift * (1 + 0.01 * random.nextGaussian());
+        }
+    }
+
+    private ComparisonResult evaluate(double[] left, double[] right, Sign sign) {
+        return evaluator.processComparison(new Comparison(), left, right, null, null, Double.NaN, Double.NaN, sign);
+    }
+
+    @Test
+    public void testDetectsDifferenceOfMatchedSamples() {
+        assertTrue(evaluate(left, right, Sign.GT).isSatisfied());
+        assertTrue(evaluate(left, right, Sign.GE).isSatisfied());
+        assertTrue(evaluate(right, left, Sign.LT).isSatisfied());
+        assertFalse(evaluate(left, right, Sign.LT).isSatisfied());
+        assertFalse(evaluate(left, right, Sign.EQ).isSatisfied());
+    }
+
+    @Test
+    public void testIntervalEquality() {
+        Comparison comparison = new Comparison();
+        comparison.setInterval(0.1);
+        assertTrue(evaluator.processComparison(comparison, left, right, null, null, Double.NaN, Double.NaN, Sign.EQI).isSatisfied());
+
+        comparison.setInterval(0.01);
+        assertFalse(evaluator.processComparison(comparison, left, right, null, null, Double.NaN, Double.NaN, Sign.EQI).isSatisfied());
+    }
+
+    @Test
+    public void testNotEnoughMatchedSamples() {
+        // non-positive samples have no log ratio and are skipped
+        ComparisonResult result = evaluate(new double[] { 1, 0, -1 }, new double[] { 2, 3, 4 }, Sign.EQ);
+        assertEquals(StatisticalResult.NOT_COMPUTED, result.getStatisticalResult());
+    }
+}
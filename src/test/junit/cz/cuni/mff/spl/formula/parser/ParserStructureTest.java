@@ -200,6 +200,106 @@ public class ParserStructureTest {
         }
     }
 
+    /**
+     * Tests formula comparing allocation metric of measurements. Measurement
+     * of allocation differs from time measurement of the same method and
+     * generator.
+     */
+    @Test
+    public void testMetricMeasurementsFormula() throws ParseException, ExpanderException {
+        String str = "SELF[Generator1()]@alloc <= SELF[Generator1()] & SELF[Generator1()]@alloc <= SELF[Generator2()]@alloc";
+        ParserContext context = initContext();
+
+        assertParseFails(str, context);
+        assertEquals(1, context.getErrors().size());
+        assertEquals("Compared measurements have different metrics: alloc and time", context.getErrors().iterator().next().getText());
+
+        str = "SELF[Generator1()]@alloc <= SELF[Generator2()]@alloc";
+        context = initContext();
+        Comparison cmp = (Comparison) Parser.parseAndExpandFormula(str, context);
+        assertEquals(0, context.getErrors().size());
+        assertEquals(Measurement.METRIC_ALLOCATION, cmp.getLeftMeasurement().getMetric());
+        assertEquals(Measurement.METRIC_ALLOCATION, cmp.getRightMeasurement().getMetric());
+        assertTrue(cmp.getLeftMeasurement().getDeclarationString().endsWith("@alloc"));
+
+        Measurement time = cmp.getLeftMeasurement().getSampledMeasurement();
+        assertEquals(Measurement.METRIC_TIME, time.getMetric());
+        assertTrue(!time.equals(cmp.getLeftMeasurement()));
+
+        str = "SELF[Generator1()]@time <= SELF[Generator2()]";
+        context = initContext();
+        cmp = (Comparison) Parser.parseAndExpandFormula(str, context);
+        assertEquals(0, context.getErrors().size());
+        assertTrue(cmp.getLeftMeasurement() == cmp.getLeftMeasurement().getSampledMeasurement());
+
+        str = "SELF[Generator1()]@cputime <= SELF[Generator2()]@cputime";
+        context = initContext();
+        cmp = (Comparison) Parser.parseAndExpandFormula(str, context);
+        assertEquals(0, context.getErrors().size());
+        assertEquals(Measurement.METRIC_CPU_TIME, cmp.getLeftMeasurement().getMetric());
+        assertEquals(time, cmp.getLeftMeasurement().getSampledMeasurement());
+
+        str = "SELF[Generator1()]@heap <= SELF[Generator2()]@heap";
+        context = initContext();
+        assertParseFails(str, context);
+        assertEquals(1, context.getErrors().size());
+        assertEquals("Unknown metric: heap", context.getErrors().iterator().next().getText());
+    }
+
+    /**
+     * Tests formula comparing throughput of concurrent measurements. Count of
+     * threads may be given by number or by declared variable and makes the
+     * measurement different from single threaded one.
+     */
+    @Test
+    public void testConcurrentMeasurementsFormula() throws ParseException, ExpanderException {
+        String str = "SELF[Generator1()]{8}@throughput >= (1, 4) SELF[Generator1()]{1}@throughput";
+        ParserContext context = initContext();
+        Comparison cmp = (Comparison) Parser.parseAndExpandFormula(str, context);
+        assertEquals(0, context.getErrors().size());
+        assertEquals(Integer.valueOf(8), cmp.getLeftMeasurement().getThreads());
+        assertEquals(Integer.valueOf(1), cmp.getRightMeasurement().getThreads());
+        assertEquals(Measurement.METRIC_THROUGHPUT, cmp.getLeftMeasurement().getMetric());
+        assertTrue(cmp.getLeftMeasurement().getDeclarationString().endsWith("{8}@throughput"));
+        assertTrue(cmp.getLeftMeasurement().getSampledMeasurement().getIdentificationString().endsWith("{8}"));
+        assertEquals(Integer.valueOf(8), cmp.getLeftMeasurement().getSampledMeasurement().getThreads());
+        assertTrue(!cmp.getLeftMeasurement().getSampledMeasurement().equals(cmp.getRightMeasurement().getSampledMeasurement()));
+
+        str = "SELF[Generator1()]{1} = SELF[Generator1()]";
+        context = initContext();
+        cmp = (Comparison) Parser.parseAndExpandFormula(str, context);
+        assertEquals(0, context.getErrors().size());
+        assertNull(cmp.getRightMeasurement().getThreads());
+        assertTrue(!cmp.getLeftMeasurement().equals(cmp.getRightMeasurement()));
+
+        str = "for(t{2, 4})  SELF[Generator1()]{t}@throughput >= SELF[Generator1()]{1}@throughput";
+        context = initContext();
+        Formula formula = Parser.parseAndExpandFormula(str, context);
+        assertEquals(0, context.getErrors().size());
+        assertEquals(0, context.getWarnings().size());
+        assertEquals(Operator.AND, ((Expression) formula).getOperator());
+        assertEquals(Integer.valueOf(2), ((Comparison) ((Expression) formula).getLeft()).getLeftMeasurement().getThreads());
+        assertEquals(Integer.valueOf(4), ((Comparison) ((Expression) formula).getRight()).getLeftMeasurement().getThreads());
+
+        str = "SELF[Generator1()]{0} = SELF[Generator1()]{0}";
+        context = initContext();
+        assertParseFails(str, context);
+        assertEquals("Count of threads must be positive: 0", context.getErrors().iterator().next().getText());
+
+        str = "SELF[Generator1()]{t} = SELF[Generator1()]{1}";
+        context = initContext();
+        assertParseFails(str, context);
+        assertEquals("Variable t was not declared", context.getErrors().iterator().next().getText());
+    }
+
+    private static void assertParseFails(String str, ParserContext context) {
+        try {
+            Parser.parseAndExpandFormula(str, context);
+            Assert.fail("Parse exception was not thrown");
+        } catch (ParseException e) {
+        }
+    }
+
     /**
      * Tests simple formula without variables declaration with the same
      * measurement on both side of comparison that use not declared variable
@@ -0,0 +1,12 @@
+package main;
+
+public class Method {
+
+    public static void sort1(int[] a) {
+        java.util.Arrays.sort(a);
+    }
+
+    public static void sort2(int[] a) {
+        java.util.Arrays.sort(a);
+    }
+}
@@ -0,0 +1,40 @@
+package main;
+
+import cz.cuni.mff.spl.SPL;
+
+public class Measurement {
+
+    @SPL(
+            generators = {
+                    "generator="
+                            + "THIS@HEAD:"
+                            + "main."
+                            + "Generator()"
+            },
+            methods = {
+                    "sort1="
+                            + "METHOD@HEAD:"
+                            + "main."
+                            + "Method#sort1",
+                    "sort2="
+                            + "METHOD@HEAD:"
+                            + "main."
+                            + "Method#sort2",
+                    "broken1="
+                            + "BROKEN@HEAD:"
+                            + "main."
+                            + "Method#sort1",
+                    "broken2="
+                            + "BROKEN@HEAD:"
+                            + "main."
+                            + "Method#sort2"
+            },
+            formula = {
+                    "sort1[generator] = sort2[generator]",
+                    "broken1[generator] = broken2[generator]"
+            })
+    
+    public static void main(String args[]) {
+
+    }
+}
@@ -0,0 +1,27 @@
+package main;
+
+import cz.cuni.mff.spl.SPL;
+
+public class Measurement {
+
+    @SPL(
+            generators = {
+                    "generator="
+                            + "THIS@HEAD:"
+                            + "main."
+                            + "Generator()"
+            },
+            methods = {
+                    "fold="
+                            + "THIS@HEAD:"
+                            + "main."
+                            + "Method#fold"
+            },
+            formula = {
+                    "fold[generator]{2}@throughput >= (1, 4) fold[generator]{1}@throughput"
+            })
+    
+    public static void main(String args[]) {
+
+    }
+}
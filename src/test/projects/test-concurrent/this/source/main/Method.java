@@ -0,0 +1,13 @@
+package main;
+
+public class Method {
+
+    /** Computation without shared state, scales with threads. */
+    public static long fold(int n) {
+        long x = 0;
+        for (int i = 0; i < n; i++) {
+            x = x * 31 + i;
+        }
+        return x;
+    }
+}
@@ -0,0 +1,13 @@
+package main;
+
+import java.util.ArrayList;
+
+@SuppressWarnings("serial")
+public class Generator extends ArrayList<Object[]> {
+
+    public Generator() {
+        for (int i = 0; i < 10; i++) {
+            this.add(new Object[] { 100000 });
+        }
+    }
+}
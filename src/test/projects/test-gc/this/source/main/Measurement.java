@@ -0,0 +1,31 @@
+package main;
+
+import cz.cuni.mff.spl.SPL;
+
+public class Measurement {
+
+    @SPL(
+            generators = {
+                    "generator="
+                            + "THIS@HEAD:"
+                            + "main."
+                            + "Generator()"
+            },
+            methods = {
+                    "allocate1="
+                            + "THIS@HEAD:"
+                            + "main."
+                            + "Method#allocate1",
+                    "allocate2="
+                            + "THIS@HEAD:"
+                            + "main."
+                            + "Method#allocate2"
+            },
+            formula = {
+                    "allocate1[generator] = allocate2[generator]"
+            })
+    
+    public static void main(String args[]) {
+
+    }
+}
@@ -0,0 +1,16 @@
+package main;
+
+public class Method {
+
+    /** Allocates garbage so that collections happen during measurement. */
+    public static long allocate1(int n) {
+        byte[] data = new byte[n];
+        return System.identityHashCode(data);
+    }
+
+    /** Allocates garbage so that collections happen during measurement. */
+    public static long allocate2(int n) {
+        byte[] data = new byte[n];
+        return System.identityHashCode(data);
+    }
+}
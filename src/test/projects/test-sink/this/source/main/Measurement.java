@@ -0,0 +1,31 @@
+package main;
+
+import cz.cuni.mff.spl.SPL;
+
+public class Measurement {
+
+    @SPL(
+            generators = {
+                    "generator="
+                            + "THIS@HEAD:"
+                            + "main."
+                            + "Generator()"
+            },
+            methods = {
+                    "fold1="
+                            + "THIS@HEAD:"
+                            + "main."
+                            + "Method#fold1",
+                    "fold2="
+                            + "THIS@HEAD:"
+                            + "main."
+                            + "Method#fold2"
+            },
+            formula = {
+                    "fold1[generator] = fold2[generator]"
+            })
+    
+    public static void main(String args[]) {
+
+    }
+}
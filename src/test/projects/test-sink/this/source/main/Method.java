@@ -0,0 +1,22 @@
+package main;
+
+public class Method {
+
+    /** Pure computation, eliminated when the result is not used. */
+    public static long fold1(int n) {
+        long x = 0;
+        for (int i = 0; i < n; i++) {
+            x = x * 31 + i;
+        }
+        return x;
+    }
+
+    /** Pure computation, eliminated when the result is not used. */
+    public static long fold2(int n) {
+        long x = 0;
+        for (int i = 0; i < n; i++) {
+            x = x * 31 + i;
+        }
+        return x;
+    }
+}
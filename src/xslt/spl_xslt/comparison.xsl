@@ -72,6 +72,8 @@
 			select="$comparisonResult/comparison-result-MWW/@result" />
 		<xsl:variable name="statisticalResultKS"
 			select="$comparisonResult/comparison-result-KS/@result" />
+		<xsl:variable name="statisticalResultPaired"
+			select="$comparisonResult/comparison-result-paired/@result" />
 		<xsl:choose>
 			<xsl:when test="$statisticalResult = 'NOT_COMPUTED'">
 				<div class="section">
@@ -198,6 +200,38 @@
 
 					
 					</table>
+					<xsl:if test="$statisticalResultPaired = ('OK', 'FAILED')">
+						<xsl:variable name="isSatisfiedPaired" select="$statisticalResultPaired eq 'OK'" />
+						<h3>Paired T Test</h3>
+						<p> The paired T-Test compares log ratios of samples measured by single sampler in the same cycles. Conditions drifting during measurement affect both sides alike, so this test detects smaller relative differences.</p>
+						<table class="comparison-statistical-data statistical-data">
+							<xsl:call-template name="PRINTER.tableRow">
+								<xsl:with-param name="KEY"
+									select="'Comparison evaluation result'" />
+								<xsl:with-param name="VALUE" select="$statisticalResultPaired" />
+								<xsl:with-param name="VALID" select="$isSatisfiedPaired" />
+							</xsl:call-template>
+							<xsl:call-template name="PRINTER.tableRow">
+								<xsl:with-param name="KEY" select="'p-value'" />
+								<xsl:with-param name="VALUE">
+									<xsl:call-template name="PRINTER.format.pvalue">
+										<xsl:with-param name="VALUE"
+											select="$comparisonResult/comparison-result-paired/@pValue" />
+									</xsl:call-template>
+								</xsl:with-param>
+								<xsl:with-param name="VALID" select="$isSatisfiedPaired" />
+							</xsl:call-template>
+							<xsl:call-template name="PRINTER.tableRow">
+								<xsl:with-param name="KEY" select="'limit p-value'" />
+								<xsl:with-param name="VALUE">
+									<xsl:call-template name="PRINTER.format.pvalue">
+										<xsl:with-param name="VALUE"
+											select="/*/configuration/evaluation-configuration/evaluator.statistics/@t-test-limit-p-value" />
+									</xsl:call-template>
+								</xsl:with-param>
+							</xsl:call-template>
+						</table>
+					</xsl:if>
 
 
 				</div>
@@ -625,6 +625,27 @@
 					</xsl:choose>
 				</xsl:with-param>
 			</xsl:call-template>
+			<xsl:if test="$measurement/@threads">
+				<xsl:call-template name="PRINTER.tableRow">
+					<xsl:with-param name="KEY" select="'Concurrent threads'" />
+					<xsl:with-param name="VALUE" select="$measurement/@threads" />
+				</xsl:call-template>
+			</xsl:if>
+			<xsl:if test="$measurement/@metric and $measurement/@metric != 'time'">
+				<xsl:call-template name="PRINTER.tableRow">
+					<xsl:with-param name="KEY" select="'Metric'" />
+					<xsl:with-param name="VALUE">
+						<xsl:choose>
+							<xsl:when test="$measurement/@metric = 'alloc'">allocated memory [B]</xsl:when>
+							<xsl:when test="$measurement/@metric = 'walltime'">wall clock time [ns]</xsl:when>
+							<xsl:when test="$measurement/@metric = 'cputime'">thread CPU time [ns]</xsl:when>
+							<xsl:when test="$measurement/@metric = 'gctime'">garbage collection time [ns]</xsl:when>
+							<xsl:when test="$measurement/@metric = 'throughput'">throughput of all threads [calls/s]</xsl:when>
+							<xsl:otherwise><xsl:value-of select="$measurement/@metric" /></xsl:otherwise>
+						</xsl:choose>
+					</xsl:with-param>
+				</xsl:call-template>
+			</xsl:if>
 
 			<xsl:if test="$FULL">
 				<xsl:if test="$MEASUREMENTSAMPLE/sampleStatistics/@measuredDate">
@@ -868,6 +889,12 @@
 		]
 		<xsl:value-of
 			select="concat('(',string-join($MEASUREMENT/variables/variable, ', '),')')" />
+		<xsl:if test="$MEASUREMENT/@threads">
+			<xsl:value-of select="concat('{', $MEASUREMENT/@threads, '}')" />
+		</xsl:if>
+		<xsl:if test="$MEASUREMENT/@metric and $MEASUREMENT/@metric != 'time'">
+			<xsl:value-of select="concat('@', $MEASUREMENT/@metric)" />
+		</xsl:if>
 
 	</xsl:template>
 
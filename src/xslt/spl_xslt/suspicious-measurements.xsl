@@ -18,7 +18,8 @@
 	<xsl:template name="SPL.page.suspicious.measurements">
 		<p>
 			Those measurements have not passed validation of measurement values
-			check using following configuration.
+			check using following configuration. Measurements with samples
+			measured while garbage collection occurred are listed as well.
 		</p>
 
 		<table class="statistical-table">
@@ -87,6 +88,13 @@
 					<span class="unit">[%]</span>
 				</th>
 				<th class="col9 sorttable_nosort"></th>
+				<th class="col10">
+					GC
+					<br />
+					<span class="unit">[samples]</span>
+				</th>
+				<th class="col11 sorttable_nosort"></th>
+				<th class="col12">Partial</th>
 			</tr>
 
 			<xsl:for-each select="suspicious-measurement">
@@ -124,6 +132,19 @@
 							<xsl:call-template name="IMAGE.warning" />
 						</xsl:if>
 					</span>
+					<span>
+						<xsl:value-of select="@gc-contaminated" />
+					</span>
+					<span>
+						<xsl:if test="@is-gc-contaminated-suspicious = 'true'">
+							<xsl:call-template name="IMAGE.warning" />
+						</xsl:if>
+					</span>
+					<span>
+						<xsl:if test="@is-partial = 'true'">
+							<xsl:call-template name="IMAGE.warning" />
+						</xsl:if>
+					</span>
 				</xsl:variable>
 
 